@@ -0,0 +1,202 @@
+import benchmarks.EscenarioBenchmark;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Escenario de benchmarks sobre las clases de la aplicación
+ * Genera los datos de forma determinista (semilla fija) para que las corridas de
+ * distintos commits sean comparables.
+ * Principio S (Single Responsibility): Solo prepara datos y delega en la aplicación
+ * Principio L (Liskov Substitution): Sustituible por cualquier EscenarioBenchmark
+ */
+public class EscenarioLogistica implements EscenarioBenchmark {
+    private static final int CONSULTAS = 1 << 16;
+    private static final int CLIENTES = 1_000;
+    private static final int TAMANO_LOTE = 100_000;
+    private static final String[] TEXTOS_TIPO = {"Terrestre", "Aéreo", "Marítimo"};
+
+    private IRepositorioEnvios repositorio;
+    private IServicioLogistica servicio;
+    private Envio[] extras;
+    private String[] codigosConsulta;
+    private Envio[] enviosConsulta;
+    private String[] tiposTexto;
+    private String[] clientesTexto;
+    private double[] pesos;
+    private double[] distancias;
+    private TablaTarifas[] tablasAlternas;
+
+    @Override
+    public void preparar(String repositorio, String mezcla, int tamano, int extras) {
+        Random aleatorio = new Random(42);
+        this.repositorio = crearRepositorio(repositorio, tamano + extras);
+
+        String[] clientes = new String[CLIENTES];
+        for (int i = 0; i < CLIENTES; i++) {
+            clientes[i] = "Cliente " + i;
+        }
+
+        List<Envio> lote = new ArrayList<>(Math.min(tamano, TAMANO_LOTE));
+        String[] codigos = new String[tamano];
+        for (int i = 0; i < tamano; i++) {
+            codigos[i] = "ENV-" + i;
+            lote.add(generar(aleatorio, mezcla, clientes, codigos[i]));
+            if (lote.size() == TAMANO_LOTE) {
+                this.repositorio.agregarLote(lote, false);
+                lote.clear();
+            }
+        }
+        this.repositorio.agregarLote(lote, false);
+        this.servicio = new ServicioLogistica(this.repositorio);
+
+        this.extras = new Envio[extras];
+        for (int i = 0; i < extras; i++) {
+            this.extras[i] = generar(aleatorio, mezcla, clientes, "EXT-" + i);
+        }
+
+        codigosConsulta = new String[CONSULTAS];
+        enviosConsulta = new Envio[CONSULTAS];
+        tiposTexto = new String[CONSULTAS];
+        clientesTexto = new String[CONSULTAS];
+        pesos = new double[CONSULTAS];
+        distancias = new double[CONSULTAS];
+        for (int i = 0; i < CONSULTAS; i++) {
+            codigosConsulta[i] = codigos[aleatorio.nextInt(tamano)];
+            enviosConsulta[i] = this.repositorio.buscarPorCodigo(codigosConsulta[i]);
+            Envio muestra = generar(aleatorio, mezcla, clientes, "TXT-" + i);
+            tiposTexto[i] = TEXTOS_TIPO[muestra.getTipo().ordinal()];
+            clientesTexto[i] = muestra.getCliente();
+            pesos[i] = muestra.getPesoKg();
+            distancias[i] = muestra.getDistanciaKm();
+        }
+
+        TablaTarifas otra = TablaTarifas.POR_DEFECTO;
+        for (FabricaEnvios.TipoEnvio tipo : FabricaEnvios.TipoEnvio.values()) {
+            otra = otra.conPrecios(tipo, otra.getTarifaPorKm(tipo) * 1.1, otra.getRecargoPorKg(tipo) * 1.1);
+        }
+        tablasAlternas = new TablaTarifas[] {TablaTarifas.POR_DEFECTO, otra};
+        TablaTarifas.publicar(TablaTarifas.POR_DEFECTO);
+    }
+
+    @Override
+    public boolean agregarYRetirar(int indice) {
+        Envio envio = extras[indice];
+        return repositorio.agregar(envio) & repositorio.retirar(envio.getCodigoEnvio());
+    }
+
+    @Override
+    public Object buscarPorCodigo(int indice) {
+        return repositorio.buscarPorCodigo(codigosConsulta[indice & (CONSULTAS - 1)]);
+    }
+
+    @Override
+    public Object buscarEnvio(int indice) {
+        return servicio.buscarEnvio(codigosConsulta[indice & (CONSULTAS - 1)]);
+    }
+
+    @Override
+    public void instrumentar(int intervaloMuestreo) {
+        if (intervaloMuestreo > 0) {
+            servicio = new ServicioLogisticaInstrumentado(servicio, new MetricasServicio(intervaloMuestreo));
+        }
+    }
+
+    @Override
+    public double calcularTotalTarifas() {
+        return servicio.calcularTotalTarifas();
+    }
+
+    @Override
+    public Object crearEnvioDesdeString(int indice) {
+        int i = indice & (CONSULTAS - 1);
+        return FabricaEnvios.crearEnvioDesdeString(tiposTexto[i], clientesTexto[i], "TXT-" + i,
+                pesos[i], distancias[i]);
+    }
+
+    @Override
+    public String formatear(int indice) {
+        return enviosConsulta[indice & (CONSULTAS - 1)].toString();
+    }
+
+    @Override
+    public double calcularTarifa(int indice) {
+        return enviosConsulta[indice & (CONSULTAS - 1)].calcularTarifa();
+    }
+
+    @Override
+    public double calcularTarifaConstantes(int indice) {
+        Envio envio = enviosConsulta[indice & (CONSULTAS - 1)];
+        double peso = envio.getPesoKg();
+        double distancia = envio.getDistanciaKm();
+        switch (envio.getTipo()) {
+            case TERRESTRE:
+                return (1500.0 * distancia) + (2000.0 * peso);
+            case AEREO:
+                return (5000.0 * distancia) + (4000.0 * peso);
+            default:
+                return (800.0 * distancia) + (1000.0 * peso);
+        }
+    }
+
+    @Override
+    public void alternarTarifas(int indice) {
+        TablaTarifas.publicar(tablasAlternas[indice & 1]);
+    }
+
+    @Override
+    public double obtenerCosto(int indice) {
+        return enviosConsulta[indice & (CONSULTAS - 1)].getCosto();
+    }
+
+    @Override
+    public void modificarPeso(int indice) {
+        int i = indice & (CONSULTAS - 1);
+        enviosConsulta[i].setPesoKg(pesos[i]);
+    }
+
+    @Override
+    public void memorizarTarifas(boolean activar) {
+        Envio.setMemorizarTarifas(activar);
+    }
+
+    private static IRepositorioEnvios crearRepositorio(String nombre, int capacidad) {
+        switch (nombre) {
+            case "RepositorioEnvios":
+                return new RepositorioEnvios();
+            case "RepositorioEnviosIndexado":
+                return new RepositorioEnviosIndexado(capacidad);
+            case "RepositorioEnviosConcurrente":
+                return new RepositorioEnviosConcurrente(capacidad);
+            case "RepositorioEnviosColumnar":
+                return new RepositorioEnviosColumnar(capacidad);
+            case "RepositorioEnviosFueraDeHeap":
+                return new RepositorioEnviosFueraDeHeap(capacidad);
+            default:
+                throw new IllegalArgumentException("Repositorio no reconocido: " + nombre);
+        }
+    }
+
+    private static Envio generar(Random aleatorio, String mezcla, String[] clientes, String codigo) {
+        FabricaEnvios.TipoEnvio tipo;
+        switch (mezcla) {
+            case "TERRESTRE":
+                tipo = FabricaEnvios.TipoEnvio.TERRESTRE;
+                break;
+            case "AEREO":
+                tipo = FabricaEnvios.TipoEnvio.AEREO;
+                break;
+            case "MARITIMO":
+                tipo = FabricaEnvios.TipoEnvio.MARITIMO;
+                break;
+            case "MIXTA":
+                tipo = FabricaEnvios.TipoEnvio.values()[aleatorio.nextInt(3)];
+                break;
+            default:
+                throw new IllegalArgumentException("Mezcla no reconocida: " + mezcla);
+        }
+        return FabricaEnvios.crearEnvio(tipo, clientes[aleatorio.nextInt(clientes.length)], codigo,
+                0.5 + aleatorio.nextDouble() * 500, 1 + aleatorio.nextDouble() * 5000);
+    }
+}
+
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Costo de ServicioLogisticaInstrumentado sobre una operación barata (buscarEnvio)
+ * El sobrecosto por llamada es la diferencia con muestreo = 0 (servicio sin instrumentar);
+ * debe quedar por debajo de 50 ns con el muestreo por defecto (8). Con muestreo = 1 se lee
+ * el reloj dos veces en cada llamada, como referencia. Con --hilos 1,4 se mide además la
+ * contención de los contadores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class BenchmarkInstrumentacion {
+    @Param({"0", "1", "8"})
+    int muestreo;
+
+    @Param({"1000", "100000"})
+    int tamano;
+
+    EscenarioBenchmark escenario;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        escenario = EscenarioBenchmark.crear();
+        escenario.preparar("RepositorioEnviosIndexado", "MIXTA", tamano, 0);
+        escenario.instrumentar(muestreo);
+    }
+
+    /**
+     * Posición de cada hilo dentro de las consultas precalculadas
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int siguiente;
+    }
+
+    @Benchmark
+    public Object buscarEnvio(Cursor cursor) {
+        return escenario.buscarEnvio(cursor.siguiente++);
+    }
+}
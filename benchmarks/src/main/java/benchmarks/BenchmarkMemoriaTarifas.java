@@ -0,0 +1,67 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks de la tarifa memorizada en Envio.getCosto
+ * Cada operación lee el costo de un envío de un conjunto de trabajo de tamaño conjunto
+ * y, cada lecturasPorModificacion lecturas, cambia el peso de uno (lo que invalida su
+ * memoria y notifica a los agregados del servicio). Comparando memorizar=true con
+ * memorizar=false se ve desde cuántas lecturas por modificación conviene memorizar y
+ * cuánto influye que el conjunto quepa en caché.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class BenchmarkMemoriaTarifas {
+    @Param({"true", "false"})
+    boolean memorizar;
+
+    @Param({"1", "16", "1024"})
+    int lecturasPorModificacion;
+
+    @Param({"64", "65536"})
+    int conjunto;
+
+    EscenarioBenchmark escenario;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        escenario = EscenarioBenchmark.crear();
+        escenario.preparar("RepositorioEnviosIndexado", "MIXTA", 100_000, 0);
+        escenario.memorizarTarifas(memorizar);
+    }
+
+    /**
+     * Posición de cada hilo dentro del conjunto de trabajo
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int siguiente;
+    }
+
+    @Benchmark
+    public double obtenerCosto(Cursor cursor) {
+        int i = cursor.siguiente++;
+        if (i % lecturasPorModificacion == 0) {
+            escenario.modificarPeso((i / lecturasPorModificacion) % conjunto);
+        }
+        return escenario.obtenerCosto(i % conjunto);
+    }
+}
+
@@ -0,0 +1,134 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+/**
+ * Benchmarks de las operaciones del repositorio: agregar, buscar por código y retirar
+ * El repositorio se comparte entre los hilos; con más de un hilo solo
+ * RepositorioEnviosConcurrente es seguro (EjecutarBenchmarks lo selecciona automáticamente).
+ * Escalado mide RepositorioEnviosConcurrente con 1, 2, 4 y 8 hilos en la misma corrida,
+ * para comparar el rendimiento total por cantidad de hilos con la cantidad de núcleos.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+@State(Scope.Benchmark)
+public class BenchmarkRepositorio {
+    static final int EXTRAS_POR_HILO = 4_096;
+    static final int MAXIMO_HILOS = 64;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    int tamano;
+
+    @Param({"RepositorioEnvios", "RepositorioEnviosIndexado", "RepositorioEnviosConcurrente",
+            "RepositorioEnviosColumnar", "RepositorioEnviosFueraDeHeap"})
+    String repositorio;
+
+    @Param({"MIXTA", "TERRESTRE", "AEREO", "MARITIMO"})
+    String mezcla;
+
+    EscenarioBenchmark escenario;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        escenario = EscenarioBenchmark.crear();
+        escenario.preparar(repositorio, mezcla, tamano, EXTRAS_POR_HILO * MAXIMO_HILOS);
+    }
+
+    /**
+     * Posición de cada hilo dentro de sus envíos adicionales y consultas
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int base;
+        int siguiente;
+
+        @Setup(Level.Trial)
+        public void preparar(ThreadParams hilo) {
+            if (hilo.getThreadIndex() >= MAXIMO_HILOS) {
+                throw new IllegalStateException("Se admiten como máximo " + MAXIMO_HILOS + " hilos");
+            }
+            base = hilo.getThreadIndex() * EXTRAS_POR_HILO;
+            siguiente = hilo.getThreadIndex() * 7_919;
+        }
+    }
+
+    @Benchmark
+    public boolean agregarYRetirar(Cursor cursor) {
+        return escenario.agregarYRetirar(cursor.base + (cursor.siguiente++ & (EXTRAS_POR_HILO - 1)));
+    }
+
+    @Benchmark
+    public Object buscarPorCodigo(Cursor cursor) {
+        return escenario.buscarPorCodigo(cursor.siguiente++);
+    }
+
+    /**
+     * Escalado de RepositorioEnviosConcurrente con la cantidad de hilos
+     * Cada método fija su cantidad de hilos con @Threads, así que se corre sin --hilos
+     * (que la reemplazaría): java -jar target/benchmarks.jar BenchmarkRepositorio.Escalado
+     */
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    @Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+    @State(Scope.Benchmark)
+    public static class Escalado {
+        @Param({"100000", "1000000"})
+        int tamano;
+
+        EscenarioBenchmark escenario;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            escenario = EscenarioBenchmark.crear();
+            escenario.preparar("RepositorioEnviosConcurrente", "MIXTA", tamano, EXTRAS_POR_HILO * MAXIMO_HILOS);
+        }
+
+        @Benchmark
+        @Threads(1)
+        public boolean agregarYRetirar1Hilo(Cursor cursor) {
+            return agregarYRetirar(cursor);
+        }
+
+        @Benchmark
+        @Threads(2)
+        public boolean agregarYRetirar2Hilos(Cursor cursor) {
+            return agregarYRetirar(cursor);
+        }
+
+        @Benchmark
+        @Threads(4)
+        public boolean agregarYRetirar4Hilos(Cursor cursor) {
+            return agregarYRetirar(cursor);
+        }
+
+        @Benchmark
+        @Threads(8)
+        public boolean agregarYRetirar8Hilos(Cursor cursor) {
+            return agregarYRetirar(cursor);
+        }
+
+        private boolean agregarYRetirar(Cursor cursor) {
+            return escenario.agregarYRetirar(cursor.base + (cursor.siguiente++ & (EXTRAS_POR_HILO - 1)));
+        }
+    }
+}
+
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks del servicio, la fábrica y el formato de los envíos
+ * Ninguna de estas operaciones modifica el estado compartido, así que son seguras con
+ * cualquier cantidad de hilos.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class BenchmarkServicio {
+    @Param({"1000", "100000"})
+    int tamano;
+
+    @Param({"MIXTA", "TERRESTRE", "AEREO", "MARITIMO"})
+    String mezcla;
+
+    EscenarioBenchmark escenario;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        escenario = EscenarioBenchmark.crear();
+        escenario.preparar("RepositorioEnviosIndexado", mezcla, tamano, 0);
+    }
+
+    /**
+     * Posición de cada hilo dentro de las entradas precalculadas
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int siguiente;
+    }
+
+    @Benchmark
+    public double calcularTotalTarifas() {
+        return escenario.calcularTotalTarifas();
+    }
+
+    @Benchmark
+    public Object crearEnvioDesdeString(Cursor cursor) {
+        return escenario.crearEnvioDesdeString(cursor.siguiente++);
+    }
+
+    @Benchmark
+    public String envioToString(Cursor cursor) {
+        return escenario.formatear(cursor.siguiente++);
+    }
+}
+
@@ -0,0 +1,84 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks del cálculo de tarifas con la TablaTarifas publicada
+ * tarifaConstantes es la referencia con los precios escritos como constantes;
+ * tarifaTabla lee la tabla vigente sin recargas; el grupo recarga mide tres hilos
+ * calculando tarifas mientras un cuarto publica tablas sin parar (o cada pausaRecarga
+ * unidades de trabajo). Si las lecturas no se bloquean, tarifaTabla y
+ * recarga:tarifaDuranteRecarga deben quedar a la par de tarifaConstantes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Benchmark)
+public class BenchmarkTarifas {
+    @Param({"MIXTA", "TERRESTRE"})
+    String mezcla;
+
+    @Param({"0", "10000"})
+    long pausaRecarga;
+
+    EscenarioBenchmark escenario;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        escenario = EscenarioBenchmark.crear();
+        escenario.preparar("RepositorioEnviosIndexado", mezcla, 100_000, 0);
+    }
+
+    /**
+     * Posición de cada hilo dentro de las consultas precalculadas
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int siguiente;
+    }
+
+    @Benchmark
+    public double tarifaConstantes(Cursor cursor) {
+        return escenario.calcularTarifaConstantes(cursor.siguiente++);
+    }
+
+    @Benchmark
+    public double tarifaTabla(Cursor cursor) {
+        return escenario.calcularTarifa(cursor.siguiente++);
+    }
+
+    @Benchmark
+    @Group("recarga")
+    @GroupThreads(3)
+    public double tarifaDuranteRecarga(Cursor cursor) {
+        return escenario.calcularTarifa(cursor.siguiente++);
+    }
+
+    @Benchmark
+    @Group("recarga")
+    @GroupThreads(1)
+    public void recargar(Cursor cursor) {
+        escenario.alternarTarifas(cursor.siguiente++);
+        if (pausaRecarga > 0) {
+            Blackhole.consumeCPU(pausaRecarga);
+        }
+    }
+}
+
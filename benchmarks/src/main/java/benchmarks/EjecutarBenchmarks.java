@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Punto de entrada de los benchmarks
+ * Ejecuta la selección una vez por cada cantidad de hilos, con el perfilador de GC
+ * (tasa de asignación) y guarda cada corrida como JSON en resultados/. Sin --hilos corre
+ * una vez con los hilos de cada benchmark (1, o los de su @Threads). Si el jar se armó
+ * con el perfil vector, las JVM de cada fork arrancan con --add-modules jdk.incubator.vector
+ * para que KernelTarifas use su núcleo vectorial.
+ *
+ * Uso: java -jar target/benchmarks.jar [--hilos 1,2,4] [opciones de JMH] [patrón]
+ * Ejemplo: java -jar target/benchmarks.jar --hilos 1,4 -p tamano=1000,1000000 Repositorio
+ * Escalado: java -jar target/benchmarks.jar BenchmarkRepositorio.Escalado
+ */
+public final class EjecutarBenchmarks {
+    private EjecutarBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        // 0: sin cantidad fija, cada benchmark usa la de su @Threads
+        int[] hilos = {0};
+        List<String> opcionesJmh = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--hilos".equals(args[i]) && i + 1 < args.length) {
+                String[] valores = args[++i].split(",");
+                hilos = new int[valores.length];
+                for (int j = 0; j < valores.length; j++) {
+                    hilos[j] = Integer.parseInt(valores[j].trim());
+                }
+            } else {
+                opcionesJmh.add(args[i]);
+            }
+        }
+
+        CommandLineOptions lineaComandos = new CommandLineOptions(opcionesJmh.toArray(new String[0]));
+        new File("resultados").mkdirs();
+        for (int cantidad : hilos) {
+            String sufijo = cantidad > 0 ? "hilos-" + cantidad + "-" : "";
+            ChainedOptionsBuilder opciones = new OptionsBuilder()
+                    .parent(lineaComandos)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result("resultados/jmh-" + sufijo + System.currentTimeMillis() + ".json");
+            if (cantidad > 0) {
+                opciones.threads(cantidad);
+            }
+            if (incluyeNucleoVectorial() && !lineaComandos.getJvmArgsPrepend().hasValue()) {
+                opciones.jvmArgsPrepend("--add-modules", "jdk.incubator.vector");
+            }
+            if (cantidad > 1 && !lineaComandos.getParameter("repositorio").hasValue()) {
+                // Los demás repositorios no son seguros con escrituras concurrentes
+                opciones.param("repositorio", "RepositorioEnviosConcurrente");
+            }
+            new Runner(opciones.build()).run();
+        }
+    }
+
+    /**
+     * Indica si el jar trae KernelTarifasVectorial (perfil vector)
+     */
+    private static boolean incluyeNucleoVectorial() {
+        return EjecutarBenchmarks.class.getClassLoader().getResource("KernelTarifasVectorial.class") != null;
+    }
+}
+
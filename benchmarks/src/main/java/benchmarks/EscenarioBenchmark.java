@@ -0,0 +1,124 @@
+package benchmarks;
+
+/**
+ * Operaciones del sistema de envíos que miden los benchmarks
+ * Las clases de la aplicación están en el paquete por defecto, que no puede importarse
+ * desde un paquete con nombre (y JMH no admite benchmarks en el paquete por defecto).
+ * EscenarioLogistica, en el paquete por defecto, implementa esta interfaz y se carga por
+ * nombre una sola vez durante la preparación; las mediciones solo ven una llamada de
+ * interfaz monomórfica.
+ * Principio I (Interface Segregation): Solo las operaciones que se miden
+ * Principio D (Dependency Inversion): Los benchmarks dependen de esta abstracción
+ */
+public interface EscenarioBenchmark {
+    /**
+     * Prepara el repositorio y los datos de entrada
+     * @param repositorio Nombre de la clase del repositorio a medir
+     * @param mezcla Mezcla de tipos de envío (TERRESTRE, AEREO, MARITIMO o MIXTA)
+     * @param tamano Cantidad de envíos precargados
+     * @param extras Cantidad de envíos adicionales para agregar y retirar
+     */
+    void preparar(String repositorio, String mezcla, int tamano, int extras);
+
+    /**
+     * Agrega un envío adicional y lo retira, dejando el repositorio con el mismo tamaño
+     * @param indice Índice del envío adicional
+     * @return true si ambas operaciones tuvieron éxito
+     */
+    boolean agregarYRetirar(int indice);
+
+    /**
+     * Busca un envío precargado por su código
+     * @param indice Índice de la consulta (se reduce al rango de consultas precalculadas)
+     * @return Envío encontrado
+     */
+    Object buscarPorCodigo(int indice);
+
+    /**
+     * Busca un envío precargado por su código a través del servicio
+     * @param indice Índice de la consulta (se reduce al rango de consultas precalculadas)
+     * @return Envío encontrado
+     */
+    Object buscarEnvio(int indice);
+
+    /**
+     * Envuelve el servicio en un ServicioLogisticaInstrumentado (después de preparar)
+     * @param intervaloMuestreo Se mide la latencia de una de cada intervaloMuestreo llamadas
+     *                          (potencia de 2); 0 deja el servicio sin instrumentar
+     */
+    void instrumentar(int intervaloMuestreo);
+
+    /**
+     * Calcula el total de tarifas a través del servicio
+     * @return Total de tarifas
+     */
+    double calcularTotalTarifas();
+
+    /**
+     * Crea un envío a partir de su tipo en texto
+     * @param indice Índice de la entrada precalculada
+     * @return Envío creado
+     */
+    Object crearEnvioDesdeString(int indice);
+
+    /**
+     * Convierte un envío precargado a texto
+     * @param indice Índice de la consulta (se reduce al rango de consultas precalculadas)
+     * @return Representación del envío
+     */
+    String formatear(int indice);
+
+    /**
+     * Calcula la tarifa de un envío precargado con la TablaTarifas vigente
+     * @param indice Índice de la consulta (se reduce al rango de consultas precalculadas)
+     * @return Tarifa del envío
+     */
+    double calcularTarifa(int indice);
+
+    /**
+     * Calcula la tarifa de un envío precargado con los precios de fábrica escritos como
+     * constantes (la forma anterior a TablaTarifas), como referencia
+     * @param indice Índice de la consulta (se reduce al rango de consultas precalculadas)
+     * @return Tarifa del envío
+     */
+    double calcularTarifaConstantes(int indice);
+
+    /**
+     * Publica una de dos tablas de tarifas: la de fábrica para índices pares y una con
+     * otros precios para índices impares
+     * @param indice Índice de la recarga
+     */
+    void alternarTarifas(int indice);
+
+    /**
+     * Obtiene el costo (memorizado si está activado) de un envío precargado
+     * @param indice Índice de la consulta (se reduce al rango de consultas precalculadas)
+     * @return Costo del envío
+     */
+    double obtenerCosto(int indice);
+
+    /**
+     * Cambia el peso de un envío precargado, lo que invalida su costo memorizado
+     * @param indice Índice de la consulta (se reduce al rango de consultas precalculadas)
+     */
+    void modificarPeso(int indice);
+
+    /**
+     * Activa o desactiva la memorización de tarifas de los envíos
+     * @param activar true para memorizar
+     */
+    void memorizarTarifas(boolean activar);
+
+    /**
+     * Crea el escenario de la aplicación
+     * @return Instancia de EscenarioLogistica
+     */
+    static EscenarioBenchmark crear() {
+        try {
+            return (EscenarioBenchmark) Class.forName("EscenarioLogistica").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("No se encontró EscenarioLogistica en el classpath", e);
+        }
+    }
+}
+
@@ -0,0 +1,158 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Ida y vuelta de InstantaneaEnvios: la carga por columnas de los repositorios columnar y
+ * fuera del heap deja los mismos envíos que la carga por objetos (un Envio por registro),
+ * con códigos numéricos, de texto y casi numéricos, y respeta los códigos que el destino
+ * ya tenía.
+ */
+class InstantaneaEnviosTest {
+    private static final FabricaEnvios.TipoEnvio[] TIPOS = FabricaEnvios.TipoEnvio.values();
+    // Más de un bloque de carga (65.536 registros)
+    private static final int CANTIDAD = 150_000;
+    private static final String[] CODIGOS_ESPECIALES = {
+            "0", "7", "007", "10001", "999999999999999999", "1000000000000000000", "-5", "+5", " 5",
+            "ENV-42", "C1234", "código-ñ", "envío/€", ""
+    };
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void cargaPorColumnasIgualALaCargaPorObjetos() throws IOException {
+        IRepositorioEnvios origen = new RepositorioEnviosIndexado();
+        Map<String, Envio> esperados = llenar(origen);
+        Path archivo = directorio.resolve("envios.snap");
+        InstantaneaEnvios.guardar(origen, archivo);
+
+        comprobar("indexado", RepositorioEnviosIndexado::new, archivo, esperados);
+        comprobar("columnar", RepositorioEnviosColumnar::new, archivo, esperados);
+        comprobar("fuera del heap", RepositorioEnviosFueraDeHeap::new, archivo, esperados);
+        comprobar("concurrente", RepositorioEnviosConcurrente::new, archivo, esperados);
+    }
+
+    @Test
+    void cargaConservaLosCodigosYaRegistrados() throws IOException {
+        IRepositorioEnvios origen = new RepositorioEnviosIndexado();
+        Map<String, Envio> esperados = llenar(origen);
+        Path archivo = directorio.resolve("envios.snap");
+        InstantaneaEnvios.guardar(origen, archivo);
+
+        for (IRepositorioEnvios destino : new IRepositorioEnvios[] {
+                new RepositorioEnviosIndexado(), new RepositorioEnviosColumnar(), new RepositorioEnviosFueraDeHeap()}) {
+            Envio previo = FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.MARITIMO, "Previo", "ENV-42", 3.0, 4.0);
+            Envio otro = FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.AEREO, "Previo", "solo-en-destino", 1.0, 2.0);
+            destino.agregar(previo);
+            destino.agregar(otro);
+            InstantaneaEnvios.cargar(archivo, destino);
+
+            String nombre = destino.getClass().getSimpleName();
+            assertEquals(esperados.size() + 1, destino.obtenerCantidad(), nombre);
+            Envio conservado = destino.buscarPorCodigo("ENV-42");
+            assertEquals("Previo", conservado.getCliente(), nombre);
+            assertEquals(FabricaEnvios.TipoEnvio.MARITIMO, conservado.getTipo(), nombre);
+            assertNotNull(destino.buscarPorCodigo("solo-en-destino"), nombre);
+            assertNotNull(destino.buscarPorCodigo("10001"), nombre);
+            cerrar(destino);
+        }
+    }
+
+    @Test
+    void registroConTipoInvalidoSeRechaza() throws IOException {
+        IRepositorioEnvios origen = new RepositorioEnviosColumnar();
+        origen.agregar(FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.AEREO, "Cliente", "1", 1.0, 1.0));
+        Path archivo = directorio.resolve("danada.snap");
+        InstantaneaEnvios.guardar(origen, archivo);
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Tipo 9 en el primer registro, con las sumas de verificación recalculadas
+            canal.write(ByteBuffer.wrap(new byte[] {9}), 64 + 12);
+            ByteBuffer cuerpo = ByteBuffer.allocate((int) canal.size() - 64);
+            canal.read(cuerpo, 64);
+            CRC32 crc = new CRC32();
+            crc.update(cuerpo.flip());
+            ByteBuffer cabecera = ByteBuffer.allocate(64);
+            canal.read(cabecera, 0);
+            cabecera.putInt(56, (int) crc.getValue());
+            crc.reset();
+            crc.update(cabecera.array(), 0, 60);
+            cabecera.putInt(60, (int) crc.getValue());
+            canal.write(cabecera.rewind(), 0);
+        }
+        RepositorioEnviosColumnar destino = new RepositorioEnviosColumnar();
+        assertThrows(IOException.class, () -> InstantaneaEnvios.cargar(archivo, destino));
+    }
+
+    private static Map<String, Envio> llenar(IRepositorioEnvios repositorio) {
+        Random aleatorio = new Random(9L);
+        Map<String, Envio> esperados = new HashMap<>();
+        for (int i = 0; i < CANTIDAD; i++) {
+            String codigo;
+            switch (i % 4) {
+                case 0:
+                    codigo = "ENV-" + i;
+                    break;
+                case 1:
+                    codigo = "x" + Integer.toString(i, 36) + "é";
+                    break;
+                default:
+                    codigo = Integer.toString(1_000_000 + i);
+            }
+            agregar(repositorio, esperados, codigo, aleatorio);
+        }
+        for (String codigo : CODIGOS_ESPECIALES) {
+            agregar(repositorio, esperados, codigo, aleatorio);
+        }
+        return esperados;
+    }
+
+    private static void agregar(IRepositorioEnvios repositorio, Map<String, Envio> esperados, String codigo,
+                                Random aleatorio) {
+        String cliente = aleatorio.nextInt(20) == 0 ? "" : "Cliente ñ" + aleatorio.nextInt(3_000);
+        Envio envio = FabricaEnvios.crearEnvio(TIPOS[aleatorio.nextInt(TIPOS.length)], cliente, codigo,
+                aleatorio.nextDouble() * 1000 + 0.1, aleatorio.nextDouble() * 5000 + 0.1);
+        if (repositorio.agregar(envio)) {
+            esperados.put(codigo, envio);
+        }
+    }
+
+    private static void comprobar(String nombre, Supplier<IRepositorioEnvios> crear, Path archivo,
+                                  Map<String, Envio> esperados) throws IOException {
+        IRepositorioEnvios destino = crear.get();
+        assertEquals(0L, InstantaneaEnvios.cargar(archivo, destino), nombre);
+        assertEquals(esperados.size(), destino.obtenerCantidad(), nombre);
+        for (Envio esperado : esperados.values()) {
+            Envio cargado = destino.buscarPorCodigo(esperado.getCodigoEnvio());
+            assertNotNull(cargado, nombre + ": falta " + esperado.getCodigoEnvio());
+            assertEquals(esperado.getCliente(), cargado.getCliente(), nombre);
+            assertEquals(esperado.getTipo(), cargado.getTipo(), nombre);
+            assertEquals(esperado.getPesoKg(), cargado.getPesoKg(), nombre);
+            assertEquals(esperado.getDistanciaKm(), cargado.getDistanciaKm(), nombre);
+        }
+        // Mismo orden que el origen: el primer y el último envío del recorrido
+        assertEquals("ENV-0", destino.flujo().findFirst().orElseThrow().getCodigoEnvio(), nombre);
+        assertEquals("", destino.obtenerTodos().get(destino.obtenerCantidad() - 1).getCodigoEnvio(), nombre);
+        cerrar(destino);
+    }
+
+    private static void cerrar(IRepositorioEnvios repositorio) throws IOException {
+        if (repositorio instanceof Closeable) {
+            ((Closeable) repositorio).close();
+        }
+    }
+}
@@ -0,0 +1,198 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Propiedad de KernelTarifas: cada tarifa calculada en bloque es idéntica bit a bit a la
+ * de Envio.calcularTarifa para el mismo tipo, peso y distancia, con el núcleo que elija la
+ * clase, con los bucles escalares y con el núcleo vectorial (si la JVM lo cargó). Las sumas
+ * se comparan con la suma exacta en BigDecimal.
+ */
+class KernelTarifasTest {
+    private static final FabricaEnvios.TipoEnvio[] TIPOS = FabricaEnvios.TipoEnvio.values();
+    // Largos que no son múltiplos de los carriles, para recorrer también las colas escalares
+    private static final int[] LARGOS = {0, 1, 3, 7, 8, 9, 63, 64, 65, 1000, 4099};
+    private static final double[] BORDES = {
+            Double.MIN_VALUE, Double.MIN_NORMAL, Double.MIN_NORMAL / 3, 1e-300, 0.1, 0.5, 1.0, 3.0,
+            7.0, 1e6 + 0.5, 123456789.0, 9007199254740993.0, 1e150, 1e300, Double.MAX_VALUE
+    };
+
+    @Test
+    void tarifasIgualesAlCalculoPorEnvio() {
+        Random aleatorio = new Random(20240601L);
+        for (int repeticion = 0; repeticion < 50; repeticion++) {
+            for (int largo : LARGOS) {
+                Datos datos = Datos.aleatorios(aleatorio, largo);
+                double[] tarifas = new double[largo];
+                KernelTarifas.calcularTarifas(datos.tipos, datos.pesos, datos.distancias, tarifas, 0, largo);
+                comprobarTarifas(datos, tarifas, "kernel");
+            }
+        }
+    }
+
+    @Test
+    void tarifasEscalaresIgualesAlCalculoPorEnvio() {
+        TablaTarifas tabla = TablaTarifas.actual();
+        Random aleatorio = new Random(7L);
+        for (int largo : LARGOS) {
+            Datos datos = Datos.aleatorios(aleatorio, largo);
+            double[] tarifas = new double[largo];
+            KernelTarifas.calcularTarifasEscalar(tabla.tarifasPorKm, tabla.recargosPorKg, datos.tipos, datos.pesos,
+                    datos.distancias, tarifas, 0, largo);
+            comprobarTarifas(datos, tarifas, "escalar");
+        }
+    }
+
+    @Test
+    void tarifasVectorialesIgualesAlCalculoPorEnvio() {
+        KernelTarifas.Nucleo vectorial = KernelTarifas.nucleoVectorial();
+        assumeTrue(vectorial != null, "El núcleo vectorial no está cargado (perfil vector y --add-modules)");
+        TablaTarifas tabla = TablaTarifas.actual();
+        Random aleatorio = new Random(11L);
+        for (int repeticion = 0; repeticion < 50; repeticion++) {
+            for (int largo : LARGOS) {
+                Datos datos = Datos.aleatorios(aleatorio, largo);
+                double[] tarifas = new double[largo];
+                vectorial.calcularTarifas(tabla.tarifasPorKm, tabla.recargosPorKg, datos.tipos, datos.pesos,
+                        datos.distancias, tarifas, 0, largo);
+                comprobarTarifas(datos, tarifas, "vectorial");
+            }
+        }
+    }
+
+    @Test
+    void tarifasDeUnSubrangoNoTocanElResto() {
+        Datos datos = Datos.aleatorios(new Random(3L), 200);
+        double[] tarifas = new double[200];
+        KernelTarifas.calcularTarifas(datos.tipos, datos.pesos, datos.distancias, tarifas, 5, 190);
+        for (int i = 0; i < 200; i++) {
+            if (i < 5 || i >= 190) {
+                assertEquals(0.0, tarifas[i], "posición " + i + " fuera del rango");
+            } else {
+                assertEquals(Double.doubleToRawLongBits(datos.envio(i).calcularTarifa()),
+                        Double.doubleToRawLongBits(tarifas[i]), "posición " + i);
+            }
+        }
+    }
+
+    @Test
+    void sumasCercanasALaSumaExacta() {
+        Random aleatorio = new Random(5L);
+        for (int largo : LARGOS) {
+            Datos datos = Datos.finitos(aleatorio, largo);
+            comprobarSuma(datos, -1, KernelTarifas.sumarTarifas(datos.tipos, datos.pesos, datos.distancias, 0, largo));
+            for (FabricaEnvios.TipoEnvio tipo : TIPOS) {
+                comprobarSuma(datos, tipo.ordinal(),
+                        KernelTarifas.sumarTarifas(tipo, datos.tipos, datos.pesos, datos.distancias, 0, largo));
+            }
+        }
+    }
+
+    @Test
+    void sumasVectorialesCercanasALaSumaExacta() {
+        KernelTarifas.Nucleo vectorial = KernelTarifas.nucleoVectorial();
+        assumeTrue(vectorial != null, "El núcleo vectorial no está cargado (perfil vector y --add-modules)");
+        TablaTarifas tabla = TablaTarifas.actual();
+        Random aleatorio = new Random(13L);
+        for (int largo : LARGOS) {
+            Datos datos = Datos.finitos(aleatorio, largo);
+            for (int filtro = -1; filtro < TIPOS.length; filtro++) {
+                SumaCompensada total = new SumaCompensada();
+                vectorial.acumularTarifas(tabla.tarifasPorKm, tabla.recargosPorKg, datos.tipos, datos.pesos,
+                        datos.distancias, 0, largo, filtro, total);
+                comprobarSuma(datos, filtro, total.valor());
+            }
+        }
+    }
+
+    private static void comprobarTarifas(Datos datos, double[] tarifas, String nucleo) {
+        for (int i = 0; i < tarifas.length; i++) {
+            int posicion = i;
+            double esperada = datos.envio(i).calcularTarifa();
+            assertEquals(Double.doubleToRawLongBits(esperada), Double.doubleToRawLongBits(tarifas[i]),
+                    () -> nucleo + ": " + datos.describir(posicion) + " esperaba " + esperada);
+        }
+    }
+
+    /**
+     * La suma compensada de tarifas positivas queda a pocos ulp de la suma exacta
+     */
+    private static void comprobarSuma(Datos datos, int filtro, double suma) {
+        BigDecimal exacta = BigDecimal.ZERO;
+        for (int i = 0; i < datos.tipos.length; i++) {
+            if (filtro < 0 || datos.tipos[i] == filtro) {
+                exacta = exacta.add(new BigDecimal(datos.envio(i).calcularTarifa()));
+            }
+        }
+        double esperada = exacta.doubleValue();
+        assertTrue(Math.abs(suma - esperada) <= 2 * Math.ulp(esperada),
+                () -> "filtro " + filtro + ": suma " + suma + " esperaba " + esperada);
+    }
+
+    /**
+     * Columnas de envíos de prueba
+     */
+    private static final class Datos {
+        final byte[] tipos;
+        final double[] pesos;
+        final double[] distancias;
+
+        private Datos(int largo) {
+            tipos = new byte[largo];
+            pesos = new double[largo];
+            distancias = new double[largo];
+        }
+
+        /**
+         * Magnitudes repartidas en todo el rango de double, con valores de borde
+         * (subnormales, enteros grandes, cercanos al desborde)
+         */
+        static Datos aleatorios(Random aleatorio, int largo) {
+            Datos datos = new Datos(largo);
+            for (int i = 0; i < largo; i++) {
+                datos.tipos[i] = (byte) aleatorio.nextInt(TIPOS.length);
+                datos.pesos[i] = valor(aleatorio);
+                datos.distancias[i] = valor(aleatorio);
+            }
+            return datos;
+        }
+
+        /**
+         * Magnitudes que no desbordan al sumarlas
+         */
+        static Datos finitos(Random aleatorio, int largo) {
+            Datos datos = new Datos(largo);
+            for (int i = 0; i < largo; i++) {
+                datos.tipos[i] = (byte) aleatorio.nextInt(TIPOS.length);
+                datos.pesos[i] = Math.scalb(aleatorio.nextDouble() + 0.001, aleatorio.nextInt(80) - 40);
+                datos.distancias[i] = Math.scalb(aleatorio.nextDouble() + 0.001, aleatorio.nextInt(80) - 40);
+            }
+            return datos;
+        }
+
+        private static double valor(Random aleatorio) {
+            switch (aleatorio.nextInt(4)) {
+                case 0:
+                    return BORDES[aleatorio.nextInt(BORDES.length)];
+                case 1:
+                    return aleatorio.nextInt(100_000) + 1;
+                case 2:
+                    return Math.scalb(aleatorio.nextDouble() + Double.MIN_VALUE, aleatorio.nextInt(2148) - 1074);
+                default:
+                    return aleatorio.nextDouble() * 1000;
+            }
+        }
+
+        Envio envio(int i) {
+            return FabricaEnvios.crearEnvio(TIPOS[tipos[i]], "Cliente", "P" + i, pesos[i], distancias[i]);
+        }
+
+        String describir(int i) {
+            return TIPOS[tipos[i]] + " peso " + pesos[i] + " distancia " + distancias[i];
+        }
+    }
+}
@@ -0,0 +1,99 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Índices de RepositorioEnviosConIndices mientras un setter está en curso: una
+ * reconstrucción por tarifas o un segundo setter sobre el mismo envío no dejan entradas
+ * duplicadas ni con la clave vieja. El observador de la prueba se registra después del
+ * observador del repositorio, así corre entre su antesDeModificar y su despuesDeModificar.
+ */
+class RepositorioEnviosConIndicesTest {
+    private final TablaTarifas tablaInicial = TablaTarifas.actual();
+
+    @AfterEach
+    void restaurarTarifas() {
+        TablaTarifas.publicar(tablaInicial);
+    }
+
+    @Test
+    void reconstruccionDuranteUnSetterNoDuplicaElEnvio() {
+        RepositorioEnviosConIndices repositorio = crear();
+        Envio envio = repositorio.buscarPorCodigo("E1");
+        envio.agregarObservador(new IObservadorEnvio() {
+            @Override
+            public void antesDeModificar(Envio modificado) {
+                // Otra tabla y una operación que reconstruye los índices por costo
+                TablaTarifas.publicar(TablaTarifas.actual().conPrecios(FabricaEnvios.TipoEnvio.TERRESTRE, 9, 3));
+                repositorio.agregar(FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.AEREO, "B", "E9", 1, 1));
+            }
+
+            @Override
+            public void despuesDeModificar(Envio modificado) {
+            }
+        });
+
+        envio.setPesoKg(70);
+        comprobar(repositorio);
+    }
+
+    @Test
+    void settersSimultaneosSobreUnEnvioLoDejanUnaVez() {
+        RepositorioEnviosConIndices repositorio = crear();
+        Envio envio = repositorio.buscarPorCodigo("E1");
+        envio.agregarObservador(new IObservadorEnvio() {
+            private boolean anidado;
+
+            @Override
+            public void antesDeModificar(Envio modificado) {
+                // Un segundo setter empieza y termina mientras el primero está en curso
+                if (!anidado) {
+                    anidado = true;
+                    modificado.setDistanciaKm(400);
+                }
+            }
+
+            @Override
+            public void despuesDeModificar(Envio modificado) {
+            }
+        });
+
+        envio.setPesoKg(70);
+        comprobar(repositorio);
+        assertEquals(List.of("E1"), codigos(repositorio.buscarPorRango(IndiceRango.Campo.PESO, 70, 70)));
+    }
+
+    private static RepositorioEnviosConIndices crear() {
+        RepositorioEnviosConIndices repositorio = new RepositorioEnviosConIndices(new RepositorioEnviosConcurrente(),
+                IndiceRango.de(IndiceRango.Campo.COSTO), IndiceRango.de(IndiceRango.Campo.PESO),
+                IndiceSecundario.porCliente());
+        for (int i = 0; i < 5; i++) {
+            repositorio.agregar(FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.TERRESTRE, "A", "E" + i, 10 + i, 100));
+        }
+        return repositorio;
+    }
+
+    /**
+     * Cada índice por rango tiene una entrada por envío, bajo su valor actual
+     */
+    private static void comprobar(RepositorioEnviosConIndices repositorio) {
+        for (IndiceRango.Campo campo : new IndiceRango.Campo[] {IndiceRango.Campo.COSTO, IndiceRango.Campo.PESO}) {
+            IndiceRango indice = (IndiceRango) repositorio.obtenerIndice(campo.getNombre());
+            assertEquals(repositorio.obtenerCantidad(), indice.obtenerCantidad(), campo.getNombre());
+            repositorio.flujo().forEach(envio -> {
+                double valor = campo.valor(envio);
+                String codigo = envio.getCodigoEnvio();
+                assertEquals(1L, indice.rango(valor, valor).filter(e -> e.getCodigoEnvio().equals(codigo)).count(),
+                        campo.getNombre() + " de " + codigo);
+            });
+        }
+    }
+
+    private static List<String> codigos(Stream<Envio> envios) {
+        return envios.map(Envio::getCodigoEnvio).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,247 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Prueba de carga de RepositorioEnviosConcurrente: varios hilos agregan códigos compartidos
+ * y propios, extraen y leen a la vez. No debe perderse ni duplicarse ningún envío: cada
+ * código compartido se agrega (o se extrae) exactamente una vez, y al final la cantidad, el
+ * índice y el orden de inserción coinciden.
+ */
+@Timeout(value = 120, unit = TimeUnit.SECONDS)
+class RepositorioEnviosConcurrenteTest {
+    private static final int HILOS = 8;
+    private static final int COMPARTIDOS = 20_000;
+    private static final int PROPIOS = 5_000;
+
+    private ExecutorService hilos;
+
+    @BeforeEach
+    void crearHilos() {
+        hilos = Executors.newFixedThreadPool(HILOS + 2);
+    }
+
+    @AfterEach
+    void cerrarHilos() throws InterruptedException {
+        hilos.shutdownNow();
+        assertTrue(hilos.awaitTermination(30, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void agregarConcurrenteNoPierdeNiDuplica() throws Exception {
+        RepositorioEnviosConcurrente repositorio = new RepositorioEnviosConcurrente();
+        AtomicIntegerArray exitosCompartidos = new AtomicIntegerArray(COMPARTIDOS);
+        Set<Envio> agregados = ConcurrentHashMap.newKeySet();
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Callable<Integer>> tareas = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            tareas.add(() -> {
+                largada.await();
+                int fallidos = 0;
+                for (int i = 0; i < COMPARTIDOS; i++) {
+                    // Cada hilo recorre los códigos compartidos desde otra posición
+                    int codigo = (i + hilo * (COMPARTIDOS / HILOS)) % COMPARTIDOS;
+                    Envio envio = envio("C-" + codigo);
+                    if (repositorio.agregar(envio)) {
+                        exitosCompartidos.incrementAndGet(codigo);
+                        agregados.add(envio);
+                    }
+                    if (i < PROPIOS) {
+                        Envio propio = envio("H" + hilo + "-" + i);
+                        if (repositorio.agregar(propio)) {
+                            agregados.add(propio);
+                        } else {
+                            fallidos++;
+                        }
+                    }
+                }
+                return fallidos;
+            });
+        }
+        List<Future<Integer>> resultados = lanzar(tareas, largada);
+        for (Future<Integer> resultado : resultados) {
+            assertEquals(0, resultado.get(), "Se rechazó un código propio de un hilo");
+        }
+
+        for (int codigo = 0; codigo < COMPARTIDOS; codigo++) {
+            assertEquals(1, exitosCompartidos.get(codigo), "Agregados del código C-" + codigo);
+        }
+        int esperados = COMPARTIDOS + HILOS * PROPIOS;
+        assertEquals(esperados, agregados.size());
+        comprobarConsistencia(repositorio, agregados);
+    }
+
+    @Test
+    void agregarYExtraerConLectoresNoPierdeNiDuplica() throws Exception {
+        RepositorioEnviosConcurrente repositorio = new RepositorioEnviosConcurrente();
+        Set<Envio> precargados = new HashSet<>();
+        for (int codigo = 0; codigo < COMPARTIDOS; codigo++) {
+            Envio envio = envio("R-" + codigo);
+            assertTrue(repositorio.agregar(envio));
+            precargados.add(envio);
+        }
+        AtomicIntegerArray exitosCompartidos = new AtomicIntegerArray(COMPARTIDOS);
+        AtomicIntegerArray extraidos = new AtomicIntegerArray(COMPARTIDOS);
+        Set<Envio> agregados = ConcurrentHashMap.newKeySet();
+        Set<Envio> retirados = ConcurrentHashMap.newKeySet();
+        AtomicBoolean escribiendo = new AtomicBoolean(true);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Callable<Integer>> escritores = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            escritores.add(() -> {
+                largada.await();
+                for (int i = 0; i < COMPARTIDOS; i++) {
+                    int codigo = (i + hilo * (COMPARTIDOS / HILOS)) % COMPARTIDOS;
+                    Envio envio = envio("C-" + codigo);
+                    if (repositorio.agregar(envio)) {
+                        exitosCompartidos.incrementAndGet(codigo);
+                        agregados.add(envio);
+                    }
+                    // Los códigos precargados compiten por extraerse mientras se agregan otros
+                    Envio extraido = repositorio.extraer("R-" + codigo);
+                    if (extraido != null) {
+                        extraidos.incrementAndGet(codigo);
+                        retirados.add(extraido);
+                    }
+                }
+                return 0;
+            });
+        }
+        List<Callable<Integer>> lectores = new ArrayList<>();
+        for (int l = 0; l < 2; l++) {
+            lectores.add(() -> {
+                largada.await();
+                int lecturas = 0;
+                do {
+                    // Ningún código se vuelve a agregar después de extraerlo, así que una
+                    // lectura débilmente consistente nunca ve el mismo código dos veces
+                    Set<String> vistos = new HashSet<>();
+                    for (Envio envio : repositorio.obtenerTodos()) {
+                        assertTrue(vistos.add(envio.getCodigoEnvio()), "Código repetido " + envio.getCodigoEnvio());
+                    }
+                    repositorio.flujo().forEach(envio -> assertNotNull(envio.getCodigoEnvio()));
+                    lecturas++;
+                } while (escribiendo.get());
+                return lecturas;
+            });
+        }
+
+        List<Future<Integer>> resultadosLectores = new ArrayList<>();
+        for (Callable<Integer> lector : lectores) {
+            resultadosLectores.add(hilos.submit(lector));
+        }
+        for (Future<Integer> resultado : lanzar(escritores, largada)) {
+            resultado.get();
+        }
+        escribiendo.set(false);
+        for (Future<Integer> resultado : resultadosLectores) {
+            assertTrue(resultado.get() > 0);
+        }
+
+        for (int codigo = 0; codigo < COMPARTIDOS; codigo++) {
+            assertEquals(1, exitosCompartidos.get(codigo), "Agregados del código C-" + codigo);
+            assertEquals(1, extraidos.get(codigo), "Extracciones del código R-" + codigo);
+        }
+        assertEquals(precargados, retirados);
+        comprobarConsistencia(repositorio, agregados);
+        for (Envio envio : retirados) {
+            assertNull(repositorio.buscarPorCodigo(envio.getCodigoEnvio()));
+        }
+    }
+
+    @Test
+    void cadaHiloConservaSuOrdenDeInsercion() throws Exception {
+        RepositorioEnviosConcurrente repositorio = new RepositorioEnviosConcurrente();
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Callable<Integer>> tareas = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            tareas.add(() -> {
+                largada.await();
+                for (int i = 0; i < PROPIOS; i++) {
+                    assertTrue(repositorio.agregar(envio(hilo + "-" + i)));
+                    if (i % 3 == 0) {
+                        // Un código retirado y vuelto a agregar pasa al final de su hilo
+                        assertNotNull(repositorio.extraer(hilo + "-" + i));
+                        assertTrue(repositorio.agregar(envio(hilo + "-" + i)));
+                    }
+                }
+                return 0;
+            });
+        }
+        for (Future<Integer> resultado : lanzar(tareas, largada)) {
+            resultado.get();
+        }
+
+        // Las franjas se mezclan por clave: los envíos de un hilo salen en su orden
+        int[] anterior = new int[HILOS];
+        Arrays.fill(anterior, -1);
+        List<Envio> todos = repositorio.obtenerTodos();
+        assertEquals(HILOS * PROPIOS, todos.size());
+        for (Envio envio : todos) {
+            String[] partes = envio.getCodigoEnvio().split("-");
+            int hilo = Integer.parseInt(partes[0]);
+            int i = Integer.parseInt(partes[1]);
+            assertTrue(i > anterior[hilo], "Orden del hilo " + hilo + ": " + i + " después de " + anterior[hilo]);
+            anterior[hilo] = i;
+        }
+        List<Envio> recorridos = new ArrayList<>();
+        repositorio.flujo().forEach(recorridos::add);
+        assertEquals(todos, recorridos);
+    }
+
+    private List<Future<Integer>> lanzar(List<Callable<Integer>> tareas, CountDownLatch largada) {
+        List<Future<Integer>> resultados = new ArrayList<>();
+        for (Callable<Integer> tarea : tareas) {
+            resultados.add(hilos.submit(tarea));
+        }
+        largada.countDown();
+        return resultados;
+    }
+
+    /**
+     * Con los hilos detenidos, la cantidad, el índice y el orden contienen exactamente los
+     * envíos esperados, cada uno una vez
+     */
+    private static void comprobarConsistencia(RepositorioEnviosConcurrente repositorio, Set<Envio> esperados) {
+        assertEquals(esperados.size(), repositorio.obtenerCantidad());
+        List<Envio> todos = repositorio.obtenerTodos();
+        assertEquals(esperados.size(), todos.size());
+        Set<String> codigos = new HashSet<>();
+        for (Envio envio : todos) {
+            assertTrue(codigos.add(envio.getCodigoEnvio()), "Código repetido " + envio.getCodigoEnvio());
+            assertTrue(esperados.contains(envio), "Envío no esperado " + envio.getCodigoEnvio());
+        }
+        for (Envio envio : esperados) {
+            assertSame(envio, repositorio.buscarPorCodigo(envio.getCodigoEnvio()));
+        }
+        assertEquals(esperados.size(), repositorio.flujo().count());
+    }
+
+    private static Envio envio(String codigo) {
+        return FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.TERRESTRE, "Cliente", codigo, 1.0, 1.0);
+    }
+}
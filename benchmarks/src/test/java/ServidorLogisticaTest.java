@@ -0,0 +1,214 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+/**
+ * Prueba de ServidorLogistica por HTTP en localhost, con el mismo armado que
+ * Main --servidor: cada ruta responde con el código de estado y el JSON esperados, y las
+ * altas y bajas concurrentes de varios clientes dejan la cantidad y el total consistentes.
+ */
+@Timeout(value = 60, unit = TimeUnit.SECONDS)
+class ServidorLogisticaTest {
+    private ServicioLogisticaInstrumentado servicio;
+    private ServidorLogistica servidor;
+    private HttpClient cliente;
+    private String base;
+
+    @BeforeEach
+    void iniciar() throws Exception {
+        IRepositorioEnvios repositorio = new RepositorioEnviosConIndices(new RepositorioEnviosConcurrente());
+        servicio = new ServicioLogisticaInstrumentado(new ServicioLogistica(repositorio));
+        servidor = new ServidorLogistica(servicio);
+        int puerto = servidor.iniciar(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        base = "http://127.0.0.1:" + puerto;
+        cliente = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+    }
+
+    @AfterEach
+    void detener() {
+        servidor.detener(0);
+    }
+
+    @Test
+    void agregarBuscarYRetirar() throws Exception {
+        HttpResponse<String> creado = enviar("POST", "/envios",
+                "{\"tipo\":\"aereo\",\"cliente\":\"Flores \\\"Sur\\\"\",\"codigo\":\"A 1\",\"peso\":2.5,\"distancia\":100}");
+        assertEquals(201, creado.statusCode());
+        assertEquals("/envios/A 1", creado.headers().firstValue("Location").orElse(null));
+        assertTrue(creado.body().contains("\"codigo\":\"A 1\""), creado.body());
+        assertTrue(creado.body().contains("\"cliente\":\"Flores \\\"Sur\\\"\""), creado.body());
+        assertTrue(creado.body().contains("\"tipo\":\"AEREO\""), creado.body());
+        assertTrue(creado.headers().firstValue("Content-Type").orElse("").startsWith("application/json"));
+
+        assertEquals(409, enviar("POST", "/envios",
+                "{\"tipo\":\"TERRESTRE\",\"cliente\":\"Otro\",\"codigo\":\"A 1\",\"peso\":1,\"distancia\":1}").statusCode());
+
+        HttpResponse<String> encontrado = enviar("GET", "/envios/A%201", null);
+        assertEquals(200, encontrado.statusCode());
+        assertEquals(creado.body(), encontrado.body());
+
+        HttpResponse<String> retirado = enviar("DELETE", "/envios/A%201", null);
+        assertEquals(200, retirado.statusCode());
+        assertEquals(creado.body(), retirado.body());
+        assertEquals(404, enviar("GET", "/envios/A%201", null).statusCode());
+        assertEquals(404, enviar("DELETE", "/envios/A%201", null).statusCode());
+        assertEquals(0, servicio.obtenerCantidadEnvios());
+    }
+
+    @Test
+    void peticionesInvalidasResponden400() throws Exception {
+        assertEquals(400, enviar("POST", "/envios", "{\"tipo\":").statusCode());
+        assertEquals(400, enviar("POST", "/envios", "{\"tipo\":\"AEREO\",\"cliente\":\"C\",\"codigo\":\"X\"}").statusCode());
+        assertEquals(400, enviar("POST", "/envios",
+                "{\"tipo\":\"TREN\",\"cliente\":\"C\",\"codigo\":\"X\",\"peso\":1,\"distancia\":1}").statusCode());
+        assertEquals(400, enviar("POST", "/envios",
+                "{\"tipo\":\"AEREO\",\"cliente\":\"C\",\"codigo\":\"X\",\"peso\":-1,\"distancia\":1}").statusCode());
+        assertEquals(400, enviar("POST", "/envios",
+                "{\"tipo\":\"AEREO\",\"cliente\":\"C\",\"codigo\":\"X\",\"peso\":1e999,\"distancia\":1}").statusCode());
+        HttpResponse<String> grande = enviar("POST", "/envios", "{\"cliente\":\"" + "x".repeat(70_000) + "\"}");
+        assertEquals(400, grande.statusCode());
+        assertTrue(grande.body().startsWith("{\"error\":"), grande.body());
+        assertEquals(400, enviar("GET", "/envios?limite=muchos", null).statusCode());
+        assertEquals(400, enviar("GET", "/envios?tipo=TREN", null).statusCode());
+        assertEquals(0, servicio.obtenerCantidadEnvios());
+    }
+
+    @Test
+    void rutasYMetodosNoAdmitidos() throws Exception {
+        assertEquals(404, enviar("GET", "/enviosx", null).statusCode());
+        assertEquals(404, enviar("GET", "/otra", null).statusCode());
+
+        HttpResponse<String> coleccion = enviar("PUT", "/envios", "{}");
+        assertEquals(405, coleccion.statusCode());
+        assertEquals("GET, POST", coleccion.headers().firstValue("Allow").orElse(null));
+        HttpResponse<String> elemento = enviar("POST", "/envios/A", "{}");
+        assertEquals(405, elemento.statusCode());
+        assertEquals("GET, DELETE", elemento.headers().firstValue("Allow").orElse(null));
+        assertEquals(405, enviar("DELETE", "/total", null).statusCode());
+        assertEquals(405, enviar("POST", "/metricas", "").statusCode());
+    }
+
+    @Test
+    void listadosTotalYMetricas() throws Exception {
+        agregar("TERRESTRE", "Norte", "T1", 10, 20);
+        agregar("AEREO", "Norte", "A1", 1, 300);
+        agregar("MARITIMO", "Sur", "M1", 500, 900);
+
+        HttpResponse<String> todos = enviar("GET", "/envios", null);
+        assertEquals(200, todos.statusCode());
+        assertEquals(3, contar(todos.body()));
+        assertTrue(todos.body().startsWith("[") && todos.body().endsWith("]"), todos.body());
+        assertEquals(2, contar(enviar("GET", "/envios?cliente=Norte", null).body()));
+        assertEquals(1, contar(enviar("GET", "/envios?cliente=Norte&tipo=aereo", null).body()));
+        assertEquals(1, contar(enviar("GET", "/envios?tipo=MARITIMO", null).body()));
+        assertEquals(2, contar(enviar("GET", "/envios?limite=2", null).body()));
+        assertEquals("[]", enviar("GET", "/envios?cliente=Nadie", null).body());
+
+        HttpResponse<String> total = enviar("GET", "/total", null);
+        assertEquals(200, total.statusCode());
+        assertEquals("{\"cantidad\":3,\"totalTarifas\":" + servicio.calcularTotalTarifas() + "}", total.body());
+
+        HttpResponse<String> metricas = enviar("GET", "/metricas", null);
+        assertEquals(200, metricas.statusCode());
+        assertTrue(metricas.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        assertTrue(metricas.body().length() > 0);
+    }
+
+    @Test
+    void altasYBajasConcurrentesQuedanConsistentes() throws Exception {
+        int hilos = 8;
+        int porHilo = 200;
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            List<Callable<Integer>> tareas = new ArrayList<>();
+            for (int h = 0; h < hilos; h++) {
+                int hilo = h;
+                tareas.add(() -> {
+                    int conservados = 0;
+                    for (int i = 0; i < porHilo; i++) {
+                        String codigo = "H" + hilo + "-" + i;
+                        // Cada hilo también intenta los códigos de su vecino: de los dos
+                        // intentos por código, uno agrega y el otro encuentra duplicado
+                        int estado = agregar("TERRESTRE", "Cliente" + (i % 7), codigo, 1 + i, 10).statusCode();
+                        assertTrue(estado == 201 || estado == 409, "estado " + estado);
+                        String vecino = "H" + ((hilo + 1) % hilos) + "-" + i;
+                        estado = agregar("AEREO", "Otro", vecino, 1, 1).statusCode();
+                        assertTrue(estado == 201 || estado == 409, "estado " + estado);
+                        if (i % 2 == 0) {
+                            assertEquals(200, enviar("DELETE", "/envios/" + codigo, null).statusCode());
+                        } else {
+                            conservados++;
+                        }
+                    }
+                    return conservados;
+                });
+            }
+            int conservados = 0;
+            for (Future<Integer> resultado : ejecutor.invokeAll(tareas)) {
+                conservados += resultado.get();
+            }
+
+            // Cada código queda una sola vez y el total coincide con recalcularlo
+            HttpResponse<String> total = enviar("GET", "/total", null);
+            assertEquals(200, total.statusCode());
+            int cantidad = servicio.obtenerCantidadEnvios();
+            assertTrue(cantidad >= conservados, cantidad + " < " + conservados);
+            assertTrue(total.body().startsWith("{\"cantidad\":" + cantidad + ","), total.body());
+            assertEquals(cantidad, contar(enviar("GET", "/envios", null).body()));
+            assertEquals(servicio.recalcularTotalTarifas(), servicio.calcularTotalTarifas(), 1e-6);
+            for (int i = 0; i < 7; i++) {
+                List<Envio> porCliente = servicio.buscarEnviosPorCliente("Cliente" + i);
+                assertNotNull(porCliente);
+                assertEquals(porCliente.size(), contar(enviar("GET", "/envios?cliente=Cliente" + i, null).body()));
+            }
+        } finally {
+            ejecutor.shutdownNow();
+        }
+    }
+
+    private HttpResponse<String> agregar(String tipo, String cliente, String codigo, double peso, double distancia)
+            throws Exception {
+        return enviar("POST", "/envios", "{\"tipo\":\"" + tipo + "\",\"cliente\":\"" + cliente + "\",\"codigo\":\""
+                + codigo + "\",\"peso\":" + peso + ",\"distancia\":" + distancia + "}");
+    }
+
+    private HttpResponse<String> enviar(String metodo, String ruta, String cuerpo) throws Exception {
+        HttpRequest peticion = HttpRequest.newBuilder(URI.create(base + ruta))
+                .timeout(Duration.ofSeconds(10))
+                .method(metodo, cuerpo == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(cuerpo))
+                .build();
+        return cliente.send(peticion, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Cantidad de objetos de un listado JSON (cada envío tiene un solo campo "codigo")
+     */
+    private static int contar(String listado) {
+        int cantidad = 0;
+        for (int i = listado.indexOf("\"codigo\":"); i >= 0; i = listado.indexOf("\"codigo\":", i + 1)) {
+            cantidad++;
+        }
+        return cantidad;
+    }
+}
@@ -0,0 +1,126 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Vistas de los repositorios columnar y fuera del heap: los setters escriben en el
+ * almacenamiento y notifican a los observadores registrados desde cualquier vista del
+ * mismo envío, así los índices, los agregados del servicio y el registro persistente
+ * siguen los cambios igual que con un repositorio de objetos.
+ */
+class VistasEnviosTest {
+    @TempDir
+    Path directorio;
+
+    @Test
+    void settersEscribenYNotificanALosDecoradores() throws IOException {
+        for (Supplier<IRepositorioEnvios> crear : repositorios()) {
+            IRepositorioEnvios almacen = crear.get();
+            String nombre = almacen.getClass().getSimpleName();
+            ServicioLogistica servicio = new ServicioLogistica(new RepositorioEnviosConIndices(almacen,
+                    IndiceSecundario.porCliente(), IndiceSecundario.porTipo(), IndiceRango.de(IndiceRango.Campo.COSTO)));
+            Envio original = FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.TERRESTRE, "Norte", "A1", 10, 100);
+            assertTrue(servicio.agregarEnvio(original), nombre);
+            servicio.agregarEnvio(FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.AEREO, "Norte", "10002", 2, 300));
+
+            // Otra vista del mismo envío ve el cambio y los decoradores lo siguen
+            servicio.buscarEnvio("A1").setPesoKg(1000);
+            assertEquals(1000, servicio.buscarEnvio("A1").getPesoKg(), nombre);
+            assertEquals(servicio.recalcularTotalTarifas(), servicio.calcularTotalTarifas(), 1e-6, nombre);
+            double costo = servicio.buscarEnvio("A1").getCosto();
+            assertEquals(List.of("A1"), codigos(servicio.buscarEnviosPorRango(IndiceRango.Campo.COSTO, costo, costo)
+                    .collect(Collectors.toList())), nombre);
+
+            servicio.buscarEnvio("10002").setCliente("Sur");
+            servicio.buscarEnvio("10002").setDistanciaKm(50);
+            assertEquals(List.of("10002"), codigos(servicio.buscarEnviosPorCliente("Sur")), nombre);
+            assertEquals(List.of("A1"), codigos(servicio.buscarEnviosPorCliente("Norte")), nombre);
+            assertEquals(servicio.recalcularTotalTarifas(), servicio.calcularTotalTarifas(), 1e-6, nombre);
+
+            // El envío del llamador es una copia: cambiarlo no afecta al repositorio
+            original.setPesoKg(5);
+            assertEquals(1000, servicio.buscarEnvio("A1").getPesoKg(), nombre);
+            assertEquals(servicio.recalcularTotalTarifas(), servicio.calcularTotalTarifas(), 1e-6, nombre);
+
+            // Un envío retirado no arrastra observadores a la posición que ocupaba
+            Envio vista = servicio.buscarEnvio("A1");
+            assertTrue(servicio.retirarEnvio("A1"), nombre);
+            assertFalse(vista.quitarObservador(servicio.obtenerAgregados()), nombre);
+            servicio.agregarEnvio(FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.MARITIMO, "Este", "B1", 7, 70));
+            servicio.buscarEnvio("B1").setPesoKg(70);
+            assertEquals(2, servicio.obtenerCantidadEnvios(), nombre);
+            assertEquals(servicio.recalcularTotalTarifas(), servicio.calcularTotalTarifas(), 1e-6, nombre);
+            cerrar(almacen);
+        }
+    }
+
+    @Test
+    void retirarMueveElUltimoYConservaSusObservadores() throws IOException {
+        for (Supplier<IRepositorioEnvios> crear : repositorios()) {
+            IRepositorioEnvios almacen = crear.get();
+            String nombre = almacen.getClass().getSimpleName();
+            ServicioLogistica servicio = new ServicioLogistica(almacen);
+            for (String codigo : new String[] {"1", "C2", "3", "codigo-largo-4"}) {
+                servicio.agregarEnvio(FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.TERRESTRE, "C", codigo, 1, 10));
+            }
+            assertTrue(servicio.retirarEnvio("C2"), nombre);
+            // El último envío pasa al lugar del retirado
+            assertEquals(List.of("1", "codigo-largo-4", "3"), codigos(servicio.listarEnvios()), nombre);
+            servicio.buscarEnvio("codigo-largo-4").setDistanciaKm(500);
+            servicio.buscarEnvio("3").setPesoKg(30);
+            assertEquals(servicio.recalcularTotalTarifas(), servicio.calcularTotalTarifas(), 1e-6, nombre);
+            cerrar(almacen);
+        }
+    }
+
+    @Test
+    void registroPersistenteReproduceLasModificacionesEnSuLugar() throws IOException {
+        for (Supplier<IRepositorioEnvios> crear : repositorios()) {
+            IRepositorioEnvios almacen = crear.get();
+            String nombre = almacen.getClass().getSimpleName();
+            Path archivo = directorio.resolve(nombre + ".log");
+            try (RepositorioEnviosPersistente persistente = new RepositorioEnviosPersistente(almacen, archivo)) {
+                for (int i = 0; i < 3; i++) {
+                    persistente.agregar(FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.AEREO, "C", "E" + i, 1, 10));
+                }
+                persistente.buscarPorCodigo("E0").setPesoKg(40);
+                persistente.buscarPorCodigo("E0").setCliente("Otro");
+            }
+            cerrar(almacen);
+
+            IRepositorioEnvios reabierto = crear.get();
+            try (RepositorioEnviosPersistente persistente = new RepositorioEnviosPersistente(reabierto, archivo)) {
+                // Sin retirar y volver a agregar: E0 sigue primero
+                assertEquals(List.of("E0", "E1", "E2"), codigos(persistente.obtenerTodos()), nombre);
+                assertEquals(40, persistente.buscarPorCodigo("E0").getPesoKg(), nombre);
+                assertEquals("Otro", persistente.buscarPorCodigo("E0").getCliente(), nombre);
+                assertNull(persistente.buscarPorCodigo("E3"), nombre);
+            }
+            cerrar(reabierto);
+        }
+    }
+
+    private static List<Supplier<IRepositorioEnvios>> repositorios() {
+        return List.of(RepositorioEnviosColumnar::new, RepositorioEnviosFueraDeHeap::new);
+    }
+
+    private static List<String> codigos(List<Envio> envios) {
+        return envios.stream().map(Envio::getCodigoEnvio).collect(Collectors.toList());
+    }
+
+    private static void cerrar(IRepositorioEnvios repositorio) throws IOException {
+        if (repositorio instanceof Closeable) {
+            ((Closeable) repositorio).close();
+        }
+    }
+}
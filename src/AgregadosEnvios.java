@@ -0,0 +1,199 @@
+/**
+ * Agregados de envíos mantenidos de forma incremental
+ * Lleva la cantidad, el total de tarifas, el total de kilogramos y el total de
+ * kilómetros de los envíos registrados, desglosados por tipo de envío. Se actualiza
+ * en cada alta, baja y modificación de peso o distancia, de modo que las consultas
+ * cuestan O(1). Las sumas usan compensación de Kahan-Babuška para no desviarse del
+ * recálculo completo después de millones de actualizaciones.
+ * Cuando se publica otra TablaTarifas, el total de tarifas de cada tipo se recalcula a
+ * partir de los totales de kilogramos y kilómetros (la tarifa es lineal en ambos), sin
+ * recorrer los envíos.
+ * Principio S (Single Responsibility): Solo mantiene los agregados de envíos
+ * Principio O (Open/Closed): Se engancha a los envíos como observador sin modificarlos
+ */
+public class AgregadosEnvios implements IObservadorEnvio {
+    private static final FabricaEnvios.TipoEnvio[] TIPOS = FabricaEnvios.TipoEnvio.values();
+    
+    private final long[] cantidad;
+    private final SumaCompensada[] tarifas;
+    private final SumaCompensada[] kilogramos;
+    private final SumaCompensada[] kilometros;
+    private long versionTarifas;
+    
+    /**
+     * Constructor de los agregados (inicialmente vacíos)
+     */
+    public AgregadosEnvios() {
+        this.cantidad = new long[TIPOS.length];
+        this.tarifas = crearSumas();
+        this.kilogramos = crearSumas();
+        this.kilometros = crearSumas();
+        this.versionTarifas = TablaTarifas.actual().getVersion();
+    }
+    
+    /**
+     * Registra un envío en los agregados y comienza a observar sus modificaciones
+     * @param envio Envío agregado al repositorio
+     */
+    synchronized void registrar(Envio envio) {
+        sincronizarTarifas();
+        envio.agregarObservador(this);
+        cantidad[envio.getTipo().ordinal()]++;
+        sumar(envio);
+    }
+    
+    /**
+     * Descuenta un envío de los agregados y deja de observarlo
+     * @param envio Envío retirado del repositorio
+     */
+    synchronized void descontar(Envio envio) {
+        sincronizarTarifas();
+        envio.quitarObservador(this);
+        int tipo = envio.getTipo().ordinal();
+        cantidad[tipo]--;
+        if (cantidad[tipo] == 0) {
+            // Sin envíos del tipo el total es exactamente cero
+            tarifas[tipo].reiniciar();
+            kilogramos[tipo].reiniciar();
+            kilometros[tipo].reiniciar();
+        } else {
+            restar(envio);
+        }
+    }
+    
+    @Override
+    public synchronized void antesDeModificar(Envio envio) {
+        sincronizarTarifas();
+        restar(envio);
+    }
+    
+    @Override
+    public synchronized void despuesDeModificar(Envio envio) {
+        sincronizarTarifas();
+        sumar(envio);
+    }
+    
+    /**
+     * Obtiene la cantidad total de envíos
+     * @return Cantidad de envíos registrados
+     */
+    public synchronized long obtenerCantidad() {
+        long total = 0;
+        for (long valor : cantidad) {
+            total += valor;
+        }
+        return total;
+    }
+    
+    /**
+     * Obtiene la cantidad de envíos de un tipo
+     * @param tipo Tipo de envío
+     * @return Cantidad de envíos del tipo
+     */
+    public synchronized long obtenerCantidad(FabricaEnvios.TipoEnvio tipo) {
+        return cantidad[tipo.ordinal()];
+    }
+    
+    /**
+     * Obtiene el total de tarifas de todos los envíos
+     * @return Suma de las tarifas
+     */
+    public synchronized double obtenerTotalTarifas() {
+        sincronizarTarifas();
+        return total(tarifas);
+    }
+    
+    /**
+     * Obtiene el total de tarifas de los envíos de un tipo
+     * @param tipo Tipo de envío
+     * @return Suma de las tarifas del tipo
+     */
+    public synchronized double obtenerTotalTarifas(FabricaEnvios.TipoEnvio tipo) {
+        sincronizarTarifas();
+        return tarifas[tipo.ordinal()].valor();
+    }
+    
+    /**
+     * Obtiene el total de kilogramos de todos los envíos
+     * @return Suma de los pesos
+     */
+    public synchronized double obtenerTotalKg() {
+        return total(kilogramos);
+    }
+    
+    /**
+     * Obtiene el total de kilogramos de los envíos de un tipo
+     * @param tipo Tipo de envío
+     * @return Suma de los pesos del tipo
+     */
+    public synchronized double obtenerTotalKg(FabricaEnvios.TipoEnvio tipo) {
+        return kilogramos[tipo.ordinal()].valor();
+    }
+    
+    /**
+     * Obtiene el total de kilómetros de todos los envíos
+     * @return Suma de las distancias
+     */
+    public synchronized double obtenerTotalKm() {
+        return total(kilometros);
+    }
+    
+    /**
+     * Obtiene el total de kilómetros de los envíos de un tipo
+     * @param tipo Tipo de envío
+     * @return Suma de las distancias del tipo
+     */
+    public synchronized double obtenerTotalKm(FabricaEnvios.TipoEnvio tipo) {
+        return kilometros[tipo.ordinal()].valor();
+    }
+    
+    /**
+     * Recalcula los totales de tarifas si se publicó otra tabla desde la última operación
+     */
+    private void sincronizarTarifas() {
+        TablaTarifas tabla = TablaTarifas.actual();
+        if (tabla.getVersion() == versionTarifas) {
+            return;
+        }
+        versionTarifas = tabla.getVersion();
+        for (FabricaEnvios.TipoEnvio tipo : TIPOS) {
+            int i = tipo.ordinal();
+            tarifas[i].reiniciar();
+            if (cantidad[i] > 0) {
+                tarifas[i].sumar(tabla.getTarifaPorKm(tipo) * kilometros[i].valor());
+                tarifas[i].sumar(tabla.getRecargoPorKg(tipo) * kilogramos[i].valor());
+            }
+        }
+    }
+    
+    private void sumar(Envio envio) {
+        int tipo = envio.getTipo().ordinal();
+        tarifas[tipo].sumar(envio.getCosto());
+        kilogramos[tipo].sumar(envio.getPesoKg());
+        kilometros[tipo].sumar(envio.getDistanciaKm());
+    }
+    
+    private void restar(Envio envio) {
+        int tipo = envio.getTipo().ordinal();
+        tarifas[tipo].restar(envio.getCosto());
+        kilogramos[tipo].restar(envio.getPesoKg());
+        kilometros[tipo].restar(envio.getDistanciaKm());
+    }
+    
+    private static double total(SumaCompensada[] sumas) {
+        SumaCompensada total = new SumaCompensada();
+        for (SumaCompensada suma : sumas) {
+            total.combinar(suma);
+        }
+        return total.valor();
+    }
+    
+    private static SumaCompensada[] crearSumas() {
+        SumaCompensada[] sumas = new SumaCompensada[TIPOS.length];
+        for (int i = 0; i < sumas.length; i++) {
+            sumas[i] = new SumaCompensada();
+        }
+        return sumas;
+    }
+}
+
@@ -0,0 +1,112 @@
+import java.util.function.ToIntFunction;
+
+/**
+ * Bloque de envíos entregados por columnas en lugar de objetos Envio
+ * La carga de una instantánea llena un bloque por tramo de registros y lo pasa a
+ * IRepositorioEnvios.agregarColumnas: los repositorios columnar y fuera del heap copian
+ * las columnas sin crear un Envio por fila. Los códigos numéricos canónicos (los que
+ * IndiceCodigos guarda como long) llegan como long, sin String; los demás, como texto.
+ * Los clientes llegan como identificadores de un diccionario compartido por todos los
+ * bloques de una carga, y cada cliente distinto se traduce al diccionario del destino
+ * una sola vez por carga. Un mismo bloque se reutiliza para los tramos siguientes.
+ * Principio S (Single Responsibility): Solo transporta las columnas de una carga
+ */
+public final class ColumnasEnvios {
+    private static final FabricaEnvios.TipoEnvio[] TIPOS = FabricaEnvios.TipoEnvio.values();
+    
+    private final String[] clientes;
+    // Identificador en el destino + 1 de cada cliente del diccionario (0: sin traducir)
+    private final int[] traducciones;
+    final long[] codigosNumericos;
+    final String[] codigosTexto;
+    final int[] idsCliente;
+    final byte[] tipos;
+    final double[] pesos;
+    final double[] distancias;
+    int cantidad;
+    
+    /**
+     * Constructor de un bloque vacío
+     * @param capacidad Cantidad máxima de filas por bloque
+     * @param clientes Diccionario de clientes de la carga
+     */
+    ColumnasEnvios(int capacidad, String[] clientes) {
+        this.clientes = clientes;
+        this.traducciones = new int[clientes.length];
+        this.codigosNumericos = new long[capacidad];
+        this.codigosTexto = new String[capacidad];
+        this.idsCliente = new int[capacidad];
+        this.tipos = new byte[capacidad];
+        this.pesos = new double[capacidad];
+        this.distancias = new double[capacidad];
+    }
+    
+    /**
+     * Obtiene la cantidad de filas del bloque
+     * @return Cantidad de filas
+     */
+    public int getCantidad() {
+        return cantidad;
+    }
+    
+    /**
+     * Obtiene el código numérico de una fila
+     * @param fila Posición de la fila
+     * @return Valor de IndiceCodigos.codigoNumerico, o -1 si el código es de texto
+     */
+    public long getCodigoNumerico(int fila) {
+        return codigosNumericos[fila];
+    }
+    
+    /**
+     * Obtiene el código de una fila (arma el String de los códigos numéricos)
+     * @param fila Posición de la fila
+     * @return Código del envío
+     */
+    public String getCodigo(int fila) {
+        long numerico = codigosNumericos[fila];
+        return numerico >= 0 ? Long.toString(numerico) : codigosTexto[fila];
+    }
+    
+    public String getCliente(int fila) {
+        return clientes[idsCliente[fila]];
+    }
+    
+    public FabricaEnvios.TipoEnvio getTipo(int fila) {
+        return TIPOS[tipos[fila]];
+    }
+    
+    public double getPesoKg(int fila) {
+        return pesos[fila];
+    }
+    
+    public double getDistanciaKm(int fila) {
+        return distancias[fila];
+    }
+    
+    /**
+     * Crea el envío de una fila (para los repositorios que guardan objetos)
+     * @param fila Posición de la fila
+     * @return Envío nuevo con los valores de la fila
+     */
+    public Envio crearEnvio(int fila) {
+        return FabricaEnvios.crearEnvio(getTipo(fila), getCliente(fila), getCodigo(fila), pesos[fila], distancias[fila]);
+    }
+    
+    /**
+     * Traduce el cliente de una fila al diccionario del destino
+     * @param fila Posición de la fila
+     * @param idDestino Obtiene o asigna el identificador de un cliente en el destino
+     * @return Identificador del cliente en el destino
+     */
+    public int traducirCliente(int fila, ToIntFunction<String> idDestino) {
+        int id = idsCliente[fila];
+        int traducido = traducciones[id];
+        if (traducido == 0) {
+            traducido = idDestino.applyAsInt(clientes[id]) + 1;
+            traducciones[id] = traducido;
+        }
+        return traducido - 1;
+    }
+}
+
@@ -0,0 +1,257 @@
+import java.lang.ref.WeakReference;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diccionario concurrente de nombres de cliente
+ * Los manifiestos repiten unos pocos miles de clientes en millones de envíos; canonico
+ * devuelve siempre la misma instancia de String para un mismo nombre, así los envíos
+ * comparten una sola copia y la copia recién leída (por ejemplo, del CSV) queda como
+ * basura joven. FabricaEnvios y Envio.setCliente pasan los clientes por el diccionario global.
+ *
+ * Modos:
+ * - FUERTE: ConcurrentHashMap; los nombres se conservan mientras viva el diccionario.
+ * - DEBIL: WeakHashMap dividido en franjas con un bloqueo cada una; un nombre que ningún
+ *   envío usa se libera en la siguiente recolección de basura.
+ * - DESACTIVADO: devuelve el mismo String recibido (para comparar).
+ * El modo del diccionario global se elige con -Dclientes.diccionario=fuerte|debil|desactivado;
+ * con un valor desconocido el diccionario global usa FUERTE y modoConfigurado lanza la
+ * excepción que los puntos de entrada informan.
+ *
+ * Las estadísticas cuentan consultas, aciertos y los bytes de las copias repetidas que se
+ * descartaron (estimados para un String compacto de 64 bits: 24 bytes del objeto más el
+ * arreglo de 16 bytes de cabecera y 1 o 2 bytes por carácter, alineado a 8).
+ * Principio S (Single Responsibility): Solo comparte los nombres de cliente
+ */
+public final class DiccionarioClientes {
+    /**
+     * Modo de retención de los nombres
+     */
+    public enum Modo {
+        FUERTE, DEBIL, DESACTIVADO
+    }
+    
+    private static final int FRANJAS = 16;
+    
+    private static volatile DiccionarioClientes global = new DiccionarioClientes(modoInicial());
+    
+    private final Modo modo;
+    private final ConcurrentHashMap<String, String> fuertes;
+    private final Franja[] franjas;
+    
+    private final LongAdder consultas = new LongAdder();
+    private final LongAdder aciertos = new LongAdder();
+    private final LongAdder bytesAhorrados = new LongAdder();
+    
+    /**
+     * Constructor con el modo de retención
+     * @param modo Modo del diccionario
+     */
+    public DiccionarioClientes(Modo modo) {
+        if (modo == null) {
+            throw new IllegalArgumentException("El modo del diccionario no puede ser nulo");
+        }
+        this.modo = modo;
+        this.fuertes = modo == Modo.FUERTE ? new ConcurrentHashMap<>() : null;
+        this.franjas = modo == Modo.DEBIL ? new Franja[FRANJAS] : null;
+        if (franjas != null) {
+            for (int i = 0; i < FRANJAS; i++) {
+                franjas[i] = new Franja();
+            }
+        }
+    }
+    
+    /**
+     * Lee el modo de -Dclientes.diccionario
+     * @return Modo configurado (FUERTE si la propiedad no está definida)
+     * @throws IllegalArgumentException Si el valor no es fuerte, debil ni desactivado
+     */
+    public static Modo modoConfigurado() {
+        String valor = System.getProperty("clientes.diccionario", "fuerte");
+        try {
+            return Modo.valueOf(valor.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Modo de diccionario de clientes desconocido: " + valor
+                    + " (se esperaba fuerte, debil o desactivado)");
+        }
+    }
+    
+    /**
+     * Modo del diccionario global: el configurado, o FUERTE si el valor es desconocido
+     * (fallar aquí dejaría a FabricaEnvios sin poder inicializarse)
+     */
+    private static Modo modoInicial() {
+        try {
+            return modoConfigurado();
+        } catch (IllegalArgumentException e) {
+            return Modo.FUERTE;
+        }
+    }
+    
+    /**
+     * Obtiene el diccionario que usa FabricaEnvios
+     * @return Diccionario global
+     */
+    public static DiccionarioClientes global() {
+        return global;
+    }
+    
+    /**
+     * Reemplaza el diccionario global (los envíos ya creados conservan su instancia)
+     * @param diccionario Nuevo diccionario global
+     */
+    public static void setGlobal(DiccionarioClientes diccionario) {
+        if (diccionario == null) {
+            throw new IllegalArgumentException("El diccionario no puede ser nulo");
+        }
+        global = diccionario;
+    }
+    
+    /**
+     * Obtiene la instancia compartida de un nombre de cliente (la registra si es nuevo)
+     * @param cliente Nombre del cliente
+     * @return Instancia canónica, igual (equals) al nombre recibido; null si es null
+     */
+    public String canonico(String cliente) {
+        if (cliente == null || modo == Modo.DESACTIVADO) {
+            return cliente;
+        }
+        consultas.increment();
+        String canonico;
+        if (fuertes != null) {
+            canonico = fuertes.get(cliente);
+            if (canonico == null) {
+                canonico = fuertes.putIfAbsent(cliente, cliente);
+            }
+        } else {
+            canonico = franjas[franja(cliente)].canonico(cliente);
+        }
+        if (canonico == null) {
+            return cliente;
+        }
+        aciertos.increment();
+        if (canonico != cliente) {
+            bytesAhorrados.add(tamanoEstimado(cliente));
+        }
+        return canonico;
+    }
+    
+    /**
+     * Cantidad de nombres registrados (en modo DEBIL, los que siguen en uso)
+     * @return Cantidad de nombres
+     */
+    public int tamano() {
+        if (fuertes != null) {
+            return fuertes.size();
+        }
+        if (franjas == null) {
+            return 0;
+        }
+        int total = 0;
+        for (Franja franja : franjas) {
+            total += franja.tamano();
+        }
+        return total;
+    }
+    
+    /**
+     * Olvida todos los nombres y reinicia las estadísticas
+     */
+    public void limpiar() {
+        if (fuertes != null) {
+            fuertes.clear();
+        }
+        if (franjas != null) {
+            for (Franja franja : franjas) {
+                franja.limpiar();
+            }
+        }
+        consultas.reset();
+        aciertos.reset();
+        bytesAhorrados.reset();
+    }
+    
+    public Modo getModo() {
+        return modo;
+    }
+    
+    public long getConsultas() {
+        return consultas.sum();
+    }
+    
+    public long getAciertos() {
+        return aciertos.sum();
+    }
+    
+    /**
+     * Fracción de consultas que encontraron el nombre ya registrado
+     * @return Tasa de aciertos entre 0 y 1 (0 sin consultas)
+     */
+    public double getTasaAciertos() {
+        long total = consultas.sum();
+        return total == 0 ? 0.0 : (double) aciertos.sum() / total;
+    }
+    
+    /**
+     * Bytes estimados de las copias repetidas que se descartaron
+     * @return Bytes ahorrados
+     */
+    public long getBytesAhorrados() {
+        return bytesAhorrados.sum();
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Clientes: %d (%s) | Consultas: %d | Aciertos: %.1f%% | Bytes ahorrados: %d",
+                tamano(), modo, getConsultas(), getTasaAciertos() * 100.0, getBytesAhorrados());
+    }
+    
+    private static int franja(String cliente) {
+        int h = cliente.hashCode();
+        return (h ^ (h >>> 16)) & (FRANJAS - 1);
+    }
+    
+    /**
+     * Tamaño estimado de un String compacto (LATIN1 si todos sus caracteres caben en un byte)
+     */
+    static long tamanoEstimado(String texto) {
+        int bytesPorCaracter = 1;
+        for (int i = 0; i < texto.length(); i++) {
+            if (texto.charAt(i) > 0xFF) {
+                bytesPorCaracter = 2;
+                break;
+            }
+        }
+        return 24L + ((16L + (long) texto.length() * bytesPorCaracter + 7) & ~7L);
+    }
+    
+    /**
+     * Parte del diccionario débil con su propio bloqueo
+     * La clave es débil; el valor es una referencia débil al mismo String para que la
+     * entrada no retenga su propia clave
+     */
+    private static final class Franja {
+        private final Map<String, WeakReference<String>> nombres = new WeakHashMap<>();
+        
+        synchronized String canonico(String cliente) {
+            WeakReference<String> referencia = nombres.get(cliente);
+            String canonico = referencia == null ? null : referencia.get();
+            if (canonico == null) {
+                nombres.put(cliente, new WeakReference<>(cliente));
+            }
+            return canonico;
+        }
+        
+        synchronized int tamano() {
+            return nombres.size();
+        }
+        
+        synchronized void limpiar() {
+            nombres.clear();
+        }
+    }
+}
+
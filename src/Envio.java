@@ -1,6 +1,14 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
 /**
  * Clase abstracta base para representar un envío
  * Contiene los atributos comunes a todos los tipos de envío
+ * getCosto memoriza la tarifa calculada. La memoria se invalida cuando setPesoKg o
+ * setDistanciaKm cambian el envío y cuando se publica otra TablaTarifas; se guarda en un
+ * objeto inmutable publicado por un campo volátil, así otro hilo nunca ve una tarifa a
+ * medio escribir. La memorización se desactiva para todos los envíos con
+ * setMemorizarTarifas(false) o con -Denvio.memorizarTarifas=false.
  * Principio S (Single Responsibility): Solo maneja datos de envío
  * Principio L (Liskov Substitution): Puede ser sustituida por cualquier subtipo
  */
@@ -10,6 +18,18 @@ public abstract class Envio implements ICalculadoraTarifa {
     protected double pesoKg;
     protected double distanciaKm;
     
+    private static final IObservadorEnvio[] SIN_OBSERVADORES = new IObservadorEnvio[0];
+    private volatile IObservadorEnvio[] observadores = SIN_OBSERVADORES;
+    
+    private static volatile boolean memorizarTarifas =
+            Boolean.parseBoolean(System.getProperty("envio.memorizarTarifas", "true"));
+    private volatile TarifaMemorizada tarifaMemorizada;
+    // Cambia en cada modificación de peso o distancia; invalida la tarifa memorizada. Se
+    // incrementa de forma atómica: dos setters a la vez nunca dejan el mismo valor
+    private volatile int modificaciones;
+    private static final AtomicIntegerFieldUpdater<Envio> MODIFICACIONES =
+            AtomicIntegerFieldUpdater.newUpdater(Envio.class, "modificaciones");
+    
     /**
      * Constructor de Envio
      * @param cliente Nombre del remitente
@@ -32,11 +52,40 @@ public abstract class Envio implements ICalculadoraTarifa {
     public abstract double calcularTarifa();
     
     /**
-     * Obtiene el costo del envío (alias de calcularTarifa)
+     * Obtiene el costo del envío (calcularTarifa memorizado)
      * @return Costo total del envío
      */
     public double getCosto() {
-        return calcularTarifa();
+        if (!memorizarTarifas) {
+            return calcularTarifa();
+        }
+        // La modificación y la versión se leen antes de calcular: si cambian durante el
+        // cálculo, el valor guardado queda marcado como viejo y no se reutiliza
+        int modificacion = modificaciones;
+        long version = TablaTarifas.actual().getVersion();
+        TarifaMemorizada memoria = tarifaMemorizada;
+        if (memoria != null && memoria.modificacion == modificacion && memoria.version == version) {
+            return memoria.valor;
+        }
+        double valor = calcularTarifa();
+        tarifaMemorizada = new TarifaMemorizada(valor, modificacion, version);
+        return valor;
+    }
+    
+    /**
+     * Activa o desactiva la memorización de tarifas de todos los envíos
+     * @param activar true para memorizar las tarifas en getCosto
+     */
+    public static void setMemorizarTarifas(boolean activar) {
+        memorizarTarifas = activar;
+    }
+    
+    /**
+     * Indica si los envíos memorizan su tarifa
+     * @return true si getCosto memoriza las tarifas
+     */
+    public static boolean isMemorizarTarifas() {
+        return memorizarTarifas;
     }
     
     /**
@@ -45,6 +94,12 @@ public abstract class Envio implements ICalculadoraTarifa {
      */
     public abstract String getTipoEnvio();
     
+    /**
+     * Método abstracto para obtener el tipo de envío como constante de la fábrica
+     * @return Tipo de envío
+     */
+    public abstract FabricaEnvios.TipoEnvio getTipo();
+    
     // Getters
     public String getCliente() {
         return cliente;
@@ -62,23 +117,105 @@ public abstract class Envio implements ICalculadoraTarifa {
         return distanciaKm;
     }
     
-    // Setters
+    // Setters (notifican a los observadores registrados)
     public void setCliente(String cliente) {
+        // Los nombres editados comparten la instancia del diccionario, como los de FabricaEnvios
+        cliente = DiccionarioClientes.global().canonico(cliente);
+        IObservadorEnvio[] actuales = observadores;
+        notificarAntes(actuales);
         this.cliente = cliente;
+        notificarDespues(actuales);
     }
     
     public void setPesoKg(double pesoKg) {
+        IObservadorEnvio[] actuales = observadores;
+        notificarAntes(actuales);
         this.pesoKg = pesoKg;
+        MODIFICACIONES.incrementAndGet(this);
+        notificarDespues(actuales);
     }
     
     public void setDistanciaKm(double distanciaKm) {
+        IObservadorEnvio[] actuales = observadores;
+        notificarAntes(actuales);
         this.distanciaKm = distanciaKm;
+        MODIFICACIONES.incrementAndGet(this);
+        notificarDespues(actuales);
+    }
+    
+    /**
+     * Registra un observador que será notificado en cada modificación
+     * @param observador Observador a registrar
+     */
+    public synchronized void agregarObservador(IObservadorEnvio observador) {
+        if (observador == null) {
+            throw new IllegalArgumentException("El observador no puede ser nulo");
+        }
+        IObservadorEnvio[] actuales = observadores;
+        IObservadorEnvio[] nuevos = Arrays.copyOf(actuales, actuales.length + 1);
+        nuevos[actuales.length] = observador;
+        observadores = nuevos;
+    }
+    
+    /**
+     * Elimina un observador registrado
+     * @param observador Observador a eliminar
+     * @return true si estaba registrado
+     */
+    public synchronized boolean quitarObservador(IObservadorEnvio observador) {
+        IObservadorEnvio[] actuales = observadores;
+        for (int i = 0; i < actuales.length; i++) {
+            if (actuales[i] == observador) {
+                IObservadorEnvio[] nuevos = new IObservadorEnvio[actuales.length - 1];
+                System.arraycopy(actuales, 0, nuevos, 0, i);
+                System.arraycopy(actuales, i + 1, nuevos, i, actuales.length - i - 1);
+                observadores = nuevos.length == 0 ? SIN_OBSERVADORES : nuevos;
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Notifica a los observadores que el envío se va a modificar (para las subclases que
+     * guardan los datos fuera del objeto y redefinen los setters)
+     * @param actuales Observadores a notificar
+     */
+    protected final void notificarAntes(IObservadorEnvio[] actuales) {
+        for (IObservadorEnvio observador : actuales) {
+            observador.antesDeModificar(this);
+        }
+    }
+    
+    /**
+     * Notifica a los observadores que el envío se modificó
+     * @param actuales Observadores a notificar
+     */
+    protected final void notificarDespues(IObservadorEnvio[] actuales) {
+        for (IObservadorEnvio observador : actuales) {
+            observador.despuesDeModificar(this);
+        }
+    }
+    
+    /**
+     * Tarifa calculada junto con la modificación y la versión de tarifas con que se calculó
+     */
+    private static final class TarifaMemorizada {
+        private final double valor;
+        private final int modificacion;
+        private final long version;
+        
+        TarifaMemorizada(double valor, int modificacion, long version) {
+            this.valor = valor;
+            this.modificacion = modificacion;
+            this.version = version;
+        }
     }
     
     @Override
     public String toString() {
-        return String.format("Tipo: %s | Código: %s | Cliente: %s | Peso: %.1f kg | Distancia: %.1f km | Costo: $%.1f",
-                getTipoEnvio(), codigoEnvio, cliente, pesoKg, distanciaKm, getCosto());
+        // Mismo texto que "Tipo: %s | Código: %s | ... | Costo: $%.1f" sin analizar un formato
+        return FormateadorEnvios.formatear(this);
     }
 }
 
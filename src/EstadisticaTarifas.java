@@ -0,0 +1,137 @@
+import java.util.Arrays;
+
+/**
+ * Estadística de tarifas de un grupo de envíos: cantidad, suma, mínimo, máximo e histograma
+ * El histograma usa intervalos de potencias de 2: el intervalo k (k &gt; 0) cuenta las
+ * tarifas en [2^(k-1), 2^k) y el intervalo 0 las menores que 1. Al ser intervalos fijos,
+ * las estadísticas parciales de distintos hilos se combinan sumando sus conteos. Solo se
+ * reservan los intervalos entre el menor y el mayor usados, ya que un reporte por cliente
+ * puede tener cientos de miles de estadísticas.
+ * Principio S (Single Responsibility): Solo acumula estadísticas de tarifas
+ */
+public final class EstadisticaTarifas {
+    private static final int INTERVALOS = 64;
+    
+    private long cantidad;
+    private final SumaCompensada suma = new SumaCompensada();
+    private double minimo = Double.POSITIVE_INFINITY;
+    private double maximo = Double.NEGATIVE_INFINITY;
+    private long[] histograma;
+    private int primerIntervalo;
+    
+    /**
+     * Registra la tarifa de un envío
+     * @param tarifa Tarifa del envío
+     */
+    void registrar(double tarifa) {
+        cantidad++;
+        suma.sumar(tarifa);
+        if (tarifa < minimo) {
+            minimo = tarifa;
+        }
+        if (tarifa > maximo) {
+            maximo = tarifa;
+        }
+        contar(intervalo(tarifa), 1);
+    }
+    
+    /**
+     * Incorpora una estadística parcial a esta
+     * @param otra Estadística a combinar
+     */
+    void combinar(EstadisticaTarifas otra) {
+        cantidad += otra.cantidad;
+        suma.combinar(otra.suma);
+        minimo = Math.min(minimo, otra.minimo);
+        maximo = Math.max(maximo, otra.maximo);
+        if (otra.histograma != null) {
+            for (int i = 0; i < otra.histograma.length; i++) {
+                if (otra.histograma[i] != 0) {
+                    contar(otra.primerIntervalo + i, otra.histograma[i]);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Suma un conteo a un intervalo, ampliando el rango reservado si hace falta
+     */
+    private void contar(int intervalo, long conteo) {
+        if (histograma == null) {
+            histograma = new long[1];
+            primerIntervalo = intervalo;
+        } else if (intervalo < primerIntervalo) {
+            long[] ampliado = new long[histograma.length + primerIntervalo - intervalo];
+            System.arraycopy(histograma, 0, ampliado, primerIntervalo - intervalo, histograma.length);
+            histograma = ampliado;
+            primerIntervalo = intervalo;
+        } else if (intervalo >= primerIntervalo + histograma.length) {
+            histograma = Arrays.copyOf(histograma, intervalo - primerIntervalo + 1);
+        }
+        histograma[intervalo - primerIntervalo] += conteo;
+    }
+    
+    /**
+     * Obtiene el intervalo del histograma que corresponde a una tarifa
+     * @param tarifa Tarifa del envío
+     * @return Índice del intervalo
+     */
+    public static int intervalo(double tarifa) {
+        if (!(tarifa >= 1.0)) {
+            return 0;
+        }
+        return Math.min(INTERVALOS - 1, 64 - Long.numberOfLeadingZeros((long) tarifa));
+    }
+    
+    /**
+     * Obtiene el límite inferior de un intervalo del histograma
+     * @param intervalo Índice del intervalo
+     * @return Menor tarifa contada en el intervalo
+     */
+    public static double limiteInferior(int intervalo) {
+        return intervalo == 0 ? 0.0 : Math.scalb(1.0, intervalo - 1);
+    }
+    
+    // Getters
+    public long getCantidad() {
+        return cantidad;
+    }
+    
+    public double getSuma() {
+        return suma.valor();
+    }
+    
+    public double getMinimo() {
+        return cantidad == 0 ? 0.0 : minimo;
+    }
+    
+    public double getMaximo() {
+        return cantidad == 0 ? 0.0 : maximo;
+    }
+    
+    public double getPromedio() {
+        return cantidad == 0 ? 0.0 : suma.valor() / cantidad;
+    }
+    
+    public int getCantidadIntervalos() {
+        return INTERVALOS;
+    }
+    
+    public long getConteoIntervalo(int intervalo) {
+        if (intervalo < 0 || intervalo >= INTERVALOS) {
+            throw new IndexOutOfBoundsException("Intervalo inválido: " + intervalo);
+        }
+        int posicion = intervalo - primerIntervalo;
+        if (histograma == null || posicion < 0 || posicion >= histograma.length) {
+            return 0;
+        }
+        return histograma[posicion];
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Envíos: %d | Total: $%.1f | Mínimo: $%.1f | Máximo: $%.1f | Promedio: $%.1f",
+                cantidad, getSuma(), getMinimo(), getMaximo(), getPromedio());
+    }
+}
+
@@ -1,5 +1,9 @@
+import java.util.Locale;
+
 /**
  * Fábrica de envíos
+ * El nombre del cliente pasa por DiccionarioClientes.global(), así los envíos de un mismo
+ * cliente comparten una sola instancia del nombre.
  * Principio O (Open/Closed): Facilita agregar nuevos tipos sin modificar código cliente
  * Principio S (Single Responsibility): Solo crea instancias de envíos
  */
@@ -9,9 +13,23 @@ public class FabricaEnvios {
      * Tipos de envío disponibles
      */
     public enum TipoEnvio {
-        TERRESTRE,
-        AEREO,
-        MARITIMO
+        TERRESTRE("Terrestre"),
+        AEREO("Aéreo"),
+        MARITIMO("Marítimo");
+        
+        private final String nombre;
+        
+        TipoEnvio(String nombre) {
+            this.nombre = nombre;
+        }
+        
+        /**
+         * Obtiene el nombre para mostrar del tipo (igual a Envio.getTipoEnvio())
+         * @return Nombre del tipo de envío
+         */
+        public String getNombre() {
+            return nombre;
+        }
     }
     
     /**
@@ -29,6 +47,7 @@ public class FabricaEnvios {
         if (tipo == null) {
             throw new IllegalArgumentException("El tipo de envío no puede ser nulo");
         }
+        cliente = DiccionarioClientes.global().canonico(cliente);
         
         switch (tipo) {
             case TERRESTRE:
@@ -59,7 +78,7 @@ public class FabricaEnvios {
         }
         
         TipoEnvio tipo;
-        switch (tipoString.toUpperCase()) {
+        switch (tipoString.toUpperCase(Locale.ROOT)) {
             case "TERRESTRE":
                 tipo = TipoEnvio.TERRESTRE;
                 break;
@@ -77,5 +96,21 @@ public class FabricaEnvios {
         
         return crearEnvio(tipo, cliente, codigo, peso, distancia);
     }
+    
+    /**
+     * Calcula la tarifa de un envío sin instanciarlo
+     * Da exactamente el mismo resultado que calcularTarifa() del tipo correspondiente
+     * @param tipo Tipo de envío
+     * @param peso Peso en kilogramos
+     * @param distancia Distancia en kilómetros
+     * @return Tarifa total calculada
+     * @throws IllegalArgumentException si el tipo no es válido
+     */
+    public static double calcularTarifa(TipoEnvio tipo, double peso, double distancia) {
+        if (tipo == null) {
+            throw new IllegalArgumentException("El tipo de envío no puede ser nulo");
+        }
+        return TablaTarifas.actual().calcular(tipo, peso, distancia);
+    }
 }
 
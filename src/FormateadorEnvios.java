@@ -0,0 +1,115 @@
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formato de texto de los envíos sin String.format
+ * Escribe sobre un StringBuilder del llamador, sin analizar una cadena de formato ni crear
+ * objetos intermedios por número. Los decimales se escriben con una cifra y el mismo
+ * resultado que "%.1f": redondeo hacia arriba en la mitad sobre la representación decimal
+ * más corta del double y el separador decimal de la configuración regional de formato.
+ * Los valores que caen justo en la mitad entre dos décimas (tras el redondeo binario), los
+ * muy grandes, NaN e infinitos se delegan a String.format, así el resultado no cambia.
+ * Principio S (Single Responsibility): Solo convierte envíos y números a texto
+ */
+public final class FormateadorEnvios {
+    // Hasta este valor las décimas caben en un long con margen y el redondeo rápido es exacto
+    private static final double LIMITE_RAPIDO = 1e14;
+    
+    // Separador decimal de la última configuración regional usada (se relee si cambia)
+    private static volatile SimbolosRegionales simbolos = new SimbolosRegionales(Locale.getDefault(Locale.Category.FORMAT));
+    
+    private FormateadorEnvios() {
+    }
+    
+    /**
+     * Texto de un envío, igual al de Envio.toString
+     * @param envio Envío a formatear
+     * @return Texto del envío
+     */
+    public static String formatear(Envio envio) {
+        return agregarEnvio(new StringBuilder(128), envio).toString();
+    }
+    
+    /**
+     * Agrega el texto de un envío:
+     * "Tipo: X | Código: X | Cliente: X | Peso: 0.0 kg | Distancia: 0.0 km | Costo: $0.0"
+     * @param destino Donde se agrega el texto
+     * @param envio Envío a formatear
+     * @return El mismo destino
+     */
+    public static StringBuilder agregarEnvio(StringBuilder destino, Envio envio) {
+        destino.append("Tipo: ").append(envio.getTipoEnvio())
+               .append(" | Código: ").append(envio.getCodigoEnvio())
+               .append(" | Cliente: ").append(envio.getCliente())
+               .append(" | Peso: ");
+        agregarDecimal(destino, envio.getPesoKg());
+        destino.append(" kg | Distancia: ");
+        agregarDecimal(destino, envio.getDistanciaKm());
+        destino.append(" km | Costo: $");
+        agregarDecimal(destino, envio.getCosto());
+        return destino;
+    }
+    
+    /**
+     * Texto de un número con una cifra decimal, igual a String.format("%.1f", valor)
+     * @param valor Número a formatear
+     * @return Texto del número
+     */
+    public static String formatearDecimal(double valor) {
+        return agregarDecimal(new StringBuilder(24), valor).toString();
+    }
+    
+    /**
+     * Agrega un número con una cifra decimal, igual a String.format("%.1f", valor)
+     * @param destino Donde se agrega el número
+     * @param valor Número a formatear
+     * @return El mismo destino
+     */
+    public static StringBuilder agregarDecimal(StringBuilder destino, double valor) {
+        Locale region = Locale.getDefault(Locale.Category.FORMAT);
+        SimbolosRegionales actuales = simbolos;
+        if (actuales.region != region) {
+            actuales = new SimbolosRegionales(region);
+            simbolos = actuales;
+        }
+        double magnitud = Math.abs(valor);
+        if (!actuales.digitosLatinos || !(magnitud < LIMITE_RAPIDO)) {
+            return destino.append(String.format(region, "%.1f", valor));
+        }
+        
+        double escalado = magnitud * 10.0;
+        long decimas = (long) escalado;
+        double fraccion = escalado - decimas;
+        // La representación decimal más corta difiere del double en menos de media ulp; cerca
+        // de la mitad esa diferencia puede cambiar el redondeo y se deja a String.format
+        if (Math.abs(fraccion - 0.5) <= 4 * Math.ulp(escalado)) {
+            return destino.append(String.format(region, "%.1f", valor));
+        }
+        if (fraccion > 0.5) {
+            decimas++;
+        }
+        
+        // El signo se conserva también en -0.0 y en negativos que redondean a cero
+        if (Double.doubleToRawLongBits(valor) < 0) {
+            destino.append('-');
+        }
+        return destino.append(decimas / 10).append(actuales.separadorDecimal).append((char) ('0' + decimas % 10));
+    }
+    
+    /**
+     * Símbolos de formato de una configuración regional
+     */
+    private static final class SimbolosRegionales {
+        private final Locale region;
+        private final char separadorDecimal;
+        private final boolean digitosLatinos;
+        
+        SimbolosRegionales(Locale region) {
+            DecimalFormatSymbols simbolos = DecimalFormatSymbols.getInstance(region);
+            this.region = region;
+            this.separadorDecimal = simbolos.getDecimalSeparator();
+            this.digitosLatinos = simbolos.getZeroDigit() == '0';
+        }
+    }
+}
+
@@ -0,0 +1,101 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conjuntos de observadores compartidos por los envíos de un repositorio sin objetos Envio
+ * Los repositorios columnar y fuera del heap entregan una vista nueva en cada búsqueda, así
+ * que los observadores no pueden vivir en la vista: cada envío guarda el número de su grupo
+ * (un int por fila) y el grupo es un arreglo inmutable de observadores. Los decoradores
+ * observan todos los envíos con los mismos observadores, por lo que hay pocos grupos
+ * distintos y cada uno se crea una sola vez; el grupo 0 es el conjunto vacío.
+ * No es seguro para varios hilos: lo protege el repositorio que lo usa.
+ * Principio S (Single Responsibility): Solo asigna conjuntos de observadores a grupos
+ */
+public final class GruposObservadores {
+    /** Grupo de los envíos sin observadores */
+    public static final int SIN_OBSERVADORES = 0;
+    
+    private final int maximo;
+    private final List<IObservadorEnvio[]> grupos;
+    private final Map<List<IObservadorEnvio>, Integer> ids;
+    
+    /**
+     * Constructor con la cantidad máxima de grupos distintos
+     * @param maximo Cantidad máxima de grupos (la que admite el campo donde se guardan)
+     */
+    public GruposObservadores(int maximo) {
+        this.maximo = maximo;
+        this.grupos = new ArrayList<>();
+        this.ids = new HashMap<>();
+        grupos.add(new IObservadorEnvio[0]);
+        ids.put(List.of(), SIN_OBSERVADORES);
+    }
+    
+    /**
+     * Obtiene los observadores de un grupo
+     * @param grupo Número de grupo
+     * @return Observadores del grupo (no se debe modificar el arreglo)
+     */
+    public IObservadorEnvio[] obtener(int grupo) {
+        return grupos.get(grupo);
+    }
+    
+    /**
+     * Obtiene el grupo que resulta de agregar un observador a otro grupo
+     * @param grupo Grupo actual
+     * @param observador Observador a agregar
+     * @return Número del grupo con el observador agregado al final
+     */
+    public int agregar(int grupo, IObservadorEnvio observador) {
+        if (observador == null) {
+            throw new IllegalArgumentException("El observador no puede ser nulo");
+        }
+        IObservadorEnvio[] actuales = grupos.get(grupo);
+        IObservadorEnvio[] nuevos = Arrays.copyOf(actuales, actuales.length + 1);
+        nuevos[actuales.length] = observador;
+        return id(nuevos);
+    }
+    
+    /**
+     * Obtiene el grupo que resulta de quitar un observador de otro grupo
+     * @param grupo Grupo actual
+     * @param observador Observador a quitar
+     * @return Número del grupo sin el observador, o -1 si no estaba en el grupo
+     */
+    public int quitar(int grupo, IObservadorEnvio observador) {
+        IObservadorEnvio[] actuales = grupos.get(grupo);
+        for (int i = 0; i < actuales.length; i++) {
+            if (actuales[i] == observador) {
+                IObservadorEnvio[] nuevos = new IObservadorEnvio[actuales.length - 1];
+                System.arraycopy(actuales, 0, nuevos, 0, i);
+                System.arraycopy(actuales, i + 1, nuevos, i, actuales.length - i - 1);
+                return id(nuevos);
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Obtiene (o crea) el grupo de un conjunto de observadores
+     * @param observadores Observadores en orden de registro
+     * @return Número del grupo
+     */
+    private int id(IObservadorEnvio[] observadores) {
+        // Los observadores de la serie no redefinen equals: la lista los compara por identidad
+        List<IObservadorEnvio> clave = Arrays.asList(observadores);
+        Integer id = ids.get(clave);
+        if (id == null) {
+            if (grupos.size() == maximo) {
+                throw new IllegalStateException("Demasiados conjuntos de observadores distintos (" + maximo + ")");
+            }
+            id = grupos.size();
+            grupos.add(observadores);
+            ids.put(clave, id);
+        }
+        return id;
+    }
+}
+
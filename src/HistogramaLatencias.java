@@ -0,0 +1,185 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histograma concurrente de latencias en nanosegundos, con intervalos log-lineales
+ * Como en un HdrHistogram, cada potencia de 2 se divide en 64 intervalos iguales, así que
+ * el error relativo de un percentil es menor al 1.6% en todo el rango (hasta ~18 minutos;
+ * los valores mayores se cuentan en el último intervalo) y el intervalo de un valor se
+ * calcula con un desplazamiento, sin logaritmos ni búsquedas.
+ *
+ * Los conteos, la suma y el máximo se reparten en franjas (una por grupo de hilos, elegida
+ * por el identificador del hilo), así que los hilos que registran a la vez casi nunca
+ * compiten por la misma línea de caché; el máximo solo se escribe cuando crece. La
+ * instantánea suma las franjas; no se detiene a los hilos que registran, por lo que una
+ * instantánea tomada bajo carga puede no incluir los registros en curso.
+ * Principio S (Single Responsibility): Solo cuenta latencias
+ */
+public final class HistogramaLatencias {
+    /** Latencia máxima distinguible en nanosegundos (~18 minutos) */
+    public static final long LATENCIA_MAXIMA = (1L << 40) - 1;
+    
+    private static final int BITS_SUBINTERVALO = 6;
+    private static final int SUBINTERVALOS = 1 << BITS_SUBINTERVALO;
+    private static final int INTERVALOS = indice(LATENCIA_MAXIMA) + 1;
+    // Posiciones de la suma y el máximo en cada franja, después de los conteos
+    private static final int SUMA = INTERVALOS;
+    private static final int MAXIMO = INTERVALOS + 1;
+    private static final int FRANJAS_MAXIMAS = 16;
+    
+    private final AtomicLongArray[] franjas;
+    private final int mascaraFranjas;
+    
+    /**
+     * Constructor con una franja por procesador disponible (hasta 16)
+     */
+    public HistogramaLatencias() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Constructor con una cantidad de franjas
+     * @param franjas Cantidad de franjas (se redondea a una potencia de 2, hasta 16)
+     */
+    public HistogramaLatencias(int franjas) {
+        if (franjas < 1) {
+            throw new IllegalArgumentException("Debe haber al menos una franja: " + franjas);
+        }
+        int cantidad = Math.min(FRANJAS_MAXIMAS, Integer.highestOneBit(franjas - 1) << 1);
+        this.franjas = new AtomicLongArray[Math.max(1, cantidad)];
+        for (int i = 0; i < this.franjas.length; i++) {
+            this.franjas[i] = new AtomicLongArray(INTERVALOS + 2);
+        }
+        this.mascaraFranjas = this.franjas.length - 1;
+    }
+    
+    /**
+     * Registra una latencia
+     * @param nanos Latencia en nanosegundos (los valores negativos cuentan como 0)
+     */
+    public void registrar(long nanos) {
+        long valor = Math.max(0, nanos);
+        long hilo = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        AtomicLongArray franja = franjas[(int) (hilo >>> 32) & mascaraFranjas];
+        franja.getAndIncrement(indice(Math.min(valor, LATENCIA_MAXIMA)));
+        franja.getAndAdd(SUMA, valor);
+        long maximo = franja.get(MAXIMO);
+        while (valor > maximo && !franja.weakCompareAndSetVolatile(MAXIMO, maximo, valor)) {
+            maximo = franja.get(MAXIMO);
+        }
+    }
+    
+    /**
+     * Vacía el histograma (los registros concurrentes pueden quedar a medias)
+     */
+    public void reiniciar() {
+        for (AtomicLongArray franja : franjas) {
+            for (int i = 0; i < INTERVALOS + 2; i++) {
+                franja.set(i, 0);
+            }
+        }
+    }
+    
+    /**
+     * Toma una instantánea sumando las franjas
+     * @return Conteos actuales
+     */
+    public Instantanea instantanea() {
+        long[] conteos = new long[INTERVALOS];
+        long cantidad = 0;
+        long suma = 0;
+        long maximo = 0;
+        for (AtomicLongArray franja : franjas) {
+            for (int i = 0; i < INTERVALOS; i++) {
+                long conteo = franja.get(i);
+                conteos[i] += conteo;
+                cantidad += conteo;
+            }
+            suma += franja.get(SUMA);
+            maximo = Math.max(maximo, franja.get(MAXIMO));
+        }
+        return new Instantanea(conteos, cantidad, suma, maximo);
+    }
+    
+    /**
+     * Intervalo de un valor: los valores menores que 128 tienen intervalo propio; desde ahí,
+     * cada potencia de 2 se divide en 64 intervalos según los 6 bits siguientes al más alto
+     */
+    static int indice(long valor) {
+        if (valor < 2 * SUBINTERVALOS) {
+            return (int) valor;
+        }
+        int desplazamiento = 63 - Long.numberOfLeadingZeros(valor) - BITS_SUBINTERVALO;
+        return (desplazamiento << BITS_SUBINTERVALO) + (int) (valor >>> desplazamiento);
+    }
+    
+    /**
+     * Mayor valor que cae en un intervalo
+     */
+    static long valorMaximo(int indice) {
+        if (indice < 2 * SUBINTERVALOS) {
+            return indice;
+        }
+        int desplazamiento = (indice >>> BITS_SUBINTERVALO) - 1;
+        long mantisa = (indice & (SUBINTERVALOS - 1)) + SUBINTERVALOS;
+        return ((mantisa + 1) << desplazamiento) - 1;
+    }
+    
+    /**
+     * Conteos de un histograma en un momento dado
+     */
+    public static final class Instantanea {
+        private final long[] conteos;
+        private final long cantidad;
+        private final long suma;
+        private final long maximo;
+        
+        Instantanea(long[] conteos, long cantidad, long suma, long maximo) {
+            this.conteos = conteos;
+            this.cantidad = cantidad;
+            this.suma = suma;
+            this.maximo = maximo;
+        }
+        
+        public long getCantidad() {
+            return cantidad;
+        }
+        
+        public long getMaximo() {
+            return maximo;
+        }
+        
+        /**
+         * Latencia promedio
+         * @return Promedio en nanosegundos (0 sin registros)
+         */
+        public double getPromedio() {
+            return cantidad == 0 ? 0.0 : (double) suma / cantidad;
+        }
+        
+        /**
+         * Latencia por debajo de la cual cae una fracción de los registros
+         * Devuelve el mayor valor del intervalo que contiene ese registro (sin superar el
+         * máximo registrado), como HdrHistogram
+         * @param percentil Percentil entre 0 y 100
+         * @return Latencia en nanosegundos (0 sin registros)
+         */
+        public long percentil(double percentil) {
+            if (percentil < 0 || percentil > 100 || Double.isNaN(percentil)) {
+                throw new IllegalArgumentException("El percentil debe estar entre 0 y 100: " + percentil);
+            }
+            if (cantidad == 0) {
+                return 0;
+            }
+            long posicion = Math.max(1, (long) Math.ceil(percentil / 100.0 * cantidad));
+            long acumulado = 0;
+            for (int i = 0; i < conteos.length; i++) {
+                acumulado += conteos[i];
+                if (acumulado >= posicion) {
+                    return Math.min(valorMaximo(i), maximo);
+                }
+            }
+            return maximo;
+        }
+    }
+}
+
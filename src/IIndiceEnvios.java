@@ -0,0 +1,43 @@
+/**
+ * Interfaz de los índices que mantiene RepositorioEnviosConIndices
+ * El repositorio llama a agregar y quitar con la clave actual del envío: quitar se llama
+ * antes de que un setter cambie el envío y agregar después.
+ * Principio I (Interface Segregation): Solo las operaciones de mantenimiento del índice
+ * Principio D (Dependency Inversion): El repositorio depende de esta abstracción
+ */
+public interface IIndiceEnvios {
+    /**
+     * Obtiene el nombre único del índice
+     * @return Nombre del índice
+     */
+    String getNombre();
+    
+    /**
+     * Registra un envío bajo su clave actual
+     * @param envio Envío a registrar
+     */
+    void agregar(Envio envio);
+    
+    /**
+     * Quita un envío de su clave actual
+     * @param envio Envío a quitar
+     */
+    void quitar(Envio envio);
+    
+    /**
+     * Vacía el índice
+     */
+    void limpiar();
+    
+    /**
+     * Indica si las claves del índice dependen de la TablaTarifas vigente
+     * Cuando se publica otra tabla, el repositorio reconstruye los índices que dependen de
+     * ella con un recorrido completo. Por defecto no dependen: los índices por costo lo
+     * declaran redefiniendo este método
+     * @return true si las claves cambian al cambiar las tarifas
+     */
+    default boolean dependeDeTarifas() {
+        return false;
+    }
+}
+
@@ -0,0 +1,37 @@
+import java.util.List;
+import javax.management.MXBean;
+
+/**
+ * Interfaz de administración (JMX) de las métricas del servicio de logística
+ * Se publica en el servidor de MBeans de la plataforma como
+ * logistica:type=MetricasServicio,name=&lt;nombre&gt; y se puede consultar con jconsole o
+ * VisualVM.
+ * Principio I (Interface Segregation): Solo lo que se consulta desde afuera
+ * Principio D (Dependency Inversion): Las herramientas de monitoreo dependen de esta interfaz
+ */
+@MXBean
+public interface IMetricasServicio {
+    /**
+     * Obtiene una instantánea de cada operación instrumentada
+     * @return Resúmenes en el orden de MetricasServicio.Operacion
+     */
+    List<ResumenOperacion> getOperaciones();
+    
+    /**
+     * Cada cuántas llamadas se mide la latencia de una
+     * @return Intervalo de muestreo (1 mide todas)
+     */
+    int getIntervaloMuestreo();
+    
+    /**
+     * Escribe las métricas como una tabla de texto
+     * @return Volcado de texto
+     */
+    String volcarTexto();
+    
+    /**
+     * Pone en cero todos los conteos e histogramas
+     */
+    void reiniciar();
+}
+
@@ -0,0 +1,23 @@
+/**
+ * Interfaz para observar las modificaciones de un envío
+ * Permite mantener actualizadas estructuras derivadas (agregados, índices) cuando
+ * cambian el cliente, el peso o la distancia de un envío ya registrado
+ * Principio I (Interface Segregation): Interfaz específica para notificar cambios
+ * Principio O (Open/Closed): Nuevos observadores sin modificar la clase Envio
+ */
+public interface IObservadorEnvio {
+    /**
+     * Se invoca justo antes de modificar un atributo del envío
+     * El envío todavía conserva sus valores anteriores
+     * @param envio Envío que se va a modificar
+     */
+    void antesDeModificar(Envio envio);
+    
+    /**
+     * Se invoca justo después de modificar un atributo del envío
+     * El envío ya tiene sus valores nuevos
+     * @param envio Envío modificado
+     */
+    void despuesDeModificar(Envio envio);
+}
+
@@ -1,4 +1,9 @@
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Interfaz para el repositorio de envíos
@@ -20,6 +25,17 @@ public interface IRepositorioEnvios {
      */
     boolean retirar(String codigoEnvio);
     
+    /**
+     * Retira un envío del repositorio y lo devuelve
+     * Las implementaciones concurrentes deben hacerlo de forma atómica
+     * @param codigoEnvio Código del envío a retirar
+     * @return El envío retirado o null si no se encontró
+     */
+    default Envio extraer(String codigoEnvio) {
+        Envio envio = buscarPorCodigo(codigoEnvio);
+        return envio != null && retirar(codigoEnvio) ? envio : null;
+    }
+    
     /**
      * Busca un envío por su código
      * @param codigoEnvio Código del envío a buscar
@@ -33,10 +49,141 @@ public interface IRepositorioEnvios {
      */
     List<Envio> obtenerTodos();
     
+    /**
+     * Recorre los envíos sin copiarlos
+     * El flujo admite procesamiento paralelo; no se debe modificar el repositorio mientras se consume
+     * @return Flujo de envíos en el mismo orden que obtenerTodos()
+     */
+    default Stream<Envio> flujo() {
+        return obtenerTodos().stream();
+    }
+    
+    /**
+     * Busca los envíos de un cliente
+     * Sin índice recorre todos los envíos; los repositorios con índice secundario lo usan
+     * @param cliente Nombre del cliente
+     * @return Envíos del cliente
+     */
+    default List<Envio> buscarPorCliente(String cliente) {
+        return flujo().filter(envio -> Objects.equals(envio.getCliente(), cliente)).collect(Collectors.toList());
+    }
+    
+    /**
+     * Busca los envíos de un tipo
+     * Sin índice recorre todos los envíos; los repositorios con índice secundario lo usan
+     * @param tipo Tipo de envío
+     * @return Envíos del tipo
+     */
+    default List<Envio> buscarPorTipo(FabricaEnvios.TipoEnvio tipo) {
+        return flujo().filter(envio -> envio.getTipo() == tipo).collect(Collectors.toList());
+    }
+    
+    /**
+     * Busca los envíos con un campo numérico dentro de un rango
+     * Sin índice recorre todos los envíos; con un IndiceRango del campo los entrega
+     * ordenados por ese campo y de forma perezosa
+     * @param campo Campo numérico (peso, distancia o costo)
+     * @param minimo Valor mínimo (incluido)
+     * @param maximo Valor máximo (incluido)
+     * @return Flujo de los envíos del rango
+     */
+    default Stream<Envio> buscarPorRango(IndiceRango.Campo campo, double minimo, double maximo) {
+        return flujo().filter(envio -> {
+            double valor = campo.valor(envio);
+            return valor >= minimo && valor <= maximo;
+        });
+    }
+    
+    /**
+     * Obtiene los k envíos más costosos
+     * Sin índice recorre todos los envíos manteniendo solo los k mayores
+     * @param k Cantidad máxima de envíos
+     * @return Envíos de mayor a menor costo
+     */
+    default List<Envio> obtenerMayoresCostos(int k) {
+        return IndiceMayoresCostos.seleccionarMayores(flujo(), k);
+    }
+    
+    /**
+     * Obtiene los k envíos más costosos de un tipo
+     * @param tipo Tipo de envío
+     * @param k Cantidad máxima de envíos
+     * @return Envíos de mayor a menor costo
+     */
+    default List<Envio> obtenerMayoresCostos(FabricaEnvios.TipoEnvio tipo, int k) {
+        return IndiceMayoresCostos.seleccionarMayores(flujo().filter(envio -> envio.getTipo() == tipo), k);
+    }
+    
     /**
      * Obtiene la cantidad de envíos
      * @return Cantidad de envíos registrados
      */
     int obtenerCantidad();
+    
+    /**
+     * Agrega un lote de envíos validando y detectando duplicados una sola vez
+     * @param envios Envíos a agregar
+     * @param atomico true para agregar todo el lote o nada si algún elemento es rechazado
+     * @return Resultado por elemento, en el orden del lote
+     */
+    default ResultadoLote agregarLote(Collection<? extends Envio> envios, boolean atomico) {
+        return OperacionesLote.agregar(this, envios, atomico);
+    }
+    
+    /**
+     * Agrega un bloque de envíos entregados por columnas (la carga de una instantánea lo usa)
+     * Por defecto crea un Envio por fila y usa agregarLote; los repositorios que guardan
+     * columnas o registros copian los valores sin crear objetos por fila
+     * @param bloque Filas a agregar
+     * @return Cantidad de filas agregadas (las de un código ya registrado se omiten)
+     */
+    default int agregarColumnas(ColumnasEnvios bloque) {
+        List<Envio> envios = new ArrayList<>(bloque.getCantidad());
+        for (int i = 0; i < bloque.getCantidad(); i++) {
+            envios.add(bloque.crearEnvio(i));
+        }
+        ResultadoLote resultado = agregarLote(envios, false);
+        int agregados = 0;
+        for (int i = 0; i < resultado.getCantidad(); i++) {
+            if (resultado.getEstado(i) == ResultadoLote.Estado.AGREGADO) {
+                agregados++;
+            }
+        }
+        return agregados;
+    }
+    
+    /**
+     * Retira un lote de envíos
+     * @param codigos Códigos de los envíos a retirar
+     * @param atomico true para retirar todo el lote o nada si algún código es rechazado
+     * @return Resultado por elemento, con los envíos retirados
+     */
+    default ResultadoLote retirarLote(Collection<String> codigos, boolean atomico) {
+        return OperacionesLote.retirar(this, codigos, atomico);
+    }
+    
+    /**
+     * Reserva espacio para envíos adicionales, evitando redimensionamientos sucesivos
+     * @param adicionales Cantidad de envíos que se van a agregar
+     */
+    default void reservarCapacidad(int adicionales) {
+    }
+    
+    /**
+     * Recalcula el total de tarifas recorriendo todos los envíos
+     * @return Suma compensada de las tarifas
+     */
+    default double calcularTotalTarifas() {
+        return KernelTarifas.sumarTarifas(flujo().iterator());
+    }
+    
+    /**
+     * Genera el reporte de tarifas de los envíos con un motor de reportes
+     * @param motor Motor que calcula el reporte
+     * @return Reporte de tarifas
+     */
+    default ReporteEnvios generarReporte(MotorReportes motor) {
+        return motor.generar(flujo().toArray(Envio[]::new));
+    }
 }
 
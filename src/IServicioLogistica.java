@@ -1,4 +1,6 @@
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Interfaz para el servicio de logística
@@ -27,16 +29,101 @@ public interface IServicioLogistica {
      */
     Envio buscarEnvio(String codigoEnvio);
     
+    /**
+     * Agrega un lote de envíos
+     * @param envios Envíos a agregar
+     * @param atomico true para agregar todo el lote o nada
+     * @return Resultado por elemento, en el orden del lote
+     */
+    ResultadoLote agregarLote(Collection<? extends Envio> envios, boolean atomico);
+    
+    /**
+     * Retira un lote de envíos
+     * @param codigos Códigos de los envíos a retirar
+     * @param atomico true para retirar todo el lote o nada
+     * @return Resultado por elemento, en el orden del lote
+     */
+    ResultadoLote retirarLote(Collection<String> codigos, boolean atomico);
+    
     /**
      * Lista todos los envíos
      * @return Lista de envíos
      */
     List<Envio> listarEnvios();
     
+    /**
+     * Recorre los envíos sin copiarlos
+     * @return Flujo de envíos (admite procesamiento paralelo)
+     */
+    Stream<Envio> flujoEnvios();
+    
+    /**
+     * Busca los envíos de un cliente
+     * @param cliente Nombre del cliente
+     * @return Envíos del cliente
+     */
+    List<Envio> buscarEnviosPorCliente(String cliente);
+    
+    /**
+     * Busca los envíos de un tipo
+     * @param tipo Tipo de envío
+     * @return Envíos del tipo
+     */
+    List<Envio> buscarEnviosPorTipo(FabricaEnvios.TipoEnvio tipo);
+    
+    /**
+     * Busca los envíos con un campo numérico dentro de un rango
+     * @param campo Campo numérico (peso, distancia o costo)
+     * @param minimo Valor mínimo (incluido)
+     * @param maximo Valor máximo (incluido)
+     * @return Flujo de los envíos del rango
+     */
+    Stream<Envio> buscarEnviosPorRango(IndiceRango.Campo campo, double minimo, double maximo);
+    
+    /**
+     * Lista los k envíos más costosos
+     * @param k Cantidad máxima de envíos
+     * @return Envíos de mayor a menor costo
+     */
+    List<Envio> listarMayoresCostos(int k);
+    
+    /**
+     * Lista los k envíos más costosos de un tipo
+     * @param tipo Tipo de envío
+     * @param k Cantidad máxima de envíos
+     * @return Envíos de mayor a menor costo
+     */
+    List<Envio> listarMayoresCostos(FabricaEnvios.TipoEnvio tipo, int k);
+    
+    /**
+     * Obtiene la cantidad de envíos
+     * @return Cantidad de envíos registrados
+     */
+    int obtenerCantidadEnvios();
+    
     /**
      * Calcula el total de tarifas
      * @return Suma de todas las tarifas
      */
     double calcularTotalTarifas();
+    
+    /**
+     * Recalcula el total de tarifas desde cero con el cálculo masivo de tarifas
+     * Sirve para verificar los agregados o cuando se necesita un total independiente de ellos
+     * @return Suma de todas las tarifas recorriendo los envíos
+     */
+    double recalcularTotalTarifas();
+    
+    /**
+     * Genera el reporte de tarifas por tipo de envío y por cliente
+     * @return Reporte con cantidad, total, mínimo, máximo e histograma de tarifas
+     */
+    ReporteEnvios generarReporte();
+    
+    /**
+     * Obtiene los agregados (cantidad, tarifas, kg y km por tipo) mantenidos al día
+     * @return Agregados de los envíos registrados
+     */
+    AgregadosEnvios obtenerAgregados();
 }
 
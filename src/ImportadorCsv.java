@@ -0,0 +1,535 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Importador masivo de envíos desde archivos CSV
+ * Formato de cada línea: tipo,cliente,codigo,peso,distancia (UTF-8, encabezado opcional).
+ * El archivo se proyecta en memoria con FileChannel.map, se divide en bloques que
+ * terminan en un salto de línea y cada bloque se analiza en paralelo. El tipo y los
+ * números se interpretan directamente desde los bytes sin crear un String por campo;
+ * los envíos se crean con FabricaEnvios y se escriben en el servicio por lotes, en el
+ * orden del archivo: el hilo que importa aplica los bloques uno tras otro mientras los
+ * siguientes se siguen analizando, así el orden del repositorio sigue al del archivo y de
+ * dos líneas con el mismo código siempre se acepta la primera.
+ * Las líneas inválidas se escriben en un archivo de rechazos con su número de línea.
+ * Principio S (Single Responsibility): Solo importa envíos desde CSV
+ * Principio D (Dependency Inversion): Escribe a través de IServicioLogistica
+ */
+public class ImportadorCsv {
+    private static final int TAMANO_LOTE = 10_000;
+    private static final long TAMANO_MAXIMO_BLOQUE = 256L * 1024 * 1024;
+    private static final long TAMANO_MINIMO_BLOQUE = 1024L * 1024;
+    private static final int CAMPOS = 5;
+    private static final double[] POTENCIAS_DE_DIEZ = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    // Nombres de tipo normalizados (minúsculas sin tilde) empaquetados a 5 bits por letra
+    private static final long CLAVE_TERRESTRE = clave("terrestre");
+    private static final long CLAVE_AEREO = clave("aereo");
+    private static final long CLAVE_MARITIMO = clave("maritimo");
+    
+    private final IServicioLogistica servicio;
+    private final int hilos;
+    
+    /**
+     * Constructor que usa todos los núcleos disponibles
+     * @param servicio Servicio donde se registran los envíos importados
+     */
+    public ImportadorCsv(IServicioLogistica servicio) {
+        this(servicio, Runtime.getRuntime().availableProcessors());
+    }
+    
+    /**
+     * Constructor con cantidad de hilos de análisis
+     * @param servicio Servicio donde se registran los envíos importados
+     * @param hilos Cantidad de hilos que analizan bloques en paralelo
+     */
+    public ImportadorCsv(IServicioLogistica servicio, int hilos) {
+        if (servicio == null) {
+            throw new IllegalArgumentException("El servicio de logística no puede ser nulo");
+        }
+        if (hilos < 1) {
+            throw new IllegalArgumentException("La cantidad de hilos debe ser mayor a cero");
+        }
+        this.servicio = servicio;
+        this.hilos = hilos;
+    }
+    
+    /**
+     * Importa los envíos de un archivo CSV
+     * @param archivo Archivo CSV a importar
+     * @param archivoRechazos Archivo donde se escriben las líneas rechazadas
+     * @return Resumen de la importación
+     * @throws IOException si no se puede leer el archivo o escribir los rechazos
+     */
+    public ResultadoImportacion importar(Path archivo, Path archivoRechazos) throws IOException {
+        long inicio = System.nanoTime();
+        List<Bloque> bloques = new ArrayList<>();
+        
+        try (FileChannel canal = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            List<long[]> limites = dividir(canal);
+            ExecutorService ejecutor = Executors.newFixedThreadPool(Math.min(hilos, Math.max(1, limites.size())));
+            try {
+                List<Future<Bloque>> pendientes = new ArrayList<>();
+                for (long[] limite : limites) {
+                    pendientes.add(ejecutor.submit(() -> procesar(canal, limite[0], limite[1])));
+                }
+                for (Future<Bloque> pendiente : pendientes) {
+                    Bloque bloque = pendiente.get();
+                    escribir(bloque);
+                    bloques.add(bloque);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Importación interrumpida", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Error al importar " + archivo, e.getCause());
+            } finally {
+                ejecutor.shutdownNow();
+            }
+        }
+        
+        // Los números de línea de cada bloque se desplazan por las líneas de los bloques previos
+        long lineas = 0;
+        long importados = 0;
+        long rechazados = 0;
+        try (BufferedWriter salida = Files.newBufferedWriter(archivoRechazos, StandardCharsets.UTF_8)) {
+            for (Bloque bloque : bloques) {
+                bloque.rechazos.sort((a, b) -> Long.compare(a.linea, b.linea));
+                for (Rechazo rechazo : bloque.rechazos) {
+                    salida.write(Long.toString(lineas + rechazo.linea));
+                    salida.write('\t');
+                    salida.write(rechazo.motivo);
+                    salida.write('\t');
+                    salida.write(rechazo.contenido);
+                    salida.newLine();
+                }
+                lineas += bloque.lineas;
+                importados += bloque.importados;
+                rechazados += bloque.rechazos.size();
+            }
+        }
+        return new ResultadoImportacion(lineas, importados, rechazados, System.nanoTime() - inicio);
+    }
+    
+    /**
+     * Divide el archivo en bloques que comienzan al inicio de una línea
+     * @param canal Canal del archivo
+     * @return Pares [inicio, fin) de cada bloque
+     * @throws IOException si no se puede leer el archivo
+     */
+    private List<long[]> dividir(FileChannel canal) throws IOException {
+        long tamano = canal.size();
+        long objetivo = Math.max(TAMANO_MINIMO_BLOQUE, Math.min(TAMANO_MAXIMO_BLOQUE, tamano / (hilos * 4L) + 1));
+        List<long[]> limites = new ArrayList<>();
+        long inicio = 0;
+        while (inicio < tamano) {
+            long fin = Math.min(tamano, inicio + objetivo);
+            if (fin < tamano) {
+                fin = siguienteLinea(canal, fin, tamano);
+            }
+            if (fin - inicio > Integer.MAX_VALUE) {
+                throw new IOException("Línea demasiado larga cerca del byte " + inicio);
+            }
+            limites.add(new long[]{inicio, fin});
+            inicio = fin;
+        }
+        return limites;
+    }
+    
+    /**
+     * Busca la posición siguiente al primer salto de línea desde una posición dada
+     */
+    private static long siguienteLinea(FileChannel canal, long desde, long tamano) throws IOException {
+        long posicion = desde;
+        while (posicion < tamano) {
+            int largo = (int) Math.min(64 * 1024, tamano - posicion);
+            MappedByteBuffer ventana = canal.map(FileChannel.MapMode.READ_ONLY, posicion, largo);
+            for (int i = 0; i < largo; i++) {
+                if (ventana.get(i) == '\n') {
+                    return posicion + i + 1;
+                }
+            }
+            posicion += largo;
+        }
+        return tamano;
+    }
+    
+    /**
+     * Analiza un bloque del archivo y agrupa sus envíos en lotes (sin escribirlos)
+     * @param canal Canal del archivo
+     * @param inicio Byte inicial del bloque
+     * @param fin Byte final (exclusivo) del bloque
+     * @return Resultado del bloque con números de línea relativos a él
+     * @throws IOException si no se puede proyectar el bloque
+     */
+    private Bloque procesar(FileChannel canal, long inicio, long fin) throws IOException {
+        MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fin - inicio);
+        Analizador analizador = new Analizador(datos);
+        Bloque bloque = new Bloque(analizador);
+        Lote lote = new Lote();
+        
+        int limite = datos.limit();
+        int inicioLinea = 0;
+        while (inicioLinea < limite) {
+            int finLinea = inicioLinea;
+            while (finLinea < limite && datos.get(finLinea) != '\n') {
+                finLinea++;
+            }
+            bloque.lineas++;
+            int finContenido = finLinea;
+            if (finContenido > inicioLinea && datos.get(finContenido - 1) == '\r') {
+                finContenido--;
+            }
+            
+            if (finContenido > inicioLinea) {
+                boolean encabezado = inicio == 0 && bloque.lineas == 1 && analizador.esEncabezado(inicioLinea, finContenido);
+                if (!encabezado) {
+                    Envio envio = analizador.analizar(inicioLinea, finContenido);
+                    if (envio == null) {
+                        bloque.rechazos.add(new Rechazo(bloque.lineas, analizador.error,
+                                analizador.texto(inicioLinea, finContenido)));
+                    } else {
+                        int i = lote.envios.size();
+                        lote.lineas[i] = bloque.lineas;
+                        lote.posiciones[i * 2] = inicioLinea;
+                        lote.posiciones[i * 2 + 1] = finContenido;
+                        lote.envios.add(envio);
+                        if (lote.envios.size() == TAMANO_LOTE) {
+                            bloque.lotes.add(lote);
+                            lote = new Lote();
+                        }
+                    }
+                }
+            }
+            inicioLinea = finLinea + 1;
+        }
+        if (!lote.envios.isEmpty()) {
+            bloque.lotes.add(lote);
+        }
+        return bloque;
+    }
+    
+    /**
+     * Registra los lotes de un bloque en el servicio, en orden, y anota los envíos rechazados
+     * Solo lo llama el hilo que importa, un bloque a la vez y en el orden del archivo
+     */
+    private void escribir(Bloque bloque) {
+        for (Lote lote : bloque.lotes) {
+            ResultadoLote resultado = servicio.agregarLote(lote.envios, false);
+            for (int i = 0; i < resultado.getCantidad(); i++) {
+                if (resultado.getEstado(i) == ResultadoLote.Estado.AGREGADO) {
+                    bloque.importados++;
+                } else {
+                    bloque.rechazos.add(new Rechazo(lote.lineas[i], describir(resultado.getEstado(i)),
+                            bloque.analizador.texto(lote.posiciones[i * 2], lote.posiciones[i * 2 + 1])));
+                }
+            }
+        }
+        // Los envíos ya están en el servicio: se sueltan los lotes y la proyección del bloque
+        bloque.lotes.clear();
+        bloque.analizador = null;
+    }
+    
+    private static String describir(ResultadoLote.Estado estado) {
+        switch (estado) {
+            case DUPLICADO:
+            case DUPLICADO_EN_LOTE:
+                return "Código de envío duplicado";
+            default:
+                return "Envío rechazado: " + estado;
+        }
+    }
+    
+    /**
+     * Analizador de líneas sobre los bytes de un bloque proyectado
+     * Cada hilo usa su propia instancia
+     */
+    private static final class Analizador {
+        private final MappedByteBuffer datos;
+        private final int[] separadores = new int[CAMPOS + 1];
+        private byte[] auxiliar = new byte[256];
+        private String error;
+        
+        Analizador(MappedByteBuffer datos) {
+            this.datos = datos;
+        }
+        
+        boolean esEncabezado(int inicio, int fin) {
+            return separar(inicio, fin) && tipo(inicio, separadores[0]) == null
+                    && texto(inicio, separadores[0]).trim().equalsIgnoreCase("tipo");
+        }
+        
+        /**
+         * Analiza una línea
+         * @return Envío creado o null si la línea es inválida (el motivo queda en error)
+         */
+        Envio analizar(int inicio, int fin) {
+            if (!separar(inicio, fin)) {
+                error = "Se esperaban " + CAMPOS + " campos separados por comas";
+                return null;
+            }
+            FabricaEnvios.TipoEnvio tipo = tipo(inicio, separadores[0]);
+            if (tipo == null) {
+                error = "Tipo de envío no reconocido";
+                return null;
+            }
+            String cliente = cadena(separadores[0] + 1, separadores[1]);
+            String codigo = cadena(separadores[1] + 1, separadores[2]);
+            if (cliente.isEmpty() || codigo.isEmpty()) {
+                error = "El cliente y el código son obligatorios";
+                return null;
+            }
+            double peso = numero(separadores[2] + 1, separadores[3]);
+            double distancia = numero(separadores[3] + 1, fin);
+            if (Double.isNaN(peso) || Double.isNaN(distancia)) {
+                error = "El peso y la distancia deben ser números válidos";
+                return null;
+            }
+            if (peso <= 0 || distancia <= 0) {
+                error = "El peso y la distancia deben ser mayores a cero";
+                return null;
+            }
+            try {
+                return FabricaEnvios.crearEnvio(tipo, cliente, codigo, peso, distancia);
+            } catch (IllegalArgumentException e) {
+                error = e.getMessage();
+                return null;
+            }
+        }
+        
+        /**
+         * Ubica las comas de la línea; exige exactamente CAMPOS campos
+         */
+        private boolean separar(int inicio, int fin) {
+            int campos = 0;
+            for (int i = inicio; i < fin; i++) {
+                if (datos.get(i) == ',') {
+                    if (campos == CAMPOS - 1) {
+                        return false;
+                    }
+                    separadores[campos++] = i;
+                }
+            }
+            return campos == CAMPOS - 1;
+        }
+        
+        /**
+         * Reconoce el tipo sin crear un String: ignora mayúsculas, espacios y tildes (UTF-8)
+         */
+        private FabricaEnvios.TipoEnvio tipo(int inicio, int fin) {
+            long clave = 0;
+            int letras = 0;
+            for (int i = inicio; i < fin; i++) {
+                int b = datos.get(i) & 0xFF;
+                if (b == ' ' || b == '\t') {
+                    continue;
+                }
+                if (b == 0xC3 && i + 1 < fin) {
+                    // É/é (0x89/0xA9) e Í/í (0x8D/0xAD) se reducen a su vocal sin tilde
+                    int siguiente = datos.get(++i) & 0xDF;
+                    b = siguiente == 0x89 ? 'e' : siguiente == 0x8D ? 'i' : 0;
+                }
+                b |= 0x20;
+                if (b < 'a' || b > 'z' || ++letras > 9) {
+                    return null;
+                }
+                clave = (clave << 5) | (b - 'a' + 1);
+            }
+            if (clave == CLAVE_TERRESTRE) {
+                return FabricaEnvios.TipoEnvio.TERRESTRE;
+            } else if (clave == CLAVE_AEREO) {
+                return FabricaEnvios.TipoEnvio.AEREO;
+            } else if (clave == CLAVE_MARITIMO) {
+                return FabricaEnvios.TipoEnvio.MARITIMO;
+            }
+            return null;
+        }
+        
+        /**
+         * Interpreta un número decimal directamente desde los bytes
+         * Usa el camino exacto mantisa / 10^k cuando la mantisa cabe en 53 bits y el
+         * exponente es pequeño; en otro caso recurre a Double.parseDouble
+         * @return Valor leído o NaN si no es un número válido
+         */
+        private double numero(int inicio, int fin) {
+            while (inicio < fin && datos.get(inicio) == ' ') {
+                inicio++;
+            }
+            while (fin > inicio && datos.get(fin - 1) == ' ') {
+                fin--;
+            }
+            int i = inicio;
+            boolean negativo = false;
+            if (i < fin && (datos.get(i) == '-' || datos.get(i) == '+')) {
+                negativo = datos.get(i) == '-';
+                i++;
+            }
+            long mantisa = 0;
+            boolean hayDigitos = false;
+            int digitos = 0;
+            int decimales = 0;
+            boolean punto = false;
+            for (; i < fin; i++) {
+                byte b = datos.get(i);
+                if (b >= '0' && b <= '9') {
+                    hayDigitos = true;
+                    if (mantisa != 0 || b != '0') {
+                        digitos++;
+                    }
+                    mantisa = mantisa * 10 + (b - '0');
+                    if (punto) {
+                        decimales++;
+                    }
+                    if (digitos > 15) {
+                        return numeroLento(inicio, fin);
+                    }
+                } else if (b == '.' && !punto) {
+                    punto = true;
+                } else {
+                    return numeroLento(inicio, fin);
+                }
+            }
+            if (!hayDigitos || decimales >= POTENCIAS_DE_DIEZ.length) {
+                return numeroLento(inicio, fin);
+            }
+            double valor = (double) mantisa / POTENCIAS_DE_DIEZ[decimales];
+            return negativo ? -valor : valor;
+        }
+        
+        /**
+         * Camino general para mantisas largas y exponentes
+         * Solo admite la sintaxis decimal [signo]dígitos[.dígitos][e[signo]dígitos]:
+         * Double.parseDouble también aceptaría Infinity, NaN, hexadecimales (0x1p3) y los
+         * sufijos d y f. Un valor que no es finito (1e400) también es inválido.
+         */
+        private double numeroLento(int inicio, int fin) {
+            int i = inicio;
+            if (i < fin && (datos.get(i) == '-' || datos.get(i) == '+')) {
+                i++;
+            }
+            int digitos = 0;
+            boolean punto = false;
+            for (; i < fin; i++) {
+                byte b = datos.get(i);
+                if (b >= '0' && b <= '9') {
+                    digitos++;
+                } else if (b == '.' && !punto) {
+                    punto = true;
+                } else {
+                    break;
+                }
+            }
+            if (digitos == 0) {
+                return Double.NaN;
+            }
+            if (i < fin && (datos.get(i) == 'e' || datos.get(i) == 'E')) {
+                i++;
+                if (i < fin && (datos.get(i) == '-' || datos.get(i) == '+')) {
+                    i++;
+                }
+                int inicioExponente = i;
+                while (i < fin && datos.get(i) >= '0' && datos.get(i) <= '9') {
+                    i++;
+                }
+                if (i == inicioExponente) {
+                    return Double.NaN;
+                }
+            }
+            if (i != fin) {
+                return Double.NaN;
+            }
+            double valor = Double.parseDouble(texto(inicio, fin));
+            return Double.isInfinite(valor) ? Double.NaN : valor;
+        }
+        
+        /**
+         * Crea el String de un campo de texto, sin espacios alrededor
+         */
+        private String cadena(int inicio, int fin) {
+            while (inicio < fin && datos.get(inicio) == ' ') {
+                inicio++;
+            }
+            while (fin > inicio && datos.get(fin - 1) == ' ') {
+                fin--;
+            }
+            return texto(inicio, fin);
+        }
+        
+        String texto(int inicio, int fin) {
+            int largo = fin - inicio;
+            if (largo > auxiliar.length) {
+                auxiliar = new byte[Math.max(largo, auxiliar.length * 2)];
+            }
+            for (int i = 0; i < largo; i++) {
+                auxiliar[i] = datos.get(inicio + i);
+            }
+            return new String(auxiliar, 0, largo, StandardCharsets.UTF_8);
+        }
+    }
+    
+    private static long clave(String nombre) {
+        long clave = 0;
+        for (int i = 0; i < nombre.length(); i++) {
+            clave = (clave << 5) | (nombre.charAt(i) - 'a' + 1);
+        }
+        return clave;
+    }
+    
+    /**
+     * Resultado parcial del análisis de un bloque
+     */
+    private static final class Bloque {
+        private long lineas;
+        private long importados;
+        private final List<Rechazo> rechazos = new ArrayList<>();
+        private final List<Lote> lotes = new ArrayList<>();
+        private Analizador analizador;
+        
+        Bloque(Analizador analizador) {
+            this.analizador = analizador;
+        }
+    }
+    
+    /**
+     * Envíos analizados pendientes de escribir, con su línea y su posición en el bloque
+     */
+    private static final class Lote {
+        private final List<Envio> envios = new ArrayList<>(TAMANO_LOTE);
+        private final long[] lineas = new long[TAMANO_LOTE];
+        private final int[] posiciones = new int[TAMANO_LOTE * 2];
+    }
+    
+    /**
+     * Línea rechazada con su número relativo al bloque
+     */
+    private static final class Rechazo {
+        private final long linea;
+        private final String motivo;
+        private final String contenido;
+        
+        Rechazo(long linea, String motivo, String contenido) {
+            this.linea = linea;
+            this.motivo = motivo;
+            this.contenido = contenido;
+        }
+    }
+}
+
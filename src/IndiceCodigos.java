@@ -0,0 +1,389 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Índice de códigos de envío a posiciones (código -> int) con direccionamiento abierto
+ * Los códigos numéricos en forma decimal canónica (sin ceros a la izquierda ni signo, hasta
+ * 18 dígitos, como "10001") se interpretan una sola vez y se guardan como long en una tabla
+ * de claves long[] y posiciones int[] paralelas: la búsqueda no crea objetos, no calcula el
+ * hashCode de un String ni lo compara con equals, y la clave y la posición de una ranura se
+ * leen con dos accesos independientes. Los demás códigos van a una tabla de respaldo con
+ * claves String, que se crea solo si aparece alguno.
+ *
+ * Ambas tablas usan sondeo lineal con factor de carga máximo 0.5 y borrado por
+ * desplazamiento hacia atrás (sin marcas de borrado). Un código numérico ocupa ~24 bytes
+ * de índice (dos ranuras de 12 bytes), frente a ~56 bytes de un String de 5 dígitos más su
+ * ranura en un índice de claves String.
+ * No es seguro para varios hilos: lo protege el repositorio que lo usa.
+ * Principio S (Single Responsibility): Solo ubica códigos de envío
+ */
+public final class IndiceCodigos {
+    /** Valor devuelto cuando el código no está en el índice */
+    public static final int AUSENTE = -1;
+    
+    private static final int CAPACIDAD_MINIMA = 16;
+    private static final int DIGITOS_MAXIMOS = 18;
+    
+    // Códigos numéricos: clave y posición + 1 (0 indica ranura libre)
+    private long[] claves;
+    private int[] posiciones;
+    private int numericos;
+    
+    // Códigos no numéricos (null hasta el primero)
+    private String[] clavesTexto;
+    private int[] posicionesTexto;
+    private int textos;
+    
+    /**
+     * Constructor del índice
+     */
+    public IndiceCodigos() {
+        this(CAPACIDAD_MINIMA);
+    }
+    
+    /**
+     * Constructor con capacidad inicial
+     * @param capacidadInicial Cantidad de códigos esperada
+     */
+    public IndiceCodigos(int capacidadInicial) {
+        if (capacidadInicial < 0) {
+            throw new IllegalArgumentException("La capacidad inicial no puede ser negativa");
+        }
+        int tamano = tamanoTablaPara(Math.max(CAPACIDAD_MINIMA, capacidadInicial));
+        this.claves = new long[tamano];
+        this.posiciones = new int[tamano];
+    }
+    
+    /**
+     * Interpreta un código numérico en forma decimal canónica
+     * @param codigo Código del envío
+     * @return Valor del código, o -1 si no es numérico canónico (se indexa como texto)
+     */
+    public static long codigoNumerico(String codigo) {
+        int largo = codigo.length();
+        if (largo == 0 || largo > DIGITOS_MAXIMOS || (largo > 1 && codigo.charAt(0) == '0')) {
+            return -1;
+        }
+        long valor = 0;
+        for (int i = 0; i < largo; i++) {
+            char c = codigo.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            valor = valor * 10 + (c - '0');
+        }
+        return valor;
+    }
+    
+    /**
+     * Interpreta un código numérico en forma decimal canónica a partir de su UTF-8
+     * (mismo resultado que codigoNumerico(String), sin crear el String)
+     * @param bytes Bytes que contienen el código
+     * @param inicio Posición del primer byte
+     * @param largo Cantidad de bytes del código
+     * @return Valor del código, o -1 si no es numérico canónico
+     */
+    static long codigoNumerico(ByteBuffer bytes, int inicio, int largo) {
+        if (largo == 0 || largo > DIGITOS_MAXIMOS || (largo > 1 && bytes.get(inicio) == '0')) {
+            return -1;
+        }
+        long valor = 0;
+        for (int i = inicio; i < inicio + largo; i++) {
+            byte b = bytes.get(i);
+            if (b < '0' || b > '9') {
+                return -1;
+            }
+            valor = valor * 10 + (b - '0');
+        }
+        return valor;
+    }
+    
+    /**
+     * Busca la posición de un código
+     * @param codigo Código del envío
+     * @return Posición o AUSENTE
+     */
+    public int buscar(String codigo) {
+        long numerico = codigoNumerico(codigo);
+        if (numerico >= 0) {
+            return buscar(numerico);
+        }
+        return clavesTexto == null ? AUSENTE : posicionesTexto[ranuraTexto(codigo)] - 1;
+    }
+    
+    /**
+     * Busca la posición de un código numérico
+     * @param codigo Valor de codigoNumerico
+     * @return Posición o AUSENTE
+     */
+    public int buscar(long codigo) {
+        return posiciones[ranura(codigo)] - 1;
+    }
+    
+    /**
+     * Agrega un código si no está en el índice
+     * @param codigo Código del envío
+     * @param posicion Posición a asociar (no negativa)
+     * @return AUSENTE si se agregó; si ya estaba, su posición actual (que no cambia)
+     */
+    public int agregar(String codigo, int posicion) {
+        long numerico = codigoNumerico(codigo);
+        return numerico >= 0 ? agregar(numerico, posicion) : agregarTexto(codigo, posicion, false);
+    }
+    
+    /**
+     * Agrega un código numérico si no está en el índice
+     * @param codigo Valor de codigoNumerico
+     * @param posicion Posición a asociar (no negativa)
+     * @return AUSENTE si se agregó; si ya estaba, su posición actual (que no cambia)
+     */
+    public int agregar(long codigo, int posicion) {
+        return agregarNumerico(codigo, posicion, false);
+    }
+    
+    /**
+     * Asocia un código a una posición, esté o no en el índice
+     * @param codigo Código del envío
+     * @param posicion Posición a asociar (no negativa)
+     * @return Posición anterior o AUSENTE
+     */
+    public int poner(String codigo, int posicion) {
+        long numerico = codigoNumerico(codigo);
+        return numerico >= 0 ? agregarNumerico(numerico, posicion, true) : agregarTexto(codigo, posicion, true);
+    }
+    
+    /**
+     * Asocia un código numérico a una posición, esté o no en el índice
+     * @param codigo Valor de codigoNumerico
+     * @param posicion Posición a asociar (no negativa)
+     * @return Posición anterior o AUSENTE
+     */
+    public int poner(long codigo, int posicion) {
+        return agregarNumerico(codigo, posicion, true);
+    }
+    
+    /**
+     * Quita un código del índice
+     * @param codigo Código del envío
+     * @return Posición que tenía o AUSENTE
+     */
+    public int quitar(String codigo) {
+        long numerico = codigoNumerico(codigo);
+        if (numerico >= 0) {
+            return quitar(numerico);
+        }
+        if (clavesTexto == null) {
+            return AUSENTE;
+        }
+        int ranura = ranuraTexto(codigo);
+        int posicion = posicionesTexto[ranura] - 1;
+        if (posicion >= 0) {
+            quitarTexto(ranura);
+            textos--;
+        }
+        return posicion;
+    }
+    
+    /**
+     * Quita un código numérico del índice
+     * @param codigo Valor de codigoNumerico
+     * @return Posición que tenía o AUSENTE
+     */
+    public int quitar(long codigo) {
+        int ranura = ranura(codigo);
+        int posicion = posiciones[ranura] - 1;
+        if (posicion >= 0) {
+            quitarNumerico(ranura);
+            numericos--;
+        }
+        return posicion;
+    }
+    
+    /**
+     * Prepara las tablas para una cantidad total de códigos (numéricos)
+     * @param capacidad Cantidad total esperada
+     */
+    public void reservar(int capacidad) {
+        if (tamanoTablaPara(capacidad) > claves.length) {
+            redimensionarNumericos(tamanoTablaPara(capacidad));
+        }
+    }
+    
+    /**
+     * Cantidad de códigos indexados
+     * @return Códigos numéricos más códigos de texto
+     */
+    public int tamano() {
+        return numericos + textos;
+    }
+    
+    /**
+     * Bytes que ocupan las tablas del índice (sin contar los String de los códigos de texto)
+     * @return Bytes estimados
+     */
+    public long bytesEstimados() {
+        long bytes = 2 * 16L + claves.length * 12L;
+        if (clavesTexto != null) {
+            bytes += 2 * 16L + clavesTexto.length * 8L;
+        }
+        return bytes;
+    }
+    
+    private int agregarNumerico(long codigo, int posicion, boolean reemplazar) {
+        if (posicion < 0) {
+            throw new IllegalArgumentException("La posición no puede ser negativa: " + posicion);
+        }
+        int ranura = ranura(codigo);
+        int anterior = posiciones[ranura] - 1;
+        if (anterior >= 0) {
+            if (reemplazar) {
+                posiciones[ranura] = posicion + 1;
+            }
+            return anterior;
+        }
+        if ((numericos + 1) * 2L > claves.length) {
+            redimensionarNumericos(claves.length * 2);
+            ranura = ranura(codigo);
+        }
+        claves[ranura] = codigo;
+        posiciones[ranura] = posicion + 1;
+        numericos++;
+        return AUSENTE;
+    }
+    
+    private int agregarTexto(String codigo, int posicion, boolean reemplazar) {
+        if (posicion < 0) {
+            throw new IllegalArgumentException("La posición no puede ser negativa: " + posicion);
+        }
+        if (clavesTexto == null) {
+            clavesTexto = new String[CAPACIDAD_MINIMA];
+            posicionesTexto = new int[CAPACIDAD_MINIMA];
+        }
+        int ranura = ranuraTexto(codigo);
+        int anterior = posicionesTexto[ranura] - 1;
+        if (anterior >= 0) {
+            if (reemplazar) {
+                posicionesTexto[ranura] = posicion + 1;
+            }
+            return anterior;
+        }
+        if ((textos + 1) * 2L > clavesTexto.length) {
+            redimensionarTextos(clavesTexto.length * 2);
+            ranura = ranuraTexto(codigo);
+        }
+        clavesTexto[ranura] = codigo;
+        posicionesTexto[ranura] = posicion + 1;
+        textos++;
+        return AUSENTE;
+    }
+    
+    /**
+     * Ranura que contiene el código o la primera libre donde iría
+     */
+    private int ranura(long codigo) {
+        int mascara = claves.length - 1;
+        int ranura = dispersar(codigo) & mascara;
+        while (posiciones[ranura] != 0 && claves[ranura] != codigo) {
+            ranura = (ranura + 1) & mascara;
+        }
+        return ranura;
+    }
+    
+    private int ranuraTexto(String codigo) {
+        int mascara = clavesTexto.length - 1;
+        int ranura = dispersar(codigo.hashCode()) & mascara;
+        while (posicionesTexto[ranura] != 0 && !clavesTexto[ranura].equals(codigo)) {
+            ranura = (ranura + 1) & mascara;
+        }
+        return ranura;
+    }
+    
+    /**
+     * Libera una ranura desplazando hacia atrás las entradas de su misma secuencia de sondeo
+     */
+    private void quitarNumerico(int ranura) {
+        int mascara = claves.length - 1;
+        int libre = ranura;
+        int siguiente = (libre + 1) & mascara;
+        while (posiciones[siguiente] != 0) {
+            int ideal = dispersar(claves[siguiente]) & mascara;
+            // La entrada se mueve si su ranura ideal no está entre el hueco y su ubicación actual
+            if (((siguiente - ideal) & mascara) >= ((siguiente - libre) & mascara)) {
+                claves[libre] = claves[siguiente];
+                posiciones[libre] = posiciones[siguiente];
+                libre = siguiente;
+            }
+            siguiente = (siguiente + 1) & mascara;
+        }
+        posiciones[libre] = 0;
+    }
+    
+    private void quitarTexto(int ranura) {
+        int mascara = clavesTexto.length - 1;
+        int libre = ranura;
+        int siguiente = (libre + 1) & mascara;
+        while (posicionesTexto[siguiente] != 0) {
+            int ideal = dispersar(clavesTexto[siguiente].hashCode()) & mascara;
+            if (((siguiente - ideal) & mascara) >= ((siguiente - libre) & mascara)) {
+                clavesTexto[libre] = clavesTexto[siguiente];
+                posicionesTexto[libre] = posicionesTexto[siguiente];
+                libre = siguiente;
+            }
+            siguiente = (siguiente + 1) & mascara;
+        }
+        clavesTexto[libre] = null;
+        posicionesTexto[libre] = 0;
+    }
+    
+    private void redimensionarNumericos(int tamano) {
+        long[] clavesAnteriores = claves;
+        int[] posicionesAnteriores = posiciones;
+        claves = new long[tamano];
+        posiciones = new int[tamano];
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            if (posicionesAnteriores[i] != 0) {
+                int ranura = ranura(clavesAnteriores[i]);
+                claves[ranura] = clavesAnteriores[i];
+                posiciones[ranura] = posicionesAnteriores[i];
+            }
+        }
+    }
+    
+    private void redimensionarTextos(int tamano) {
+        String[] clavesAnteriores = clavesTexto;
+        int[] posicionesAnteriores = posicionesTexto;
+        clavesTexto = new String[tamano];
+        posicionesTexto = new int[tamano];
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            if (posicionesAnteriores[i] != 0) {
+                int ranura = ranuraTexto(clavesAnteriores[i]);
+                clavesTexto[ranura] = clavesAnteriores[i];
+                posicionesTexto[ranura] = posicionesAnteriores[i];
+            }
+        }
+    }
+    
+    static int tamanoTablaPara(int capacidad) {
+        // Potencia de dos con factor de carga máximo 0.5
+        int tamano = Integer.highestOneBit(Math.max(2, capacidad) - 1) << 2;
+        return tamano > 0 ? tamano : 1 << 30;
+    }
+    
+    /**
+     * Mezcla los bits del código (finalizador de MurmurHash3): códigos consecutivos
+     * quedan repartidos por toda la tabla
+     */
+    static int dispersar(long codigo) {
+        long h = codigo;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+    
+    private static int dispersar(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
+
@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * Seguimiento incremental de los envíos más costosos, en total y por tipo de envío
+ * Mantiene un IndiceRango por costo para cada tipo de envío. Los k más costosos de un
+ * tipo se leen desde el final de su índice; los k más costosos en total se obtienen
+ * mezclando los k primeros de cada tipo. Ambas consultas cuestan O(k) y no tocan el
+ * resto de los envíos. Como índice de RepositorioEnviosConIndices se mantiene al
+ * agregar, retirar y cuando cambian el peso o la distancia de un envío.
+ * Principio S (Single Responsibility): Solo sigue los envíos más costosos
+ * Principio O (Open/Closed): Reutiliza IndiceRango sin modificarlo
+ */
+public final class IndiceMayoresCostos implements IIndiceEnvios {
+    /** Nombre del índice */
+    public static final String NOMBRE = "mayoresCostos";
+    
+    private final Map<FabricaEnvios.TipoEnvio, IndiceRango> porTipo = new EnumMap<>(FabricaEnvios.TipoEnvio.class);
+    
+    /**
+     * Constructor del índice
+     */
+    public IndiceMayoresCostos() {
+        for (FabricaEnvios.TipoEnvio tipo : FabricaEnvios.TipoEnvio.values()) {
+            porTipo.put(tipo, new IndiceRango(NOMBRE + "-" + tipo.name(), Envio::getCosto, true));
+        }
+    }
+    
+    @Override
+    public void agregar(Envio envio) {
+        porTipo.get(envio.getTipo()).agregar(envio);
+    }
+    
+    @Override
+    public void quitar(Envio envio) {
+        porTipo.get(envio.getTipo()).quitar(envio);
+    }
+    
+    @Override
+    public void limpiar() {
+        for (IndiceRango indice : porTipo.values()) {
+            indice.limpiar();
+        }
+    }
+    
+    /**
+     * Obtiene los k envíos más costosos de un tipo
+     * @param tipo Tipo de envío
+     * @param k Cantidad máxima de envíos
+     * @return Envíos de mayor a menor costo
+     */
+    public List<Envio> mayores(FabricaEnvios.TipoEnvio tipo, int k) {
+        if (tipo == null) {
+            throw new IllegalArgumentException("El tipo de envío no puede ser nulo");
+        }
+        return porTipo.get(tipo).mayores(k);
+    }
+    
+    /**
+     * Obtiene los k envíos más costosos de todos los tipos
+     * @param k Cantidad máxima de envíos
+     * @return Envíos de mayor a menor costo
+     */
+    public List<Envio> mayores(int k) {
+        List<List<Envio>> listas = new ArrayList<>();
+        for (IndiceRango indice : porTipo.values()) {
+            listas.add(indice.mayores(k));
+        }
+        
+        // Mezcla de listas ya ordenadas de mayor a menor costo
+        int[] posiciones = new int[listas.size()];
+        List<Envio> resultado = new ArrayList<>(k);
+        while (resultado.size() < k) {
+            int elegida = -1;
+            double mayorCosto = 0.0;
+            for (int i = 0; i < listas.size(); i++) {
+                if (posiciones[i] < listas.get(i).size()) {
+                    double costo = listas.get(i).get(posiciones[i]).getCosto();
+                    if (elegida < 0 || Double.compare(costo, mayorCosto) > 0) {
+                        elegida = i;
+                        mayorCosto = costo;
+                    }
+                }
+            }
+            if (elegida < 0) {
+                break;
+            }
+            resultado.add(listas.get(elegida).get(posiciones[elegida]++));
+        }
+        return resultado;
+    }
+    
+    /**
+     * Selecciona los k envíos más costosos de un flujo sin índice
+     * Mantiene un montículo de k elementos, O(n log k)
+     * @param envios Envíos a recorrer
+     * @param k Cantidad máxima de envíos
+     * @return Envíos de mayor a menor costo
+     */
+    static List<Envio> seleccionarMayores(Stream<Envio> envios, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("La cantidad no puede ser negativa");
+        }
+        if (k == 0) {
+            return new ArrayList<>();
+        }
+        Comparator<Envio> porCosto = Comparator.comparingDouble(Envio::getCosto);
+        PriorityQueue<Envio> menores = new PriorityQueue<>(k, porCosto);
+        envios.forEachOrdered(envio -> {
+            if (menores.size() < k) {
+                menores.add(envio);
+            } else if (porCosto.compare(envio, menores.peek()) > 0) {
+                menores.poll();
+                menores.add(envio);
+            }
+        });
+        List<Envio> resultado = new ArrayList<>(menores);
+        resultado.sort(porCosto.reversed());
+        return resultado;
+    }
+    
+    /**
+     * Las claves son costos: se reconstruye cuando se publica otra TablaTarifas
+     */
+    @Override
+    public boolean dependeDeTarifas() {
+        return true;
+    }
+    
+    @Override
+    public String getNombre() {
+        return NOMBRE;
+    }
+}
+
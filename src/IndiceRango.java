@@ -0,0 +1,377 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Índice ordenado de envíos por un valor numérico (peso, distancia o costo)
+ * Es un árbol B+ de dos niveles: los envíos se guardan ordenados por (clave, código) en
+ * bloques de hasta 256 entradas con las claves en un double[], y una lista de bloques
+ * ordenada permite ubicar el bloque de una clave con búsqueda binaria. Insertar o quitar
+ * mueve como mucho un bloque; un bloque lleno se divide en dos.
+ *
+ * Las consultas por rango son perezosas: recorren el índice de a un bloque a la vez y
+ * recuerdan la última entrada entregada, así que toleran modificaciones entre bloques
+ * (el recorrido continúa después de esa entrada) en lugar de fallar.
+ * Principio S (Single Responsibility): Solo ordena envíos por un valor numérico
+ * Principio O (Open/Closed): Nuevos índices se definen con una función de clave
+ */
+public final class IndiceRango implements IIndiceEnvios {
+    private static final int TAMANO_BLOQUE = 256;
+    
+    /**
+     * Valores numéricos de un envío que pueden indexarse por rango
+     */
+    public enum Campo {
+        PESO("peso", Envio::getPesoKg),
+        DISTANCIA("distancia", Envio::getDistanciaKm),
+        COSTO("costo", Envio::getCosto);
+        
+        private final String nombre;
+        private final ToDoubleFunction<Envio> funcion;
+        
+        Campo(String nombre, ToDoubleFunction<Envio> funcion) {
+            this.nombre = nombre;
+            this.funcion = funcion;
+        }
+        
+        public String getNombre() {
+            return nombre;
+        }
+        
+        /**
+         * Obtiene el valor del campo de un envío
+         * @param envio Envío
+         * @return Valor del campo
+         */
+        public double valor(Envio envio) {
+            return funcion.applyAsDouble(envio);
+        }
+    }
+    
+    private final String nombre;
+    private final ToDoubleFunction<Envio> funcionClave;
+    private final boolean dependeDeTarifas;
+    private final List<Bloque> bloques = new ArrayList<>();
+    private int cantidad;
+    
+    /**
+     * Constructor de un índice cuyas claves no dependen de las tarifas
+     * @param nombre Nombre único del índice
+     * @param funcionClave Función que obtiene la clave de un envío
+     */
+    public IndiceRango(String nombre, ToDoubleFunction<Envio> funcionClave) {
+        this(nombre, funcionClave, false);
+    }
+    
+    /**
+     * Constructor del índice
+     * @param nombre Nombre único del índice
+     * @param funcionClave Función que obtiene la clave de un envío
+     * @param dependeDeTarifas true si la clave usa la TablaTarifas vigente (por ejemplo getCosto)
+     */
+    public IndiceRango(String nombre, ToDoubleFunction<Envio> funcionClave, boolean dependeDeTarifas) {
+        if (nombre == null || nombre.trim().isEmpty()) {
+            throw new IllegalArgumentException("El nombre del índice no puede ser nulo o vacío");
+        }
+        if (funcionClave == null) {
+            throw new IllegalArgumentException("La función de clave no puede ser nula");
+        }
+        this.nombre = nombre;
+        this.funcionClave = funcionClave;
+        this.dependeDeTarifas = dependeDeTarifas;
+    }
+    
+    /**
+     * Crea un índice sobre un campo, con el nombre del campo
+     * @param campo Campo a indexar
+     * @return Índice del campo
+     */
+    public static IndiceRango de(Campo campo) {
+        return new IndiceRango(campo.getNombre(), campo::valor, campo == Campo.COSTO);
+    }
+    
+    @Override
+    public synchronized void agregar(Envio envio) {
+        double clave = funcionClave.applyAsDouble(envio);
+        String codigo = envio.getCodigoEnvio();
+        if (bloques.isEmpty()) {
+            bloques.add(new Bloque());
+        }
+        int indiceBloque = buscarBloque(clave, codigo);
+        Bloque bloque = bloques.get(indiceBloque);
+        int posicion = bloque.buscar(clave, codigo);
+        if (posicion < bloque.cantidad && comparar(bloque.claves[posicion], bloque.codigos[posicion], clave, codigo) == 0) {
+            bloque.envios[posicion] = envio;
+            return;
+        }
+        bloque.insertar(posicion, clave, codigo, envio);
+        cantidad++;
+        if (bloque.cantidad == TAMANO_BLOQUE) {
+            bloques.add(indiceBloque + 1, bloque.dividir());
+        }
+    }
+    
+    @Override
+    public synchronized void quitar(Envio envio) {
+        if (bloques.isEmpty()) {
+            return;
+        }
+        double clave = funcionClave.applyAsDouble(envio);
+        String codigo = envio.getCodigoEnvio();
+        int indiceBloque = buscarBloque(clave, codigo);
+        Bloque bloque = bloques.get(indiceBloque);
+        int posicion = bloque.buscar(clave, codigo);
+        if (posicion < bloque.cantidad && comparar(bloque.claves[posicion], bloque.codigos[posicion], clave, codigo) == 0) {
+            bloque.eliminar(posicion);
+            cantidad--;
+            if (bloque.cantidad == 0 && bloques.size() > 1) {
+                bloques.remove(indiceBloque);
+            }
+        }
+    }
+    
+    @Override
+    public synchronized void limpiar() {
+        bloques.clear();
+        cantidad = 0;
+    }
+    
+    /**
+     * Recorre en orden ascendente los envíos con clave en [minimo, maximo]
+     * Para un límite abierto se puede usar Math.nextUp / Math.nextDown o los infinitos
+     * @param minimo Clave mínima (incluida)
+     * @param maximo Clave máxima (incluida)
+     * @return Flujo perezoso de los envíos del rango
+     */
+    public Stream<Envio> rango(double minimo, double maximo) {
+        Spliterator<Envio> divisor = Spliterators.spliteratorUnknownSize(new Recorrido(minimo, maximo),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(divisor, false);
+    }
+    
+    /**
+     * Obtiene los k envíos con mayor clave, de mayor a menor
+     * Recorre el índice desde el final, así que solo toca las k entradas devueltas
+     * @param k Cantidad máxima de envíos
+     * @return Envíos con las k claves más altas (menos si el índice tiene menos)
+     */
+    public synchronized List<Envio> mayores(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("La cantidad no puede ser negativa");
+        }
+        List<Envio> resultado = new ArrayList<>(Math.min(k, cantidad));
+        for (int b = bloques.size() - 1; b >= 0 && resultado.size() < k; b--) {
+            Bloque bloque = bloques.get(b);
+            for (int i = bloque.cantidad - 1; i >= 0 && resultado.size() < k; i--) {
+                resultado.add(bloque.envios[i]);
+            }
+        }
+        return resultado;
+    }
+    
+    /**
+     * Obtiene la cantidad de envíos indexados
+     * @return Cantidad de envíos
+     */
+    public synchronized int obtenerCantidad() {
+        return cantidad;
+    }
+    
+    @Override
+    public boolean dependeDeTarifas() {
+        return dependeDeTarifas;
+    }
+    
+    @Override
+    public String getNombre() {
+        return nombre;
+    }
+    
+    /**
+     * Compara dos entradas por clave y luego por código; un código null es menor que todos
+     */
+    private static int comparar(double clave1, String codigo1, double clave2, String codigo2) {
+        int resultado = Double.compare(clave1, clave2);
+        if (resultado != 0 || codigo1 == codigo2) {
+            return resultado;
+        }
+        if (codigo1 == null) {
+            return -1;
+        }
+        if (codigo2 == null) {
+            return 1;
+        }
+        return codigo1.compareTo(codigo2);
+    }
+    
+    /**
+     * Ubica el último bloque cuya primera entrada es menor o igual que la dada
+     * (el primer bloque si todas son mayores)
+     */
+    private int buscarBloque(double clave, String codigo) {
+        int bajo = 0;
+        int alto = bloques.size() - 1;
+        while (bajo < alto) {
+            int medio = (bajo + alto + 1) >>> 1;
+            Bloque bloque = bloques.get(medio);
+            if (comparar(bloque.claves[0], bloque.codigos[0], clave, codigo) <= 0) {
+                bajo = medio;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return bajo;
+    }
+    
+    /**
+     * Bloque de entradas ordenadas (hoja del árbol)
+     */
+    private static final class Bloque {
+        private final double[] claves = new double[TAMANO_BLOQUE];
+        private final String[] codigos = new String[TAMANO_BLOQUE];
+        private final Envio[] envios = new Envio[TAMANO_BLOQUE];
+        private int cantidad;
+        
+        /**
+         * Primera posición con una entrada mayor o igual que la dada
+         */
+        int buscar(double clave, String codigo) {
+            int bajo = 0;
+            int alto = cantidad;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (comparar(claves[medio], codigos[medio], clave, codigo) < 0) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+        
+        void insertar(int posicion, double clave, String codigo, Envio envio) {
+            int mover = cantidad - posicion;
+            System.arraycopy(claves, posicion, claves, posicion + 1, mover);
+            System.arraycopy(codigos, posicion, codigos, posicion + 1, mover);
+            System.arraycopy(envios, posicion, envios, posicion + 1, mover);
+            claves[posicion] = clave;
+            codigos[posicion] = codigo;
+            envios[posicion] = envio;
+            cantidad++;
+        }
+        
+        void eliminar(int posicion) {
+            int mover = cantidad - posicion - 1;
+            System.arraycopy(claves, posicion + 1, claves, posicion, mover);
+            System.arraycopy(codigos, posicion + 1, codigos, posicion, mover);
+            System.arraycopy(envios, posicion + 1, envios, posicion, mover);
+            cantidad--;
+            codigos[cantidad] = null;
+            envios[cantidad] = null;
+        }
+        
+        /**
+         * Mueve la mitad superior a un bloque nuevo
+         * @return Bloque con la mitad superior
+         */
+        Bloque dividir() {
+            Bloque nuevo = new Bloque();
+            int mitad = cantidad / 2;
+            nuevo.cantidad = cantidad - mitad;
+            System.arraycopy(claves, mitad, nuevo.claves, 0, nuevo.cantidad);
+            System.arraycopy(codigos, mitad, nuevo.codigos, 0, nuevo.cantidad);
+            System.arraycopy(envios, mitad, nuevo.envios, 0, nuevo.cantidad);
+            Arrays.fill(codigos, mitad, cantidad, null);
+            Arrays.fill(envios, mitad, cantidad, null);
+            cantidad = mitad;
+            return nuevo;
+        }
+    }
+    
+    /**
+     * Recorrido perezoso de un rango que copia una porción del índice por vez
+     */
+    private final class Recorrido implements Iterator<Envio> {
+        private final double maximo;
+        private final Envio[] porcion = new Envio[TAMANO_BLOQUE];
+        private int enPorcion;
+        private int siguiente;
+        private double ultimaClave;
+        private String ultimoCodigo;
+        private boolean incluirUltima = true;
+        private boolean terminado;
+        
+        Recorrido(double minimo, double maximo) {
+            this.maximo = maximo;
+            this.ultimaClave = minimo;
+            this.terminado = Double.compare(minimo, maximo) > 0;
+        }
+        
+        @Override
+        public boolean hasNext() {
+            if (siguiente < enPorcion) {
+                return true;
+            }
+            if (!terminado) {
+                cargarPorcion();
+            }
+            return siguiente < enPorcion;
+        }
+        
+        @Override
+        public Envio next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return porcion[siguiente++];
+        }
+        
+        /**
+         * Copia las entradas siguientes a la última entregada, de un bloque como máximo
+         */
+        private void cargarPorcion() {
+            siguiente = 0;
+            enPorcion = 0;
+            synchronized (IndiceRango.this) {
+                if (bloques.isEmpty()) {
+                    terminado = true;
+                    return;
+                }
+                int indiceBloque = buscarBloque(ultimaClave, ultimoCodigo);
+                Bloque bloque = bloques.get(indiceBloque);
+                int posicion = bloque.buscar(ultimaClave, ultimoCodigo);
+                if (!incluirUltima && posicion < bloque.cantidad
+                        && comparar(bloque.claves[posicion], bloque.codigos[posicion], ultimaClave, ultimoCodigo) == 0) {
+                    posicion++;
+                }
+                if (posicion == bloque.cantidad) {
+                    indiceBloque++;
+                    posicion = 0;
+                    if (indiceBloque == bloques.size()) {
+                        terminado = true;
+                        return;
+                    }
+                    bloque = bloques.get(indiceBloque);
+                }
+                while (posicion < bloque.cantidad && Double.compare(bloque.claves[posicion], maximo) <= 0) {
+                    porcion[enPorcion++] = bloque.envios[posicion];
+                    ultimaClave = bloque.claves[posicion];
+                    ultimoCodigo = bloque.codigos[posicion];
+                    posicion++;
+                }
+                incluirUltima = false;
+                if (posicion < bloque.cantidad || enPorcion == 0) {
+                    terminado = true;
+                }
+            }
+        }
+    }
+}
+
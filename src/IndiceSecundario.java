@@ -0,0 +1,133 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Índice secundario de envíos por una clave derivada (cliente, tipo de envío, etc.)
+ * Cada clave apunta a los envíos que la comparten, guardados por código; una consulta
+ * copia solo esos envíos, así su costo es proporcional al tamaño del resultado.
+ * El índice no se mantiene solo: lo actualiza RepositorioEnviosConIndices al agregar,
+ * retirar y modificar envíos.
+ * Principio S (Single Responsibility): Solo relaciona claves con envíos
+ * Principio O (Open/Closed): Nuevos índices se definen con una función de clave
+ * @param <K> Tipo de la clave
+ */
+public final class IndiceSecundario<K> implements IIndiceEnvios {
+    /** Nombre del índice por cliente */
+    public static final String CLIENTE = "cliente";
+    /** Nombre del índice por tipo de envío */
+    public static final String TIPO = "tipo";
+    
+    private final String nombre;
+    private final Function<Envio, K> funcionClave;
+    private final boolean dependeDeTarifas;
+    private final Map<K, LinkedHashMap<String, Envio>> entradas = new HashMap<>();
+    
+    /**
+     * Constructor de un índice cuyas claves no dependen de las tarifas
+     * @param nombre Nombre único del índice
+     * @param funcionClave Función que obtiene la clave de un envío
+     */
+    public IndiceSecundario(String nombre, Function<Envio, K> funcionClave) {
+        this(nombre, funcionClave, false);
+    }
+    
+    /**
+     * Constructor del índice
+     * @param nombre Nombre único del índice
+     * @param funcionClave Función que obtiene la clave de un envío
+     * @param dependeDeTarifas true si la clave usa la TablaTarifas vigente (por ejemplo getCosto)
+     */
+    public IndiceSecundario(String nombre, Function<Envio, K> funcionClave, boolean dependeDeTarifas) {
+        if (nombre == null || nombre.trim().isEmpty()) {
+            throw new IllegalArgumentException("El nombre del índice no puede ser nulo o vacío");
+        }
+        if (funcionClave == null) {
+            throw new IllegalArgumentException("La función de clave no puede ser nula");
+        }
+        this.nombre = nombre;
+        this.funcionClave = funcionClave;
+        this.dependeDeTarifas = dependeDeTarifas;
+    }
+    
+    /**
+     * Crea un índice por cliente
+     * @return Índice con nombre CLIENTE
+     */
+    public static IndiceSecundario<String> porCliente() {
+        return new IndiceSecundario<>(CLIENTE, Envio::getCliente, false);
+    }
+    
+    /**
+     * Crea un índice por tipo de envío
+     * @return Índice con nombre TIPO
+     */
+    public static IndiceSecundario<FabricaEnvios.TipoEnvio> porTipo() {
+        return new IndiceSecundario<>(TIPO, Envio::getTipo, false);
+    }
+    
+    @Override
+    public synchronized void agregar(Envio envio) {
+        entradas.computeIfAbsent(funcionClave.apply(envio), k -> new LinkedHashMap<>())
+                .put(envio.getCodigoEnvio(), envio);
+    }
+    
+    @Override
+    public synchronized void quitar(Envio envio) {
+        K clave = funcionClave.apply(envio);
+        LinkedHashMap<String, Envio> grupo = entradas.get(clave);
+        if (grupo != null && grupo.remove(envio.getCodigoEnvio()) != null && grupo.isEmpty()) {
+            entradas.remove(clave);
+        }
+    }
+    
+    @Override
+    public synchronized void limpiar() {
+        entradas.clear();
+    }
+    
+    /**
+     * Busca los envíos con una clave
+     * @param clave Clave a buscar
+     * @return Copia de los envíos con esa clave (vacía si no hay ninguno)
+     */
+    public synchronized List<Envio> buscar(K clave) {
+        LinkedHashMap<String, Envio> grupo = entradas.get(clave);
+        return grupo == null ? new ArrayList<>() : new ArrayList<>(grupo.values());
+    }
+    
+    /**
+     * Cuenta los envíos con una clave sin copiarlos
+     * @param clave Clave a contar
+     * @return Cantidad de envíos con esa clave
+     */
+    public synchronized int contar(K clave) {
+        LinkedHashMap<String, Envio> grupo = entradas.get(clave);
+        return grupo == null ? 0 : grupo.size();
+    }
+    
+    /**
+     * Obtiene las claves presentes en el índice
+     * @return Copia de las claves con al menos un envío
+     */
+    public synchronized Set<K> obtenerClaves() {
+        return Collections.unmodifiableSet(new HashSet<>(entradas.keySet()));
+    }
+    
+    @Override
+    public boolean dependeDeTarifas() {
+        return dependeDeTarifas;
+    }
+    
+    @Override
+    public String getNombre() {
+        return nombre;
+    }
+}
+
@@ -1,10 +1,22 @@
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.table.JTableHeader;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Interfaz gráfica para el sistema de gestión de envíos
+ * Las llamadas al servicio (agregar, retirar, cargar, importar y ordenar) corren en tareas
+ * SwingWorker fuera del hilo de eventos; el hilo de eventos solo valida el formulario y
+ * aplica los resultados a la tabla. Las cargas publican los códigos por bloques, que Swing
+ * agrupa en un solo evento de la tabla, y muestran su avance con opción de cancelar.
+ * Se ejecuta una tarea a la vez, así el modelo de la tabla no cambia mientras se ordena.
  * Principio S (Single Responsibility): Solo maneja la presentación visual
  * Principio D (Dependency Inversion): Usa abstracciones (IServicioLogistica)
  */
@@ -18,12 +30,26 @@ public class InterfazLogistica extends JFrame {
     private JTextField txtDistancia;
     private JComboBox<String> cmbTipo;
     private JTable tablaEnvios;
-    private DefaultTableModel modeloTabla;
+    private ModeloTablaEnvios modeloTabla;
     private JButton btnAgregar;
+    private JButton btnImportar;
+    private JLabel lblEstado;
+    private JPanel panelProgreso;
+    private JProgressBar barraProgreso;
+    private JButton btnCancelarCarga;
+    
+    // Códigos que una carga lee del servicio antes de publicarlos a la tabla
+    private static final int TAMANO_BLOQUE = 4096;
+    // Las tareas que terminan antes de este tiempo no muestran la barra de progreso
+    private static final int RETRASO_PROGRESO_MS = 150;
+    
+    private Tarea<?, ?> tareaEnCurso;
+    private final Timer retrasoProgreso = new Timer(RETRASO_PROGRESO_MS, e -> panelProgreso.setVisible(true));
     
     /**
      * Constructor con inyección de dependencias
-     * @param servicioLogistica Servicio de logística
+     * @param servicioLogistica Servicio de logística (debe admitir varios hilos: las altas y
+     *                          las importaciones corren en segundo plano mientras la tabla lee)
      */
     public InterfazLogistica(IServicioLogistica servicioLogistica) {
         if (servicioLogistica == null) {
@@ -35,10 +61,11 @@ public class InterfazLogistica extends JFrame {
     }
     
     /**
-     * Constructor sin parámetros (crea sus propias dependencias)
+     * Constructor sin parámetros (crea sus propias dependencias, con un repositorio
+     * concurrente porque las tareas escriben fuera del hilo de eventos)
      */
     public InterfazLogistica() {
-        this(new ServicioLogistica(new RepositorioEnvios()));
+        this(new ServicioLogistica(new RepositorioEnviosConcurrente()));
     }
     
     /**
@@ -127,23 +154,24 @@ public class InterfazLogistica extends JFrame {
         btnCancelar.setForeground(Color.WHITE);
         btnCancelar.setFocusPainted(false);
         
+        btnImportar = new JButton("Importar CSV");
+        btnImportar.setFocusPainted(false);
+        
         panelBotones.add(btnAgregar);
         panelBotones.add(btnCancelar);
+        panelBotones.add(btnImportar);
         panelFormulario.add(panelBotones, gbc);
         
         panelSuperior.add(panelFormulario, BorderLayout.CENTER);
         add(panelSuperior, BorderLayout.NORTH);
         
-        // Tabla de envíos
-        String[] columnas = {"Tipo", "Código", "Cliente", "Peso", "Distancia", "Costo"};
-        modeloTabla = new DefaultTableModel(columnas, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        // Tabla de envíos (modelo virtual: lee los envíos del servicio bajo demanda).
+        // Se crea vacío; las filas llegan por bloques desde una carga en segundo plano
+        modeloTabla = new ModeloTablaEnvios(servicioLogistica, false);
         
         tablaEnvios = new JTable(modeloTabla);
+        // Alto de fila fijo: la tabla no mide cada fila, lo que importa con millones de filas
+        tablaEnvios.setRowHeight(tablaEnvios.getRowHeight());
         tablaEnvios.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         tablaEnvios.getTableHeader().setReorderingAllowed(false);
         
@@ -159,6 +187,24 @@ public class InterfazLogistica extends JFrame {
         scrollTabla.setBorder(BorderFactory.createEmptyBorder(0, 10, 10, 10));
         add(scrollTabla, BorderLayout.CENTER);
         
+        // Barra de estado con el avance de la tarea en curso
+        JPanel panelEstado = new JPanel(new BorderLayout(10, 0));
+        panelEstado.setBorder(BorderFactory.createEmptyBorder(0, 10, 10, 10));
+        lblEstado = new JLabel(" ");
+        panelEstado.add(lblEstado, BorderLayout.CENTER);
+        
+        panelProgreso = new JPanel(new FlowLayout(FlowLayout.RIGHT, 5, 0));
+        barraProgreso = new JProgressBar(0, 100);
+        barraProgreso.setStringPainted(false);
+        btnCancelarCarga = new JButton("Detener");
+        btnCancelarCarga.setFocusPainted(false);
+        panelProgreso.add(barraProgreso);
+        panelProgreso.add(btnCancelarCarga);
+        panelProgreso.setVisible(false);
+        panelEstado.add(panelProgreso, BorderLayout.EAST);
+        add(panelEstado, BorderLayout.SOUTH);
+        retrasoProgreso.setRepeats(false);
+        
         // Configurar eventos
         configurarEventos(btnCancelar);
     }
@@ -183,6 +229,37 @@ public class InterfazLogistica extends JFrame {
             }
         });
         
+        // Botón Importar CSV
+        btnImportar.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                importarCsv();
+            }
+        });
+        
+        // Botón Detener: cancela la tarea en curso
+        btnCancelarCarga.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (tareaEnCurso != null) {
+                    tareaEnCurso.cancel(false);
+                }
+            }
+        });
+        
+        // Click en el encabezado para ordenar (un segundo click invierte el orden)
+        final JTableHeader encabezado = tablaEnvios.getTableHeader();
+        encabezado.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int columna = encabezado.columnAtPoint(e.getPoint());
+                if (columna >= 0) {
+                    boolean ascendente = modeloTabla.getColumnaOrden() != columna || !modeloTabla.isAscendente();
+                    ordenarPor(columna, ascendente);
+                }
+            }
+        });
+        
         // Doble click en tabla para eliminar
         tablaEnvios.addMouseListener(new MouseAdapter() {
             @Override
@@ -226,7 +303,7 @@ public class InterfazLogistica extends JFrame {
             }
             
             // Crear envío usando la fábrica (DRY principle)
-            Envio nuevoEnvio;
+            final Envio nuevoEnvio;
             try {
                 nuevoEnvio = FabricaEnvios.crearEnvioDesdeString(tipo, cliente, numero, peso, distancia);
             } catch (IllegalArgumentException ex) {
@@ -237,29 +314,26 @@ public class InterfazLogistica extends JFrame {
                 return;
             }
             
-            // Agregar al servicio de logística
-            if (servicioLogistica.agregarEnvio(nuevoEnvio)) {
-                // Agregar a la tabla
-                modeloTabla.addRow(new Object[]{
-                    nuevoEnvio.getTipoEnvio(),
-                    nuevoEnvio.getCodigoEnvio(),
-                    nuevoEnvio.getCliente(),
-                    String.format("%.1f", nuevoEnvio.getPesoKg()),
-                    String.format("%.1f", nuevoEnvio.getDistanciaKm()),
-                    String.format("%.1f", nuevoEnvio.getCosto())
-                });
+            // Agregar al servicio de logística fuera del hilo de eventos; la fila se
+            // agrega a la tabla cuando el servicio lo acepta
+            final String codigo = nuevoEnvio.getCodigoEnvio();
+            iniciarTarea(new Tarea<Boolean, Void>("Agregando el envío " + codigo) {
+                @Override
+                protected Boolean doInBackground() {
+                    return servicioLogistica.agregarEnvio(nuevoEnvio);
+                }
                 
-                limpiarFormulario();
-                JOptionPane.showMessageDialog(this, 
-                    "Envío agregado exitosamente", 
-                    "Éxito", 
-                    JOptionPane.INFORMATION_MESSAGE);
-            } else {
-                JOptionPane.showMessageDialog(this, 
-                    "Ya existe un envío con el código " + numero, 
-                    "Error", 
-                    JOptionPane.ERROR_MESSAGE);
-            }
+                @Override
+                protected void terminar(Boolean agregado) {
+                    if (agregado) {
+                        modeloTabla.agregarFilas(new String[] {codigo});
+                        limpiarFormulario();
+                        lblEstado.setText("Envío " + codigo + " agregado exitosamente");
+                    } else {
+                        mostrarError("Ya existe un envío con el código " + codigo);
+                    }
+                }
+            }, false);
             
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, 
@@ -273,10 +347,12 @@ public class InterfazLogistica extends JFrame {
      * Retira el envío seleccionado en la tabla
      */
     private void retirarEnvioSeleccionado() {
-        int filaSeleccionada = tablaEnvios.getSelectedRow();
+        final int filaSeleccionada = tablaEnvios.getSelectedRow();
         
-        if (filaSeleccionada >= 0) {
-            String codigo = (String) modeloTabla.getValueAt(filaSeleccionada, 1);
+        if (tareaEnCurso != null) {
+            avisarOcupado();
+        } else if (filaSeleccionada >= 0) {
+            final String codigo = modeloTabla.getCodigo(filaSeleccionada);
             
             int confirmacion = JOptionPane.showConfirmDialog(this, 
                 "¿Está seguro de que desea retirar el envío " + codigo + "?", 
@@ -284,13 +360,22 @@ public class InterfazLogistica extends JFrame {
                 JOptionPane.YES_NO_OPTION);
             
             if (confirmacion == JOptionPane.YES_OPTION) {
-                if (servicioLogistica.retirarEnvio(codigo)) {
-                    modeloTabla.removeRow(filaSeleccionada);
-                    JOptionPane.showMessageDialog(this, 
-                        "Envío retirado exitosamente", 
-                        "Éxito", 
-                        JOptionPane.INFORMATION_MESSAGE);
-                }
+                iniciarTarea(new Tarea<Boolean, Void>("Retirando el envío " + codigo) {
+                    @Override
+                    protected Boolean doInBackground() {
+                        return servicioLogistica.retirarEnvio(codigo);
+                    }
+                    
+                    @Override
+                    protected void terminar(Boolean retirado) {
+                        if (retirado) {
+                            modeloTabla.filaRetirada(codigo, filaSeleccionada);
+                            lblEstado.setText("Envío " + codigo + " retirado exitosamente");
+                        } else {
+                            mostrarError("El envío " + codigo + " no se pudo retirar");
+                        }
+                    }
+                }, false);
             }
         } else {
             JOptionPane.showMessageDialog(this, 
@@ -300,6 +385,107 @@ public class InterfazLogistica extends JFrame {
         }
     }
     
+    /**
+     * Importa un archivo CSV elegido por el usuario y vuelve a cargar la tabla
+     * La importación (ImportadorCsv) no se puede detener; la lectura posterior sí
+     */
+    private void importarCsv() {
+        if (tareaEnCurso != null) {
+            avisarOcupado();
+            return;
+        }
+        JFileChooser selector = new JFileChooser();
+        if (selector.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        final Path archivo = selector.getSelectedFile().toPath();
+        final Path rechazos = Paths.get(archivo + ".rechazos");
+        iniciarTarea(new CargaFilas("Importando " + archivo.getFileName()) {
+            @Override
+            protected String preparar() throws IOException {
+                ResultadoImportacion resultado = new ImportadorCsv(servicioLogistica).importar(archivo, rechazos);
+                return resultado.getRechazados() > 0
+                        ? resultado + " (rechazos en " + rechazos.getFileName() + ")"
+                        : resultado.toString();
+            }
+        }, false);
+    }
+    
+    /**
+     * Ordena la tabla por una columna: el orden se calcula fuera del hilo de eventos y
+     * se aplica al terminar (si las filas cambiaron entretanto, se vuelve a calcular)
+     */
+    private void ordenarPor(final int columna, final boolean ascendente) {
+        iniciarTarea(new Tarea<int[], Void>("Ordenando por " + modeloTabla.getColumnName(columna)) {
+            @Override
+            protected int[] doInBackground() {
+                return modeloTabla.calcularOrden(columna, ascendente);
+            }
+            
+            @Override
+            protected void terminar(int[] posiciones) {
+                try {
+                    modeloTabla.aplicarOrden(posiciones, columna, ascendente);
+                    lblEstado.setText("Ordenado por " + modeloTabla.getColumnName(columna)
+                            + (ascendente ? " (ascendente)" : " (descendente)"));
+                } catch (IllegalStateException e) {
+                    ordenarPor(columna, ascendente);
+                }
+            }
+        }, true);
+    }
+    
+    /**
+     * Inicia una tarea en segundo plano si no hay otra en curso
+     * @param tarea Tarea a ejecutar
+     * @param cancelable true para habilitar el botón Detener desde el inicio
+     * @return true si la tarea se inició
+     */
+    private boolean iniciarTarea(Tarea<?, ?> tarea, boolean cancelable) {
+        if (tareaEnCurso != null) {
+            avisarOcupado();
+            return false;
+        }
+        tareaEnCurso = tarea;
+        btnAgregar.setEnabled(false);
+        btnImportar.setEnabled(false);
+        btnCancelarCarga.setEnabled(cancelable);
+        barraProgreso.setIndeterminate(true);
+        lblEstado.setText(tarea.getDescripcion() + "...");
+        tarea.addPropertyChangeListener(evento -> {
+            if ("progress".equals(evento.getPropertyName()) && tarea == tareaEnCurso) {
+                barraProgreso.setIndeterminate(false);
+                barraProgreso.setValue((Integer) evento.getNewValue());
+            }
+        });
+        retrasoProgreso.restart();
+        tarea.execute();
+        return true;
+    }
+    
+    /**
+     * Libera la interfaz al terminar la tarea en curso
+     */
+    private void finalizarTarea(Tarea<?, ?> tarea) {
+        if (tarea != tareaEnCurso) {
+            return;
+        }
+        tareaEnCurso = null;
+        retrasoProgreso.stop();
+        panelProgreso.setVisible(false);
+        barraProgreso.setValue(0);
+        btnAgregar.setEnabled(true);
+        btnImportar.setEnabled(true);
+    }
+    
+    private void avisarOcupado() {
+        lblEstado.setText("Espere a que termine: " + tareaEnCurso.getDescripcion());
+    }
+    
+    private void mostrarError(String mensaje) {
+        JOptionPane.showMessageDialog(this, mensaje, "Error", JOptionPane.ERROR_MESSAGE);
+    }
+    
     /**
      * Limpia el formulario
      */
@@ -327,37 +513,188 @@ public class InterfazLogistica extends JFrame {
     }
     
     /**
-     * Agrega datos de ejemplo a la tabla
+     * Agrega datos de ejemplo al servicio y carga la tabla en segundo plano
+     * (la carga también muestra los envíos que el servicio ya tenía)
      */
     private void agregarDatosEjemplo() {
-        Envio e1 = new Terrestre("Polímeros Col...", "10001", 1200.0, 400.0);
-        Envio e2 = new Terrestre("Textiles Peñalta", "10002", 500.0, 600.0);
-        Envio e3 = new Aereo("Flores Colombi...", "10003", 1500.0, 2000.0);
-        
-        servicioLogistica.agregarEnvio(e1);
-        servicioLogistica.agregarEnvio(e2);
-        servicioLogistica.agregarEnvio(e3);
-        
-        modeloTabla.addRow(new Object[]{
-            e1.getTipoEnvio(), e1.getCodigoEnvio(), e1.getCliente(),
-            String.format("%.1f", e1.getPesoKg()),
-            String.format("%.1f", e1.getDistanciaKm()),
-            String.format("%.1f", e1.getCosto())
-        });
+        final Envio e1 = FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.TERRESTRE, "Polímeros Col...", "10001", 1200.0, 400.0);
+        final Envio e2 = FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.TERRESTRE, "Textiles Peñalta", "10002", 500.0, 600.0);
+        final Envio e3 = FabricaEnvios.crearEnvio(FabricaEnvios.TipoEnvio.AEREO, "Flores Colombi...", "10003", 1500.0, 2000.0);
         
-        modeloTabla.addRow(new Object[]{
-            e2.getTipoEnvio(), e2.getCodigoEnvio(), e2.getCliente(),
-            String.format("%.1f", e2.getPesoKg()),
-            String.format("%.1f", e2.getDistanciaKm()),
-            String.format("%.1f", e2.getCosto())
-        });
+        iniciarTarea(new CargaFilas("Cargando envíos") {
+            @Override
+            protected String preparar() {
+                servicioLogistica.agregarLote(Arrays.asList(e1, e2, e3), false);
+                return null;
+            }
+        }, false);
+    }
+    
+    /**
+     * Tarea en segundo plano de la interfaz
+     * doInBackground corre fuera del hilo de eventos; terminar corre en el hilo de eventos
+     * con el resultado. Un error se muestra en un diálogo y al final se libera la interfaz.
+     */
+    private abstract class Tarea<T, V> extends SwingWorker<T, V> {
+        private final String descripcion;
         
-        modeloTabla.addRow(new Object[]{
-            e3.getTipoEnvio(), e3.getCodigoEnvio(), e3.getCliente(),
-            String.format("%.1f", e3.getPesoKg()),
-            String.format("%.1f", e3.getDistanciaKm()),
-            String.format("%.1f", e3.getCosto())
-        });
+        Tarea(String descripcion) {
+            this.descripcion = descripcion;
+        }
+        
+        String getDescripcion() {
+            return descripcion;
+        }
+        
+        /**
+         * Aplica el resultado en el hilo de eventos
+         * @param resultado Resultado de doInBackground
+         */
+        protected abstract void terminar(T resultado);
+        
+        /**
+         * Se llama en el hilo de eventos si la tarea se canceló
+         */
+        protected void cancelada() {
+            lblEstado.setText(descripcion + ": detenido");
+        }
+        
+        /**
+         * Libera la interfaz y aplica el resultado (en el hilo de eventos)
+         * Las subclases pueden postergarlo hasta aplicar los bloques publicados que process
+         * todavía no recibió: done puede llegar antes que el último llamado a process
+         * @param resultado Resultado de doInBackground
+         */
+        protected void completar(T resultado) {
+            finalizarTarea(this);
+            terminar(resultado);
+        }
+        
+        @Override
+        protected final void done() {
+            if (isCancelled()) {
+                finalizarTarea(this);
+                cancelada();
+                return;
+            }
+            try {
+                completar(get());
+            } catch (InterruptedException e) {
+                finalizarTarea(this);
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                finalizarTarea(this);
+                Throwable causa = e.getCause() != null ? e.getCause() : e;
+                lblEstado.setText(descripcion + ": falló");
+                mostrarError(descripcion + ": " + causa.getMessage());
+            }
+        }
+    }
+    
+    /**
+     * Carga en la tabla los códigos de todos los envíos del servicio
+     * Lee el servicio fuera del hilo de eventos y publica bloques de TAMANO_BLOQUE códigos;
+     * SwingWorker agrupa los bloques pendientes y process los agrega con un solo evento,
+     * así la tabla se llena de forma progresiva. Las filas anteriores se reemplazan al
+     * llegar el primer bloque. Detener conserva las filas ya cargadas.
+     * La carga termina (y libera la interfaz) cuando process agregó todas las filas leídas;
+     * los bloques que llegan después de detenerla o de que falle se descartan, así no se
+     * mezclan con las filas de una carga posterior.
+     */
+    private class CargaFilas extends Tarea<Integer, String[]> {
+        private volatile String resumen;
+        // Solo se usan en el hilo de eventos
+        private boolean filasReemplazadas;
+        private int filasAplicadas;
+        private Integer leidos;
+        
+        CargaFilas(String descripcion) {
+            super(descripcion);
+        }
+        
+        /**
+         * Paso previo a la lectura (fuera del hilo de eventos; no se puede detener)
+         * @return Resumen para la barra de estado o null
+         * @throws Exception si el paso falla (la tabla no cambia)
+         */
+        protected String preparar() throws Exception {
+            return null;
+        }
+        
+        @Override
+        protected Integer doInBackground() throws Exception {
+            resumen = preparar();
+            SwingUtilities.invokeLater(() -> btnCancelarCarga.setEnabled(CargaFilas.this == tareaEnCurso));
+            
+            int total = Math.max(1, servicioLogistica.obtenerCantidadEnvios());
+            String[] bloque = new String[TAMANO_BLOQUE];
+            int enBloque = 0;
+            int leidos = 0;
+            Iterator<Envio> envios = servicioLogistica.flujoEnvios().iterator();
+            while (envios.hasNext() && !isCancelled()) {
+                bloque[enBloque++] = envios.next().getCodigoEnvio();
+                leidos++;
+                if (enBloque == TAMANO_BLOQUE) {
+                    publish(bloque);
+                    bloque = new String[TAMANO_BLOQUE];
+                    enBloque = 0;
+                    setProgress((int) Math.min(100, leidos * 100L / total));
+                }
+            }
+            if (enBloque > 0) {
+                publish(Arrays.copyOf(bloque, enBloque));
+            }
+            return leidos;
+        }
+        
+        @Override
+        protected void process(List<String[]> bloques) {
+            if (isCancelled() || this != tareaEnCurso) {
+                return;
+            }
+            if (!filasReemplazadas) {
+                modeloTabla.limpiar();
+                filasReemplazadas = true;
+            }
+            int total = 0;
+            for (String[] bloque : bloques) {
+                total += bloque.length;
+            }
+            String[] nuevos = new String[total];
+            int posicion = 0;
+            for (String[] bloque : bloques) {
+                System.arraycopy(bloque, 0, nuevos, posicion, bloque.length);
+                posicion += bloque.length;
+            }
+            modeloTabla.agregarFilas(nuevos);
+            filasAplicadas += total;
+            if (leidos != null && filasAplicadas == leidos) {
+                super.completar(leidos);
+            }
+        }
+        
+        @Override
+        protected void completar(Integer leidos) {
+            // Si quedan bloques por aplicar, el último process completa la carga
+            this.leidos = leidos;
+            if (filasAplicadas == leidos) {
+                super.completar(leidos);
+            }
+        }
+        
+        @Override
+        protected void terminar(Integer leidos) {
+            if (!filasReemplazadas) {
+                modeloTabla.limpiar();
+            }
+            String mensaje = leidos + " envíos en la tabla";
+            lblEstado.setText(resumen != null ? resumen + " | " + mensaje : mensaje);
+        }
+        
+        @Override
+        protected void cancelada() {
+            lblEstado.setText(getDescripcion() + ": detenido con " + modeloTabla.getRowCount() + " envíos en la tabla");
+        }
     }
     
     /**
@@ -375,6 +712,14 @@ public class InterfazLogistica extends JFrame {
             public void run() {
                 InterfazLogistica ventana = new InterfazLogistica();
                 ventana.setVisible(true);
+                try {
+                    DiccionarioClientes.modoConfigurado();
+                } catch (IllegalArgumentException e) {
+                    JOptionPane.showMessageDialog(ventana, 
+                        e.getMessage() + "; se usa fuerte", 
+                        "Configuración", 
+                        JOptionPane.WARNING_MESSAGE);
+                }
             }
         });
     }
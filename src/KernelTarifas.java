@@ -0,0 +1,282 @@
+import java.util.Iterator;
+
+/**
+ * Cálculo masivo de tarifas sobre arreglos primitivos
+ * Recibe los pesos, las distancias y el ordinal del tipo de cada envío en arreglos
+ * paralelos, sin objetos ni llamadas virtuales por envío. Los coeficientes se leen de la
+ * TablaTarifas vigente una vez por llamada (todo el rango se calcula con los mismos
+ * precios aunque se publique otra tabla mientras tanto) y la fórmula se evalúa en el
+ * mismo orden (base * distancia + recargo * peso), así cada tarifa es idéntica bit a bit
+ * a la del objeto correspondiente.
+ *
+ * Las sumas recorren cuatro carriles independientes con compensación de Neumaier, lo que
+ * rompe la cadena de dependencias entre sumas consecutivas y permite que el compilador
+ * JIT las ejecute en paralelo.
+ *
+ * Si la aplicación se compiló con KernelTarifasVectorial (src/vector, ver esa clase) y la
+ * JVM arrancó con --add-modules jdk.incubator.vector, los rangos largos se evalúan en
+ * carriles SIMD con la misma fórmula y el mismo redondeo; si no, se usan los bucles
+ * escalares de esta clase. -Dtarifas.vectorial=false fuerza los bucles escalares.
+ * Principio S (Single Responsibility): Solo evalúa tarifas en bloque
+ * Principio O (Open/Closed): Los tipos se leen de FabricaEnvios.TipoEnvio
+ */
+public final class KernelTarifas {
+    private static final int BLOQUE = 1024;
+    // Por debajo de este largo el núcleo vectorial no compensa la preparación de coeficientes
+    private static final int MINIMO_VECTORIAL = 64;
+    private static final Nucleo VECTORIAL = cargarNucleoVectorial();
+    
+    /**
+     * Evaluación de un rango con coeficientes ya leídos de la tabla (implementada por
+     * KernelTarifasVectorial)
+     */
+    interface Nucleo {
+        void calcularTarifas(double[] base, double[] recargo, byte[] tipos, double[] pesos, double[] distancias,
+                             double[] tarifas, int desde, int hasta);
+        
+        void acumularTarifas(double[] base, double[] recargo, byte[] tipos, double[] pesos, double[] distancias,
+                             int desde, int hasta, int filtro, SumaCompensada total);
+    }
+    
+    private KernelTarifas() {
+    }
+    
+    /**
+     * Indica si los rangos largos se evalúan con el núcleo vectorial
+     * @return true si KernelTarifasVectorial está disponible y activo
+     */
+    public static boolean usaNucleoVectorial() {
+        return VECTORIAL != null;
+    }
+    
+    /**
+     * Calcula la tarifa de cada envío de un rango
+     * @param tipos Ordinal del tipo de cada envío
+     * @param pesos Peso de cada envío en kilogramos
+     * @param distancias Distancia de cada envío en kilómetros
+     * @param tarifas Arreglo donde se escriben las tarifas (mismas posiciones)
+     * @param desde Primera posición (incluida)
+     * @param hasta Última posición (excluida)
+     */
+    public static void calcularTarifas(byte[] tipos, double[] pesos, double[] distancias, double[] tarifas,
+                                       int desde, int hasta) {
+        validarRango(tipos, pesos, distancias, desde, hasta);
+        if (tarifas.length < hasta) {
+            throw new IllegalArgumentException("El arreglo de tarifas es más corto que el rango");
+        }
+        TablaTarifas tabla = TablaTarifas.actual();
+        if (VECTORIAL != null && hasta - desde >= MINIMO_VECTORIAL) {
+            VECTORIAL.calcularTarifas(tabla.tarifasPorKm, tabla.recargosPorKg, tipos, pesos, distancias, tarifas,
+                    desde, hasta);
+        } else {
+            calcularTarifasEscalar(tabla.tarifasPorKm, tabla.recargosPorKg, tipos, pesos, distancias, tarifas,
+                    desde, hasta);
+        }
+    }
+    
+    static void calcularTarifasEscalar(double[] base, double[] recargo, byte[] tipos, double[] pesos,
+                                       double[] distancias, double[] tarifas, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            int tipo = tipos[i];
+            tarifas[i] = (base[tipo] * distancias[i]) + (recargo[tipo] * pesos[i]);
+        }
+    }
+    
+    /**
+     * Suma las tarifas de un rango
+     * @param tipos Ordinal del tipo de cada envío
+     * @param pesos Peso de cada envío en kilogramos
+     * @param distancias Distancia de cada envío en kilómetros
+     * @param desde Primera posición (incluida)
+     * @param hasta Última posición (excluida)
+     * @return Suma compensada de las tarifas
+     */
+    public static double sumarTarifas(byte[] tipos, double[] pesos, double[] distancias, int desde, int hasta) {
+        SumaCompensada total = new SumaCompensada();
+        acumularTarifas(TablaTarifas.actual(), tipos, pesos, distancias, desde, hasta, -1, total);
+        return total.valor();
+    }
+    
+    /**
+     * Suma las tarifas de los envíos de un tipo dentro de un rango
+     * @param tipo Tipo de envío a sumar
+     * @param tipos Ordinal del tipo de cada envío
+     * @param pesos Peso de cada envío en kilogramos
+     * @param distancias Distancia de cada envío en kilómetros
+     * @param desde Primera posición (incluida)
+     * @param hasta Última posición (excluida)
+     * @return Suma compensada de las tarifas del tipo
+     */
+    public static double sumarTarifas(FabricaEnvios.TipoEnvio tipo, byte[] tipos, double[] pesos,
+                                      double[] distancias, int desde, int hasta) {
+        if (tipo == null) {
+            throw new IllegalArgumentException("El tipo de envío no puede ser nulo");
+        }
+        SumaCompensada total = new SumaCompensada();
+        acumularTarifas(TablaTarifas.actual(), tipos, pesos, distancias, desde, hasta, tipo.ordinal(), total);
+        return total.valor();
+    }
+    
+    /**
+     * Suma las tarifas de una secuencia de envíos
+     * Los envíos se copian por bloques a arreglos primitivos y cada bloque se evalúa con
+     * el mismo núcleo que las sumas sobre columnas.
+     * @param envios Envíos a sumar
+     * @return Suma compensada de las tarifas
+     */
+    public static double sumarTarifas(Iterator<? extends Envio> envios) {
+        byte[] tipos = new byte[BLOQUE];
+        double[] pesos = new double[BLOQUE];
+        double[] distancias = new double[BLOQUE];
+        TablaTarifas tabla = TablaTarifas.actual();
+        SumaCompensada total = new SumaCompensada();
+        int llenos = 0;
+        while (envios.hasNext()) {
+            Envio envio = envios.next();
+            tipos[llenos] = (byte) envio.getTipo().ordinal();
+            pesos[llenos] = envio.getPesoKg();
+            distancias[llenos] = envio.getDistanciaKm();
+            if (++llenos == BLOQUE) {
+                acumularTarifas(tabla, tipos, pesos, distancias, 0, llenos, -1, total);
+                llenos = 0;
+            }
+        }
+        acumularTarifas(tabla, tipos, pesos, distancias, 0, llenos, -1, total);
+        return total.valor();
+    }
+    
+    /**
+     * Suma los valores de un rango
+     * @param valores Valores a sumar
+     * @param desde Primera posición (incluida)
+     * @param hasta Última posición (excluida)
+     * @return Suma compensada de los valores
+     */
+    public static double sumar(double[] valores, int desde, int hasta) {
+        if (desde < 0 || hasta > valores.length || desde > hasta) {
+            throw new IndexOutOfBoundsException("Rango inválido: [" + desde + ", " + hasta + ")");
+        }
+        double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+        double c0 = 0.0, c1 = 0.0, c2 = 0.0, c3 = 0.0;
+        int i = desde;
+        for (; i + 3 < hasta; i += 4) {
+            double x0 = valores[i];
+            double x1 = valores[i + 1];
+            double x2 = valores[i + 2];
+            double x3 = valores[i + 3];
+            double t0 = s0 + x0;
+            double t1 = s1 + x1;
+            double t2 = s2 + x2;
+            double t3 = s3 + x3;
+            c0 += Math.abs(s0) >= Math.abs(x0) ? (s0 - t0) + x0 : (x0 - t0) + s0;
+            c1 += Math.abs(s1) >= Math.abs(x1) ? (s1 - t1) + x1 : (x1 - t1) + s1;
+            c2 += Math.abs(s2) >= Math.abs(x2) ? (s2 - t2) + x2 : (x2 - t2) + s2;
+            c3 += Math.abs(s3) >= Math.abs(x3) ? (s3 - t3) + x3 : (x3 - t3) + s3;
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+        }
+        SumaCompensada total = new SumaCompensada();
+        combinar(total, s0, s1, s2, s3, c0, c1, c2, c3);
+        for (; i < hasta; i++) {
+            total.sumar(valores[i]);
+        }
+        return total.valor();
+    }
+    
+    /**
+     * Acumula tarifas en cuatro carriles y vuelca el resultado en el acumulado
+     * @param filtro Ordinal del tipo a sumar o -1 para sumar todos
+     */
+    static void acumularTarifas(TablaTarifas tabla, byte[] tipos, double[] pesos, double[] distancias,
+                                int desde, int hasta, int filtro, SumaCompensada total) {
+        validarRango(tipos, pesos, distancias, desde, hasta);
+        if (VECTORIAL != null && hasta - desde >= MINIMO_VECTORIAL) {
+            VECTORIAL.acumularTarifas(tabla.tarifasPorKm, tabla.recargosPorKg, tipos, pesos, distancias,
+                    desde, hasta, filtro, total);
+        } else {
+            acumularTarifasEscalar(tabla.tarifasPorKm, tabla.recargosPorKg, tipos, pesos, distancias,
+                    desde, hasta, filtro, total);
+        }
+    }
+    
+    static void acumularTarifasEscalar(double[] base, double[] recargo, byte[] tipos, double[] pesos,
+                                       double[] distancias, int desde, int hasta, int filtro,
+                                       SumaCompensada total) {
+        double s0 = 0.0, s1 = 0.0, s2 = 0.0, s3 = 0.0;
+        double c0 = 0.0, c1 = 0.0, c2 = 0.0, c3 = 0.0;
+        int i = desde;
+        for (; i + 3 < hasta; i += 4) {
+            double x0 = tarifa(base, recargo, tipos[i], pesos[i], distancias[i], filtro);
+            double x1 = tarifa(base, recargo, tipos[i + 1], pesos[i + 1], distancias[i + 1], filtro);
+            double x2 = tarifa(base, recargo, tipos[i + 2], pesos[i + 2], distancias[i + 2], filtro);
+            double x3 = tarifa(base, recargo, tipos[i + 3], pesos[i + 3], distancias[i + 3], filtro);
+            double t0 = s0 + x0;
+            double t1 = s1 + x1;
+            double t2 = s2 + x2;
+            double t3 = s3 + x3;
+            c0 += Math.abs(s0) >= Math.abs(x0) ? (s0 - t0) + x0 : (x0 - t0) + s0;
+            c1 += Math.abs(s1) >= Math.abs(x1) ? (s1 - t1) + x1 : (x1 - t1) + s1;
+            c2 += Math.abs(s2) >= Math.abs(x2) ? (s2 - t2) + x2 : (x2 - t2) + s2;
+            c3 += Math.abs(s3) >= Math.abs(x3) ? (s3 - t3) + x3 : (x3 - t3) + s3;
+            s0 = t0;
+            s1 = t1;
+            s2 = t2;
+            s3 = t3;
+        }
+        combinar(total, s0, s1, s2, s3, c0, c1, c2, c3);
+        for (; i < hasta; i++) {
+            total.sumar(tarifa(base, recargo, tipos[i], pesos[i], distancias[i], filtro));
+        }
+    }
+    
+    private static double tarifa(double[] base, double[] recargo, int tipo, double peso, double distancia,
+                                 int filtro) {
+        if (filtro >= 0 && tipo != filtro) {
+            return 0.0;
+        }
+        return (base[tipo] * distancia) + (recargo[tipo] * peso);
+    }
+    
+    private static void combinar(SumaCompensada total, double s0, double s1, double s2, double s3,
+                                 double c0, double c1, double c2, double c3) {
+        total.sumar(s0);
+        total.sumar(s1);
+        total.sumar(s2);
+        total.sumar(s3);
+        total.sumar(c0 + c1 + c2 + c3);
+    }
+    
+    /**
+     * Núcleo vectorial disponible, o null para usar los bucles escalares
+     * @return Instancia de KernelTarifasVectorial o null
+     */
+    static Nucleo nucleoVectorial() {
+        return VECTORIAL;
+    }
+    
+    /**
+     * Carga KernelTarifasVectorial por nombre si se compiló y el módulo del Vector API está
+     * presente (así esta clase compila y corre sin --add-modules)
+     */
+    private static Nucleo cargarNucleoVectorial() {
+        if (!Boolean.parseBoolean(System.getProperty("tarifas.vectorial", "true"))
+                || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return null;
+        }
+        try {
+            return (Nucleo) Class.forName("KernelTarifasVectorial").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+    
+    private static void validarRango(byte[] tipos, double[] pesos, double[] distancias, int desde, int hasta) {
+        if (desde < 0 || desde > hasta || hasta > tipos.length || hasta > pesos.length
+                || hasta > distancias.length) {
+            throw new IndexOutOfBoundsException("Rango inválido: [" + desde + ", " + hasta + ")");
+        }
+    }
+}
+
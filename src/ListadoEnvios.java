@@ -0,0 +1,126 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+
+/**
+ * Listado de texto de los envíos, con el mismo formato del menú de consola
+ * Cada línea se arma en un StringBuilder reutilizado con FormateadorEnvios y se copia a
+ * un arreglo de caracteres también reutilizado, así que no se crea un String por envío.
+ * El listado pasa por un solo BufferedWriter grande que se vacía al terminar, en lugar de
+ * un println (con su vaciado) por envío. Se puede listar una página del total.
+ * Principio S (Single Responsibility): Solo escribe listados de envíos
+ * Principio D (Dependency Inversion): Lee los envíos a través de IServicioLogistica
+ */
+public class ListadoEnvios {
+    /** Tamaño del búfer de salida en caracteres */
+    public static final int TAMANO_BUFER = 1 << 16;
+    /** Envíos por página cuando no se indica otro tamaño */
+    public static final int TAMANO_PAGINA_POR_DEFECTO = 50;
+    
+    private static final String SEPARADOR = "========================================";
+    private static final String FIN_LINEA = System.lineSeparator();
+    
+    private final IServicioLogistica servicio;
+    
+    /**
+     * Constructor con inyección de dependencias
+     * @param servicio Servicio de logística
+     */
+    public ListadoEnvios(IServicioLogistica servicio) {
+        if (servicio == null) {
+            throw new IllegalArgumentException("El servicio de logística no puede ser nulo");
+        }
+        this.servicio = servicio;
+    }
+    
+    /**
+     * Crea un escritor con búfer sobre la salida estándar (no se debe cerrar, solo vaciar)
+     * Usa la misma codificación que System.out
+     * @return Escritor sobre la salida estándar
+     */
+    public static Writer salidaEstandar() {
+        String codificacion = System.getProperty("stdout.encoding", System.getProperty("sun.stdout.encoding"));
+        Charset charset = codificacion != null && Charset.isSupported(codificacion)
+                ? Charset.forName(codificacion) : Charset.defaultCharset();
+        return new BufferedWriter(new OutputStreamWriter(System.out, charset), TAMANO_BUFER);
+    }
+    
+    /**
+     * Escribe el listado de todos los envíos y vacía la salida
+     * @param salida Donde se escribe el listado
+     * @return Cantidad de envíos listados
+     * @throws IOException si no se puede escribir
+     */
+    public long escribir(Writer salida) throws IOException {
+        return escribir(salida, 0, Long.MAX_VALUE, null);
+    }
+    
+    /**
+     * Escribe una página del listado y vacía la salida
+     * Los envíos conservan su número dentro del listado completo
+     * @param salida Donde se escribe el listado
+     * @param pagina Número de página, desde 1
+     * @param tamanoPagina Envíos por página
+     * @return Cantidad de envíos listados en la página
+     * @throws IOException si no se puede escribir
+     */
+    public long escribirPagina(Writer salida, int pagina, int tamanoPagina) throws IOException {
+        if (pagina < 1) {
+            throw new IllegalArgumentException("La página debe ser mayor que cero: " + pagina);
+        }
+        if (tamanoPagina < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que cero: " + tamanoPagina);
+        }
+        int total = servicio.obtenerCantidadEnvios();
+        long paginas = Math.max(1, (total + (long) tamanoPagina - 1) / tamanoPagina);
+        return escribir(salida, (long) (pagina - 1) * tamanoPagina, tamanoPagina,
+                "Página " + pagina + " de " + paginas + " (" + tamanoPagina + " envíos por página)");
+    }
+    
+    private long escribir(Writer salida, long desde, long cantidad, String pagina) throws IOException {
+        salida.write(FIN_LINEA);
+        escribirLinea(salida, SEPARADOR);
+        escribirLinea(salida, "         LISTADO DE ENVÍOS");
+        escribirLinea(salida, SEPARADOR);
+        
+        StringBuilder linea = new StringBuilder(160);
+        char[] caracteres = new char[160];
+        long numero = 0;
+        long listados = 0;
+        Iterator<Envio> envios = servicio.flujoEnvios().iterator();
+        while (envios.hasNext() && listados < cantidad) {
+            Envio envio = envios.next();
+            numero++;
+            if (numero <= desde) {
+                continue;
+            }
+            linea.setLength(0);
+            linea.append(numero).append(". ");
+            FormateadorEnvios.agregarEnvio(linea, envio).append(FIN_LINEA);
+            if (linea.length() > caracteres.length) {
+                caracteres = new char[linea.length() * 2];
+            }
+            linea.getChars(0, linea.length(), caracteres, 0);
+            salida.write(caracteres, 0, linea.length());
+            listados++;
+        }
+        
+        escribirLinea(salida, SEPARADOR);
+        if (pagina != null) {
+            escribirLinea(salida, pagina);
+        }
+        escribirLinea(salida, "Total de envíos: " + (pagina != null ? servicio.obtenerCantidadEnvios() : listados));
+        salida.write(String.format("Total en tarifas: $%.2f\n", servicio.calcularTotalTarifas()));
+        salida.flush();
+        return listados;
+    }
+    
+    private static void escribirLinea(Writer salida, String texto) throws IOException {
+        salida.write(texto);
+        salida.write(FIN_LINEA);
+    }
+}
+
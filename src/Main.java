@@ -1,4 +1,10 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Scanner;
+import javax.management.JMException;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
@@ -12,9 +18,104 @@ public class Main {
     private static IServicioLogistica servicioLogistica;
     
     public static void main(String[] args) {
+        try {
+            DiccionarioClientes.modoConfigurado();
+        } catch (IllegalArgumentException e) {
+            System.out.println("\n*** " + e.getMessage() + "; se usa fuerte ***");
+        }
+        int inicio = 0;
+        if (args.length > 1 && args[0].equals("--tarifas")) {
+            if (!cargarTarifas(Paths.get(args[1]))) {
+                return;
+            }
+            inicio = 2;
+        }
+        if (args.length > inicio && args[inicio].equals("--servidor")) {
+            ejecutarServidor(args.length > inicio + 1 ? Integer.parseInt(args[inicio + 1]) : 8080);
+            return;
+        }
+        if (args.length > inicio + 1 && args[inicio].equals("--listar")) {
+            int pagina = args.length > inicio + 2 ? Integer.parseInt(args[inicio + 2]) : 0;
+            int tamano = args.length > inicio + 3 ? Integer.parseInt(args[inicio + 3]) : ListadoEnvios.TAMANO_PAGINA_POR_DEFECTO;
+            listarArchivo(Paths.get(args[inicio + 1]), pagina, tamano);
+            return;
+        }
         mostrarMenuPrincipal();
     }
     
+    /**
+     * Publica las tarifas de un archivo y lo vigila para recargarlo cuando cambie
+     * (java Main --tarifas tarifas.properties [--servidor puerto])
+     * @param archivo Archivo .properties de tarifas
+     * @return true si las tarifas se cargaron
+     */
+    private static boolean cargarTarifas(Path archivo) {
+        try {
+            System.out.println(TablaTarifas.recargar(archivo));
+            TablaTarifas.vigilar(archivo);
+            return true;
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("\n*** Error al cargar las tarifas: " + e.getMessage() + " ***");
+            return false;
+        }
+    }
+    
+    /**
+     * Ejecuta el servidor HTTP/JSON sin interfaz (java Main --servidor [puerto]); las métricas
+     * del servicio se publican en JMX, en GET /metricas y en la salida al detenerlo
+     * @param puerto Puerto en el que escucha
+     */
+    private static void ejecutarServidor(int puerto) {
+        scanner.close();
+        IRepositorioEnvios repositorio = new RepositorioEnviosConIndices(new RepositorioEnviosConcurrente());
+        ServicioLogisticaInstrumentado servicio = new ServicioLogisticaInstrumentado(new ServicioLogistica(repositorio));
+        ServidorLogistica servidor = new ServidorLogistica(servicio);
+        try {
+            servicio.getMetricas().registrarJmx("servidor");
+        } catch (JMException e) {
+            System.out.println("\n*** No se pudieron publicar las métricas en JMX: " + e.getMessage() + " ***");
+        }
+        try {
+            int puertoAsignado = servidor.iniciar(new InetSocketAddress(puerto));
+            System.out.println("Servidor de logística escuchando en el puerto " + puertoAsignado
+                    + (ServidorLogistica.usaHilosVirtuales() ? " (hilos virtuales)" : ""));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                servidor.detener(1);
+                System.out.print(servicio.getMetricas().volcarTexto());
+            }));
+        } catch (IOException e) {
+            System.out.println("\n*** Error al iniciar el servidor: " + e.getMessage() + " ***");
+        }
+    }
+    
+    /**
+     * Importa un archivo CSV y escribe su listado en la salida estándar, sin menú
+     * (java Main --listar envios.csv [pagina [tamaño]]); el resumen de la importación se
+     * escribe en la salida de error para que la salida estándar sea solo el listado
+     * @param archivo Archivo CSV a listar
+     * @param pagina Página a listar, desde 1 (0 lista todos los envíos)
+     * @param tamanoPagina Envíos por página
+     */
+    private static void listarArchivo(Path archivo, int pagina, int tamanoPagina) {
+        scanner.close();
+        servicioLogistica = new ServicioLogistica(new RepositorioEnviosIndexado());
+        Path rechazos = Paths.get(archivo + ".rechazos");
+        try {
+            ResultadoImportacion resultado = new ImportadorCsv(servicioLogistica).importar(archivo, rechazos);
+            System.err.println(resultado);
+            if (resultado.getRechazados() > 0) {
+                System.err.println("Líneas rechazadas en: " + rechazos);
+            }
+            if (pagina > 0) {
+                new ListadoEnvios(servicioLogistica).escribirPagina(ListadoEnvios.salidaEstandar(), pagina, tamanoPagina);
+            } else {
+                listarEnvios();
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.out.println("\n*** Error al listar: " + e.getMessage() + " ***");
+        }
+    }
+    
     /**
      * Muestra el menú principal para seleccionar el modo de operación
      */
@@ -72,7 +173,7 @@ public class Main {
      */
     private static void ejecutarInterfazConsola() {
         // Inicializar servicios con inyección de dependencias
-        IRepositorioEnvios repositorio = new RepositorioEnvios();
+        IRepositorioEnvios repositorio = new RepositorioEnviosIndexado();
         servicioLogistica = new ServicioLogistica(repositorio);
         
         int opcion;
@@ -92,13 +193,16 @@ public class Main {
                     listarEnvios();
                     break;
                 case 4:
+                    importarEnvios();
+                    break;
+                case 5:
                     System.out.println("\n*** Gracias por usar el sistema de logística ***");
                     break;
                 default:
                     System.out.println("\n*** Opción inválida. Intente nuevamente ***");
             }
             
-        } while (opcion != 4);
+        } while (opcion != 5);
         
         scanner.close();
         System.out.println("\n*** Presione Enter para continuar ***");
@@ -114,7 +218,8 @@ public class Main {
         System.out.println("1. Agregar envío");
         System.out.println("2. Retirar envío");
         System.out.println("3. Listar envíos");
-        System.out.println("4. Salir");
+        System.out.println("4. Importar envíos desde CSV");
+        System.out.println("5. Salir");
         System.out.println("========================================");
         System.out.print("Seleccione una opción: ");
     }
@@ -154,9 +259,12 @@ public class Main {
         
         // Seleccionar tipo de envío
         System.out.println("\nSeleccione el tipo de envío:");
-        System.out.println("1. Terrestre ($1500/km + $2000/kg)");
-        System.out.println("2. Aéreo ($5000/km + $4000/kg)");
-        System.out.println("3. Marítimo ($800/km + $1000/kg)");
+        TablaTarifas tarifas = TablaTarifas.actual();
+        FabricaEnvios.TipoEnvio[] tipos = FabricaEnvios.TipoEnvio.values();
+        for (int i = 0; i < tipos.length; i++) {
+            System.out.printf("%d. %s ($%.0f/km + $%.0f/kg)\n", i + 1, tipos[i].getNombre(),
+                    tarifas.getTarifaPorKm(tipos[i]), tarifas.getRecargoPorKg(tipos[i]));
+        }
         System.out.print("Opción: ");
         
         int tipoEnvio = leerOpcion();
@@ -201,7 +309,7 @@ public class Main {
         System.out.println("           RETIRAR ENVÍO");
         System.out.println("========================================");
         
-        if (servicioLogistica.listarEnvios().isEmpty()) {
+        if (servicioLogistica.obtenerCantidadEnvios() == 0) {
             System.out.println("\n*** No hay envíos registrados ***");
             return;
         }
@@ -228,26 +336,47 @@ public class Main {
         }
     }
     
+    /**
+     * Importa envíos desde un archivo CSV (tipo,cliente,codigo,peso,distancia)
+     */
+    private static void importarEnvios() {
+        System.out.println("\n========================================");
+        System.out.println("       IMPORTAR ENVÍOS DESDE CSV");
+        System.out.println("========================================");
+        
+        System.out.print("Ruta del archivo CSV: ");
+        Path archivo = Paths.get(scanner.nextLine().trim());
+        Path rechazos = Paths.get(archivo + ".rechazos");
+        
+        try {
+            ResultadoImportacion resultado = new ImportadorCsv(servicioLogistica).importar(archivo, rechazos);
+            System.out.println("\n*** Importación finalizada ***");
+            System.out.println(resultado);
+            System.out.println(DiccionarioClientes.global());
+            if (resultado.getRechazados() > 0) {
+                System.out.println("Líneas rechazadas en: " + rechazos);
+            }
+        } catch (IOException e) {
+            System.out.println("\n*** Error al importar: " + e.getMessage() + " ***");
+        }
+    }
+    
     /**
      * Lista todos los envíos registrados
      */
     private static void listarEnvios() {
-        if (servicioLogistica.listarEnvios().isEmpty()) {
+        if (servicioLogistica.obtenerCantidadEnvios() == 0) {
             System.out.println("\n*** No hay envíos registrados ***");
             return;
         }
         
-        System.out.println("\n========================================");
-        System.out.println("         LISTADO DE ENVÍOS");
-        System.out.println("========================================");
-        int i = 1;
-        for (Envio envio : servicioLogistica.listarEnvios()) {
-            System.out.println(i + ". " + envio);
-            i++;
+        // Un solo búfer grande para todo el listado (no se cierra: cerraría System.out)
+        Writer salida = ListadoEnvios.salidaEstandar();
+        try {
+            new ListadoEnvios(servicioLogistica).escribir(salida);
+        } catch (IOException e) {
+            System.out.println("\n*** Error al listar: " + e.getMessage() + " ***");
         }
-        System.out.println("========================================");
-        System.out.println("Total de envíos: " + servicioLogistica.listarEnvios().size());
-        System.out.printf("Total en tarifas: $%.2f\n", servicioLogistica.calcularTotalTarifas());
     }
     
     /**
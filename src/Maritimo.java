@@ -1,15 +1,13 @@
 /**
  * Clase que representa un envío marítimo
- * Tarifa base: $800 por km
- * Recargo: $1000 por kg
+ * Tarifa base por defecto: $800 por km
+ * Recargo por defecto: $1000 por kg
+ * (los precios vigentes se leen de TablaTarifas)
  * Principio S (Single Responsibility): Solo maneja lógica de envío marítimo
  * Principio O (Open/Closed): Extiende sin modificar la clase base
  * Principio L (Liskov Substitution): Sustituible por Envio
  */
 public class Maritimo extends Envio {
-    private static final double TARIFA_BASE_POR_KM = 800.0;
-    private static final double RECARGO_POR_KG = 1000.0;
-    
     /**
      * Constructor de Envio Marítimo
      * @param cliente Nombre del remitente
@@ -23,12 +21,27 @@ public class Maritimo extends Envio {
     
     @Override
     public double calcularTarifa() {
-        return (TARIFA_BASE_POR_KM * distanciaKm) + (RECARGO_POR_KG * pesoKg);
+        return calcularTarifa(pesoKg, distanciaKm);
+    }
+    
+    /**
+     * Calcula la tarifa de un envío marítimo a partir de sus valores primitivos
+     * @param pesoKg Peso en kilogramos
+     * @param distanciaKm Distancia en kilómetros
+     * @return Tarifa total calculada
+     */
+    public static double calcularTarifa(double pesoKg, double distanciaKm) {
+        return TablaTarifas.actual().calcular(FabricaEnvios.TipoEnvio.MARITIMO, pesoKg, distanciaKm);
     }
     
     @Override
     public String getTipoEnvio() {
         return "Marítimo";
     }
+    
+    @Override
+    public FabricaEnvios.TipoEnvio getTipo() {
+        return FabricaEnvios.TipoEnvio.MARITIMO;
+    }
 }
 
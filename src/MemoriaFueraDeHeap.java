@@ -0,0 +1,235 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memoria fuera del heap direccionable con posiciones long
+ * Se compone de bloques ByteBuffer del mismo tamaño (potencia de dos), directos o
+ * mapeados desde un archivo, así que supera el límite de 2 GB de un solo ByteBuffer y
+ * crecer no copia los datos: mientras la memoria cabe en un bloque, el bloque se reemplaza
+ * por uno del doble; después se agregan bloques completos. En el heap solo quedan las
+ * referencias a los bloques. Los valores usan el orden de bytes nativo.
+ *
+ * La memoria directa se devuelve al sistema cuando el recolector libera sus ByteBuffer
+ * (no se puede liberar de forma explícita sin la API de memoria externa de Java 22); su
+ * tope es -XX:MaxDirectMemorySize, que por omisión es igual al heap máximo. La memoria
+ * mapeada no cuenta para ese tope y la respalda el archivo.
+ * No es segura para varios hilos si alguno escribe o la hace crecer.
+ * Principio S (Single Responsibility): Solo reserva y accede a memoria fuera del heap
+ */
+public final class MemoriaFueraDeHeap implements Closeable {
+    /** Tamaño máximo de un bloque en bytes */
+    public static final int TAMANO_BLOQUE_MAXIMO = 1 << 26;
+    
+    private static final int TAMANO_BLOQUE_MINIMO = 1 << 12;
+    
+    private final FileChannel canal;
+    private ByteBuffer[] bloques;
+    private int cantidadBloques;
+    private int desplazamiento;
+    private int mascara;
+    
+    private MemoriaFueraDeHeap(FileChannel canal, long bytes) {
+        this.canal = canal;
+        this.bloques = new ByteBuffer[0];
+        int tamanoBloque = tamanoBloquePara(bytes);
+        this.desplazamiento = Integer.numberOfTrailingZeros(tamanoBloque);
+        this.mascara = tamanoBloque - 1;
+        asegurar(bytes);
+    }
+    
+    /**
+     * Reserva memoria directa (puesta en cero)
+     * @param bytes Capacidad inicial en bytes
+     * @return Memoria directa
+     */
+    public static MemoriaFueraDeHeap directa(long bytes) {
+        return new MemoriaFueraDeHeap(null, bytes);
+    }
+    
+    /**
+     * Mapea un archivo como memoria; el archivo se crea o se vacía (las partes nuevas se leen
+     * en cero) y crece junto con la memoria
+     * @param archivo Archivo que respalda la memoria
+     * @param bytes Capacidad inicial en bytes
+     * @param temporal true para borrar el archivo al cerrar la memoria
+     * @return Memoria mapeada
+     * @throws UncheckedIOException si no se puede abrir el archivo
+     */
+    public static MemoriaFueraDeHeap mapeada(Path archivo, long bytes, boolean temporal) {
+        try {
+            FileChannel canal = temporal
+                    ? FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)
+                    : FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                            StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new MemoriaFueraDeHeap(canal, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo mapear el archivo " + archivo, e);
+        }
+    }
+    
+    /**
+     * Capacidad actual en bytes
+     * @return Bytes direccionables
+     */
+    public long capacidad() {
+        return (long) cantidadBloques << desplazamiento;
+    }
+    
+    /**
+     * Amplía la memoria hasta al menos la cantidad de bytes dada, conservando los datos
+     * @param bytes Capacidad requerida en bytes
+     */
+    public void asegurar(long bytes) {
+        if (bytes <= capacidad()) {
+            return;
+        }
+        if (cantidadBloques <= 1 && mascara + 1 < TAMANO_BLOQUE_MAXIMO) {
+            // Un solo bloque: se reemplaza por uno más grande hasta el tamaño máximo
+            int tamano = Math.max(mascara + 1, tamanoBloquePara(bytes));
+            while (tamano < bytes && tamano < TAMANO_BLOQUE_MAXIMO) {
+                tamano <<= 1;
+            }
+            ByteBuffer nuevo = reservar(0, tamano);
+            if (cantidadBloques == 1 && canal == null) {
+                nuevo.put(0, bloques[0], 0, mascara + 1);
+            }
+            bloques = new ByteBuffer[] {nuevo};
+            cantidadBloques = 1;
+            desplazamiento = Integer.numberOfTrailingZeros(tamano);
+            mascara = tamano - 1;
+            if (bytes <= tamano) {
+                return;
+            }
+        }
+        long necesarios = (bytes + mascara) >>> desplazamiento;
+        if (necesarios > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Capacidad fuera de rango: " + bytes);
+        }
+        if (necesarios > bloques.length) {
+            bloques = Arrays.copyOf(bloques, (int) Math.max(necesarios, bloques.length * 2L));
+        }
+        while (cantidadBloques < necesarios) {
+            bloques[cantidadBloques] = reservar((long) cantidadBloques << desplazamiento, mascara + 1);
+            cantidadBloques++;
+        }
+    }
+    
+    public long getLong(long posicion) {
+        return bloques[(int) (posicion >>> desplazamiento)].getLong((int) posicion & mascara);
+    }
+    
+    public void putLong(long posicion, long valor) {
+        bloques[(int) (posicion >>> desplazamiento)].putLong((int) posicion & mascara, valor);
+    }
+    
+    public double getDouble(long posicion) {
+        return bloques[(int) (posicion >>> desplazamiento)].getDouble((int) posicion & mascara);
+    }
+    
+    public void putDouble(long posicion, double valor) {
+        bloques[(int) (posicion >>> desplazamiento)].putDouble((int) posicion & mascara, valor);
+    }
+    
+    public int getInt(long posicion) {
+        return bloques[(int) (posicion >>> desplazamiento)].getInt((int) posicion & mascara);
+    }
+    
+    public void putInt(long posicion, int valor) {
+        bloques[(int) (posicion >>> desplazamiento)].putInt((int) posicion & mascara, valor);
+    }
+    
+    public short getShort(long posicion) {
+        return bloques[(int) (posicion >>> desplazamiento)].getShort((int) posicion & mascara);
+    }
+    
+    public void putShort(long posicion, short valor) {
+        bloques[(int) (posicion >>> desplazamiento)].putShort((int) posicion & mascara, valor);
+    }
+    
+    public byte get(long posicion) {
+        return bloques[(int) (posicion >>> desplazamiento)].get((int) posicion & mascara);
+    }
+    
+    public void put(long posicion, byte valor) {
+        bloques[(int) (posicion >>> desplazamiento)].put((int) posicion & mascara, valor);
+    }
+    
+    /**
+     * Bloque que contiene una posición, para recorridos que leen muchos valores seguidos
+     * @param posicion Posición en la memoria
+     * @return Bloque (se lee con posiciones relativas, ver enBloque)
+     */
+    ByteBuffer bloque(long posicion) {
+        return bloques[(int) (posicion >>> desplazamiento)];
+    }
+    
+    /**
+     * Posición relativa dentro de su bloque
+     * @param posicion Posición en la memoria
+     * @return Posición dentro del bloque
+     */
+    int enBloque(long posicion) {
+        return (int) posicion & mascara;
+    }
+    
+    /**
+     * Bytes desde una posición hasta el final de su bloque
+     * @param posicion Posición en la memoria
+     * @return Bytes restantes del bloque
+     */
+    int restanteEnBloque(long posicion) {
+        return mascara + 1 - ((int) posicion & mascara);
+    }
+    
+    /**
+     * Copia un rango dentro de la memoria (los rangos no deben superponerse)
+     * @param origen Posición de origen
+     * @param destino Posición de destino
+     * @param bytes Cantidad de bytes (el rango no debe cruzar el límite de un bloque)
+     */
+    public void copiar(long origen, long destino, int bytes) {
+        ByteBuffer bloqueOrigen = bloques[(int) (origen >>> desplazamiento)];
+        bloques[(int) (destino >>> desplazamiento)].put((int) destino & mascara, bloqueOrigen,
+                (int) origen & mascara, bytes);
+    }
+    
+    /**
+     * Suelta los bloques y, si es mapeada, cierra el archivo
+     * @throws IOException si no se puede cerrar el archivo
+     */
+    @Override
+    public void close() throws IOException {
+        bloques = new ByteBuffer[0];
+        cantidadBloques = 0;
+        if (canal != null) {
+            canal.close();
+        }
+    }
+    
+    private ByteBuffer reservar(long inicio, int tamano) {
+        if (canal == null) {
+            return ByteBuffer.allocateDirect(tamano).order(ByteOrder.nativeOrder());
+        }
+        try {
+            return canal.map(FileChannel.MapMode.READ_WRITE, inicio, tamano).order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo ampliar el archivo mapeado", e);
+        }
+    }
+    
+    private static int tamanoBloquePara(long bytes) {
+        if (bytes >= TAMANO_BLOQUE_MAXIMO) {
+            return TAMANO_BLOQUE_MAXIMO;
+        }
+        return Math.max(TAMANO_BLOQUE_MINIMO, Integer.highestOneBit((int) Math.max(1, bytes - 1)) << 1);
+    }
+}
+
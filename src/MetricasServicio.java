@@ -0,0 +1,240 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Métricas de las operaciones del servicio de logística
+ * Por operación cuenta llamadas, errores (excepciones) y rechazos (resultado negativo) con
+ * contadores LongAdder, que reparten las actualizaciones concurrentes en celdas, y guarda
+ * un HistogramaLatencias. Leer el reloj (System.nanoTime) cuesta de 20 a 50 ns según la
+ * máquina, así que la latencia se mide en una de cada intervaloMuestreo llamadas, elegida
+ * al azar; los conteos incluyen todas las llamadas.
+ * Principio S (Single Responsibility): Solo acumula y publica métricas
+ * Principio D (Dependency Inversion): Se consulta a través de IMetricasServicio
+ */
+public class MetricasServicio implements IMetricasServicio {
+    /** Intervalo de muestreo por defecto: se mide la latencia de una de cada 8 llamadas */
+    public static final int INTERVALO_MUESTREO_POR_DEFECTO = 8;
+    
+    private static final String DOMINIO_JMX = "logistica";
+    
+    /**
+     * Operaciones instrumentadas del servicio
+     */
+    public enum Operacion {
+        AGREGAR_ENVIO("agregarEnvio"),
+        RETIRAR_ENVIO("retirarEnvio"),
+        BUSCAR_ENVIO("buscarEnvio"),
+        AGREGAR_LOTE("agregarLote"),
+        RETIRAR_LOTE("retirarLote"),
+        LISTAR_ENVIOS("listarEnvios"),
+        BUSCAR_POR_CLIENTE("buscarEnviosPorCliente"),
+        BUSCAR_POR_TIPO("buscarEnviosPorTipo"),
+        LISTAR_MAYORES_COSTOS("listarMayoresCostos"),
+        CALCULAR_TOTAL_TARIFAS("calcularTotalTarifas"),
+        RECALCULAR_TOTAL_TARIFAS("recalcularTotalTarifas"),
+        GENERAR_REPORTE("generarReporte");
+        
+        private final String metodo;
+        
+        Operacion(String metodo) {
+            this.metodo = metodo;
+        }
+        
+        public String getMetodo() {
+            return metodo;
+        }
+    }
+    
+    private final MetricasOperacion[] operaciones;
+    private final int intervaloMuestreo;
+    private ObjectName nombreJmx;
+    
+    /**
+     * Constructor con el intervalo de muestreo por defecto
+     */
+    public MetricasServicio() {
+        this(INTERVALO_MUESTREO_POR_DEFECTO);
+    }
+    
+    /**
+     * Constructor con intervalo de muestreo
+     * @param intervaloMuestreo Se mide una de cada intervaloMuestreo llamadas (potencia de 2; 1 mide todas)
+     */
+    public MetricasServicio(int intervaloMuestreo) {
+        if (intervaloMuestreo < 1 || Integer.bitCount(intervaloMuestreo) != 1) {
+            throw new IllegalArgumentException("El intervalo de muestreo debe ser una potencia de 2: " + intervaloMuestreo);
+        }
+        this.intervaloMuestreo = intervaloMuestreo;
+        Operacion[] todas = Operacion.values();
+        this.operaciones = new MetricasOperacion[todas.length];
+        for (int i = 0; i < todas.length; i++) {
+            operaciones[i] = new MetricasOperacion(intervaloMuestreo - 1);
+        }
+    }
+    
+    /**
+     * Obtiene los contadores de una operación
+     * @param operacion Operación del servicio
+     * @return Contadores de la operación
+     */
+    MetricasOperacion de(Operacion operacion) {
+        return operaciones[operacion.ordinal()];
+    }
+    
+    /**
+     * Obtiene una instantánea de una operación
+     * @param operacion Operación del servicio
+     * @return Resumen de la operación
+     */
+    public ResumenOperacion resumen(Operacion operacion) {
+        return operaciones[operacion.ordinal()].resumen(operacion.getMetodo());
+    }
+    
+    @Override
+    public List<ResumenOperacion> getOperaciones() {
+        List<ResumenOperacion> resumenes = new ArrayList<>(operaciones.length);
+        for (Operacion operacion : Operacion.values()) {
+            resumenes.add(resumen(operacion));
+        }
+        return resumenes;
+    }
+    
+    @Override
+    public int getIntervaloMuestreo() {
+        return intervaloMuestreo;
+    }
+    
+    @Override
+    public String volcarTexto() {
+        StringBuilder texto = new StringBuilder(2048);
+        texto.append(String.format("%-24s %12s %8s %10s %10s %10s %10s %10s %10s %10s%n", "Operación", "Llamadas",
+                "Errores", "Rechazos", "Muestras", "Prom µs", "p50 µs", "p99 µs", "p99.9 µs", "Máx µs"));
+        for (ResumenOperacion r : getOperaciones()) {
+            texto.append(String.format("%-24s %12d %8d %10d %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                    r.getOperacion(), r.getLlamadas(), r.getErrores(), r.getRechazos(), r.getMuestras(),
+                    r.getPromedioNanos() / 1e3, r.getP50Nanos() / 1e3, r.getP99Nanos() / 1e3,
+                    r.getP999Nanos() / 1e3, r.getMaximoNanos() / 1e3));
+        }
+        return texto.append("Latencia medida en 1 de cada ").append(intervaloMuestreo).append(" llamadas")
+                    .append(System.lineSeparator()).toString();
+    }
+    
+    @Override
+    public void reiniciar() {
+        for (MetricasOperacion operacion : operaciones) {
+            operacion.reiniciar();
+        }
+    }
+    
+    /**
+     * Publica las métricas en el servidor de MBeans de la plataforma
+     * @param nombre Nombre que distingue este servicio (valor de la clave name)
+     * @return Nombre JMX con el que se registró
+     * @throws JMException si el nombre no es válido o ya está registrado
+     * @throws IllegalStateException si ya estaba publicada
+     */
+    public synchronized ObjectName registrarJmx(String nombre) throws JMException {
+        if (nombreJmx != null) {
+            throw new IllegalStateException("Las métricas ya están publicadas como " + nombreJmx);
+        }
+        ObjectName objeto = new ObjectName(DOMINIO_JMX + ":type=MetricasServicio,name=" + ObjectName.quote(nombre));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objeto);
+        nombreJmx = objeto;
+        return objeto;
+    }
+    
+    /**
+     * Retira las métricas del servidor de MBeans (no hace nada si no estaban publicadas)
+     * @throws JMException si no se pueden retirar
+     */
+    public synchronized void desregistrarJmx() throws JMException {
+        if (nombreJmx == null) {
+            return;
+        }
+        MBeanServer servidor = ManagementFactory.getPlatformMBeanServer();
+        if (servidor.isRegistered(nombreJmx)) {
+            servidor.unregisterMBean(nombreJmx);
+        }
+        nombreJmx = null;
+    }
+    
+    @Override
+    public String toString() {
+        return volcarTexto();
+    }
+    
+    /**
+     * Contadores e histograma de una operación
+     */
+    static final class MetricasOperacion {
+        /** Inicio de una llamada que no se mide */
+        static final long SIN_MUESTRA = Long.MIN_VALUE;
+        
+        private final LongAdder llamadas = new LongAdder();
+        private final LongAdder errores = new LongAdder();
+        private final LongAdder rechazos = new LongAdder();
+        private final HistogramaLatencias latencias = new HistogramaLatencias();
+        private final int mascaraMuestreo;
+        
+        MetricasOperacion(int mascaraMuestreo) {
+            this.mascaraMuestreo = mascaraMuestreo;
+        }
+        
+        /**
+         * Cuenta una llamada y decide si se mide
+         * @return Instante de inicio, o SIN_MUESTRA si la llamada no se mide
+         */
+        long iniciar() {
+            llamadas.increment();
+            if (mascaraMuestreo != 0 && (ThreadLocalRandom.current().nextInt() & mascaraMuestreo) != 0) {
+                return SIN_MUESTRA;
+            }
+            return System.nanoTime();
+        }
+        
+        /**
+         * Registra la latencia de una llamada medida
+         * @param inicio Valor devuelto por iniciar
+         */
+        void terminar(long inicio) {
+            if (inicio != SIN_MUESTRA) {
+                latencias.registrar(System.nanoTime() - inicio);
+            }
+        }
+        
+        void rechazar() {
+            rechazos.increment();
+        }
+        
+        void rechazar(long cantidad) {
+            if (cantidad > 0) {
+                rechazos.add(cantidad);
+            }
+        }
+        
+        void fallar() {
+            errores.increment();
+        }
+        
+        void reiniciar() {
+            llamadas.reset();
+            errores.reset();
+            rechazos.reset();
+            latencias.reiniciar();
+        }
+        
+        ResumenOperacion resumen(String nombre) {
+            HistogramaLatencias.Instantanea instantanea = latencias.instantanea();
+            return new ResumenOperacion(nombre, llamadas.sum(), errores.sum(), rechazos.sum(),
+                    instantanea.getCantidad(), instantanea.getPromedio(), instantanea.percentil(50),
+                    instantanea.percentil(99), instantanea.percentil(99.9), instantanea.getMaximo());
+        }
+    }
+}
+
@@ -0,0 +1,450 @@
+import java.util.Arrays;
+import java.util.Iterator;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Modelo de tabla virtual sobre los envíos del servicio de logística
+ * No copia los envíos ni arma filas de texto: guarda solo el código de cada fila y lee
+ * el envío del servicio (búsqueda por código) cuando la tabla pide una celda, así que
+ * solo se formatean las celdas visibles. Agregar y retirar pasan por el modelo, que
+ * actualiza el servicio y avisa a la tabla con eventos de una sola fila.
+ *
+ * El orden se aplica con un arreglo de posiciones (fila visible -> fila del modelo) que
+ * se ordena por la columna elegida; los códigos no se mueven. Con un orden aplicado, los
+ * envíos nuevos se muestran al final hasta que se vuelve a ordenar.
+ * Debe usarse desde el hilo de eventos de Swing, salvo calcularOrden. Para cargar sin
+ * bloquear el hilo de eventos, el modelo se crea vacío y las filas se agregan por bloques
+ * (agregarFilas) a medida que una tarea en segundo plano lee el servicio.
+ * Principio S (Single Responsibility): Solo adapta el servicio a una JTable
+ * Principio D (Dependency Inversion): Depende de IServicioLogistica
+ */
+public class ModeloTablaEnvios extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNAS = {"Tipo", "Código", "Cliente", "Peso", "Distancia", "Costo"};
+    
+    /** Índices de las columnas */
+    public static final int COLUMNA_TIPO = 0;
+    public static final int COLUMNA_CODIGO = 1;
+    public static final int COLUMNA_CLIENTE = 2;
+    public static final int COLUMNA_PESO = 3;
+    public static final int COLUMNA_DISTANCIA = 4;
+    public static final int COLUMNA_COSTO = 5;
+    
+    private final transient IServicioLogistica servicio;
+    private String[] codigos = new String[16];
+    private int cantidad;
+    // Fila visible -> fila del modelo; null mientras se muestra el orden de inserción
+    private int[] orden;
+    private int columnaOrden = -1;
+    private boolean ascendente = true;
+    
+    // Última fila leída: una fila visible pide varias columnas seguidas
+    private int filaEnCache = -1;
+    private transient Envio envioEnCache;
+    
+    /**
+     * Constructor con inyección de dependencias
+     * Carga los códigos de los envíos que ya tiene el servicio
+     * @param servicio Servicio de logística
+     */
+    public ModeloTablaEnvios(IServicioLogistica servicio) {
+        this(servicio, true);
+    }
+    
+    /**
+     * Constructor que permite crear el modelo vacío
+     * @param servicio Servicio de logística
+     * @param cargarCodigos true para cargar ya los códigos de los envíos del servicio
+     */
+    public ModeloTablaEnvios(IServicioLogistica servicio, boolean cargarCodigos) {
+        if (servicio == null) {
+            throw new IllegalArgumentException("El servicio de logística no puede ser nulo");
+        }
+        this.servicio = servicio;
+        if (cargarCodigos) {
+            recargar();
+        }
+    }
+    
+    /**
+     * Vuelve a leer los códigos de todos los envíos del servicio (quita el orden aplicado)
+     */
+    public void recargar() {
+        String[] nuevos = new String[Math.max(16, servicio.obtenerCantidadEnvios())];
+        int leidos = 0;
+        Iterator<Envio> envios = servicio.flujoEnvios().iterator();
+        while (envios.hasNext()) {
+            if (leidos == nuevos.length) {
+                nuevos = Arrays.copyOf(nuevos, leidos * 2);
+            }
+            nuevos[leidos++] = envios.next().getCodigoEnvio();
+        }
+        codigos = nuevos;
+        cantidad = leidos;
+        orden = null;
+        columnaOrden = -1;
+        invalidarCache();
+        fireTableDataChanged();
+    }
+    
+    /**
+     * Quita todas las filas sin modificar el servicio (quita el orden aplicado)
+     */
+    public void limpiar() {
+        codigos = new String[16];
+        cantidad = 0;
+        orden = null;
+        columnaOrden = -1;
+        invalidarCache();
+        fireTableDataChanged();
+    }
+    
+    /**
+     * Agrega un envío al servicio y, si se aceptó, al final de la tabla
+     * @param envio Envío a agregar
+     * @return true si el servicio lo agregó
+     */
+    public boolean agregar(Envio envio) {
+        if (!servicio.agregarEnvio(envio)) {
+            return false;
+        }
+        agregarFila(envio.getCodigoEnvio());
+        return true;
+    }
+    
+    /**
+     * Agrega filas para envíos que ya están en el servicio (un solo evento)
+     * @param nuevos Códigos de los envíos agregados al servicio
+     */
+    public void agregarFilas(String[] nuevos) {
+        if (nuevos.length == 0) {
+            return;
+        }
+        int primera = cantidad;
+        asegurarCapacidad(cantidad + nuevos.length);
+        System.arraycopy(nuevos, 0, codigos, cantidad, nuevos.length);
+        if (orden != null) {
+            orden = Arrays.copyOf(orden, cantidad + nuevos.length);
+            for (int i = 0; i < nuevos.length; i++) {
+                orden[cantidad + i] = cantidad + i;
+            }
+        }
+        cantidad += nuevos.length;
+        fireTableRowsInserted(primera, cantidad - 1);
+    }
+    
+    /**
+     * Retira del servicio el envío de una fila y quita la fila
+     * @param fila Fila visible
+     * @return true si el servicio lo retiró
+     */
+    public boolean retirar(int fila) {
+        String codigo = getCodigo(fila);
+        if (!servicio.retirarEnvio(codigo)) {
+            return false;
+        }
+        quitarFila(fila);
+        return true;
+    }
+    
+    /**
+     * Quita la fila de un envío que ya se retiró del servicio
+     * @param codigo Código del envío
+     * @return true si el envío estaba en la tabla
+     */
+    public boolean filaRetirada(String codigo) {
+        return filaRetirada(codigo, -1);
+    }
+    
+    /**
+     * Quita la fila de un envío que ya se retiró del servicio, probando primero la fila
+     * donde se espera encontrarlo (evita recorrer la tabla)
+     * @param codigo Código del envío
+     * @param filaSugerida Fila visible donde se espera el envío
+     * @return true si el envío estaba en la tabla
+     */
+    public boolean filaRetirada(String codigo, int filaSugerida) {
+        int fila = filaSugerida >= 0 && filaSugerida < cantidad && codigos[filaModelo(filaSugerida)].equals(codigo)
+                ? filaSugerida : buscarFila(codigo);
+        if (fila < 0) {
+            return false;
+        }
+        quitarFila(fila);
+        return true;
+    }
+    
+    /**
+     * Avisa que un envío de la tabla cambió (por ejemplo su peso) para repintar su fila
+     * @param codigo Código del envío
+     */
+    public void filaModificada(String codigo) {
+        int fila = buscarFila(codigo);
+        if (fila >= 0) {
+            invalidarCache();
+            fireTableRowsUpdated(fila, fila);
+        }
+    }
+    
+    /**
+     * Busca la fila visible de un envío (recorre las filas)
+     * @param codigo Código del envío
+     * @return Fila visible o -1 si no está en la tabla
+     */
+    public int buscarFila(String codigo) {
+        for (int fila = 0; fila < cantidad; fila++) {
+            if (codigos[filaModelo(fila)].equals(codigo)) {
+                return fila;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Obtiene el código del envío de una fila visible
+     * @param fila Fila visible
+     * @return Código del envío
+     */
+    public String getCodigo(int fila) {
+        if (fila < 0 || fila >= cantidad) {
+            throw new IndexOutOfBoundsException("Fila inválida: " + fila);
+        }
+        return codigos[filaModelo(fila)];
+    }
+    
+    /**
+     * Obtiene el envío de una fila visible, leído del servicio
+     * @param fila Fila visible
+     * @return Envío o null si ya no está en el servicio
+     */
+    public Envio getEnvio(int fila) {
+        if (fila != filaEnCache) {
+            envioEnCache = servicio.buscarEnvio(getCodigo(fila));
+            filaEnCache = fila;
+        }
+        return envioEnCache;
+    }
+    
+    /**
+     * Calcula el orden de las filas por una columna sin modificar el modelo
+     * Lee una clave por fila y ordena un arreglo de posiciones (orden estable); puede
+     * ejecutarse fuera del hilo de eventos mientras el modelo no cambie
+     * @param columna Columna por la que se ordena
+     * @param ascendente true para orden ascendente
+     * @return Arreglo fila visible -> fila del modelo
+     */
+    public int[] calcularOrden(int columna, boolean ascendente) {
+        String[] actuales = codigos;
+        int filas = cantidad;
+        int[] posiciones = new int[filas];
+        for (int i = 0; i < filas; i++) {
+            posiciones[i] = i;
+        }
+        ComparadorFilas comparador;
+        if (columna == COLUMNA_CODIGO) {
+            comparador = (a, b) -> actuales[a].compareTo(actuales[b]);
+        } else if (columna == COLUMNA_TIPO || columna == COLUMNA_CLIENTE) {
+            String[] claves = new String[filas];
+            for (int i = 0; i < filas; i++) {
+                Envio envio = servicio.buscarEnvio(actuales[i]);
+                String clave = envio == null ? null : (columna == COLUMNA_TIPO ? envio.getTipoEnvio() : envio.getCliente());
+                claves[i] = clave == null ? "" : clave;
+            }
+            comparador = (a, b) -> claves[a].compareTo(claves[b]);
+        } else {
+            double[] claves = new double[filas];
+            for (int i = 0; i < filas; i++) {
+                claves[i] = valorNumerico(servicio.buscarEnvio(actuales[i]), columna);
+            }
+            comparador = (a, b) -> Double.compare(claves[a], claves[b]);
+        }
+        ComparadorFilas sentido = ascendente ? comparador : (a, b) -> comparador.comparar(b, a);
+        ordenarPosiciones(posiciones, sentido);
+        return posiciones;
+    }
+    
+    /**
+     * Ordena las filas por una columna
+     * @param columna Columna por la que se ordena
+     * @param ascendente true para orden ascendente
+     */
+    public void ordenarPor(int columna, boolean ascendente) {
+        aplicarOrden(calcularOrden(columna, ascendente), columna, ascendente);
+    }
+    
+    /**
+     * Aplica un orden calculado con calcularOrden
+     * @param posiciones Arreglo fila visible -> fila del modelo
+     * @param columna Columna del orden
+     * @param ascendente Sentido del orden
+     * @throws IllegalStateException si las filas cambiaron desde que se calculó
+     */
+    public void aplicarOrden(int[] posiciones, int columna, boolean ascendente) {
+        if (posiciones.length != cantidad) {
+            throw new IllegalStateException("Las filas cambiaron mientras se calculaba el orden");
+        }
+        this.orden = posiciones;
+        this.columnaOrden = columna;
+        this.ascendente = ascendente;
+        invalidarCache();
+        fireTableDataChanged();
+    }
+    
+    /**
+     * Obtiene la columna del orden aplicado
+     * @return Columna o -1 si se muestra el orden de inserción
+     */
+    public int getColumnaOrden() {
+        return columnaOrden;
+    }
+    
+    /**
+     * Indica si el orden aplicado es ascendente
+     * @return true si es ascendente
+     */
+    public boolean isAscendente() {
+        return ascendente;
+    }
+    
+    @Override
+    public int getRowCount() {
+        return cantidad;
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return COLUMNAS.length;
+    }
+    
+    @Override
+    public String getColumnName(int columna) {
+        return COLUMNAS[columna];
+    }
+    
+    @Override
+    public Class<?> getColumnClass(int columna) {
+        return String.class;
+    }
+    
+    @Override
+    public boolean isCellEditable(int fila, int columna) {
+        return false;
+    }
+    
+    @Override
+    public Object getValueAt(int fila, int columna) {
+        Envio envio = getEnvio(fila);
+        if (envio == null) {
+            return columna == COLUMNA_CODIGO ? getCodigo(fila) : "";
+        }
+        switch (columna) {
+            case COLUMNA_TIPO:
+                return envio.getTipoEnvio();
+            case COLUMNA_CODIGO:
+                return envio.getCodigoEnvio();
+            case COLUMNA_CLIENTE:
+                return envio.getCliente();
+            default:
+                return FormateadorEnvios.formatearDecimal(valorNumerico(envio, columna));
+        }
+    }
+    
+    private static double valorNumerico(Envio envio, int columna) {
+        if (envio == null) {
+            return Double.NaN;
+        }
+        switch (columna) {
+            case COLUMNA_PESO:
+                return envio.getPesoKg();
+            case COLUMNA_DISTANCIA:
+                return envio.getDistanciaKm();
+            case COLUMNA_COSTO:
+                return envio.getCosto();
+            default:
+                throw new IllegalArgumentException("Columna no numérica: " + columna);
+        }
+    }
+    
+    private void agregarFila(String codigo) {
+        asegurarCapacidad(cantidad + 1);
+        codigos[cantidad] = codigo;
+        if (orden != null) {
+            orden = Arrays.copyOf(orden, cantidad + 1);
+            orden[cantidad] = cantidad;
+        }
+        cantidad++;
+        fireTableRowsInserted(cantidad - 1, cantidad - 1);
+    }
+    
+    private void quitarFila(int fila) {
+        int indice = filaModelo(fila);
+        System.arraycopy(codigos, indice + 1, codigos, indice, cantidad - indice - 1);
+        codigos[cantidad - 1] = null;
+        if (orden != null) {
+            // Se quita la posición de la fila y se corren las posiciones siguientes del modelo
+            int[] nuevo = new int[cantidad - 1];
+            int j = 0;
+            for (int i = 0; i < cantidad; i++) {
+                if (i != fila) {
+                    int posicion = orden[i];
+                    nuevo[j++] = posicion > indice ? posicion - 1 : posicion;
+                }
+            }
+            orden = nuevo;
+        }
+        cantidad--;
+        invalidarCache();
+        fireTableRowsDeleted(fila, fila);
+    }
+    
+    private int filaModelo(int fila) {
+        return orden == null ? fila : orden[fila];
+    }
+    
+    private void asegurarCapacidad(int necesaria) {
+        if (necesaria > codigos.length) {
+            codigos = Arrays.copyOf(codigos, Math.max(necesaria, codigos.length * 2));
+        }
+    }
+    
+    private void invalidarCache() {
+        filaEnCache = -1;
+        envioEnCache = null;
+    }
+    
+    /**
+     * Compara dos filas del modelo
+     */
+    private interface ComparadorFilas {
+        int comparar(int a, int b);
+    }
+    
+    /**
+     * Ordenamiento por mezcla de un arreglo de posiciones (estable, sin envolver en Integer)
+     */
+    private static void ordenarPosiciones(int[] posiciones, ComparadorFilas comparador) {
+        int[] auxiliar = new int[posiciones.length];
+        for (int ancho = 1; ancho < posiciones.length; ancho *= 2) {
+            for (int inicio = 0; inicio < posiciones.length - ancho; inicio += 2 * ancho) {
+                int medio = inicio + ancho;
+                int fin = Math.min(inicio + 2 * ancho, posiciones.length);
+                if (comparador.comparar(posiciones[medio - 1], posiciones[medio]) <= 0) {
+                    continue;
+                }
+                int i = inicio;
+                int j = medio;
+                int k = inicio;
+                while (i < medio && j < fin) {
+                    auxiliar[k++] = comparador.comparar(posiciones[j], posiciones[i]) < 0 ? posiciones[j++] : posiciones[i++];
+                }
+                while (i < medio) {
+                    auxiliar[k++] = posiciones[i++];
+                }
+                while (j < fin) {
+                    auxiliar[k++] = posiciones[j++];
+                }
+                System.arraycopy(auxiliar, inicio, posiciones, inicio, fin - inicio);
+            }
+        }
+    }
+}
+
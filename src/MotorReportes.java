@@ -0,0 +1,253 @@
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Motor de reportes paralelo basado en fork/join
+ * Divide los envíos en rangos, cada rango calcula estadísticas parciales (cantidad, suma,
+ * mínimo, máximo e histograma de tarifas por tipo y por cliente) y los parciales se
+ * combinan al unir las tareas. Por debajo del umbral el reporte se calcula de forma
+ * secuencial en el hilo llamador, sin pasar por el pool.
+ * Principio S (Single Responsibility): Solo calcula reportes
+ * Principio D (Dependency Inversion): Trabaja sobre IRepositorioEnvios
+ */
+public class MotorReportes {
+    /** Cantidad de envíos por debajo de la cual el reporte se calcula secuencialmente */
+    public static final int UMBRAL_PREDETERMINADO = 100_000;
+    private static final int HOJA_MINIMA = 16_384;
+    private static final FabricaEnvios.TipoEnvio[] TIPOS = FabricaEnvios.TipoEnvio.values();
+    
+    private final ForkJoinPool pool;
+    private final int umbral;
+    
+    /**
+     * Constructor con el pool común y el umbral predeterminado
+     */
+    public MotorReportes() {
+        this(ForkJoinPool.commonPool(), UMBRAL_PREDETERMINADO);
+    }
+    
+    /**
+     * Constructor con pool y umbral configurables
+     * @param pool Pool donde se ejecutan las tareas
+     * @param umbral Cantidad de envíos a partir de la cual se paraleliza
+     */
+    public MotorReportes(ForkJoinPool pool, int umbral) {
+        if (pool == null) {
+            throw new IllegalArgumentException("El pool no puede ser nulo");
+        }
+        if (umbral < 0) {
+            throw new IllegalArgumentException("El umbral no puede ser negativo");
+        }
+        this.pool = pool;
+        this.umbral = umbral;
+    }
+    
+    /**
+     * Genera el reporte de los envíos de un repositorio
+     * @param repositorio Repositorio a reportar
+     * @return Reporte de tarifas
+     */
+    public ReporteEnvios generar(IRepositorioEnvios repositorio) {
+        return repositorio.generarReporte(this);
+    }
+    
+    /**
+     * Genera el reporte de un arreglo de envíos
+     * @param envios Envíos a reportar
+     * @return Reporte de tarifas
+     */
+    public ReporteEnvios generar(Envio[] envios) {
+        return generar(new FuenteObjetos(envios), envios.length);
+    }
+    
+    /**
+     * Genera el reporte a partir de columnas primitivas
+     * @param tipos Ordinal del tipo de cada envío
+     * @param pesos Peso de cada envío
+     * @param distancias Distancia de cada envío
+     * @param clientes Identificador del cliente de cada envío
+     * @param nombresClientes Nombre de cada identificador de cliente
+     * @param cantidad Cantidad de envíos en las columnas
+     * @return Reporte de tarifas
+     */
+    ReporteEnvios generar(byte[] tipos, double[] pesos, double[] distancias, int[] clientes,
+                          List<String> nombresClientes, int cantidad) {
+        return generar(new FuenteColumnas(tipos, pesos, distancias, clientes, nombresClientes), cantidad);
+    }
+    
+    /**
+     * Genera el reporte a partir de una fuente con acceso por posición
+     * @param fuente Datos de los envíos (se lee desde varios hilos)
+     * @param cantidad Cantidad de envíos en la fuente
+     * @return Reporte de tarifas
+     */
+    ReporteEnvios generar(Fuente fuente, int cantidad) {
+        long inicio = System.nanoTime();
+        Parcial parcial;
+        if (cantidad < umbral || pool.getParallelism() == 1) {
+            parcial = calcular(fuente, 0, cantidad);
+        } else {
+            int hoja = Math.max(HOJA_MINIMA, cantidad / (pool.getParallelism() * 8));
+            parcial = pool.invoke(new Tarea(fuente, 0, cantidad, hoja));
+        }
+        
+        EstadisticaTarifas total = new EstadisticaTarifas();
+        EnumMap<FabricaEnvios.TipoEnvio, EstadisticaTarifas> porTipo = new EnumMap<>(FabricaEnvios.TipoEnvio.class);
+        for (FabricaEnvios.TipoEnvio tipo : TIPOS) {
+            total.combinar(parcial.porTipo[tipo.ordinal()]);
+            porTipo.put(tipo, parcial.porTipo[tipo.ordinal()]);
+        }
+        return new ReporteEnvios(total, porTipo, parcial.porCliente, System.nanoTime() - inicio);
+    }
+    
+    private static Parcial calcular(Fuente fuente, int desde, int hasta) {
+        Parcial parcial = new Parcial();
+        for (int i = desde; i < hasta; i++) {
+            double tarifa = fuente.tarifa(i);
+            parcial.porTipo[fuente.tipo(i)].registrar(tarifa);
+            parcial.porCliente.computeIfAbsent(fuente.cliente(i), c -> new EstadisticaTarifas()).registrar(tarifa);
+        }
+        return parcial;
+    }
+    
+    /**
+     * Estadísticas de un rango de envíos
+     */
+    private static final class Parcial {
+        private final EstadisticaTarifas[] porTipo = new EstadisticaTarifas[TIPOS.length];
+        private final Map<String, EstadisticaTarifas> porCliente = new HashMap<>();
+        
+        Parcial() {
+            for (int i = 0; i < porTipo.length; i++) {
+                porTipo[i] = new EstadisticaTarifas();
+            }
+        }
+        
+        /**
+         * Combina dos parciales recorriendo el mapa de clientes más chico
+         * @return El parcial que recibió los datos del otro
+         */
+        Parcial combinar(Parcial otro) {
+            Parcial destino = porCliente.size() >= otro.porCliente.size() ? this : otro;
+            Parcial origen = destino == this ? otro : this;
+            for (int i = 0; i < porTipo.length; i++) {
+                destino.porTipo[i].combinar(origen.porTipo[i]);
+            }
+            for (Map.Entry<String, EstadisticaTarifas> entrada : origen.porCliente.entrySet()) {
+                EstadisticaTarifas existente = destino.porCliente.putIfAbsent(entrada.getKey(), entrada.getValue());
+                if (existente != null) {
+                    existente.combinar(entrada.getValue());
+                }
+            }
+            return destino;
+        }
+    }
+    
+    /**
+     * Tarea que divide un rango a la mitad hasta llegar al tamaño de hoja
+     */
+    private static final class Tarea extends RecursiveTask<Parcial> {
+        private static final long serialVersionUID = 1L;
+        private final Fuente fuente;
+        private final int desde;
+        private final int hasta;
+        private final int hoja;
+        
+        Tarea(Fuente fuente, int desde, int hasta, int hoja) {
+            this.fuente = fuente;
+            this.desde = desde;
+            this.hasta = hasta;
+            this.hoja = hoja;
+        }
+        
+        @Override
+        protected Parcial compute() {
+            if (hasta - desde <= hoja) {
+                return calcular(fuente, desde, hasta);
+            }
+            int medio = (desde + hasta) >>> 1;
+            Tarea izquierda = new Tarea(fuente, desde, medio, hoja);
+            izquierda.fork();
+            Parcial derecha = new Tarea(fuente, medio, hasta, hoja).compute();
+            return izquierda.join().combinar(derecha);
+        }
+    }
+    
+    /**
+     * Acceso por posición a los datos de los envíos
+     */
+    interface Fuente {
+        int tipo(int i);
+        
+        double tarifa(int i);
+        
+        String cliente(int i);
+    }
+    
+    private static final class FuenteObjetos implements Fuente {
+        private final Envio[] envios;
+        // Se lee una vez por reporte: getCosto leería la tabla vigente en cada envío
+        private final TablaTarifas tabla;
+        
+        FuenteObjetos(Envio[] envios) {
+            this.envios = envios;
+            this.tabla = TablaTarifas.actual();
+        }
+        
+        @Override
+        public int tipo(int i) {
+            return envios[i].getTipo().ordinal();
+        }
+        
+        @Override
+        public double tarifa(int i) {
+            Envio envio = envios[i];
+            return tabla.calcular(envio.getTipo(), envio.getPesoKg(), envio.getDistanciaKm());
+        }
+        
+        @Override
+        public String cliente(int i) {
+            return envios[i].getCliente();
+        }
+    }
+    
+    private static final class FuenteColumnas implements Fuente {
+        private final byte[] tipos;
+        private final double[] pesos;
+        private final double[] distancias;
+        private final int[] clientes;
+        private final List<String> nombresClientes;
+        // Se lee una vez por reporte: todas las filas usan la misma tabla
+        private final TablaTarifas tabla;
+        
+        FuenteColumnas(byte[] tipos, double[] pesos, double[] distancias, int[] clientes,
+                       List<String> nombresClientes) {
+            this.tipos = tipos;
+            this.pesos = pesos;
+            this.distancias = distancias;
+            this.clientes = clientes;
+            this.nombresClientes = nombresClientes;
+            this.tabla = TablaTarifas.actual();
+        }
+        
+        @Override
+        public int tipo(int i) {
+            return tipos[i];
+        }
+        
+        @Override
+        public double tarifa(int i) {
+            return tabla.calcular(TIPOS[tipos[i]], pesos[i], distancias[i]);
+        }
+        
+        @Override
+        public String cliente(int i) {
+            return nombresClientes.get(clientes[i]);
+        }
+    }
+}
+
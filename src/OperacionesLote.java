@@ -0,0 +1,152 @@
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Implementación genérica de las operaciones por lotes de IRepositorioEnvios
+ * Valida todo el lote y detecta duplicados con un único conjunto antes de tocar el
+ * repositorio, reserva capacidad una sola vez y, si el lote es atómico, revierte lo
+ * aplicado cuando una escritura concurrente hace fallar un elemento
+ * Principio S (Single Responsibility): Solo coordina la aplicación de lotes
+ * Principio D (Dependency Inversion): Trabaja sobre la interfaz IRepositorioEnvios
+ */
+final class OperacionesLote {
+    
+    private OperacionesLote() {
+    }
+    
+    /**
+     * Agrega un lote de envíos usando las operaciones individuales del repositorio
+     * @param repositorio Repositorio destino
+     * @param envios Envíos a agregar
+     * @param atomico true para aplicar todo el lote o nada
+     * @return Resultado por elemento
+     */
+    static ResultadoLote agregar(IRepositorioEnvios repositorio, Collection<? extends Envio> envios, boolean atomico) {
+        return agregar(repositorio, envios, atomico, codigo -> repositorio.buscarPorCodigo(codigo) != null,
+                repositorio::agregar);
+    }
+    
+    /**
+     * Agrega un lote de envíos con la verificación de existencia y la inserción del repositorio
+     * @param repositorio Repositorio destino
+     * @param envios Envíos a agregar
+     * @param atomico true para aplicar todo el lote o nada
+     * @param existe Indica si un código ya está registrado en el repositorio
+     * @param insertar Inserta un envío ya validado; devuelve false si el código apareció entretanto
+     * @return Resultado por elemento
+     */
+    static ResultadoLote agregar(IRepositorioEnvios repositorio, Collection<? extends Envio> envios, boolean atomico,
+                                 Predicate<String> existe, Predicate<Envio> insertar) {
+        Envio[] lote = envios.toArray(new Envio[0]);
+        ResultadoLote resultado = new ResultadoLote(lote.length);
+        Set<String> vistos = new HashSet<>(capacidadPara(lote.length));
+        
+        // Validación y detección de duplicados antes de escribir
+        int pendientes = 0;
+        for (int i = 0; i < lote.length; i++) {
+            Envio envio = lote[i];
+            if (envio == null || envio.getCodigoEnvio() == null) {
+                resultado.registrar(i, ResultadoLote.Estado.INVALIDO, null);
+            } else if (!vistos.add(envio.getCodigoEnvio())) {
+                resultado.registrar(i, ResultadoLote.Estado.DUPLICADO_EN_LOTE, null);
+            } else if (existe.test(envio.getCodigoEnvio())) {
+                resultado.registrar(i, ResultadoLote.Estado.DUPLICADO, null);
+            } else {
+                pendientes++;
+            }
+        }
+        if (atomico && pendientes < lote.length) {
+            resultado.descartarAplicados();
+            return resultado;
+        }
+        
+        repositorio.reservarCapacidad(pendientes);
+        for (int i = 0; i < lote.length; i++) {
+            if (resultado.getEstado(i) != null) {
+                continue;
+            }
+            if (insertar.test(lote[i])) {
+                resultado.registrar(i, ResultadoLote.Estado.AGREGADO, lote[i]);
+            } else {
+                // Otro hilo agregó el mismo código después de la validación
+                resultado.registrar(i, ResultadoLote.Estado.DUPLICADO, null);
+                if (atomico) {
+                    for (int j = 0; j < i; j++) {
+                        if (resultado.getEstado(j) == ResultadoLote.Estado.AGREGADO) {
+                            repositorio.retirar(lote[j].getCodigoEnvio());
+                        }
+                    }
+                    resultado.descartarAplicados();
+                    return resultado;
+                }
+            }
+        }
+        return resultado;
+    }
+    
+    /**
+     * Retira un lote de envíos usando las operaciones individuales del repositorio
+     * @param repositorio Repositorio origen
+     * @param codigos Códigos de los envíos a retirar
+     * @param atomico true para aplicar todo el lote o nada
+     * @return Resultado por elemento, con los envíos retirados
+     */
+    static ResultadoLote retirar(IRepositorioEnvios repositorio, Collection<String> codigos, boolean atomico) {
+        String[] lote = codigos.toArray(new String[0]);
+        ResultadoLote resultado = new ResultadoLote(lote.length);
+        Set<String> vistos = new HashSet<>(capacidadPara(lote.length));
+        
+        int pendientes = 0;
+        for (int i = 0; i < lote.length; i++) {
+            String codigo = lote[i];
+            if (codigo == null || codigo.trim().isEmpty()) {
+                resultado.registrar(i, ResultadoLote.Estado.INVALIDO, null);
+            } else if (!vistos.add(codigo)) {
+                resultado.registrar(i, ResultadoLote.Estado.DUPLICADO_EN_LOTE, null);
+            } else if (repositorio.buscarPorCodigo(codigo) == null) {
+                resultado.registrar(i, ResultadoLote.Estado.NO_ENCONTRADO, null);
+            } else {
+                pendientes++;
+            }
+        }
+        if (atomico && pendientes < lote.length) {
+            resultado.descartarAplicados();
+            return resultado;
+        }
+        
+        for (int i = 0; i < lote.length; i++) {
+            if (resultado.getEstado(i) != null) {
+                continue;
+            }
+            Envio retirado = repositorio.extraer(lote[i]);
+            if (retirado != null) {
+                resultado.registrar(i, ResultadoLote.Estado.RETIRADO, retirado);
+            } else {
+                // Otro hilo retiró el envío después de la validación
+                resultado.registrar(i, ResultadoLote.Estado.NO_ENCONTRADO, null);
+                if (atomico) {
+                    for (int j = 0; j < i; j++) {
+                        if (resultado.getEstado(j) == ResultadoLote.Estado.RETIRADO) {
+                            repositorio.agregar(resultado.getEnvio(j));
+                        }
+                    }
+                    resultado.descartarAplicados();
+                    return resultado;
+                }
+            }
+        }
+        return resultado;
+    }
+    
+    /**
+     * Calcula la capacidad de un conjunto hash para que no se redimensione
+     * @param cantidad Cantidad de elementos esperada
+     * @return Capacidad inicial
+     */
+    static int capacidadPara(int cantidad) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(cantidad / 0.75));
+    }
+}
+
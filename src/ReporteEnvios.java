@@ -0,0 +1,66 @@
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Reporte de tarifas de los envíos: total general, por tipo de envío y por cliente
+ * Principio S (Single Responsibility): Solo expone el resultado de un reporte
+ */
+public class ReporteEnvios {
+    private final EstadisticaTarifas total;
+    private final Map<FabricaEnvios.TipoEnvio, EstadisticaTarifas> porTipo;
+    private final Map<String, EstadisticaTarifas> porCliente;
+    private final long duracionNanos;
+    
+    /**
+     * Constructor del reporte
+     * @param total Estadística de todos los envíos
+     * @param porTipo Estadística de cada tipo de envío
+     * @param porCliente Estadística de cada cliente
+     * @param duracionNanos Duración del cálculo en nanosegundos
+     */
+    ReporteEnvios(EstadisticaTarifas total, EnumMap<FabricaEnvios.TipoEnvio, EstadisticaTarifas> porTipo,
+                  Map<String, EstadisticaTarifas> porCliente, long duracionNanos) {
+        this.total = total;
+        this.porTipo = Collections.unmodifiableMap(porTipo);
+        this.porCliente = Collections.unmodifiableMap(porCliente);
+        this.duracionNanos = duracionNanos;
+    }
+    
+    // Getters
+    public EstadisticaTarifas getTotal() {
+        return total;
+    }
+    
+    public Map<FabricaEnvios.TipoEnvio, EstadisticaTarifas> getPorTipo() {
+        return porTipo;
+    }
+    
+    public EstadisticaTarifas getPorTipo(FabricaEnvios.TipoEnvio tipo) {
+        return porTipo.get(tipo);
+    }
+    
+    public Map<String, EstadisticaTarifas> getPorCliente() {
+        return porCliente;
+    }
+    
+    public EstadisticaTarifas getPorCliente(String cliente) {
+        return porCliente.get(cliente);
+    }
+    
+    public long getDuracionNanos() {
+        return duracionNanos;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder();
+        texto.append("Total | ").append(total).append('\n');
+        for (Map.Entry<FabricaEnvios.TipoEnvio, EstadisticaTarifas> entrada : porTipo.entrySet()) {
+            texto.append(entrada.getKey().getNombre()).append(" | ").append(entrada.getValue()).append('\n');
+        }
+        texto.append(String.format("Clientes: %d | Tiempo: %.1f ms", porCliente.size(), duracionNanos / 1_000_000.0));
+        return texto.toString();
+    }
+}
+
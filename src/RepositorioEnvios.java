@@ -1,5 +1,12 @@
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Implementación del repositorio de envíos
@@ -7,7 +14,7 @@ import java.util.List;
  * Principio D (Dependency Inversion): Implementa una interfaz
  */
 public class RepositorioEnvios implements IRepositorioEnvios {
-    private final List<Envio> envios;
+    private final ArrayList<Envio> envios;
     
     /**
      * Constructor del repositorio
@@ -32,11 +39,22 @@ public class RepositorioEnvios implements IRepositorioEnvios {
     
     @Override
     public boolean retirar(String codigoEnvio) {
-        Envio envio = buscarPorCodigo(codigoEnvio);
-        if (envio != null) {
-            return envios.remove(envio);
+        return extraer(codigoEnvio) != null;
+    }
+    
+    @Override
+    public Envio extraer(String codigoEnvio) {
+        if (codigoEnvio == null) {
+            return null;
         }
-        return false;
+        
+        // Se retira por posición para no recorrer la lista una segunda vez
+        for (int i = 0; i < envios.size(); i++) {
+            if (envios.get(i).getCodigoEnvio().equals(codigoEnvio)) {
+                return envios.remove(i);
+            }
+        }
+        return null;
     }
     
     @Override
@@ -59,9 +77,76 @@ public class RepositorioEnvios implements IRepositorioEnvios {
         return new ArrayList<>(envios);
     }
     
+    @Override
+    public Stream<Envio> flujo() {
+        // Vista de solo lectura: no copia y se divide por rangos en flujos paralelos
+        return Collections.unmodifiableList(envios).stream();
+    }
+    
     @Override
     public int obtenerCantidad() {
         return envios.size();
     }
+    
+    @Override
+    public ResultadoLote agregarLote(Collection<? extends Envio> lote, boolean atomico) {
+        // Un solo recorrido de la lista en lugar de una búsqueda lineal por envío;
+        // el lote ya validado se añade directamente al final
+        Set<String> existentes = new HashSet<>(OperacionesLote.capacidadPara(envios.size()));
+        for (Envio envio : envios) {
+            existentes.add(envio.getCodigoEnvio());
+        }
+        return OperacionesLote.agregar(this, lote, atomico, existentes::contains, envios::add);
+    }
+    
+    @Override
+    public ResultadoLote retirarLote(Collection<String> codigos, boolean atomico) {
+        String[] lote = codigos.toArray(new String[0]);
+        ResultadoLote resultado = new ResultadoLote(lote.length);
+        Map<String, Integer> posiciones = new HashMap<>(OperacionesLote.capacidadPara(lote.length));
+        for (int i = 0; i < lote.length; i++) {
+            String codigo = lote[i];
+            if (codigo == null || codigo.trim().isEmpty()) {
+                resultado.registrar(i, ResultadoLote.Estado.INVALIDO, null);
+            } else if (posiciones.putIfAbsent(codigo, i) != null) {
+                resultado.registrar(i, ResultadoLote.Estado.DUPLICADO_EN_LOTE, null);
+            }
+        }
+        
+        // Primer recorrido: localizar los envíos pedidos
+        int encontrados = 0;
+        for (Envio envio : envios) {
+            Integer indice = posiciones.get(envio.getCodigoEnvio());
+            if (indice != null) {
+                resultado.registrar(indice, ResultadoLote.Estado.RETIRADO, envio);
+                encontrados++;
+            }
+        }
+        for (int indice : posiciones.values()) {
+            if (resultado.getEstado(indice) == null) {
+                resultado.registrar(indice, ResultadoLote.Estado.NO_ENCONTRADO, null);
+            }
+        }
+        if (encontrados == 0 || (atomico && !resultado.fueCompleto())) {
+            resultado.descartarAplicados();
+            return resultado;
+        }
+        
+        // Segundo recorrido: compactar la lista sin los envíos retirados
+        int destino = 0;
+        for (int i = 0; i < envios.size(); i++) {
+            Envio envio = envios.get(i);
+            if (!posiciones.containsKey(envio.getCodigoEnvio())) {
+                envios.set(destino++, envio);
+            }
+        }
+        envios.subList(destino, envios.size()).clear();
+        return resultado;
+    }
+    
+    @Override
+    public void reservarCapacidad(int adicionales) {
+        envios.ensureCapacity(envios.size() + adicionales);
+    }
 }
 
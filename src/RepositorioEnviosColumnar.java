@@ -0,0 +1,498 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Implementación columnar del repositorio de envíos (estructura de arreglos)
+ * En lugar de un objeto Envio por envío guarda cada atributo en un arreglo primitivo:
+ * peso y distancia en double[], el tipo como ordinal en byte[] y el cliente como
+ * identificador entero de un diccionario. Los códigos numéricos ("10001") se guardan como
+ * long, interpretados una vez al agregar; los demás, en una columna de String que se crea
+ * solo si aparece alguno. El índice por código es un IndiceCodigos (direccionamiento
+ * abierto con claves long) que no crea nodos, enteros envueltos ni String al buscar.
+ *
+ * Bytes por envío (JVM de 64 bits con referencias comprimidas, código de 5 caracteres,
+ * cliente repetido entre envíos):
+ * - ArrayList&lt;Envio&gt; (RepositorioEnvios): objeto Envio 40 + referencia en la lista 4-6
+ *   + String del código 48 = ~93 bytes, más ~64 si cada envío trae su propia copia del cliente
+ * - LinkedHashMap (RepositorioEnviosIndexado): lo anterior + entrada del mapa 40 + ranura 4-8 = ~140
+ * - Columnar, código numérico: peso 8 + distancia 8 + tipo 1 + cliente 4 + código 8
+ *   + índice 24 (factor de carga 0.5) = ~53 bytes, sin cabeceras ni String por envío
+ * - Columnar, código de texto: además la referencia 4 y el String 48 del código
+ *
+ * Los datos se copian al agregar: los envíos que entrega (buscarPorCodigo, obtenerTodos,
+ * flujo) son vistas sobre las columnas; una vista de código numérico arma su String de
+ * código solo si se le pide. Los setters de una vista escriben en las columnas y notifican
+ * a los observadores del envío, que se guardan por fila (GruposObservadores) y no en la
+ * vista: todas las vistas de un mismo envío comparten sus observadores. Extraer entrega
+ * una copia independiente y descarta los observadores del envío retirado.
+ * Al retirar, el último envío ocupa la posición liberada: retirar un envío cambia el orden
+ * de obtenerTodos y flujo (el último pasa al lugar del retirado), así que el orden de
+ * inserción no se conserva tras un retiro.
+ * Principio S (Single Responsibility): Solo gestiona el almacenamiento de envíos
+ * Principio L (Liskov Substitution): Sustituible por cualquier IRepositorioEnvios
+ * Principio D (Dependency Inversion): Implementa una interfaz
+ */
+public class RepositorioEnviosColumnar implements IRepositorioEnvios {
+    private static final FabricaEnvios.TipoEnvio[] TIPOS = FabricaEnvios.TipoEnvio.values();
+    private static final int CAPACIDAD_MINIMA = 16;
+    
+    // Columnas
+    private double[] pesos;
+    private double[] distancias;
+    private byte[] tipos;
+    private int[] clientes;
+    // Código numérico o -1 si el código es de texto (va en codigosTexto)
+    private long[] codigosNumericos;
+    private String[] codigosTexto;
+    // Grupo de observadores de cada envío (null hasta el primer observador)
+    private int[] gruposObservadores;
+    private final GruposObservadores grupos;
+    private int cantidad;
+    
+    // Índice por código: código -> posición
+    private final IndiceCodigos indice;
+    
+    // Diccionario de clientes
+    private final List<String> nombresClientes;
+    private final Map<String, Integer> idsClientes;
+    
+    /**
+     * Constructor del repositorio
+     */
+    public RepositorioEnviosColumnar() {
+        this(CAPACIDAD_MINIMA);
+    }
+    
+    /**
+     * Constructor con capacidad inicial
+     * @param capacidadInicial Cantidad de envíos esperada
+     */
+    public RepositorioEnviosColumnar(int capacidadInicial) {
+        if (capacidadInicial < 0) {
+            throw new IllegalArgumentException("La capacidad inicial no puede ser negativa");
+        }
+        int capacidad = Math.max(CAPACIDAD_MINIMA, capacidadInicial);
+        this.pesos = new double[capacidad];
+        this.distancias = new double[capacidad];
+        this.tipos = new byte[capacidad];
+        this.clientes = new int[capacidad];
+        this.codigosNumericos = new long[capacidad];
+        this.indice = new IndiceCodigos(capacidad);
+        this.grupos = new GruposObservadores(Integer.MAX_VALUE);
+        this.nombresClientes = new ArrayList<>();
+        this.idsClientes = new HashMap<>();
+    }
+    
+    @Override
+    public boolean agregar(Envio envio) {
+        if (envio == null || envio.getCodigoEnvio() == null) {
+            return false;
+        }
+        
+        String codigo = envio.getCodigoEnvio();
+        long numerico = IndiceCodigos.codigoNumerico(codigo);
+        int posicion = cantidad;
+        int existente = numerico >= 0 ? indice.agregar(numerico, posicion) : indice.agregar(codigo, posicion);
+        if (existente != IndiceCodigos.AUSENTE) {
+            return false;
+        }
+        
+        if (cantidad == pesos.length) {
+            crecer(cantidad + 1);
+        }
+        
+        cantidad++;
+        pesos[posicion] = envio.getPesoKg();
+        distancias[posicion] = envio.getDistanciaKm();
+        tipos[posicion] = (byte) envio.getTipo().ordinal();
+        clientes[posicion] = idCliente(envio.getCliente());
+        codigosNumericos[posicion] = numerico;
+        if (numerico < 0) {
+            if (codigosTexto == null) {
+                codigosTexto = new String[pesos.length];
+            }
+            codigosTexto[posicion] = codigo;
+        }
+        return true;
+    }
+    
+    /**
+     * Copia las columnas del bloque directamente, sin crear un Envio por fila
+     */
+    @Override
+    public int agregarColumnas(ColumnasEnvios bloque) {
+        reservarCapacidad(bloque.getCantidad());
+        ToIntFunction<String> ids = this::idCliente;
+        int agregados = 0;
+        for (int i = 0; i < bloque.getCantidad(); i++) {
+            long numerico = bloque.getCodigoNumerico(i);
+            String codigo = numerico >= 0 ? null : bloque.getCodigo(i);
+            int posicion = cantidad;
+            int existente = numerico >= 0 ? indice.agregar(numerico, posicion) : indice.agregar(codigo, posicion);
+            if (existente != IndiceCodigos.AUSENTE) {
+                continue;
+            }
+            cantidad++;
+            pesos[posicion] = bloque.getPesoKg(i);
+            distancias[posicion] = bloque.getDistanciaKm(i);
+            tipos[posicion] = (byte) bloque.getTipo(i).ordinal();
+            clientes[posicion] = bloque.traducirCliente(i, ids);
+            codigosNumericos[posicion] = numerico;
+            if (numerico < 0) {
+                if (codigosTexto == null) {
+                    codigosTexto = new String[pesos.length];
+                }
+                codigosTexto[posicion] = codigo;
+            }
+            agregados++;
+        }
+        return agregados;
+    }
+    
+    @Override
+    public boolean retirar(String codigoEnvio) {
+        return eliminar(codigoEnvio) >= 0;
+    }
+    
+    @Override
+    public Envio extraer(String codigoEnvio) {
+        if (codigoEnvio == null) {
+            return null;
+        }
+        int posicion = indice.buscar(codigoEnvio);
+        if (posicion < 0) {
+            return null;
+        }
+        
+        // Copia independiente: la posición se reutiliza en cuanto se elimina
+        Envio copia = FabricaEnvios.crearEnvio(TIPOS[tipos[posicion]], nombresClientes.get(clientes[posicion]),
+                codigoEnvio, pesos[posicion], distancias[posicion]);
+        eliminar(codigoEnvio);
+        return copia;
+    }
+    
+    @Override
+    public Envio buscarPorCodigo(String codigoEnvio) {
+        if (codigoEnvio == null) {
+            return null;
+        }
+        int posicion = indice.buscar(codigoEnvio);
+        return posicion >= 0 ? new Vista(codigosNumericos[posicion], codigoEnvio, posicion) : null;
+    }
+    
+    @Override
+    public List<Envio> obtenerTodos() {
+        List<Envio> envios = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            envios.add(vista(i));
+        }
+        return envios;
+    }
+    
+    @Override
+    public Stream<Envio> flujo() {
+        return IntStream.range(0, cantidad).mapToObj(this::vista);
+    }
+    
+    @Override
+    public int obtenerCantidad() {
+        return cantidad;
+    }
+    
+    @Override
+    public void reservarCapacidad(int adicionales) {
+        long requerida = (long) cantidad + adicionales;
+        if (requerida > pesos.length) {
+            crecer((int) Math.min(Integer.MAX_VALUE - 8, requerida));
+        }
+        indice.reservar((int) Math.min(Integer.MAX_VALUE - 8, requerida));
+    }
+    
+    /**
+     * Calcula el total de tarifas recorriendo directamente las columnas primitivas
+     * @return Suma de las tarifas de todos los envíos
+     */
+    @Override
+    public double calcularTotalTarifas() {
+        return KernelTarifas.sumarTarifas(tipos, pesos, distancias, 0, cantidad);
+    }
+    
+    @Override
+    public ReporteEnvios generarReporte(MotorReportes motor) {
+        return motor.generar(tipos, pesos, distancias, clientes, nombresClientes, cantidad);
+    }
+    
+    /**
+     * Calcula el total de tarifas de un tipo recorriendo las columnas primitivas
+     * @param tipo Tipo de envío
+     * @return Suma de las tarifas de los envíos del tipo
+     */
+    public double calcularTotalTarifas(FabricaEnvios.TipoEnvio tipo) {
+        return KernelTarifas.sumarTarifas(tipo, tipos, pesos, distancias, 0, cantidad);
+    }
+    
+    /**
+     * Calcula el total de kilogramos recorriendo la columna de pesos
+     * @return Suma de los pesos
+     */
+    public double calcularTotalKg() {
+        return KernelTarifas.sumar(pesos, 0, cantidad);
+    }
+    
+    /**
+     * Calcula el total de kilómetros recorriendo la columna de distancias
+     * @return Suma de las distancias
+     */
+    public double calcularTotalKm() {
+        return KernelTarifas.sumar(distancias, 0, cantidad);
+    }
+    
+    /**
+     * Elimina el envío con el código dado moviendo el último envío a su posición
+     * @param codigo Código del envío
+     * @return Posición que ocupaba el envío o -1 si no existía
+     */
+    private int eliminar(String codigo) {
+        if (codigo == null) {
+            return -1;
+        }
+        int posicion = indice.quitar(codigo);
+        if (posicion < 0) {
+            return -1;
+        }
+        
+        int ultima = --cantidad;
+        if (posicion != ultima) {
+            pesos[posicion] = pesos[ultima];
+            distancias[posicion] = distancias[ultima];
+            tipos[posicion] = tipos[ultima];
+            clientes[posicion] = clientes[ultima];
+            codigosNumericos[posicion] = codigosNumericos[ultima];
+            if (codigosTexto != null) {
+                codigosTexto[posicion] = codigosTexto[ultima];
+            }
+            if (gruposObservadores != null) {
+                gruposObservadores[posicion] = gruposObservadores[ultima];
+            }
+            if (codigosNumericos[posicion] >= 0) {
+                indice.poner(codigosNumericos[posicion], posicion);
+            } else {
+                indice.poner(codigosTexto[posicion], posicion);
+            }
+        }
+        if (codigosTexto != null) {
+            codigosTexto[ultima] = null;
+        }
+        if (gruposObservadores != null) {
+            // La posición libre queda sin observadores para el próximo envío
+            gruposObservadores[ultima] = GruposObservadores.SIN_OBSERVADORES;
+        }
+        return posicion;
+    }
+    
+    /**
+     * Crea la vista del envío de una posición
+     * @param posicion Posición del envío
+     * @return Vista del envío
+     */
+    private Vista vista(int posicion) {
+        long numerico = codigosNumericos[posicion];
+        return new Vista(numerico, numerico >= 0 ? null : codigosTexto[posicion], posicion);
+    }
+    
+    /**
+     * Amplía las columnas para alojar al menos la cantidad dada (el índice crece solo)
+     * @param minimo Cantidad mínima de envíos a alojar
+     */
+    private void crecer(int minimo) {
+        int capacidad = (int) Math.min(Integer.MAX_VALUE - 8, Math.max((long) minimo, pesos.length * 3L / 2 + 1));
+        pesos = Arrays.copyOf(pesos, capacidad);
+        distancias = Arrays.copyOf(distancias, capacidad);
+        tipos = Arrays.copyOf(tipos, capacidad);
+        clientes = Arrays.copyOf(clientes, capacidad);
+        codigosNumericos = Arrays.copyOf(codigosNumericos, capacidad);
+        if (codigosTexto != null) {
+            codigosTexto = Arrays.copyOf(codigosTexto, capacidad);
+        }
+        if (gruposObservadores != null) {
+            gruposObservadores = Arrays.copyOf(gruposObservadores, capacidad);
+        }
+    }
+    
+    /**
+     * Obtiene (o asigna) el identificador de un cliente en el diccionario
+     * @param cliente Nombre del cliente
+     * @return Identificador entero del cliente
+     */
+    private int idCliente(String cliente) {
+        Integer id = idsClientes.get(cliente);
+        if (id == null) {
+            id = nombresClientes.size();
+            nombresClientes.add(cliente);
+            idsClientes.put(cliente, id);
+        }
+        return id;
+    }
+    
+    /**
+     * Obtiene los observadores del envío de una posición
+     * @param posicion Posición del envío
+     * @return Observadores registrados en el envío
+     */
+    private IObservadorEnvio[] observadores(int posicion) {
+        return grupos.obtener(gruposObservadores == null ? GruposObservadores.SIN_OBSERVADORES
+                : gruposObservadores[posicion]);
+    }
+    
+    /**
+     * Vista de un envío almacenado en las columnas
+     * Conserva la última posición conocida y la revalida comparando el código guardado
+     * en ella, de modo que sigue siendo válida aunque otros retiros muevan el envío
+     */
+    private final class Vista extends Envio {
+        private final long numerico;
+        private int posicion;
+        
+        /**
+         * @param numerico Código numérico o -1
+         * @param codigo Código de texto (obligatorio si numerico es -1; si no, puede ser null)
+         */
+        Vista(long numerico, String codigo, int posicion) {
+            super(null, codigo, 0.0, 0.0);
+            this.numerico = numerico;
+            this.posicion = posicion;
+        }
+        
+        private int posicion() {
+            int actual = buscarPosicion();
+            if (actual < 0) {
+                throw new IllegalStateException("El envío " + getCodigoEnvio() + " fue retirado del repositorio");
+            }
+            return actual;
+        }
+        
+        /**
+         * @return Posición actual del envío, o -1 si fue retirado
+         */
+        private int buscarPosicion() {
+            if (posicion >= cantidad || !estaEn(posicion)) {
+                int actual = numerico >= 0 ? indice.buscar(numerico) : indice.buscar(codigoEnvio);
+                if (actual < 0) {
+                    return -1;
+                }
+                posicion = actual;
+            }
+            return posicion;
+        }
+        
+        private boolean estaEn(int i) {
+            return numerico >= 0 ? codigosNumericos[i] == numerico : codigoEnvio.equals(codigosTexto[i]);
+        }
+        
+        @Override
+        public String getCodigoEnvio() {
+            // El String del código numérico se arma una sola vez y solo si se pide
+            if (codigoEnvio == null) {
+                codigoEnvio = Long.toString(numerico);
+            }
+            return codigoEnvio;
+        }
+        
+        @Override
+        public double calcularTarifa() {
+            int i = posicion();
+            return FabricaEnvios.calcularTarifa(TIPOS[tipos[i]], pesos[i], distancias[i]);
+        }
+        
+        @Override
+        public double getCosto() {
+            // Los valores viven en las columnas y la posición puede cambiar: sin memoria
+            return calcularTarifa();
+        }
+        
+        @Override
+        public String getTipoEnvio() {
+            return getTipo().getNombre();
+        }
+        
+        @Override
+        public FabricaEnvios.TipoEnvio getTipo() {
+            return TIPOS[tipos[posicion()]];
+        }
+        
+        @Override
+        public String getCliente() {
+            return nombresClientes.get(clientes[posicion()]);
+        }
+        
+        @Override
+        public double getPesoKg() {
+            return pesos[posicion()];
+        }
+        
+        @Override
+        public double getDistanciaKm() {
+            return distancias[posicion()];
+        }
+        
+        @Override
+        public void setCliente(String cliente) {
+            IObservadorEnvio[] actuales = observadores(posicion());
+            notificarAntes(actuales);
+            clientes[posicion()] = idCliente(cliente);
+            notificarDespues(actuales);
+        }
+        
+        @Override
+        public void setPesoKg(double pesoKg) {
+            IObservadorEnvio[] actuales = observadores(posicion());
+            notificarAntes(actuales);
+            pesos[posicion()] = pesoKg;
+            notificarDespues(actuales);
+        }
+        
+        @Override
+        public void setDistanciaKm(double distanciaKm) {
+            IObservadorEnvio[] actuales = observadores(posicion());
+            notificarAntes(actuales);
+            distancias[posicion()] = distanciaKm;
+            notificarDespues(actuales);
+        }
+        
+        /**
+         * Registra el observador en el envío almacenado (lo ven todas sus vistas)
+         */
+        @Override
+        public void agregarObservador(IObservadorEnvio observador) {
+            int i = posicion();
+            if (gruposObservadores == null) {
+                gruposObservadores = new int[pesos.length];
+            }
+            gruposObservadores[i] = grupos.agregar(gruposObservadores[i], observador);
+        }
+        
+        /**
+         * Quita el observador del envío almacenado; un envío retirado ya no tiene observadores
+         */
+        @Override
+        public boolean quitarObservador(IObservadorEnvio observador) {
+            int i = buscarPosicion();
+            if (i < 0 || gruposObservadores == null) {
+                return false;
+            }
+            int grupo = grupos.quitar(gruposObservadores[i], observador);
+            if (grupo < 0) {
+                return false;
+            }
+            gruposObservadores[i] = grupo;
+            return true;
+        }
+    }
+}
+
@@ -0,0 +1,412 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Decorador del repositorio de envíos con índices secundarios
+ * Mantiene al día los índices registrados al agregar y retirar envíos y, mediante un
+ * observador, cuando cambia un envío almacenado (por ejemplo setCliente o setPesoKg).
+ * Las búsquedas por cliente, por tipo, por rango y de los más costosos usan el índice
+ * correspondiente si está registrado (IndiceSecundario.CLIENTE, IndiceSecundario.TIPO, el
+ * nombre del campo de IndiceRango o IndiceMayoresCostos.NOMBRE); si no, recurren al
+ * recorrido del repositorio decorado.
+ * Al publicarse otra TablaTarifas, los índices que dependen de las tarifas (por costo) se
+ * reconstruyen antes de la siguiente operación.
+ * Las altas y bajas sueltas solo bloquean la franja de su código, así las de códigos
+ * distintos corren en paralelo si el repositorio decorado lo permite; los lotes, el
+ * registro de índices y la reconstrucción por tarifas toman todas las franjas.
+ * El observador actualiza los índices bajo la franja del código del envío y anota los
+ * envíos que un setter está modificando: la reconstrucción y el registro de un índice no
+ * los recorren (los agrega el setter al terminar, con su clave nueva), y de varios setters
+ * simultáneos sobre un envío solo el primero lo quita y solo el último lo vuelve a agregar.
+ * Principio O (Open/Closed): Agrega índices sin modificar los repositorios existentes
+ * Principio L (Liskov Substitution): Sustituible por cualquier IRepositorioEnvios
+ * Principio D (Dependency Inversion): Decora una abstracción (IRepositorioEnvios)
+ */
+public class RepositorioEnviosConIndices implements IRepositorioEnvios {
+    private static final int FRANJAS = 64;
+    
+    private final IRepositorioEnvios delegado;
+    private final List<IIndiceEnvios> indices = new CopyOnWriteArrayList<>();
+    private final Map<String, IIndiceEnvios> indicesPorNombre = new ConcurrentHashMap<>();
+    private final IObservadorEnvio observador;
+    private volatile long versionTarifas;
+    private final ReentrantLock[] franjas = new ReentrantLock[FRANJAS];
+    // Código -> setters en curso sobre el envío (se modifica bajo la franja del código)
+    private final Map<String, Integer> enModificacion = new ConcurrentHashMap<>();
+    
+    /**
+     * Constructor con índices por cliente y por tipo de envío
+     * @param delegado Repositorio que almacena los envíos
+     */
+    public RepositorioEnviosConIndices(IRepositorioEnvios delegado) {
+        this(delegado, IndiceSecundario.porCliente(), IndiceSecundario.porTipo());
+    }
+    
+    /**
+     * Constructor con los índices indicados
+     * @param delegado Repositorio que almacena los envíos
+     * @param indices Índices a mantener
+     */
+    public RepositorioEnviosConIndices(IRepositorioEnvios delegado, IIndiceEnvios... indices) {
+        if (delegado == null) {
+            throw new IllegalArgumentException("El repositorio delegado no puede ser nulo");
+        }
+        this.delegado = delegado;
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new ReentrantLock();
+        }
+        this.versionTarifas = TablaTarifas.actual().getVersion();
+        this.observador = new IObservadorEnvio() {
+            @Override
+            public void antesDeModificar(Envio envio) {
+                // Antes de tomar la franja: la reconstrucción toma todas
+                sincronizarTarifas();
+                String codigo = envio.getCodigoEnvio();
+                ReentrantLock franja = franja(codigo);
+                franja.lock();
+                try {
+                    if (enModificacion.merge(codigo, 1, Integer::sum) == 1) {
+                        for (IIndiceEnvios indice : RepositorioEnviosConIndices.this.indices) {
+                            indice.quitar(envio);
+                        }
+                    }
+                } finally {
+                    franja.unlock();
+                }
+            }
+            
+            @Override
+            public void despuesDeModificar(Envio envio) {
+                String codigo = envio.getCodigoEnvio();
+                ReentrantLock franja = franja(codigo);
+                franja.lock();
+                try {
+                    boolean ultimo = enModificacion.compute(codigo,
+                            (c, n) -> n == null || n == 1 ? null : n - 1) == null;
+                    // Un envío retirado durante el setter no vuelve a los índices
+                    if (ultimo && delegado.buscarPorCodigo(codigo) != null) {
+                        for (IIndiceEnvios indice : RepositorioEnviosConIndices.this.indices) {
+                            indice.agregar(envio);
+                        }
+                    }
+                } finally {
+                    franja.unlock();
+                }
+            }
+        };
+        
+        delegado.flujo().forEach(envio -> envio.agregarObservador(observador));
+        for (IIndiceEnvios indice : indices) {
+            agregarIndice(indice);
+        }
+    }
+    
+    /**
+     * Registra un índice y lo llena con los envíos actuales
+     * @param indice Índice a registrar (su nombre no debe estar en uso)
+     * @throws IllegalArgumentException si el índice es nulo o su nombre ya está registrado
+     */
+    public void agregarIndice(IIndiceEnvios indice) {
+        if (indice == null) {
+            throw new IllegalArgumentException("El índice no puede ser nulo");
+        }
+        bloquearTodas();
+        try {
+            if (indicesPorNombre.putIfAbsent(indice.getNombre(), indice) != null) {
+                throw new IllegalArgumentException("Ya existe un índice llamado " + indice.getNombre());
+            }
+            llenar(indice);
+            indices.add(indice);
+        } finally {
+            desbloquearTodas();
+        }
+    }
+    
+    /**
+     * Quita un índice; las búsquedas que lo usaban vuelven a recorrer el repositorio
+     * @param nombre Nombre del índice
+     * @return true si el índice existía
+     */
+    public boolean quitarIndice(String nombre) {
+        bloquearTodas();
+        try {
+            IIndiceEnvios indice = indicesPorNombre.remove(nombre);
+            if (indice == null) {
+                return false;
+            }
+            indices.remove(indice);
+            return true;
+        } finally {
+            desbloquearTodas();
+        }
+    }
+    
+    /**
+     * Obtiene un índice registrado
+     * @param nombre Nombre del índice
+     * @return Índice o null si no está registrado
+     */
+    public IIndiceEnvios obtenerIndice(String nombre) {
+        return indicesPorNombre.get(nombre);
+    }
+    
+    @Override
+    public boolean agregar(Envio envio) {
+        if (envio == null) {
+            return delegado.agregar(null);
+        }
+        sincronizarTarifas();
+        ReentrantLock franja = franja(envio.getCodigoEnvio());
+        franja.lock();
+        try {
+            if (!delegado.agregar(envio)) {
+                return false;
+            }
+            indexar(envio.getCodigoEnvio());
+            return true;
+        } finally {
+            franja.unlock();
+        }
+    }
+    
+    @Override
+    public boolean retirar(String codigoEnvio) {
+        return extraer(codigoEnvio) != null;
+    }
+    
+    @Override
+    public Envio extraer(String codigoEnvio) {
+        sincronizarTarifas();
+        ReentrantLock franja = franja(codigoEnvio);
+        franja.lock();
+        try {
+            Envio almacenado = delegado.buscarPorCodigo(codigoEnvio);
+            Envio retirado = delegado.extraer(codigoEnvio);
+            if (retirado != null) {
+                almacenado.quitarObservador(observador);
+                desindexar(retirado);
+            }
+            return retirado;
+        } finally {
+            franja.unlock();
+        }
+    }
+    
+    @Override
+    public ResultadoLote agregarLote(Collection<? extends Envio> envios, boolean atomico) {
+        sincronizarTarifas();
+        bloquearTodas();
+        try {
+            ResultadoLote resultado = delegado.agregarLote(envios, atomico);
+            for (int i = 0; i < resultado.getCantidad(); i++) {
+                if (resultado.getEstado(i) == ResultadoLote.Estado.AGREGADO) {
+                    indexar(resultado.getEnvio(i).getCodigoEnvio());
+                }
+            }
+            return resultado;
+        } finally {
+            desbloquearTodas();
+        }
+    }
+    
+    @Override
+    public ResultadoLote retirarLote(Collection<String> codigos, boolean atomico) {
+        sincronizarTarifas();
+        bloquearTodas();
+        try {
+            ResultadoLote resultado = delegado.retirarLote(codigos, atomico);
+            for (int i = 0; i < resultado.getCantidad(); i++) {
+                if (resultado.getEstado(i) == ResultadoLote.Estado.RETIRADO) {
+                    desindexar(resultado.getEnvio(i));
+                }
+            }
+            return resultado;
+        } finally {
+            desbloquearTodas();
+        }
+    }
+    
+    @Override
+    public Envio buscarPorCodigo(String codigoEnvio) {
+        return delegado.buscarPorCodigo(codigoEnvio);
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Envio> buscarPorCliente(String cliente) {
+        IIndiceEnvios indice = indicesPorNombre.get(IndiceSecundario.CLIENTE);
+        if (indice instanceof IndiceSecundario) {
+            return ((IndiceSecundario<String>) indice).buscar(cliente);
+        }
+        return delegado.buscarPorCliente(cliente);
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Envio> buscarPorTipo(FabricaEnvios.TipoEnvio tipo) {
+        IIndiceEnvios indice = indicesPorNombre.get(IndiceSecundario.TIPO);
+        if (indice instanceof IndiceSecundario) {
+            return ((IndiceSecundario<FabricaEnvios.TipoEnvio>) indice).buscar(tipo);
+        }
+        return delegado.buscarPorTipo(tipo);
+    }
+    
+    @Override
+    public Stream<Envio> buscarPorRango(IndiceRango.Campo campo, double minimo, double maximo) {
+        sincronizarTarifas();
+        IIndiceEnvios indice = indicesPorNombre.get(campo.getNombre());
+        if (indice instanceof IndiceRango) {
+            return ((IndiceRango) indice).rango(minimo, maximo);
+        }
+        return delegado.buscarPorRango(campo, minimo, maximo);
+    }
+    
+    @Override
+    public List<Envio> obtenerMayoresCostos(int k) {
+        sincronizarTarifas();
+        IIndiceEnvios indice = indicesPorNombre.get(IndiceMayoresCostos.NOMBRE);
+        if (indice instanceof IndiceMayoresCostos) {
+            return ((IndiceMayoresCostos) indice).mayores(k);
+        }
+        indice = indicesPorNombre.get(IndiceRango.Campo.COSTO.getNombre());
+        if (indice instanceof IndiceRango) {
+            return ((IndiceRango) indice).mayores(k);
+        }
+        return delegado.obtenerMayoresCostos(k);
+    }
+    
+    @Override
+    public List<Envio> obtenerMayoresCostos(FabricaEnvios.TipoEnvio tipo, int k) {
+        sincronizarTarifas();
+        IIndiceEnvios indice = indicesPorNombre.get(IndiceMayoresCostos.NOMBRE);
+        if (indice instanceof IndiceMayoresCostos) {
+            return ((IndiceMayoresCostos) indice).mayores(tipo, k);
+        }
+        return delegado.obtenerMayoresCostos(tipo, k);
+    }
+    
+    @Override
+    public List<Envio> obtenerTodos() {
+        return delegado.obtenerTodos();
+    }
+    
+    @Override
+    public Stream<Envio> flujo() {
+        return delegado.flujo();
+    }
+    
+    @Override
+    public int obtenerCantidad() {
+        return delegado.obtenerCantidad();
+    }
+    
+    @Override
+    public void reservarCapacidad(int adicionales) {
+        delegado.reservarCapacidad(adicionales);
+    }
+    
+    @Override
+    public double calcularTotalTarifas() {
+        return delegado.calcularTotalTarifas();
+    }
+    
+    @Override
+    public ReporteEnvios generarReporte(MotorReportes motor) {
+        return delegado.generarReporte(motor);
+    }
+    
+    /**
+     * Reconstruye los índices que dependen de las tarifas si se publicó otra tabla
+     * (la comprobación es una lectura volátil; solo la reconstrucción toma las franjas).
+     * Se llama antes de tomar una franja: la reconstrucción las toma todas
+     */
+    private void sincronizarTarifas() {
+        if (TablaTarifas.actual().getVersion() != versionTarifas) {
+            reconstruirIndicesDeTarifas();
+        }
+    }
+    
+    private void reconstruirIndicesDeTarifas() {
+        bloquearTodas();
+        try {
+            long version = TablaTarifas.actual().getVersion();
+            if (version == versionTarifas) {
+                return;
+            }
+            // Se anota antes de reconstruir: si se publica otra tabla mientras tanto, la
+            // siguiente operación vuelve a reconstruir
+            versionTarifas = version;
+            for (IIndiceEnvios indice : indices) {
+                if (indice.dependeDeTarifas()) {
+                    llenar(indice);
+                }
+            }
+        } finally {
+            desbloquearTodas();
+        }
+    }
+    
+    /**
+     * Vacía un índice y lo llena con los envíos almacenados (con todas las franjas tomadas)
+     * Los envíos con un setter en curso se omiten: el setter los agrega al terminar
+     */
+    private void llenar(IIndiceEnvios indice) {
+        indice.limpiar();
+        if (enModificacion.isEmpty()) {
+            delegado.flujo().forEach(indice::agregar);
+        } else {
+            delegado.flujo().filter(envio -> !enModificacion.containsKey(envio.getCodigoEnvio()))
+                    .forEach(indice::agregar);
+        }
+    }
+    
+    /**
+     * Bloqueo de las altas y bajas de un código (el código null usa la primera franja)
+     */
+    private ReentrantLock franja(String codigoEnvio) {
+        int hash = codigoEnvio == null ? 0 : codigoEnvio.hashCode();
+        return franjas[(hash ^ (hash >>> 16)) & (FRANJAS - 1)];
+    }
+    
+    /**
+     * Toma todas las franjas, siempre en el mismo orden
+     */
+    private void bloquearTodas() {
+        for (ReentrantLock franja : franjas) {
+            franja.lock();
+        }
+    }
+    
+    private void desbloquearTodas() {
+        for (int i = FRANJAS - 1; i >= 0; i--) {
+            franjas[i].unlock();
+        }
+    }
+    
+    /**
+     * Indexa la instancia que quedó almacenada (algunos repositorios guardan una copia)
+     */
+    private void indexar(String codigoEnvio) {
+        Envio almacenado = delegado.buscarPorCodigo(codigoEnvio);
+        for (IIndiceEnvios indice : indices) {
+            indice.agregar(almacenado);
+        }
+        almacenado.agregarObservador(observador);
+    }
+    
+    /**
+     * Quita un envío retirado de los índices (las claves se leen del envío retirado)
+     */
+    private void desindexar(Envio envio) {
+        envio.quitarObservador(observador);
+        for (IIndiceEnvios indice : indices) {
+            indice.quitar(envio);
+        }
+    }
+}
+
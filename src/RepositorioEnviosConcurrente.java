@@ -0,0 +1,226 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Implementación concurrente del repositorio de envíos
+ * Permite que varios hilos agreguen y retiren envíos a la vez mientras otros leen.
+ * El índice por código es un ConcurrentHashMap (escrituras con bloqueo por celda,
+ * lecturas sin bloqueo). El orden de inserción se reparte en FRANJAS listas de salto sin
+ * bloqueos, una por franja de códigos, cada una con su propia secuencia: las altas de
+ * códigos distintos no comparten un contador ni el final de una misma lista.
+ *
+ * La clave de orden de un envío es el instante de System.nanoTime() al agregarlo, corrido
+ * lo necesario para que sea mayor que la anterior de su franja y que la anterior del mismo
+ * hilo. obtenerTodos y flujo mezclan las franjas por esa clave: los envíos que agrega un
+ * hilo salen en el orden en que los agregó, y las altas simultáneas de varios hilos, en un
+ * orden cualquiera entre ellas (como con una secuencia global).
+ * Principio S (Single Responsibility): Solo gestiona el almacenamiento de envíos
+ * Principio L (Liskov Substitution): Sustituible por RepositorioEnvios
+ * Principio D (Dependency Inversion): Implementa una interfaz
+ */
+public class RepositorioEnviosConcurrente implements IRepositorioEnvios {
+    private static final int FRANJAS = 16;
+    // Última clave asignada por cada hilo (en cualquier repositorio)
+    private static final ThreadLocal<long[]> ULTIMA_DEL_HILO =
+            ThreadLocal.withInitial(() -> new long[] {Long.MIN_VALUE});
+    
+    private final ConcurrentHashMap<String, Entrada> indice;
+    private final Franja[] franjas = new Franja[FRANJAS];
+    
+    /**
+     * Constructor del repositorio
+     */
+    public RepositorioEnviosConcurrente() {
+        this(16);
+    }
+    
+    /**
+     * Constructor con capacidad inicial
+     * @param capacidadInicial Cantidad de envíos esperada
+     */
+    public RepositorioEnviosConcurrente(int capacidadInicial) {
+        if (capacidadInicial < 0) {
+            throw new IllegalArgumentException("La capacidad inicial no puede ser negativa");
+        }
+        this.indice = new ConcurrentHashMap<>(capacidadInicial);
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new Franja();
+        }
+    }
+    
+    @Override
+    public boolean agregar(Envio envio) {
+        if (envio == null || envio.getCodigoEnvio() == null) {
+            return false;
+        }
+        
+        // La verificación de duplicado y la inserción ocurren bajo el bloqueo de la
+        // celda del código, así dos hilos nunca insertan el mismo código
+        final int numeroFranja = franja(envio.getCodigoEnvio());
+        final boolean[] agregado = new boolean[1];
+        indice.compute(envio.getCodigoEnvio(), (codigo, actual) -> {
+            if (actual != null) {
+                return actual;
+            }
+            Franja franja = franjas[numeroFranja];
+            long[] ultimaDelHilo = ULTIMA_DEL_HILO.get();
+            long clave = franja.siguienteClave(Math.max(System.nanoTime(), ultimaDelHilo[0] + 1));
+            ultimaDelHilo[0] = clave;
+            franja.orden.put(clave, envio);
+            agregado[0] = true;
+            return new Entrada(numeroFranja, clave, envio);
+        });
+        return agregado[0];
+    }
+    
+    @Override
+    public boolean retirar(String codigoEnvio) {
+        return extraer(codigoEnvio) != null;
+    }
+    
+    @Override
+    public Envio extraer(String codigoEnvio) {
+        if (codigoEnvio == null) {
+            return null;
+        }
+        
+        final Envio[] retirado = new Envio[1];
+        indice.computeIfPresent(codigoEnvio, (codigo, actual) -> {
+            franjas[actual.franja].orden.remove(actual.clave);
+            retirado[0] = actual.envio;
+            return null;
+        });
+        return retirado[0];
+    }
+    
+    @Override
+    public Envio buscarPorCodigo(String codigoEnvio) {
+        if (codigoEnvio == null) {
+            return null;
+        }
+        Entrada entrada = indice.get(codigoEnvio);
+        return entrada != null ? entrada.envio : null;
+    }
+    
+    @Override
+    public List<Envio> obtenerTodos() {
+        // Copia débilmente consistente: refleja los envíos presentes durante el recorrido
+        List<Envio> envios = new ArrayList<>(indice.size());
+        new Mezcla().forEachRemaining(envios::add);
+        return envios;
+    }
+    
+    @Override
+    public Stream<Envio> flujo() {
+        // Recorrido débilmente consistente: tolera escrituras concurrentes sin copiar
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new Mezcla(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+    
+    @Override
+    public int obtenerCantidad() {
+        return indice.size();
+    }
+    
+    private static int franja(String codigo) {
+        int hash = codigo.hashCode();
+        return (hash ^ (hash >>> 16)) & (FRANJAS - 1);
+    }
+    
+    /**
+     * Envíos de una franja de códigos en orden de inserción
+     */
+    private static final class Franja {
+        private final ConcurrentSkipListMap<Long, Envio> orden = new ConcurrentSkipListMap<>();
+        private final AtomicLong ultima = new AtomicLong(Long.MIN_VALUE);
+        
+        /**
+         * Obtiene una clave única de la franja, mayor que todas las anteriores
+         * @param minima Clave mínima deseada
+         * @return Clave asignada (minima, o la anterior + 1 si era mayor o igual)
+         */
+        long siguienteClave(long minima) {
+            return ultima.accumulateAndGet(minima, (anterior, deseada) -> Math.max(anterior + 1, deseada));
+        }
+    }
+    
+    /**
+     * Recorrido de todas las franjas en orden de clave (mezcla de FRANJAS listas ordenadas)
+     */
+    private final class Mezcla implements Iterator<Envio> {
+        private final List<Iterator<Map.Entry<Long, Envio>>> recorridos = new ArrayList<>(FRANJAS);
+        // Próximo envío de cada franja y su clave (null si la franja se terminó)
+        private final Envio[] cabezas = new Envio[FRANJAS];
+        private final long[] claves = new long[FRANJAS];
+        
+        Mezcla() {
+            for (int i = 0; i < FRANJAS; i++) {
+                recorridos.add(franjas[i].orden.entrySet().iterator());
+                avanzar(i);
+            }
+        }
+        
+        @Override
+        public boolean hasNext() {
+            for (Envio cabeza : cabezas) {
+                if (cabeza != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        @Override
+        public Envio next() {
+            int menor = -1;
+            for (int i = 0; i < FRANJAS; i++) {
+                if (cabezas[i] != null && (menor < 0 || claves[i] < claves[menor])) {
+                    menor = i;
+                }
+            }
+            if (menor < 0) {
+                throw new NoSuchElementException();
+            }
+            Envio envio = cabezas[menor];
+            avanzar(menor);
+            return envio;
+        }
+        
+        private void avanzar(int i) {
+            Iterator<Map.Entry<Long, Envio>> recorrido = recorridos.get(i);
+            if (recorrido.hasNext()) {
+                Map.Entry<Long, Envio> entrada = recorrido.next();
+                cabezas[i] = entrada.getValue();
+                claves[i] = entrada.getKey();
+            } else {
+                cabezas[i] = null;
+            }
+        }
+    }
+    
+    /**
+     * Envío registrado junto con su franja y su clave de orden
+     */
+    private static final class Entrada {
+        private final int franja;
+        private final long clave;
+        private final Envio envio;
+        
+        Entrada(int franja, long clave, Envio envio) {
+            this.franja = franja;
+            this.clave = clave;
+            this.envio = envio;
+        }
+    }
+}
+
@@ -0,0 +1,859 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Repositorio de envíos con los datos fuera del heap
+ * Cada envío es un registro de ancho fijo en una MemoriaFueraDeHeap (directa o mapeada
+ * desde un archivo) y el índice por código es una tabla de direccionamiento abierto en
+ * otras dos memorias del mismo tipo, así que el recolector de basura no recorre ni copia
+ * los envíos y el heap no crece con la cantidad de envíos: solo guarda las referencias a
+ * los bloques y el diccionario de clientes.
+ *
+ * Registro (32 bytes): clave del código 8 | peso 8 | distancia 8 | cliente 4 | tipo 1 | relleno 1
+ * | grupo de observadores 2 (ver GruposObservadores)
+ * La clave es el valor de los códigos numéricos canónicos (como en IndiceCodigos); los
+ * códigos de hasta 7 caracteres Latin-1 ("C1234") y los de un prefijo corto seguido de un
+ * número ("ENV-1234567") se empaquetan en ella con el bit de signo activo (ver clave).
+ * Los demás códigos se guardan en el heap, en un IndiceCodigos aparte, y su registro
+ * lleva la clave CLAVE_EXTERNA.
+ * Índice: clave 8 + posición 4 por ranura, factor de carga máximo 0.5 (~24-48 bytes por envío).
+ *
+ * buscarPorCodigo, obtenerTodos y flujo entregan vistas como el repositorio columnar: sus
+ * setters escriben en el registro y notifican a los observadores del envío, guardados en
+ * el propio registro; recorrer con un Cursor, calcularTotalTarifas y generarReporte leen los
+ * registros sin crear un Envio por envío. Al retirar, el último registro ocupa la posición
+ * liberada, así que retirar cambia el orden de obtenerTodos y flujo. La memoria mapeada
+ * es espacio de trabajo, no persistencia: el archivo se vacía al abrir el repositorio
+ * (para persistir, decorar con RepositorioEnviosPersistente).
+ * No es seguro para varios hilos (decorar con un repositorio sincronizado), pero un flujo
+ * paralelo o un reporte pueden leerlo desde varios hilos si nadie lo modifica.
+ * Principio S (Single Responsibility): Solo gestiona el almacenamiento de envíos
+ * Principio L (Liskov Substitution): Sustituible por cualquier IRepositorioEnvios
+ * Principio D (Dependency Inversion): Implementa una interfaz
+ */
+public class RepositorioEnviosFueraDeHeap implements IRepositorioEnvios, Closeable {
+    /** Clave del registro cuyo código se guarda en el heap */
+    static final long CLAVE_EXTERNA = -1L;
+    
+    private static final FabricaEnvios.TipoEnvio[] TIPOS = FabricaEnvios.TipoEnvio.values();
+    private static final int CAPACIDAD_MINIMA = 16;
+    private static final int TAMANO_REGISTRO = 32;
+    private static final int CAMPO_CLAVE = 0;
+    private static final int CAMPO_PESO = 8;
+    private static final int CAMPO_DISTANCIA = 16;
+    private static final int CAMPO_CLIENTE = 24;
+    private static final int CAMPO_TIPO = 28;
+    private static final int CAMPO_OBSERVADORES = 30;
+    private static final int CARACTERES_EMPAQUETADOS = 7;
+    private static final int PREFIJO_MAXIMO = 4;
+    private static final int DIGITOS_CON_PREFIJO = 9;
+    private static final long CON_PREFIJO = 1L << 62;
+    private static final int BLOQUE_LECTURA = 1024;
+    
+    // null: memoria directa; si no, archivo mapeado de los registros
+    private final Path archivo;
+    private final MemoriaFueraDeHeap registros;
+    private int cantidad;
+    private boolean cerrado;
+    
+    // Índice por clave: clave y posición + 1 (0 indica ranura libre)
+    private MemoriaFueraDeHeap claves;
+    private MemoriaFueraDeHeap posiciones;
+    private int tamanoTabla;
+    
+    // Códigos que no caben en la clave (null hasta el primero)
+    private IndiceCodigos indiceExternos;
+    private Map<Integer, String> codigosExternos;
+    
+    // Diccionario de clientes
+    private final List<String> nombresClientes;
+    private final Map<String, Integer> idsClientes;
+    
+    // Conjuntos de observadores (el registro guarda el número de grupo en 2 bytes)
+    private final GruposObservadores grupos = new GruposObservadores(1 << 16);
+    
+    /**
+     * Constructor del repositorio en memoria directa
+     */
+    public RepositorioEnviosFueraDeHeap() {
+        this(CAPACIDAD_MINIMA);
+    }
+    
+    /**
+     * Constructor en memoria directa con capacidad inicial
+     * @param capacidadInicial Cantidad de envíos esperada
+     */
+    public RepositorioEnviosFueraDeHeap(int capacidadInicial) {
+        this(null, capacidadInicial);
+    }
+    
+    /**
+     * Constructor con los registros mapeados desde un archivo (se crea o se vacía)
+     * @param archivo Archivo de los registros
+     * @throws UncheckedIOException si no se puede mapear el archivo
+     */
+    public RepositorioEnviosFueraDeHeap(Path archivo) {
+        this(archivo, CAPACIDAD_MINIMA);
+    }
+    
+    /**
+     * Constructor con los registros mapeados desde un archivo (se crea o se vacía)
+     * El índice se mapea en archivos temporales del mismo directorio que se borran al cerrar
+     * @param archivo Archivo de los registros, o null para usar memoria directa
+     * @param capacidadInicial Cantidad de envíos esperada
+     * @throws UncheckedIOException si no se puede mapear el archivo
+     */
+    public RepositorioEnviosFueraDeHeap(Path archivo, int capacidadInicial) {
+        if (capacidadInicial < 0) {
+            throw new IllegalArgumentException("La capacidad inicial no puede ser negativa");
+        }
+        int capacidad = Math.max(CAPACIDAD_MINIMA, capacidadInicial);
+        this.archivo = archivo == null ? null : archivo.toAbsolutePath();
+        this.registros = archivo == null
+                ? MemoriaFueraDeHeap.directa((long) capacidad * TAMANO_REGISTRO)
+                : MemoriaFueraDeHeap.mapeada(this.archivo, (long) capacidad * TAMANO_REGISTRO, false);
+        crearTabla(IndiceCodigos.tamanoTablaPara(capacidad));
+        this.nombresClientes = new ArrayList<>();
+        this.idsClientes = new HashMap<>();
+    }
+    
+    @Override
+    public boolean agregar(Envio envio) {
+        verificarAbierto();
+        if (envio == null || envio.getCodigoEnvio() == null) {
+            return false;
+        }
+        
+        String codigo = envio.getCodigoEnvio();
+        long clave = clave(codigo);
+        int posicion = cantidad;
+        long base = (long) posicion * TAMANO_REGISTRO;
+        // Primero el espacio del registro: si reservarlo falla, el índice no debe apuntar a él
+        registros.asegurar(base + TAMANO_REGISTRO);
+        if (clave == CLAVE_EXTERNA) {
+            if (indiceExternos == null) {
+                indiceExternos = new IndiceCodigos();
+                codigosExternos = new HashMap<>();
+            }
+            if (indiceExternos.agregar(codigo, posicion) != IndiceCodigos.AUSENTE) {
+                return false;
+            }
+            codigosExternos.put(posicion, codigo);
+        } else {
+            int ranura = ranura(clave);
+            if (posiciones.getInt((long) ranura * 4) != 0) {
+                return false;
+            }
+            if ((cantidadIndexada() + 1) * 2L > tamanoTabla) {
+                redimensionarTabla(tamanoTabla * 2);
+                ranura = ranura(clave);
+            }
+            claves.putLong((long) ranura * 8, clave);
+            posiciones.putInt((long) ranura * 4, posicion + 1);
+        }
+        
+        registros.putLong(base + CAMPO_CLAVE, clave);
+        registros.putDouble(base + CAMPO_PESO, envio.getPesoKg());
+        registros.putDouble(base + CAMPO_DISTANCIA, envio.getDistanciaKm());
+        registros.putInt(base + CAMPO_CLIENTE, idCliente(envio.getCliente()));
+        registros.put(base + CAMPO_TIPO, (byte) envio.getTipo().ordinal());
+        registros.putShort(base + CAMPO_OBSERVADORES, (short) GruposObservadores.SIN_OBSERVADORES);
+        cantidad++;
+        return true;
+    }
+    
+    /**
+     * Escribe los registros del bloque directamente, sin crear un Envio por fila
+     */
+    @Override
+    public int agregarColumnas(ColumnasEnvios bloque) {
+        reservarCapacidad(bloque.getCantidad());
+        ToIntFunction<String> ids = this::idCliente;
+        int agregados = 0;
+        for (int i = 0; i < bloque.getCantidad(); i++) {
+            long numerico = bloque.getCodigoNumerico(i);
+            String codigo = numerico >= 0 ? null : bloque.getCodigo(i);
+            long clave = numerico >= 0 ? numerico : clave(codigo);
+            int posicion = cantidad;
+            if (clave == CLAVE_EXTERNA) {
+                if (indiceExternos == null) {
+                    indiceExternos = new IndiceCodigos();
+                    codigosExternos = new HashMap<>();
+                }
+                if (indiceExternos.agregar(codigo, posicion) != IndiceCodigos.AUSENTE) {
+                    continue;
+                }
+                codigosExternos.put(posicion, codigo);
+            } else {
+                // La capacidad reservada mantiene el factor de carga: no hace falta redimensionar
+                int ranura = ranura(clave);
+                if (posiciones.getInt((long) ranura * 4) != 0) {
+                    continue;
+                }
+                claves.putLong((long) ranura * 8, clave);
+                posiciones.putInt((long) ranura * 4, posicion + 1);
+            }
+            long base = (long) posicion * TAMANO_REGISTRO;
+            registros.putLong(base + CAMPO_CLAVE, clave);
+            registros.putDouble(base + CAMPO_PESO, bloque.getPesoKg(i));
+            registros.putDouble(base + CAMPO_DISTANCIA, bloque.getDistanciaKm(i));
+            registros.putInt(base + CAMPO_CLIENTE, bloque.traducirCliente(i, ids));
+            registros.put(base + CAMPO_TIPO, (byte) bloque.getTipo(i).ordinal());
+            registros.putShort(base + CAMPO_OBSERVADORES, (short) GruposObservadores.SIN_OBSERVADORES);
+            cantidad++;
+            agregados++;
+        }
+        return agregados;
+    }
+    
+    @Override
+    public boolean retirar(String codigoEnvio) {
+        return eliminar(codigoEnvio) >= 0;
+    }
+    
+    @Override
+    public Envio extraer(String codigoEnvio) {
+        int posicion = buscarPosicion(codigoEnvio);
+        if (posicion < 0) {
+            return null;
+        }
+        
+        // Copia independiente: la posición se reutiliza en cuanto se elimina
+        long base = (long) posicion * TAMANO_REGISTRO;
+        Envio copia = FabricaEnvios.crearEnvio(TIPOS[registros.get(base + CAMPO_TIPO)],
+                nombresClientes.get(registros.getInt(base + CAMPO_CLIENTE)), codigoEnvio,
+                registros.getDouble(base + CAMPO_PESO), registros.getDouble(base + CAMPO_DISTANCIA));
+        eliminar(codigoEnvio);
+        return copia;
+    }
+    
+    @Override
+    public Envio buscarPorCodigo(String codigoEnvio) {
+        int posicion = buscarPosicion(codigoEnvio);
+        return posicion >= 0 ? new Vista(clave(codigoEnvio), codigoEnvio, posicion) : null;
+    }
+    
+    @Override
+    public List<Envio> obtenerTodos() {
+        List<Envio> envios = new ArrayList<>(cantidad);
+        for (int i = 0; i < cantidad; i++) {
+            envios.add(vista(i));
+        }
+        return envios;
+    }
+    
+    @Override
+    public Stream<Envio> flujo() {
+        return IntStream.range(0, cantidad).mapToObj(this::vista);
+    }
+    
+    @Override
+    public int obtenerCantidad() {
+        return cantidad;
+    }
+    
+    @Override
+    public void reservarCapacidad(int adicionales) {
+        verificarAbierto();
+        long requerida = (long) cantidad + adicionales;
+        registros.asegurar(requerida * TAMANO_REGISTRO);
+        int tamano = IndiceCodigos.tamanoTablaPara((int) Math.min(Integer.MAX_VALUE - 8, requerida));
+        if (tamano > tamanoTabla) {
+            redimensionarTabla(tamano);
+        }
+    }
+    
+    /**
+     * Calcula el total de tarifas leyendo los registros por bloques
+     * @return Suma de las tarifas de todos los envíos
+     */
+    @Override
+    public double calcularTotalTarifas() {
+        return sumarTarifas(-1);
+    }
+    
+    /**
+     * Calcula el total de tarifas de un tipo leyendo los registros por bloques
+     * @param tipo Tipo de envío
+     * @return Suma de las tarifas de los envíos del tipo
+     */
+    public double calcularTotalTarifas(FabricaEnvios.TipoEnvio tipo) {
+        if (tipo == null) {
+            throw new IllegalArgumentException("El tipo de envío no puede ser nulo");
+        }
+        return sumarTarifas(tipo.ordinal());
+    }
+    
+    @Override
+    public ReporteEnvios generarReporte(MotorReportes motor) {
+        return motor.generar(new FuenteRegistros(), cantidad);
+    }
+    
+    /**
+     * Crea un cursor que recorre los envíos sin crear objetos por envío
+     * @return Cursor antes del primer envío
+     */
+    public Cursor cursor() {
+        verificarAbierto();
+        return new Cursor();
+    }
+    
+    /**
+     * Bytes fuera del heap reservados por los registros y el índice
+     * @return Bytes reservados
+     */
+    public long bytesFueraDeHeap() {
+        return registros.capacidad() + claves.capacidad() + posiciones.capacidad();
+    }
+    
+    /**
+     * Suelta la memoria de los registros y del índice; si es mapeada, cierra y borra los
+     * archivos del índice (el de los registros queda en el disco)
+     * @throws IOException si no se puede cerrar algún archivo
+     */
+    @Override
+    public void close() throws IOException {
+        if (cerrado) {
+            return;
+        }
+        cerrado = true;
+        cantidad = 0;
+        try {
+            registros.close();
+        } finally {
+            try {
+                claves.close();
+            } finally {
+                posiciones.close();
+            }
+        }
+    }
+    
+    /**
+     * Clave de un código, según su forma:
+     * - numérico canónico: su valor (clave no negativa)
+     * - hasta 7 caracteres Latin-1: bit 63, largo en los bits 56-58 y un byte por carácter
+     * - prefijo ASCII sin dígitos de 1 a 4 caracteres seguido de un número canónico de hasta
+     *   9 dígitos ("ENV-1234567"): bits 63 y 62, largo del prefijo en los bits 59-61, el
+     *   prefijo con 7 bits por carácter en los bits 31-58 y el número en los bits 0-30
+     * - cualquier otro: CLAVE_EXTERNA (el largo 7 en los bits 59-61 no lo usa ningún prefijo)
+     * @param codigo Código del envío
+     * @return Clave del código
+     */
+    static long clave(String codigo) {
+        long numerico = IndiceCodigos.codigoNumerico(codigo);
+        if (numerico >= 0) {
+            return numerico;
+        }
+        int largo = codigo.length();
+        if (largo <= CARACTERES_EMPAQUETADOS) {
+            long clave = Long.MIN_VALUE | ((long) largo << 56);
+            for (int i = 0; i < largo; i++) {
+                char c = codigo.charAt(i);
+                if (c > 0xFF) {
+                    return CLAVE_EXTERNA;
+                }
+                clave |= (long) c << (8 * i);
+            }
+            return clave;
+        }
+        
+        int prefijo = 0;
+        while (prefijo < largo && prefijo <= PREFIJO_MAXIMO && !esDigito(codigo.charAt(prefijo))) {
+            prefijo++;
+        }
+        int digitos = largo - prefijo;
+        if (prefijo == 0 || prefijo > PREFIJO_MAXIMO || digitos > DIGITOS_CON_PREFIJO
+                || (digitos > 1 && codigo.charAt(prefijo) == '0')) {
+            return CLAVE_EXTERNA;
+        }
+        long clave = Long.MIN_VALUE | CON_PREFIJO | ((long) prefijo << 59);
+        int numero = 0;
+        for (int i = prefijo; i < largo; i++) {
+            char c = codigo.charAt(i);
+            if (!esDigito(c)) {
+                return CLAVE_EXTERNA;
+            }
+            numero = numero * 10 + (c - '0');
+        }
+        clave |= numero;
+        for (int i = 0; i < prefijo; i++) {
+            char c = codigo.charAt(i);
+            if (c > 0x7F) {
+                return CLAVE_EXTERNA;
+            }
+            clave |= (long) c << (31 + 7 * i);
+        }
+        return clave;
+    }
+    
+    /**
+     * Código de una clave (no externa)
+     * @param clave Clave del código
+     * @return Código del envío
+     */
+    static String codigo(long clave) {
+        if (clave >= 0) {
+            return Long.toString(clave);
+        }
+        if ((clave & CON_PREFIJO) != 0) {
+            int prefijo = (int) (clave >>> 59) & 0x7;
+            StringBuilder codigo = new StringBuilder(prefijo + DIGITOS_CON_PREFIJO);
+            for (int i = 0; i < prefijo; i++) {
+                codigo.append((char) ((clave >>> (31 + 7 * i)) & 0x7F));
+            }
+            return codigo.append(clave & 0x7FFFFFFFL).toString();
+        }
+        int largo = (int) (clave >>> 56) & 0x7;
+        byte[] caracteres = new byte[largo];
+        for (int i = 0; i < largo; i++) {
+            caracteres[i] = (byte) (clave >>> (8 * i));
+        }
+        return new String(caracteres, StandardCharsets.ISO_8859_1);
+    }
+    
+    private static boolean esDigito(char c) {
+        return c >= '0' && c <= '9';
+    }
+    
+    private void verificarAbierto() {
+        if (cerrado) {
+            throw new IllegalStateException("El repositorio fuera del heap está cerrado");
+        }
+    }
+    
+    private int buscarPosicion(String codigo) {
+        verificarAbierto();
+        if (codigo == null) {
+            return -1;
+        }
+        long clave = clave(codigo);
+        if (clave == CLAVE_EXTERNA) {
+            return indiceExternos == null ? -1 : indiceExternos.buscar(codigo);
+        }
+        return posiciones.getInt((long) ranura(clave) * 4) - 1;
+    }
+    
+    /**
+     * Elimina el envío con el código dado moviendo el último registro a su posición
+     * @param codigo Código del envío
+     * @return Posición que ocupaba el envío o -1 si no existía
+     */
+    private int eliminar(String codigo) {
+        verificarAbierto();
+        if (codigo == null) {
+            return -1;
+        }
+        long clave = clave(codigo);
+        int posicion;
+        if (clave == CLAVE_EXTERNA) {
+            posicion = indiceExternos == null ? -1 : indiceExternos.quitar(codigo);
+            if (posicion < 0) {
+                return -1;
+            }
+            codigosExternos.remove(posicion);
+        } else {
+            int ranura = ranura(clave);
+            posicion = posiciones.getInt((long) ranura * 4) - 1;
+            if (posicion < 0) {
+                return -1;
+            }
+            quitarDeTabla(ranura);
+        }
+        
+        int ultima = --cantidad;
+        if (posicion != ultima) {
+            registros.copiar((long) ultima * TAMANO_REGISTRO, (long) posicion * TAMANO_REGISTRO, TAMANO_REGISTRO);
+            long movida = registros.getLong((long) posicion * TAMANO_REGISTRO + CAMPO_CLAVE);
+            if (movida == CLAVE_EXTERNA) {
+                String codigoMovido = codigosExternos.remove(ultima);
+                codigosExternos.put(posicion, codigoMovido);
+                indiceExternos.poner(codigoMovido, posicion);
+            } else {
+                posiciones.putInt((long) ranura(movida) * 4, posicion + 1);
+            }
+        }
+        return posicion;
+    }
+    
+    private int cantidadIndexada() {
+        return indiceExternos == null ? cantidad : cantidad - indiceExternos.tamano();
+    }
+    
+    private Vista vista(int posicion) {
+        long clave = registros.getLong((long) posicion * TAMANO_REGISTRO + CAMPO_CLAVE);
+        return new Vista(clave, clave == CLAVE_EXTERNA ? codigosExternos.get(posicion) : null, posicion);
+    }
+    
+    private double sumarTarifas(int filtro) {
+        byte[] tipos = new byte[BLOQUE_LECTURA];
+        double[] pesos = new double[BLOQUE_LECTURA];
+        double[] distancias = new double[BLOQUE_LECTURA];
+        TablaTarifas tabla = TablaTarifas.actual();
+        SumaCompensada total = new SumaCompensada();
+        int desde = 0;
+        while (desde < cantidad) {
+            // Los registros no cruzan el límite de un bloque: se leen del bloque directamente
+            long inicio = (long) desde * TAMANO_REGISTRO;
+            ByteBuffer bloque = registros.bloque(inicio);
+            int base = registros.enBloque(inicio);
+            int llenos = Math.min(Math.min(BLOQUE_LECTURA, cantidad - desde),
+                    registros.restanteEnBloque(inicio) / TAMANO_REGISTRO);
+            for (int j = 0; j < llenos; j++, base += TAMANO_REGISTRO) {
+                tipos[j] = bloque.get(base + CAMPO_TIPO);
+                pesos[j] = bloque.getDouble(base + CAMPO_PESO);
+                distancias[j] = bloque.getDouble(base + CAMPO_DISTANCIA);
+            }
+            KernelTarifas.acumularTarifas(tabla, tipos, pesos, distancias, 0, llenos, filtro, total);
+            desde += llenos;
+        }
+        return total.valor();
+    }
+    
+    /**
+     * Ranura de la tabla que contiene la clave o la primera libre donde iría
+     */
+    private int ranura(long clave) {
+        int mascara = tamanoTabla - 1;
+        int ranura = IndiceCodigos.dispersar(clave) & mascara;
+        while (posiciones.getInt((long) ranura * 4) != 0 && claves.getLong((long) ranura * 8) != clave) {
+            ranura = (ranura + 1) & mascara;
+        }
+        return ranura;
+    }
+    
+    /**
+     * Libera una ranura desplazando hacia atrás las entradas de su misma secuencia de sondeo
+     */
+    private void quitarDeTabla(int ranura) {
+        int mascara = tamanoTabla - 1;
+        int libre = ranura;
+        int siguiente = (libre + 1) & mascara;
+        int posicion;
+        while ((posicion = posiciones.getInt((long) siguiente * 4)) != 0) {
+            long clave = claves.getLong((long) siguiente * 8);
+            int ideal = IndiceCodigos.dispersar(clave) & mascara;
+            if (((siguiente - ideal) & mascara) >= ((siguiente - libre) & mascara)) {
+                claves.putLong((long) libre * 8, clave);
+                posiciones.putInt((long) libre * 4, posicion);
+                libre = siguiente;
+            }
+            siguiente = (siguiente + 1) & mascara;
+        }
+        posiciones.putInt((long) libre * 4, 0);
+    }
+    
+    /**
+     * Reserva una tabla vacía y la publica solo si ambas partes se pudieron reservar
+     */
+    private void crearTabla(int tamano) {
+        MemoriaFueraDeHeap nuevasClaves = reservarIndice(tamano * 8L, ".claves");
+        MemoriaFueraDeHeap nuevasPosiciones;
+        try {
+            nuevasPosiciones = reservarIndice(tamano * 4L, ".posiciones");
+        } catch (RuntimeException | Error e) {
+            try {
+                nuevasClaves.close();
+            } catch (IOException suprimida) {
+                e.addSuppressed(suprimida);
+            }
+            throw e;
+        }
+        claves = nuevasClaves;
+        posiciones = nuevasPosiciones;
+        tamanoTabla = tamano;
+    }
+    
+    private MemoriaFueraDeHeap reservarIndice(long bytes, String sufijo) {
+        if (archivo == null) {
+            return MemoriaFueraDeHeap.directa(bytes);
+        }
+        try {
+            Path temporal = Files.createTempFile(archivo.getParent(), archivo.getFileName().toString(), sufijo);
+            return MemoriaFueraDeHeap.mapeada(temporal, bytes, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo crear el índice junto a " + archivo, e);
+        }
+    }
+    
+    private void redimensionarTabla(int tamano) {
+        MemoriaFueraDeHeap clavesAnteriores = claves;
+        MemoriaFueraDeHeap posicionesAnteriores = posiciones;
+        int tamanoAnterior = tamanoTabla;
+        crearTabla(tamano);
+        for (int i = 0; i < tamanoAnterior; i++) {
+            int posicion = posicionesAnteriores.getInt((long) i * 4);
+            if (posicion != 0) {
+                long clave = clavesAnteriores.getLong((long) i * 8);
+                int ranura = ranura(clave);
+                claves.putLong((long) ranura * 8, clave);
+                posiciones.putInt((long) ranura * 4, posicion);
+            }
+        }
+        try {
+            clavesAnteriores.close();
+            posicionesAnteriores.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo cerrar el índice anterior", e);
+        }
+    }
+    
+    /**
+     * Obtiene (o asigna) el identificador de un cliente en el diccionario
+     * @param cliente Nombre del cliente
+     * @return Identificador entero del cliente
+     */
+    private int idCliente(String cliente) {
+        Integer id = idsClientes.get(cliente);
+        if (id == null) {
+            id = nombresClientes.size();
+            nombresClientes.add(cliente);
+            idsClientes.put(cliente, id);
+        }
+        return id;
+    }
+    
+    /**
+     * Recorrido de los registros sin crear objetos por envío
+     * Se avanza con siguiente() y se leen los campos del envío actual; el código se arma
+     * solo si se pide. No se debe modificar el repositorio durante el recorrido.
+     */
+    public final class Cursor {
+        private int posicion = -1;
+        private long base = -TAMANO_REGISTRO;
+        
+        private Cursor() {
+        }
+        
+        /**
+         * Avanza al siguiente envío
+         * @return false si no hay más envíos
+         */
+        public boolean siguiente() {
+            if (posicion + 1 >= cantidad) {
+                posicion = cantidad;
+                return false;
+            }
+            posicion++;
+            base += TAMANO_REGISTRO;
+            return true;
+        }
+        
+        public int getPosicion() {
+            return posicion;
+        }
+        
+        public String getCodigoEnvio() {
+            long clave = registros.getLong(base + CAMPO_CLAVE);
+            return clave == CLAVE_EXTERNA ? codigosExternos.get(posicion) : codigo(clave);
+        }
+        
+        public FabricaEnvios.TipoEnvio getTipo() {
+            return TIPOS[registros.get(base + CAMPO_TIPO)];
+        }
+        
+        public String getCliente() {
+            return nombresClientes.get(registros.getInt(base + CAMPO_CLIENTE));
+        }
+        
+        public double getPesoKg() {
+            return registros.getDouble(base + CAMPO_PESO);
+        }
+        
+        public double getDistanciaKm() {
+            return registros.getDouble(base + CAMPO_DISTANCIA);
+        }
+        
+        public double getCosto() {
+            return FabricaEnvios.calcularTarifa(getTipo(), getPesoKg(), getDistanciaKm());
+        }
+    }
+    
+    /**
+     * Acceso por posición a los registros para el motor de reportes
+     */
+    private final class FuenteRegistros implements MotorReportes.Fuente {
+        // Se lee una vez por reporte: todas las filas usan la misma tabla
+        private final TablaTarifas tabla = TablaTarifas.actual();
+        
+        @Override
+        public int tipo(int i) {
+            return registros.get((long) i * TAMANO_REGISTRO + CAMPO_TIPO);
+        }
+        
+        @Override
+        public double tarifa(int i) {
+            long base = (long) i * TAMANO_REGISTRO;
+            return tabla.calcular(TIPOS[registros.get(base + CAMPO_TIPO)],
+                    registros.getDouble(base + CAMPO_PESO), registros.getDouble(base + CAMPO_DISTANCIA));
+        }
+        
+        @Override
+        public String cliente(int i) {
+            return nombresClientes.get(registros.getInt((long) i * TAMANO_REGISTRO + CAMPO_CLIENTE));
+        }
+    }
+    
+    /**
+     * Vista de un registro
+     * Conserva la última posición conocida y la revalida comparando la clave guardada en
+     * ella, de modo que sigue siendo válida aunque otros retiros muevan el envío
+     */
+    private final class Vista extends Envio {
+        private final long clave;
+        private int posicion;
+        
+        /**
+         * @param clave Clave del código
+         * @param codigo Código (obligatorio si la clave es externa; si no, puede ser null)
+         */
+        Vista(long clave, String codigo, int posicion) {
+            super(null, codigo, 0.0, 0.0);
+            this.clave = clave;
+            this.posicion = posicion;
+        }
+        
+        private long base() {
+            long base = buscarBase();
+            if (base < 0) {
+                throw new IllegalStateException("El envío " + getCodigoEnvio() + " fue retirado del repositorio");
+            }
+            return base;
+        }
+        
+        /**
+         * @return Posición en bytes del registro del envío, o -1 si fue retirado
+         */
+        private long buscarBase() {
+            if (posicion >= cantidad || !estaEn(posicion)) {
+                int actual = clave == CLAVE_EXTERNA ? buscarPosicion(codigoEnvio)
+                        : posiciones.getInt((long) ranura(clave) * 4) - 1;
+                if (actual < 0) {
+                    return -1;
+                }
+                posicion = actual;
+            }
+            return (long) posicion * TAMANO_REGISTRO;
+        }
+        
+        private IObservadorEnvio[] observadores(long base) {
+            return grupos.obtener(registros.getShort(base + CAMPO_OBSERVADORES) & 0xFFFF);
+        }
+        
+        private boolean estaEn(int i) {
+            return registros.getLong((long) i * TAMANO_REGISTRO + CAMPO_CLAVE) == clave
+                    && (clave != CLAVE_EXTERNA || codigoEnvio.equals(codigosExternos.get(i)));
+        }
+        
+        @Override
+        public String getCodigoEnvio() {
+            // El String de un código guardado como clave se arma una sola vez y solo si se pide
+            if (codigoEnvio == null) {
+                codigoEnvio = codigo(clave);
+            }
+            return codigoEnvio;
+        }
+        
+        @Override
+        public double calcularTarifa() {
+            long base = base();
+            return FabricaEnvios.calcularTarifa(TIPOS[registros.get(base + CAMPO_TIPO)],
+                    registros.getDouble(base + CAMPO_PESO), registros.getDouble(base + CAMPO_DISTANCIA));
+        }
+        
+        @Override
+        public double getCosto() {
+            // Los valores viven en los registros y la posición puede cambiar: sin memoria
+            return calcularTarifa();
+        }
+        
+        @Override
+        public String getTipoEnvio() {
+            return getTipo().getNombre();
+        }
+        
+        @Override
+        public FabricaEnvios.TipoEnvio getTipo() {
+            return TIPOS[registros.get(base() + CAMPO_TIPO)];
+        }
+        
+        @Override
+        public String getCliente() {
+            return nombresClientes.get(registros.getInt(base() + CAMPO_CLIENTE));
+        }
+        
+        @Override
+        public double getPesoKg() {
+            return registros.getDouble(base() + CAMPO_PESO);
+        }
+        
+        @Override
+        public double getDistanciaKm() {
+            return registros.getDouble(base() + CAMPO_DISTANCIA);
+        }
+        
+        @Override
+        public void setCliente(String cliente) {
+            IObservadorEnvio[] actuales = observadores(base());
+            notificarAntes(actuales);
+            registros.putInt(base() + CAMPO_CLIENTE, idCliente(cliente));
+            notificarDespues(actuales);
+        }
+        
+        @Override
+        public void setPesoKg(double pesoKg) {
+            IObservadorEnvio[] actuales = observadores(base());
+            notificarAntes(actuales);
+            registros.putDouble(base() + CAMPO_PESO, pesoKg);
+            notificarDespues(actuales);
+        }
+        
+        @Override
+        public void setDistanciaKm(double distanciaKm) {
+            IObservadorEnvio[] actuales = observadores(base());
+            notificarAntes(actuales);
+            registros.putDouble(base() + CAMPO_DISTANCIA, distanciaKm);
+            notificarDespues(actuales);
+        }
+        
+        /**
+         * Registra el observador en el registro del envío (lo ven todas sus vistas)
+         */
+        @Override
+        public void agregarObservador(IObservadorEnvio observador) {
+            long base = base();
+            int grupo = grupos.agregar(registros.getShort(base + CAMPO_OBSERVADORES) & 0xFFFF, observador);
+            registros.putShort(base + CAMPO_OBSERVADORES, (short) grupo);
+        }
+        
+        /**
+         * Quita el observador del registro; un envío retirado ya no tiene observadores
+         */
+        @Override
+        public boolean quitarObservador(IObservadorEnvio observador) {
+            long base = buscarBase();
+            if (base < 0) {
+                return false;
+            }
+            int grupo = grupos.quitar(registros.getShort(base + CAMPO_OBSERVADORES) & 0xFFFF, observador);
+            if (grupo < 0) {
+                return false;
+            }
+            registros.putShort(base + CAMPO_OBSERVADORES, (short) grupo);
+            return true;
+        }
+    }
+}
+
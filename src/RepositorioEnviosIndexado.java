@@ -0,0 +1,95 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Implementación indexada del repositorio de envíos
+ * Usa un mapa hash por código de envío que conserva el orden de inserción,
+ * por lo que agregar, retirar y buscar cuestan O(1) en lugar de O(n)
+ * Principio S (Single Responsibility): Solo gestiona el almacenamiento de envíos
+ * Principio L (Liskov Substitution): Sustituible por RepositorioEnvios
+ * Principio D (Dependency Inversion): Implementa una interfaz
+ */
+public class RepositorioEnviosIndexado implements IRepositorioEnvios {
+    private final Map<String, Envio> envios;
+    
+    /**
+     * Constructor del repositorio
+     */
+    public RepositorioEnviosIndexado() {
+        this.envios = new LinkedHashMap<>();
+    }
+    
+    /**
+     * Constructor con capacidad inicial
+     * Evita rehashes sucesivos cuando se conoce de antemano el volumen a cargar
+     * @param capacidadInicial Cantidad de envíos esperada
+     */
+    public RepositorioEnviosIndexado(int capacidadInicial) {
+        if (capacidadInicial < 0) {
+            throw new IllegalArgumentException("La capacidad inicial no puede ser negativa");
+        }
+        this.envios = new LinkedHashMap<>(capacidadPara(capacidadInicial));
+    }
+    
+    @Override
+    public boolean agregar(Envio envio) {
+        if (envio == null || envio.getCodigoEnvio() == null) {
+            return false;
+        }
+        
+        // putIfAbsent hace la verificación de duplicado y la inserción en un solo acceso
+        return envios.putIfAbsent(envio.getCodigoEnvio(), envio) == null;
+    }
+    
+    @Override
+    public boolean retirar(String codigoEnvio) {
+        return extraer(codigoEnvio) != null;
+    }
+    
+    @Override
+    public Envio extraer(String codigoEnvio) {
+        if (codigoEnvio == null) {
+            return null;
+        }
+        return envios.remove(codigoEnvio);
+    }
+    
+    @Override
+    public Envio buscarPorCodigo(String codigoEnvio) {
+        if (codigoEnvio == null) {
+            return null;
+        }
+        return envios.get(codigoEnvio);
+    }
+    
+    @Override
+    public List<Envio> obtenerTodos() {
+        // Retorna una copia para mantener encapsulamiento
+        return new ArrayList<>(envios.values());
+    }
+    
+    @Override
+    public Stream<Envio> flujo() {
+        // Vista de solo lectura sobre los valores del mapa, sin copia
+        return Collections.unmodifiableCollection(envios.values()).stream();
+    }
+    
+    @Override
+    public int obtenerCantidad() {
+        return envios.size();
+    }
+    
+    /**
+     * Calcula la capacidad del mapa para que no se redimensione con la cantidad dada
+     * @param cantidad Cantidad de elementos esperada
+     * @return Capacidad inicial del mapa
+     */
+    private static int capacidadPara(int cantidad) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) Math.ceil(cantidad / 0.75));
+    }
+}
+
@@ -0,0 +1,824 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Decorador persistente del repositorio de envíos con registro de escritura anticipada
+ * Cada alta, baja y modificación de un envío se agrega al final de un archivo como un
+ * registro binario compacto [longitud][CRC32][datos]. Al iniciar, el registro se
+ * reproduce sobre el repositorio decorado; un último registro incompleto o corrupto
+ * (escritura interrumpida) se descarta y el archivo se trunca en el último registro válido.
+ *
+ * La sincronización con el disco (fsync) usa confirmación en grupo: un hilo sincroniza
+ * cada ventanaMillis todo lo escrito hasta ese momento y las operaciones que esperan
+ * confirmación se liberan juntas. Una ventana de 0 sincroniza en cada operación; una
+ * ventana mayor cambia latencia por rendimiento.
+ *
+ * Cada operación escribe primero su registro y recién después la aplica al delegado; si
+ * el delegado la rechaza, el registro se quita del búfer antes de que llegue al archivo.
+ * Los textos llevan su longitud en 2 bytes, o 0xFFFF seguido de 4 bytes desde 64 KB.
+ * Las modificaciones se observan en la instancia que guarda el delegado, así lo que se
+ * registra es siempre lo que quedó en memoria. Si falla una escritura o una
+ * sincronización, el registro queda inutilizable: las operaciones que esperaban
+ * confirmación y las siguientes reciben UncheckedIOException.
+ * Principio O (Open/Closed): Agrega persistencia sin modificar los repositorios existentes
+ * Principio L (Liskov Substitution): Sustituible por cualquier IRepositorioEnvios
+ * Principio D (Dependency Inversion): Decora una abstracción (IRepositorioEnvios)
+ */
+public class RepositorioEnviosPersistente implements IRepositorioEnvios, Closeable {
+    private static final byte REGISTRO_AGREGAR = 1;
+    private static final byte REGISTRO_RETIRAR = 2;
+    private static final byte REGISTRO_MODIFICAR = 3;
+    private static final int CABECERA = 8;
+    // Longitud de 2 bytes que anuncia una longitud de 4 bytes a continuación
+    private static final int TEXTO_LARGO = 0xFFFF;
+    private static final int TAMANO_BUFER = 256 * 1024;
+    private static final FabricaEnvios.TipoEnvio[] TIPOS = FabricaEnvios.TipoEnvio.values();
+    
+    private final IRepositorioEnvios delegado;
+    private final FileChannel canal;
+    private final long ventanaMillis;
+    private final boolean esperarConfirmacion;
+    private final Object bloqueo = new Object();
+    private ByteBuffer bufer = ByteBuffer.allocate(TAMANO_BUFER);
+    private final CRC32 crc = new CRC32();
+    private final Thread sincronizador;
+    private final IObservadorEnvio observador;
+    
+    private long escrito;
+    private long sincronizado;
+    private int inicioRegistro;
+    private volatile boolean cerrado;
+    private volatile UncheckedIOException falla;
+    
+    /**
+     * Constructor con confirmación en grupo cada 5 ms
+     * @param delegado Repositorio que mantiene los envíos en memoria
+     * @param archivo Archivo del registro (se crea si no existe)
+     * @throws IOException si no se puede abrir o reproducir el registro
+     */
+    public RepositorioEnviosPersistente(IRepositorioEnvios delegado, Path archivo) throws IOException {
+        this(delegado, archivo, 5, true);
+    }
+    
+    /**
+     * Constructor con ventana de confirmación configurable
+     * @param delegado Repositorio que mantiene los envíos en memoria
+     * @param archivo Archivo del registro (se crea si no existe)
+     * @param ventanaMillis Milisegundos que se agrupan escrituras antes de sincronizar (0 = cada operación)
+     * @param esperarConfirmacion true para que cada operación espere a estar en disco antes de retornar
+     * @throws IOException si no se puede abrir o reproducir el registro
+     */
+    public RepositorioEnviosPersistente(IRepositorioEnvios delegado, Path archivo, long ventanaMillis,
+                                        boolean esperarConfirmacion) throws IOException {
+        this(delegado, archivo, ventanaMillis, esperarConfirmacion, 0);
+    }
+    
+    /**
+     * Constructor que reproduce el registro a partir de una posición
+     * Se usa cuando el delegado ya contiene el estado hasta esa posición (por ejemplo,
+     * cargado desde una instantánea)
+     * @param delegado Repositorio que mantiene los envíos en memoria
+     * @param archivo Archivo del registro (se crea si no existe)
+     * @param ventanaMillis Milisegundos que se agrupan escrituras antes de sincronizar (0 = cada operación)
+     * @param esperarConfirmacion true para que cada operación espere a estar en disco antes de retornar
+     * @param posicionInicial Byte del registro desde el que se reproduce
+     * @throws IOException si no se puede abrir o reproducir el registro
+     */
+    public RepositorioEnviosPersistente(IRepositorioEnvios delegado, Path archivo, long ventanaMillis,
+                                        boolean esperarConfirmacion, long posicionInicial) throws IOException {
+        if (delegado == null) {
+            throw new IllegalArgumentException("El repositorio delegado no puede ser nulo");
+        }
+        if (ventanaMillis < 0) {
+            throw new IllegalArgumentException("La ventana de sincronización no puede ser negativa");
+        }
+        this.delegado = delegado;
+        this.ventanaMillis = ventanaMillis;
+        this.esperarConfirmacion = esperarConfirmacion;
+        this.observador = new IObservadorEnvio() {
+            @Override
+            public void antesDeModificar(Envio envio) {
+            }
+            
+            @Override
+            public void despuesDeModificar(Envio envio) {
+                registrarModificacion(envio);
+            }
+        };
+        
+        this.canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long valido = reproducir(posicionInicial);
+            if (valido < canal.size()) {
+                canal.truncate(valido);
+                canal.force(false);
+            }
+            canal.position(valido);
+            escrito = valido;
+            sincronizado = valido;
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+        
+        delegado.flujo().forEach(envio -> envio.agregarObservador(observador));
+        
+        this.sincronizador = new Thread(this::sincronizarPeriodicamente, "sincronizador-registro-envios");
+        sincronizador.setDaemon(true);
+        if (ventanaMillis > 0) {
+            sincronizador.start();
+        }
+    }
+    
+    @Override
+    public boolean agregar(Envio envio) {
+        if (envio == null) {
+            return false;
+        }
+        long posicion;
+        synchronized (bloqueo) {
+            verificarAbierto();
+            escribirAgregar(envio);
+            int inicio = inicioRegistro;
+            boolean agregado;
+            try {
+                agregado = delegado.agregar(envio);
+            } catch (RuntimeException e) {
+                deshacerHasta(inicio);
+                throw e;
+            }
+            if (!agregado) {
+                deshacerHasta(inicio);
+                return false;
+            }
+            posicion = escrito;
+        }
+        observar(envio.getCodigoEnvio());
+        esperar(posicion);
+        return true;
+    }
+    
+    @Override
+    public boolean retirar(String codigoEnvio) {
+        return extraer(codigoEnvio) != null;
+    }
+    
+    @Override
+    public Envio extraer(String codigoEnvio) {
+        if (codigoEnvio == null) {
+            return null;
+        }
+        Envio retirado;
+        long posicion;
+        synchronized (bloqueo) {
+            verificarAbierto();
+            escribirRetirar(codigoEnvio);
+            int inicio = inicioRegistro;
+            try {
+                retirado = delegado.extraer(codigoEnvio);
+            } catch (RuntimeException e) {
+                deshacerHasta(inicio);
+                throw e;
+            }
+            if (retirado == null) {
+                deshacerHasta(inicio);
+                return null;
+            }
+            posicion = escrito;
+        }
+        retirado.quitarObservador(observador);
+        esperar(posicion);
+        return retirado;
+    }
+    
+    @Override
+    public ResultadoLote agregarLote(Collection<? extends Envio> envios, boolean atomico) {
+        Envio[] lote = envios.toArray(new Envio[0]);
+        ResultadoLote resultado;
+        long posicion;
+        synchronized (bloqueo) {
+            verificarAbierto();
+            long maximo = 0;
+            for (Envio envio : lote) {
+                if (envio != null) {
+                    maximo += tamanoAgregar(envio);
+                }
+            }
+            // Con el espacio reservado, ningún registro del lote se vacía antes de saber cuáles aplicó el delegado
+            asegurarEspacio(maximo);
+            int[] inicios = new int[lote.length + 1];
+            for (int i = 0; i < lote.length; i++) {
+                inicios[i] = bufer.position();
+                if (lote[i] != null) {
+                    escribirAgregar(lote[i]);
+                }
+            }
+            inicios[lote.length] = bufer.position();
+            try {
+                resultado = delegado.agregarLote(Arrays.asList(lote), atomico);
+            } catch (RuntimeException e) {
+                deshacerHasta(inicios[0]);
+                throw e;
+            }
+            conservarRegistros(inicios, i -> resultado.getEstado(i) == ResultadoLote.Estado.AGREGADO);
+            posicion = escrito;
+        }
+        for (int i = 0; i < resultado.getCantidad(); i++) {
+            if (resultado.getEstado(i) == ResultadoLote.Estado.AGREGADO) {
+                observar(resultado.getEnvio(i).getCodigoEnvio());
+            }
+        }
+        // Una sola espera de confirmación para todo el lote
+        esperar(posicion);
+        return resultado;
+    }
+    
+    @Override
+    public ResultadoLote retirarLote(Collection<String> codigos, boolean atomico) {
+        String[] lote = codigos.toArray(new String[0]);
+        ResultadoLote resultado;
+        long posicion;
+        synchronized (bloqueo) {
+            verificarAbierto();
+            long maximo = 0;
+            for (String codigo : lote) {
+                if (codigo != null) {
+                    maximo += tamanoRetirar(codigo);
+                }
+            }
+            asegurarEspacio(maximo);
+            int[] inicios = new int[lote.length + 1];
+            for (int i = 0; i < lote.length; i++) {
+                inicios[i] = bufer.position();
+                if (lote[i] != null) {
+                    escribirRetirar(lote[i]);
+                }
+            }
+            inicios[lote.length] = bufer.position();
+            try {
+                resultado = delegado.retirarLote(Arrays.asList(lote), atomico);
+            } catch (RuntimeException e) {
+                deshacerHasta(inicios[0]);
+                throw e;
+            }
+            conservarRegistros(inicios, i -> resultado.getEstado(i) == ResultadoLote.Estado.RETIRADO);
+            posicion = escrito;
+        }
+        for (int i = 0; i < resultado.getCantidad(); i++) {
+            if (resultado.getEstado(i) == ResultadoLote.Estado.RETIRADO) {
+                resultado.getEnvio(i).quitarObservador(observador);
+            }
+        }
+        esperar(posicion);
+        return resultado;
+    }
+    
+    @Override
+    public Envio buscarPorCodigo(String codigoEnvio) {
+        return delegado.buscarPorCodigo(codigoEnvio);
+    }
+    
+    @Override
+    public List<Envio> buscarPorCliente(String cliente) {
+        return delegado.buscarPorCliente(cliente);
+    }
+    
+    @Override
+    public List<Envio> buscarPorTipo(FabricaEnvios.TipoEnvio tipo) {
+        return delegado.buscarPorTipo(tipo);
+    }
+    
+    @Override
+    public Stream<Envio> buscarPorRango(IndiceRango.Campo campo, double minimo, double maximo) {
+        return delegado.buscarPorRango(campo, minimo, maximo);
+    }
+    
+    @Override
+    public List<Envio> obtenerMayoresCostos(int k) {
+        return delegado.obtenerMayoresCostos(k);
+    }
+    
+    @Override
+    public List<Envio> obtenerMayoresCostos(FabricaEnvios.TipoEnvio tipo, int k) {
+        return delegado.obtenerMayoresCostos(tipo, k);
+    }
+    
+    @Override
+    public List<Envio> obtenerTodos() {
+        return delegado.obtenerTodos();
+    }
+    
+    @Override
+    public Stream<Envio> flujo() {
+        return delegado.flujo();
+    }
+    
+    @Override
+    public int obtenerCantidad() {
+        return delegado.obtenerCantidad();
+    }
+    
+    @Override
+    public void reservarCapacidad(int adicionales) {
+        delegado.reservarCapacidad(adicionales);
+    }
+    
+    @Override
+    public double calcularTotalTarifas() {
+        return delegado.calcularTotalTarifas();
+    }
+    
+    @Override
+    public ReporteEnvios generarReporte(MotorReportes motor) {
+        return delegado.generarReporte(motor);
+    }
+    
+    /**
+     * Fuerza la sincronización con el disco de todo lo escrito hasta ahora
+     * @throws UncheckedIOException si falla la escritura o la sincronización
+     */
+    public void sincronizar() {
+        long objetivo;
+        try {
+            synchronized (bloqueo) {
+                if (falla != null) {
+                    throw fallo();
+                }
+                vaciar();
+                objetivo = escrito;
+                if (objetivo <= sincronizado) {
+                    return;
+                }
+            }
+            canal.force(false);
+        } catch (IOException e) {
+            throw averiar(new UncheckedIOException("No se pudo sincronizar el registro de envíos", e));
+        }
+        synchronized (bloqueo) {
+            if (objetivo > sincronizado) {
+                sincronizado = objetivo;
+            }
+            bloqueo.notifyAll();
+        }
+    }
+    
+    /**
+     * Obtiene la posición actual del final del registro
+     * @return Bytes escritos en el registro (incluidos los pendientes de sincronizar)
+     */
+    public long obtenerPosicionRegistro() {
+        synchronized (bloqueo) {
+            return escrito;
+        }
+    }
+    
+    /**
+     * Abre un repositorio persistente partiendo de una instantánea
+     * Si la instantánea existe se carga en el delegado y el registro solo se reproduce
+     * desde la posición guardada en ella; si no existe se reproduce el registro completo.
+     * @param delegado Repositorio vacío que mantendrá los envíos en memoria
+     * @param archivo Archivo del registro (se crea si no existe)
+     * @param instantanea Archivo de la instantánea
+     * @return Repositorio persistente listo para usarse
+     * @throws IOException si no se puede leer la instantánea o el registro
+     */
+    public static RepositorioEnviosPersistente abrir(IRepositorioEnvios delegado, Path archivo,
+                                                     Path instantanea) throws IOException {
+        long posicion = Files.exists(instantanea) ? InstantaneaEnvios.cargar(instantanea, delegado) : 0;
+        return new RepositorioEnviosPersistente(delegado, archivo, 5, true, posicion);
+    }
+    
+    /**
+     * Guarda una instantánea en segundo plano
+     * El contenido se copia junto con la posición del registro bajo el mismo bloqueo que
+     * las escrituras, así la instantánea corresponde exactamente a ese punto del registro.
+     * El registro se sincroniza hasta esa posición antes de escribir el archivo.
+     * @param destino Archivo de la instantánea
+     * @return Tarea que finaliza cuando la instantánea quedó escrita
+     */
+    public Future<Path> guardarInstantanea(Path destino) {
+        InstantaneaEnvios.Captura captura;
+        synchronized (bloqueo) {
+            captura = InstantaneaEnvios.capturar(delegado, escrito);
+        }
+        sincronizar();
+        return InstantaneaEnvios.escribirEnSegundoPlano(captura, destino);
+    }
+    
+    /**
+     * Sincroniza lo pendiente y cierra el registro
+     * @throws IOException si falla la sincronización o el cierre, o si el registro ya había fallado
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (bloqueo) {
+            if (cerrado) {
+                return;
+            }
+            cerrado = true;
+            bloqueo.notifyAll();
+        }
+        try {
+            sincronizador.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (falla != null) {
+                throw new IOException("El registro de envíos había fallado antes de cerrarse", falla.getCause());
+            }
+            synchronized (bloqueo) {
+                vaciar();
+            }
+            canal.force(false);
+        } finally {
+            canal.close();
+        }
+    }
+    
+    /**
+     * Registra el estado nuevo de un envío modificado
+     * Se invoca desde el observador, después de que el setter cambió el envío: no lanza
+     * excepciones (cortaría la notificación a los demás observadores). Si el registro no se
+     * puede escribir queda inutilizable y la falla la reciben las operaciones siguientes.
+     */
+    private void registrarModificacion(Envio envio) {
+        long posicion;
+        synchronized (bloqueo) {
+            if (cerrado || falla != null) {
+                return;
+            }
+            try {
+                escribirInicio(REGISTRO_MODIFICAR, CABECERA + 1 + tamanoTexto(envio.getCodigoEnvio())
+                        + tamanoTexto(envio.getCliente()) + 16);
+                escribirTexto(envio.getCodigoEnvio());
+                escribirTexto(envio.getCliente());
+                bufer.putDouble(envio.getPesoKg());
+                bufer.putDouble(envio.getDistanciaKm());
+                escribirFin();
+            } catch (UncheckedIOException e) {
+                return;
+            } catch (RuntimeException e) {
+                descartarRegistro();
+                averiar(new UncheckedIOException(new IOException(
+                        "No se pudo registrar la modificación de " + envio.getCodigoEnvio(), e)));
+                return;
+            }
+            posicion = escrito;
+            bloqueo.notifyAll();
+        }
+        try {
+            esperar(posicion);
+        } catch (UncheckedIOException e) {
+            // La falla quedó guardada y se informa en la siguiente operación
+        }
+    }
+    
+    private void escribirAgregar(Envio envio) {
+        escribirInicio(REGISTRO_AGREGAR, tamanoAgregar(envio));
+        bufer.put((byte) envio.getTipo().ordinal());
+        escribirTexto(envio.getCodigoEnvio());
+        escribirTexto(envio.getCliente());
+        bufer.putDouble(envio.getPesoKg());
+        bufer.putDouble(envio.getDistanciaKm());
+        escribirFin();
+    }
+    
+    private void escribirRetirar(String codigo) {
+        escribirInicio(REGISTRO_RETIRAR, tamanoRetirar(codigo));
+        escribirTexto(codigo);
+        escribirFin();
+    }
+    
+    /**
+     * Cota superior del tamaño de un registro de alta
+     */
+    private static long tamanoAgregar(Envio envio) {
+        return CABECERA + 2 + tamanoTexto(envio.getCodigoEnvio()) + tamanoTexto(envio.getCliente()) + 16;
+    }
+    
+    private static long tamanoRetirar(String codigo) {
+        return CABECERA + 1 + tamanoTexto(codigo);
+    }
+    
+    private static long tamanoTexto(String texto) {
+        // Cada carácter ocupa a lo sumo 3 bytes en UTF-8
+        return 6 + (texto == null ? 0 : 3L * texto.length());
+    }
+    
+    /**
+     * Quita del búfer el registro a medio escribir
+     */
+    private void descartarRegistro() {
+        bufer.position(inicioRegistro);
+    }
+    
+    /**
+     * Quita del búfer los registros escritos desde una posición del búfer (todavía no
+     * vaciados al archivo)
+     */
+    private void deshacerHasta(int posicionBufer) {
+        escrito -= bufer.position() - posicionBufer;
+        bufer.position(posicionBufer);
+    }
+    
+    /**
+     * Deja en el búfer solo los registros de un lote que el delegado aplicó
+     * @param inicios Inicio de cada registro en el búfer (el último es el fin del lote);
+     *                una posición sin registro tiene el mismo inicio que la siguiente
+     * @param conservar Indica por posición del lote si su registro se conserva
+     */
+    private void conservarRegistros(int[] inicios, IntPredicate conservar) {
+        byte[] datos = bufer.array();
+        int destino = inicios[0];
+        for (int i = 0; i + 1 < inicios.length; i++) {
+            int longitud = inicios[i + 1] - inicios[i];
+            if (longitud > 0 && conservar.test(i)) {
+                System.arraycopy(datos, inicios[i], datos, destino, longitud);
+                destino += longitud;
+            }
+        }
+        deshacerHasta(destino);
+    }
+    
+    /**
+     * Observa la instancia que quedó almacenada (algunos repositorios guardan una copia)
+     */
+    private void observar(String codigoEnvio) {
+        Envio almacenado = delegado.buscarPorCodigo(codigoEnvio);
+        if (almacenado != null) {
+            almacenado.agregarObservador(observador);
+        }
+    }
+    
+    /**
+     * Garantiza espacio libre en el búfer, vaciándolo (o agrandándolo para registros o
+     * lotes que no entran en el tamaño normal)
+     */
+    private void asegurarEspacio(long bytes) {
+        if (bytes > Integer.MAX_VALUE - 64) {
+            throw new IllegalArgumentException("La operación ocupa " + bytes + " bytes y no entra en un registro");
+        }
+        if (bufer.remaining() < bytes) {
+            vaciarSinExcepcion();
+            if (bufer.capacity() < bytes) {
+                bufer = ByteBuffer.allocate((int) bytes);
+            }
+        }
+    }
+    
+    /**
+     * Reserva la cabecera de un registro en el búfer
+     * @param maximo Cota superior del tamaño del registro
+     */
+    private void escribirInicio(byte tipo, long maximo) {
+        asegurarEspacio(maximo);
+        inicioRegistro = bufer.position();
+        bufer.position(inicioRegistro + CABECERA);
+        bufer.put(tipo);
+    }
+    
+    private void escribirFin() {
+        int fin = bufer.position();
+        int longitud = fin - inicioRegistro - CABECERA;
+        crc.reset();
+        crc.update(bufer.array(), inicioRegistro + CABECERA, longitud);
+        bufer.putInt(inicioRegistro, longitud);
+        bufer.putInt(inicioRegistro + 4, (int) crc.getValue());
+        escrito += fin - inicioRegistro;
+    }
+    
+    private void escribirTexto(String texto) {
+        byte[] bytes = texto == null ? new byte[0] : texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < TEXTO_LARGO) {
+            bufer.putShort((short) bytes.length);
+        } else {
+            bufer.putShort((short) TEXTO_LARGO);
+            bufer.putInt(bytes.length);
+        }
+        bufer.put(bytes);
+    }
+    
+    private void vaciar() throws IOException {
+        bufer.flip();
+        while (bufer.hasRemaining()) {
+            canal.write(bufer);
+        }
+        bufer.clear();
+        if (bufer.capacity() > TAMANO_BUFER) {
+            bufer = ByteBuffer.allocate(TAMANO_BUFER);
+        }
+    }
+    
+    private void vaciarSinExcepcion() {
+        try {
+            vaciar();
+        } catch (IOException e) {
+            throw averiar(new UncheckedIOException("No se pudo escribir el registro de envíos", e));
+        }
+    }
+    
+    /**
+     * Deja el registro inutilizable tras una falla de escritura o sincronización (lo que
+     * quedó en el archivo ya no es confiable) y despierta a las operaciones que esperan
+     * @return La misma falla, para lanzarla
+     */
+    private UncheckedIOException averiar(UncheckedIOException e) {
+        synchronized (bloqueo) {
+            if (falla == null) {
+                falla = e;
+            }
+            bloqueo.notifyAll();
+        }
+        return e;
+    }
+    
+    private UncheckedIOException fallo() {
+        return new UncheckedIOException("El registro de envíos falló y no acepta más operaciones",
+                falla.getCause());
+    }
+    
+    /**
+     * Espera a que el registro esté sincronizado hasta la posición dada, según la configuración
+     */
+    private void esperar(long posicion) {
+        if (!esperarConfirmacion) {
+            if (ventanaMillis == 0) {
+                synchronized (bloqueo) {
+                    if (falla != null) {
+                        throw fallo();
+                    }
+                    vaciarSinExcepcion();
+                }
+            }
+            return;
+        }
+        if (ventanaMillis == 0) {
+            sincronizar();
+            return;
+        }
+        synchronized (bloqueo) {
+            while (sincronizado < posicion && !cerrado && falla == null) {
+                try {
+                    bloqueo.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (sincronizado < posicion && falla != null) {
+                throw fallo();
+            }
+        }
+    }
+    
+    /**
+     * Bucle del hilo de confirmación en grupo
+     */
+    private void sincronizarPeriodicamente() {
+        while (true) {
+            synchronized (bloqueo) {
+                while (escrito == sincronizado && !cerrado && falla == null) {
+                    try {
+                        bloqueo.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (cerrado || falla != null) {
+                    return;
+                }
+            }
+            try {
+                Thread.sleep(ventanaMillis);
+                sincronizar();
+            } catch (InterruptedException e) {
+                return;
+            } catch (UncheckedIOException e) {
+                // sincronizar ya dejó la falla registrada y despertó a quienes esperan
+                return;
+            }
+        }
+    }
+    
+    private void verificarAbierto() {
+        if (cerrado) {
+            throw new IllegalStateException("El registro de envíos está cerrado");
+        }
+        if (falla != null) {
+            throw fallo();
+        }
+        // Avisar al hilo de confirmación que hay datos nuevos
+        bloqueo.notifyAll();
+    }
+    
+    /**
+     * Reproduce el registro sobre el delegado
+     * @param desde Byte desde el que se reproduce
+     * @return Posición final del último registro válido
+     */
+    private long reproducir(long desde) throws IOException {
+        long tamano = canal.size();
+        if (desde > tamano) {
+            throw new IOException("La posición inicial " + desde + " supera el tamaño del registro " + tamano);
+        }
+        canal.position(desde);
+        DataInputStream entrada = new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal), 1 << 16));
+        long valido = desde;
+        byte[] datos = new byte[1024];
+        CRC32 verificacion = new CRC32();
+        while (valido + CABECERA <= tamano) {
+            int longitud;
+            int suma;
+            try {
+                longitud = entrada.readInt();
+                suma = entrada.readInt();
+                if (longitud <= 0 || valido + CABECERA + longitud > tamano) {
+                    break;
+                }
+                if (longitud > datos.length) {
+                    datos = new byte[longitud];
+                }
+                entrada.readFully(datos, 0, longitud);
+            } catch (EOFException e) {
+                break;
+            }
+            verificacion.reset();
+            verificacion.update(datos, 0, longitud);
+            if ((int) verificacion.getValue() != suma) {
+                break;
+            }
+            aplicar(ByteBuffer.wrap(datos, 0, longitud));
+            valido += CABECERA + longitud;
+        }
+        return valido;
+    }
+    
+    /**
+     * Aplica un registro sobre el delegado sin volver a registrarlo
+     */
+    private void aplicar(ByteBuffer registro) {
+        byte tipo = registro.get();
+        switch (tipo) {
+            case REGISTRO_AGREGAR: {
+                FabricaEnvios.TipoEnvio tipoEnvio = TIPOS[registro.get()];
+                String codigo = leerTexto(registro);
+                String cliente = leerTexto(registro);
+                double peso = registro.getDouble();
+                double distancia = registro.getDouble();
+                delegado.agregar(FabricaEnvios.crearEnvio(tipoEnvio, cliente, codigo, peso, distancia));
+                break;
+            }
+            case REGISTRO_RETIRAR:
+                delegado.retirar(leerTexto(registro));
+                break;
+            case REGISTRO_MODIFICAR: {
+                String codigo = leerTexto(registro);
+                String cliente = leerTexto(registro);
+                double peso = registro.getDouble();
+                double distancia = registro.getDouble();
+                Envio envio = delegado.buscarPorCodigo(codigo);
+                if (envio == null) {
+                    break;
+                }
+                envio.setCliente(cliente);
+                envio.setPesoKg(peso);
+                envio.setDistanciaKm(distancia);
+                break;
+            }
+            default:
+                throw new IllegalStateException("Tipo de registro desconocido: " + tipo);
+        }
+    }
+    
+    private static String leerTexto(ByteBuffer registro) {
+        int longitud = registro.getShort() & 0xFFFF;
+        if (longitud == TEXTO_LARGO) {
+            longitud = registro.getInt();
+        }
+        String texto = new String(registro.array(), registro.arrayOffset() + registro.position(), longitud,
+                StandardCharsets.UTF_8);
+        registro.position(registro.position() + longitud);
+        return texto;
+    }
+}
+
@@ -0,0 +1,48 @@
+/**
+ * Resumen de una importación masiva de envíos
+ * Principio S (Single Responsibility): Solo reporta el resultado de una importación
+ */
+public class ResultadoImportacion {
+    private final long lineas;
+    private final long importados;
+    private final long rechazados;
+    private final long duracionNanos;
+    
+    /**
+     * Constructor del resumen
+     * @param lineas Líneas leídas del archivo
+     * @param importados Envíos registrados
+     * @param rechazados Líneas enviadas al archivo de rechazos
+     * @param duracionNanos Duración de la importación en nanosegundos
+     */
+    public ResultadoImportacion(long lineas, long importados, long rechazados, long duracionNanos) {
+        this.lineas = lineas;
+        this.importados = importados;
+        this.rechazados = rechazados;
+        this.duracionNanos = duracionNanos;
+    }
+    
+    // Getters
+    public long getLineas() {
+        return lineas;
+    }
+    
+    public long getImportados() {
+        return importados;
+    }
+    
+    public long getRechazados() {
+        return rechazados;
+    }
+    
+    public long getDuracionNanos() {
+        return duracionNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("Líneas: %d | Importados: %d | Rechazados: %d | Tiempo: %.1f ms",
+                lineas, importados, rechazados, duracionNanos / 1_000_000.0);
+    }
+}
+
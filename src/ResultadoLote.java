@@ -0,0 +1,133 @@
+/**
+ * Resultado de una operación por lotes sobre envíos
+ * Guarda el estado de cada elemento en el mismo orden en que se recibió el lote,
+ * junto con el envío afectado cuando la operación tuvo éxito
+ * Principio S (Single Responsibility): Solo reporta el resultado de un lote
+ */
+public class ResultadoLote {
+    
+    /**
+     * Estados posibles de un elemento del lote
+     */
+    public enum Estado {
+        AGREGADO,
+        RETIRADO,
+        INVALIDO,
+        DUPLICADO,
+        DUPLICADO_EN_LOTE,
+        NO_ENCONTRADO,
+        NO_APLICADO;
+        
+        /**
+         * Indica si el estado corresponde a un elemento aplicado
+         * @return true si el elemento se agregó o retiró
+         */
+        public boolean esExitoso() {
+            return this == AGREGADO || this == RETIRADO;
+        }
+    }
+    
+    private final Estado[] estados;
+    private final Envio[] envios;
+    private final int[] conteos;
+    
+    /**
+     * Constructor del resultado
+     * @param cantidad Cantidad de elementos del lote
+     */
+    public ResultadoLote(int cantidad) {
+        this.estados = new Estado[cantidad];
+        this.envios = new Envio[cantidad];
+        this.conteos = new int[Estado.values().length];
+    }
+    
+    /**
+     * Registra el estado de un elemento del lote
+     * @param indice Posición del elemento en el lote
+     * @param estado Estado del elemento
+     * @param envio Envío agregado o retirado (null si no aplica)
+     */
+    void registrar(int indice, Estado estado, Envio envio) {
+        if (estados[indice] != null) {
+            conteos[estados[indice].ordinal()]--;
+        }
+        estados[indice] = estado;
+        envios[indice] = estado.esExitoso() ? envio : null;
+        conteos[estado.ordinal()]++;
+    }
+    
+    /**
+     * Marca como no aplicados todos los elementos que habían tenido éxito o estaban pendientes
+     * Se usa cuando un lote atómico se rechaza completo
+     */
+    void descartarAplicados() {
+        for (int i = 0; i < estados.length; i++) {
+            if (estados[i] == null || estados[i].esExitoso()) {
+                registrar(i, Estado.NO_APLICADO, null);
+            }
+        }
+    }
+    
+    /**
+     * Obtiene la cantidad de elementos del lote
+     * @return Tamaño del lote
+     */
+    public int getCantidad() {
+        return estados.length;
+    }
+    
+    /**
+     * Obtiene el estado de un elemento
+     * @param indice Posición del elemento en el lote
+     * @return Estado del elemento
+     */
+    public Estado getEstado(int indice) {
+        return estados[indice];
+    }
+    
+    /**
+     * Obtiene el envío agregado o retirado en una posición
+     * @param indice Posición del elemento en el lote
+     * @return Envío afectado o null si el elemento no se aplicó
+     */
+    public Envio getEnvio(int indice) {
+        return envios[indice];
+    }
+    
+    /**
+     * Cuenta los elementos con un estado
+     * @param estado Estado a contar
+     * @return Cantidad de elementos con ese estado
+     */
+    public int contar(Estado estado) {
+        return conteos[estado.ordinal()];
+    }
+    
+    /**
+     * Cuenta los elementos aplicados
+     * @return Cantidad de elementos agregados o retirados
+     */
+    public int getExitosos() {
+        return contar(Estado.AGREGADO) + contar(Estado.RETIRADO);
+    }
+    
+    /**
+     * Indica si todos los elementos del lote se aplicaron
+     * @return true si no hubo ningún rechazo
+     */
+    public boolean fueCompleto() {
+        return getExitosos() == estados.length;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder("Lote de ").append(estados.length).append(" elementos:");
+        for (Estado estado : Estado.values()) {
+            if (conteos[estado.ordinal()] > 0) {
+                texto.append(' ').append(estado).append('=').append(conteos[estado.ordinal()]);
+            }
+        }
+        return texto.toString();
+    }
+}
+
@@ -0,0 +1,96 @@
+import java.beans.ConstructorProperties;
+
+/**
+ * Resumen inmutable de las métricas de una operación del servicio
+ * Las latencias provienen de las llamadas muestreadas; los conteos incluyen todas las
+ * llamadas. Es un tipo de datos abierto de JMX: cada getter es un atributo.
+ * Principio S (Single Responsibility): Solo transporta los valores de una instantánea
+ */
+public final class ResumenOperacion {
+    private final String operacion;
+    private final long llamadas;
+    private final long errores;
+    private final long rechazos;
+    private final long muestras;
+    private final double promedioNanos;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maximoNanos;
+    
+    /**
+     * Constructor con todos los valores
+     * @param operacion Nombre del método del servicio
+     * @param llamadas Llamadas realizadas
+     * @param errores Llamadas que terminaron con una excepción
+     * @param rechazos Llamadas con resultado negativo (o elementos rechazados en los lotes)
+     * @param muestras Llamadas cuya latencia se midió
+     * @param promedioNanos Latencia promedio
+     * @param p50Nanos Percentil 50 de la latencia
+     * @param p99Nanos Percentil 99 de la latencia
+     * @param p999Nanos Percentil 99.9 de la latencia
+     * @param maximoNanos Latencia máxima medida
+     */
+    @ConstructorProperties({"operacion", "llamadas", "errores", "rechazos", "muestras", "promedioNanos",
+            "p50Nanos", "p99Nanos", "p999Nanos", "maximoNanos"})
+    public ResumenOperacion(String operacion, long llamadas, long errores, long rechazos, long muestras,
+                            double promedioNanos, long p50Nanos, long p99Nanos, long p999Nanos, long maximoNanos) {
+        this.operacion = operacion;
+        this.llamadas = llamadas;
+        this.errores = errores;
+        this.rechazos = rechazos;
+        this.muestras = muestras;
+        this.promedioNanos = promedioNanos;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maximoNanos = maximoNanos;
+    }
+    
+    public String getOperacion() {
+        return operacion;
+    }
+    
+    public long getLlamadas() {
+        return llamadas;
+    }
+    
+    public long getErrores() {
+        return errores;
+    }
+    
+    public long getRechazos() {
+        return rechazos;
+    }
+    
+    public long getMuestras() {
+        return muestras;
+    }
+    
+    public double getPromedioNanos() {
+        return promedioNanos;
+    }
+    
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+    
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+    
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+    
+    public long getMaximoNanos() {
+        return maximoNanos;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s: %d llamadas | %d errores | %d rechazos | p50 %.1f µs | p99 %.1f µs | p99.9 %.1f µs",
+                operacion, llamadas, errores, rechazos, p50Nanos / 1e3, p99Nanos / 1e3, p999Nanos / 1e3);
+    }
+}
+
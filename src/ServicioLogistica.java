@@ -1,23 +1,62 @@
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
 /**
  * Servicio de logística que gestiona las operaciones de envíos
+ * Cada alta o baja y su registro en los agregados ocurren juntos bajo un bloqueo por franja
+ * de códigos, así un retiro del mismo código nunca se intercala entre los dos pasos; las
+ * operaciones de códigos distintos siguen en paralelo. Los lotes toman todas las franjas
+ * a la vez (la escritura de un bloqueo de lectura y escritura que las altas y bajas sueltas
+ * toman para lectura).
  * Principio S (Single Responsibility): Solo maneja la lógica de negocio
  * Principio D (Dependency Inversion): Depende de abstracciones (IRepositorioEnvios)
  * Principio O (Open/Closed): Abierto a extensión, cerrado a modificación
  */
 public class ServicioLogistica implements IServicioLogistica {
+    private static final int FRANJAS = 64;
+    
     private final IRepositorioEnvios repositorio;
+    private final AgregadosEnvios agregados;
+    private final MotorReportes motorReportes;
+    private final Object[] franjas = new Object[FRANJAS];
+    private final Lock operacionSuelta;
+    private final Lock operacionLote;
     
     /**
      * Constructor con inyección de dependencias
      * @param repositorio Repositorio de envíos
      */
     public ServicioLogistica(IRepositorioEnvios repositorio) {
+        this(repositorio, new MotorReportes());
+    }
+    
+    /**
+     * Constructor con motor de reportes configurable
+     * @param repositorio Repositorio de envíos
+     * @param motorReportes Motor que calcula los reportes
+     */
+    public ServicioLogistica(IRepositorioEnvios repositorio, MotorReportes motorReportes) {
         if (repositorio == null) {
             throw new IllegalArgumentException("El repositorio no puede ser nulo");
         }
+        if (motorReportes == null) {
+            throw new IllegalArgumentException("El motor de reportes no puede ser nulo");
+        }
         this.repositorio = repositorio;
+        this.agregados = new AgregadosEnvios();
+        this.motorReportes = motorReportes;
+        for (int i = 0; i < FRANJAS; i++) {
+            franjas[i] = new Object();
+        }
+        ReentrantReadWriteLock lotes = new ReentrantReadWriteLock();
+        this.operacionSuelta = lotes.readLock();
+        this.operacionLote = lotes.writeLock();
+        
+        // Los envíos que ya estaban en el repositorio también cuentan en los agregados
+        repositorio.flujo().forEachOrdered(agregados::registrar);
     }
     
     @Override
@@ -25,7 +64,35 @@ public class ServicioLogistica implements IServicioLogistica {
         if (envio == null) {
             return false;
         }
-        return repositorio.agregar(envio);
+        operacionSuelta.lock();
+        try {
+            synchronized (franja(envio.getCodigoEnvio())) {
+                if (!repositorio.agregar(envio)) {
+                    return false;
+                }
+                agregados.registrar(almacenado(envio));
+                return true;
+            }
+        } finally {
+            operacionSuelta.unlock();
+        }
+    }
+    
+    private Object franja(String codigoEnvio) {
+        int hash = codigoEnvio == null ? 0 : codigoEnvio.hashCode();
+        return franjas[(hash ^ (hash >>> 16)) & (FRANJAS - 1)];
+    }
+    
+    /**
+     * Instancia que quedó almacenada: algunos repositorios (columnar, fuera del heap) guardan
+     * una copia, y los agregados deben observar esa y no el envío del llamador, cuyos cambios
+     * posteriores ya no afectan al repositorio
+     * @param envio Envío recién agregado
+     * @return Envío almacenado
+     */
+    private Envio almacenado(Envio envio) {
+        Envio almacenado = repositorio.buscarPorCodigo(envio.getCodigoEnvio());
+        return almacenado != null ? almacenado : envio;
     }
     
     @Override
@@ -33,7 +100,19 @@ public class ServicioLogistica implements IServicioLogistica {
         if (codigoEnvio == null || codigoEnvio.trim().isEmpty()) {
             return false;
         }
-        return repositorio.retirar(codigoEnvio);
+        operacionSuelta.lock();
+        try {
+            synchronized (franja(codigoEnvio)) {
+                Envio retirado = repositorio.extraer(codigoEnvio);
+                if (retirado == null) {
+                    return false;
+                }
+                agregados.descontar(retirado);
+                return true;
+            }
+        } finally {
+            operacionSuelta.unlock();
+        }
     }
     
     @Override
@@ -44,24 +123,115 @@ public class ServicioLogistica implements IServicioLogistica {
         return repositorio.buscarPorCodigo(codigoEnvio);
     }
     
+    @Override
+    public ResultadoLote agregarLote(Collection<? extends Envio> envios, boolean atomico) {
+        if (envios == null) {
+            throw new IllegalArgumentException("El lote de envíos no puede ser nulo");
+        }
+        operacionLote.lock();
+        try {
+            ResultadoLote resultado = repositorio.agregarLote(envios, atomico);
+            for (int i = 0; i < resultado.getCantidad(); i++) {
+                if (resultado.getEstado(i) == ResultadoLote.Estado.AGREGADO) {
+                    agregados.registrar(almacenado(resultado.getEnvio(i)));
+                }
+            }
+            return resultado;
+        } finally {
+            operacionLote.unlock();
+        }
+    }
+    
+    @Override
+    public ResultadoLote retirarLote(Collection<String> codigos, boolean atomico) {
+        if (codigos == null) {
+            throw new IllegalArgumentException("El lote de códigos no puede ser nulo");
+        }
+        operacionLote.lock();
+        try {
+            ResultadoLote resultado = repositorio.retirarLote(codigos, atomico);
+            for (int i = 0; i < resultado.getCantidad(); i++) {
+                if (resultado.getEstado(i) == ResultadoLote.Estado.RETIRADO) {
+                    agregados.descontar(resultado.getEnvio(i));
+                }
+            }
+            return resultado;
+        } finally {
+            operacionLote.unlock();
+        }
+    }
+    
     @Override
     public List<Envio> listarEnvios() {
         return repositorio.obtenerTodos();
     }
     
+    @Override
+    public Stream<Envio> flujoEnvios() {
+        return repositorio.flujo();
+    }
+    
     @Override
     public double calcularTotalTarifas() {
-        double total = 0.0;
-        for (Envio envio : repositorio.obtenerTodos()) {
-            total += envio.calcularTarifa();
+        return agregados.obtenerTotalTarifas();
+    }
+    
+    @Override
+    public double recalcularTotalTarifas() {
+        return repositorio.calcularTotalTarifas();
+    }
+    
+    @Override
+    public ReporteEnvios generarReporte() {
+        return motorReportes.generar(repositorio);
+    }
+    
+    @Override
+    public AgregadosEnvios obtenerAgregados() {
+        return agregados;
+    }
+    
+    @Override
+    public List<Envio> buscarEnviosPorCliente(String cliente) {
+        return repositorio.buscarPorCliente(cliente);
+    }
+    
+    @Override
+    public List<Envio> buscarEnviosPorTipo(FabricaEnvios.TipoEnvio tipo) {
+        if (tipo == null) {
+            throw new IllegalArgumentException("El tipo de envío no puede ser nulo");
         }
-        return total;
+        return repositorio.buscarPorTipo(tipo);
     }
     
-    /**
-     * Obtiene la cantidad de envíos
-     * @return Cantidad de envíos registrados
-     */
+    @Override
+    public Stream<Envio> buscarEnviosPorRango(IndiceRango.Campo campo, double minimo, double maximo) {
+        if (campo == null) {
+            throw new IllegalArgumentException("El campo no puede ser nulo");
+        }
+        return repositorio.buscarPorRango(campo, minimo, maximo);
+    }
+    
+    @Override
+    public List<Envio> listarMayoresCostos(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("La cantidad no puede ser negativa");
+        }
+        return repositorio.obtenerMayoresCostos(k);
+    }
+    
+    @Override
+    public List<Envio> listarMayoresCostos(FabricaEnvios.TipoEnvio tipo, int k) {
+        if (tipo == null) {
+            throw new IllegalArgumentException("El tipo de envío no puede ser nulo");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("La cantidad no puede ser negativa");
+        }
+        return repositorio.obtenerMayoresCostos(tipo, k);
+    }
+    
+    @Override
     public int obtenerCantidadEnvios() {
         return repositorio.obtenerCantidad();
     }
@@ -0,0 +1,285 @@
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Decorador del servicio de logística que mide sus operaciones
+ * Cada operación cuenta sus llamadas, las que terminan con una excepción (errores, que se
+ * vuelven a lanzar) y las de resultado negativo (rechazos: envío no agregado, no retirado
+ * o no encontrado; en los lotes, cada elemento rechazado), y registra su latencia en un
+ * histograma (ver MetricasServicio). Los flujos perezosos (flujoEnvios,
+ * buscarEnviosPorRango) y las consultas de valores ya calculados (obtenerCantidadEnvios,
+ * obtenerAgregados) pasan sin medirse: su costo está en quien los consume o es despreciable.
+ * Es seguro para varios hilos si el servicio decorado lo es.
+ * Principio O (Open/Closed): Agrega métricas sin modificar el servicio
+ * Principio L (Liskov Substitution): Sustituible por cualquier IServicioLogistica
+ * Principio D (Dependency Inversion): Decora una abstracción (IServicioLogistica)
+ */
+public class ServicioLogisticaInstrumentado implements IServicioLogistica {
+    private final IServicioLogistica delegado;
+    private final MetricasServicio metricas;
+    
+    // Contadores de cada operación, resueltos una vez
+    private final MetricasServicio.MetricasOperacion agregar;
+    private final MetricasServicio.MetricasOperacion retirar;
+    private final MetricasServicio.MetricasOperacion buscar;
+    private final MetricasServicio.MetricasOperacion agregarLote;
+    private final MetricasServicio.MetricasOperacion retirarLote;
+    private final MetricasServicio.MetricasOperacion listar;
+    private final MetricasServicio.MetricasOperacion porCliente;
+    private final MetricasServicio.MetricasOperacion porTipo;
+    private final MetricasServicio.MetricasOperacion mayoresCostos;
+    private final MetricasServicio.MetricasOperacion total;
+    private final MetricasServicio.MetricasOperacion recalcular;
+    private final MetricasServicio.MetricasOperacion reporte;
+    
+    /**
+     * Constructor con métricas nuevas
+     * @param delegado Servicio a medir
+     */
+    public ServicioLogisticaInstrumentado(IServicioLogistica delegado) {
+        this(delegado, new MetricasServicio());
+    }
+    
+    /**
+     * Constructor con métricas existentes (por ejemplo, compartidas o ya publicadas en JMX)
+     * @param delegado Servicio a medir
+     * @param metricas Métricas donde se registran las operaciones
+     */
+    public ServicioLogisticaInstrumentado(IServicioLogistica delegado, MetricasServicio metricas) {
+        if (delegado == null) {
+            throw new IllegalArgumentException("El servicio no puede ser nulo");
+        }
+        if (metricas == null) {
+            throw new IllegalArgumentException("Las métricas no pueden ser nulas");
+        }
+        this.delegado = delegado;
+        this.metricas = metricas;
+        this.agregar = metricas.de(MetricasServicio.Operacion.AGREGAR_ENVIO);
+        this.retirar = metricas.de(MetricasServicio.Operacion.RETIRAR_ENVIO);
+        this.buscar = metricas.de(MetricasServicio.Operacion.BUSCAR_ENVIO);
+        this.agregarLote = metricas.de(MetricasServicio.Operacion.AGREGAR_LOTE);
+        this.retirarLote = metricas.de(MetricasServicio.Operacion.RETIRAR_LOTE);
+        this.listar = metricas.de(MetricasServicio.Operacion.LISTAR_ENVIOS);
+        this.porCliente = metricas.de(MetricasServicio.Operacion.BUSCAR_POR_CLIENTE);
+        this.porTipo = metricas.de(MetricasServicio.Operacion.BUSCAR_POR_TIPO);
+        this.mayoresCostos = metricas.de(MetricasServicio.Operacion.LISTAR_MAYORES_COSTOS);
+        this.total = metricas.de(MetricasServicio.Operacion.CALCULAR_TOTAL_TARIFAS);
+        this.recalcular = metricas.de(MetricasServicio.Operacion.RECALCULAR_TOTAL_TARIFAS);
+        this.reporte = metricas.de(MetricasServicio.Operacion.GENERAR_REPORTE);
+    }
+    
+    /**
+     * Obtiene las métricas del servicio
+     * @return Métricas donde se registran las operaciones
+     */
+    public MetricasServicio getMetricas() {
+        return metricas;
+    }
+    
+    @Override
+    public boolean agregarEnvio(Envio envio) {
+        long inicio = agregar.iniciar();
+        try {
+            boolean agregado = delegado.agregarEnvio(envio);
+            if (!agregado) {
+                agregar.rechazar();
+            }
+            return agregado;
+        } catch (RuntimeException e) {
+            agregar.fallar();
+            throw e;
+        } finally {
+            agregar.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public boolean retirarEnvio(String codigoEnvio) {
+        long inicio = retirar.iniciar();
+        try {
+            boolean retirado = delegado.retirarEnvio(codigoEnvio);
+            if (!retirado) {
+                retirar.rechazar();
+            }
+            return retirado;
+        } catch (RuntimeException e) {
+            retirar.fallar();
+            throw e;
+        } finally {
+            retirar.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public Envio buscarEnvio(String codigoEnvio) {
+        long inicio = buscar.iniciar();
+        try {
+            Envio envio = delegado.buscarEnvio(codigoEnvio);
+            if (envio == null) {
+                buscar.rechazar();
+            }
+            return envio;
+        } catch (RuntimeException e) {
+            buscar.fallar();
+            throw e;
+        } finally {
+            buscar.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public ResultadoLote agregarLote(Collection<? extends Envio> envios, boolean atomico) {
+        long inicio = agregarLote.iniciar();
+        try {
+            ResultadoLote resultado = delegado.agregarLote(envios, atomico);
+            agregarLote.rechazar(resultado.getCantidad() - resultado.getExitosos());
+            return resultado;
+        } catch (RuntimeException e) {
+            agregarLote.fallar();
+            throw e;
+        } finally {
+            agregarLote.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public ResultadoLote retirarLote(Collection<String> codigos, boolean atomico) {
+        long inicio = retirarLote.iniciar();
+        try {
+            ResultadoLote resultado = delegado.retirarLote(codigos, atomico);
+            retirarLote.rechazar(resultado.getCantidad() - resultado.getExitosos());
+            return resultado;
+        } catch (RuntimeException e) {
+            retirarLote.fallar();
+            throw e;
+        } finally {
+            retirarLote.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public List<Envio> listarEnvios() {
+        long inicio = listar.iniciar();
+        try {
+            return delegado.listarEnvios();
+        } catch (RuntimeException e) {
+            listar.fallar();
+            throw e;
+        } finally {
+            listar.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public Stream<Envio> flujoEnvios() {
+        return delegado.flujoEnvios();
+    }
+    
+    @Override
+    public List<Envio> buscarEnviosPorCliente(String cliente) {
+        long inicio = porCliente.iniciar();
+        try {
+            return delegado.buscarEnviosPorCliente(cliente);
+        } catch (RuntimeException e) {
+            porCliente.fallar();
+            throw e;
+        } finally {
+            porCliente.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public List<Envio> buscarEnviosPorTipo(FabricaEnvios.TipoEnvio tipo) {
+        long inicio = porTipo.iniciar();
+        try {
+            return delegado.buscarEnviosPorTipo(tipo);
+        } catch (RuntimeException e) {
+            porTipo.fallar();
+            throw e;
+        } finally {
+            porTipo.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public Stream<Envio> buscarEnviosPorRango(IndiceRango.Campo campo, double minimo, double maximo) {
+        return delegado.buscarEnviosPorRango(campo, minimo, maximo);
+    }
+    
+    @Override
+    public List<Envio> listarMayoresCostos(int k) {
+        long inicio = mayoresCostos.iniciar();
+        try {
+            return delegado.listarMayoresCostos(k);
+        } catch (RuntimeException e) {
+            mayoresCostos.fallar();
+            throw e;
+        } finally {
+            mayoresCostos.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public List<Envio> listarMayoresCostos(FabricaEnvios.TipoEnvio tipo, int k) {
+        long inicio = mayoresCostos.iniciar();
+        try {
+            return delegado.listarMayoresCostos(tipo, k);
+        } catch (RuntimeException e) {
+            mayoresCostos.fallar();
+            throw e;
+        } finally {
+            mayoresCostos.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public int obtenerCantidadEnvios() {
+        return delegado.obtenerCantidadEnvios();
+    }
+    
+    @Override
+    public double calcularTotalTarifas() {
+        long inicio = total.iniciar();
+        try {
+            return delegado.calcularTotalTarifas();
+        } catch (RuntimeException e) {
+            total.fallar();
+            throw e;
+        } finally {
+            total.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public double recalcularTotalTarifas() {
+        long inicio = recalcular.iniciar();
+        try {
+            return delegado.recalcularTotalTarifas();
+        } catch (RuntimeException e) {
+            recalcular.fallar();
+            throw e;
+        } finally {
+            recalcular.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public ReporteEnvios generarReporte() {
+        long inicio = reporte.iniciar();
+        try {
+            return delegado.generarReporte();
+        } catch (RuntimeException e) {
+            reporte.fallar();
+            throw e;
+        } finally {
+            reporte.terminar(inicio);
+        }
+    }
+    
+    @Override
+    public AgregadosEnvios obtenerAgregados() {
+        return delegado.obtenerAgregados();
+    }
+}
+
@@ -0,0 +1,595 @@
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Servidor HTTP/JSON sin interfaz sobre el servicio de logística
+ * Usa el servidor HTTP del JDK (com.sun.net.httpserver) con un hilo virtual por
+ * petición cuando la JVM los ofrece (Java 21 o superior) y un grupo de hilos en caché
+ * en caso contrario. Las conexiones se mantienen abiertas entre peticiones (HTTP/1.1
+ * keep-alive) y los listados se escriben a medida que se recorren, en bloques
+ * (chunked), sin armar la lista completa en memoria. Main arma el servicio sobre
+ * RepositorioEnviosConIndices y RepositorioEnviosConcurrente: las altas y bajas de códigos
+ * distintos solo comparten la actualización O(1) de los agregados del servicio.
+ *
+ * Rutas:
+ * POST   /envios           Agrega un envío {"tipo","cliente","codigo","peso","distancia"}
+ * GET    /envios           Lista los envíos (filtros opcionales ?cliente=, ?tipo=, ?limite=)
+ * GET    /envios/{codigo}  Busca un envío
+ * DELETE /envios/{codigo}  Retira un envío
+ * GET    /total            Cantidad de envíos y total de tarifas
+ * GET    /metricas         Métricas en texto plano (si el servicio es un ServicioLogisticaInstrumentado)
+ * Principio S (Single Responsibility): Solo traduce HTTP a operaciones del servicio
+ * Principio D (Dependency Inversion): Depende de IServicioLogistica
+ */
+public class ServidorLogistica {
+    private static final String TIPO_JSON = "application/json; charset=utf-8";
+    private static final String TIPO_TEXTO = "text/plain; charset=utf-8";
+    private static final int TAMANO_MAXIMO_CUERPO = 64 * 1024;
+    
+    static {
+        // Sin TCP_NODELAY, las cabeceras y el cuerpo salen en dos segmentos y el algoritmo
+        // de Nagle junto con el ACK diferido agregan ~40 ms a cada petición keep-alive.
+        // El servidor del JDK lee esta propiedad una sola vez, al crear el primer servidor
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+    
+    private final IServicioLogistica servicio;
+    private HttpServer servidor;
+    private ExecutorService ejecutor;
+    
+    /**
+     * Constructor con inyección de dependencias
+     * @param servicio Servicio de logística a exponer (debe admitir varios hilos)
+     */
+    public ServidorLogistica(IServicioLogistica servicio) {
+        if (servicio == null) {
+            throw new IllegalArgumentException("El servicio no puede ser nulo");
+        }
+        this.servicio = servicio;
+    }
+    
+    /**
+     * Inicia el servidor
+     * @param direccion Dirección y puerto (puerto 0 para elegir uno libre)
+     * @return Puerto en el que escucha el servidor
+     * @throws IOException si no se puede abrir el puerto
+     * @throws IllegalStateException si el servidor ya está iniciado
+     */
+    public synchronized int iniciar(InetSocketAddress direccion) throws IOException {
+        if (servidor != null) {
+            throw new IllegalStateException("El servidor ya está iniciado");
+        }
+        HttpServer nuevo = HttpServer.create(direccion, 1024);
+        // Sin un contexto raíz, el servidor del JDK responde 404 a las rutas desconocidas
+        // cerrando la conexión, y el cliente que la reutiliza falla en la petición siguiente
+        nuevo.createContext("/", ServidorLogistica::atenderDesconocida);
+        nuevo.createContext("/envios", this::atenderEnvios);
+        nuevo.createContext("/total", this::atenderTotal);
+        if (servicio instanceof ServicioLogisticaInstrumentado) {
+            nuevo.createContext("/metricas", this::atenderMetricas);
+        }
+        ejecutor = crearEjecutor();
+        nuevo.setExecutor(ejecutor);
+        nuevo.start();
+        servidor = nuevo;
+        return nuevo.getAddress().getPort();
+    }
+    
+    /**
+     * Detiene el servidor esperando a que terminen las peticiones en curso
+     * @param segundos Tiempo máximo de espera
+     */
+    public synchronized void detener(int segundos) {
+        if (servidor == null) {
+            return;
+        }
+        servidor.stop(segundos);
+        ejecutor.shutdown();
+        try {
+            ejecutor.awaitTermination(segundos, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        servidor = null;
+        ejecutor = null;
+    }
+    
+    /**
+     * Indica si el servidor atiende con hilos virtuales
+     * @return true si la JVM ofrece hilos virtuales
+     */
+    public static boolean usaHilosVirtuales() {
+        return metodoHilosVirtuales() != null;
+    }
+    
+    /**
+     * Crea un hilo virtual por tarea si la JVM lo permite; si no, un grupo en caché
+     * (se busca por reflexión para seguir compilando con Java 17)
+     */
+    private static ExecutorService crearEjecutor() {
+        Method metodo = metodoHilosVirtuales();
+        if (metodo != null) {
+            try {
+                return (ExecutorService) metodo.invoke(null);
+            } catch (ReflectiveOperationException e) {
+                // Se usa el grupo en caché
+            }
+        }
+        return Executors.newCachedThreadPool(tarea -> {
+            Thread hilo = new Thread(tarea, "servidor-logistica");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+    
+    private static Method metodoHilosVirtuales() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Atiende /envios y /envios/{codigo}
+     */
+    private void atenderEnvios(HttpExchange intercambio) throws IOException {
+        try {
+            String ruta = intercambio.getRequestURI().getRawPath();
+            String metodo = intercambio.getRequestMethod();
+            String codigo = null;
+            if (ruta.length() > "/envios/".length() && ruta.startsWith("/envios/")) {
+                codigo = URLDecoder.decode(ruta.substring("/envios/".length()), StandardCharsets.UTF_8);
+            } else if (!ruta.equals("/envios") && !ruta.equals("/envios/")) {
+                responderError(intercambio, 404, "Ruta no encontrada");
+                return;
+            }
+            
+            if (codigo == null && metodo.equals("GET")) {
+                listar(intercambio);
+            } else if (codigo == null && metodo.equals("POST")) {
+                agregar(intercambio);
+            } else if (codigo != null && metodo.equals("GET")) {
+                buscar(intercambio, codigo);
+            } else if (codigo != null && metodo.equals("DELETE")) {
+                retirar(intercambio, codigo);
+            } else {
+                intercambio.getResponseHeaders().set("Allow", codigo == null ? "GET, POST" : "GET, DELETE");
+                responderError(intercambio, 405, "Método no permitido");
+            }
+        } catch (IllegalArgumentException e) {
+            responderError(intercambio, 400, e.getMessage());
+        } finally {
+            intercambio.close();
+        }
+    }
+    
+    /**
+     * Atiende /total
+     */
+    private void atenderTotal(HttpExchange intercambio) throws IOException {
+        try {
+            if (!intercambio.getRequestMethod().equals("GET")) {
+                intercambio.getResponseHeaders().set("Allow", "GET");
+                responderError(intercambio, 405, "Método no permitido");
+                return;
+            }
+            StringBuilder json = new StringBuilder(64);
+            json.append("{\"cantidad\":").append(servicio.obtenerCantidadEnvios())
+                .append(",\"totalTarifas\":").append(servicio.calcularTotalTarifas()).append('}');
+            responder(intercambio, 200, json);
+        } finally {
+            intercambio.close();
+        }
+    }
+    
+    /**
+     * Atiende las rutas que no son de la API
+     */
+    private static void atenderDesconocida(HttpExchange intercambio) throws IOException {
+        try {
+            responderError(intercambio, 404, "Ruta no encontrada");
+        } finally {
+            intercambio.close();
+        }
+    }
+    
+    private void agregar(HttpExchange intercambio) throws IOException {
+        Map<String, String> campos = LectorJson.leerObjeto(leerCuerpo(intercambio));
+        Envio envio = FabricaEnvios.crearEnvioDesdeString(
+                requerido(campos, "tipo"),
+                requerido(campos, "cliente"),
+                requerido(campos, "codigo"),
+                leerPositivo(campos, "peso"),
+                leerPositivo(campos, "distancia"));
+        if (!servicio.agregarEnvio(envio)) {
+            responderError(intercambio, 409, "Ya existe un envío con el código " + envio.getCodigoEnvio());
+            return;
+        }
+        intercambio.getResponseHeaders().set("Location", "/envios/" + envio.getCodigoEnvio());
+        responder(intercambio, 201, escribirEnvio(new StringBuilder(160), envio));
+    }
+    
+    private void buscar(HttpExchange intercambio, String codigo) throws IOException {
+        Envio envio = servicio.buscarEnvio(codigo);
+        if (envio == null) {
+            responderError(intercambio, 404, "No se encontró un envío con el código " + codigo);
+            return;
+        }
+        responder(intercambio, 200, escribirEnvio(new StringBuilder(160), envio));
+    }
+    
+    private void retirar(HttpExchange intercambio, String codigo) throws IOException {
+        Envio envio = servicio.buscarEnvio(codigo);
+        if (envio == null || !servicio.retirarEnvio(codigo)) {
+            responderError(intercambio, 404, "No se encontró un envío con el código " + codigo);
+            return;
+        }
+        responder(intercambio, 200, escribirEnvio(new StringBuilder(160), envio));
+    }
+    
+    /**
+     * Escribe el listado a medida que recorre el flujo de envíos
+     */
+    private void listar(HttpExchange intercambio) throws IOException {
+        Map<String, String> parametros = leerParametros(intercambio.getRequestURI().getRawQuery());
+        Stream<Envio> envios;
+        String cliente = parametros.get("cliente");
+        String tipo = parametros.get("tipo");
+        if (cliente != null) {
+            envios = servicio.buscarEnviosPorCliente(cliente).stream();
+            if (tipo != null) {
+                FabricaEnvios.TipoEnvio filtro = leerTipo(tipo);
+                envios = envios.filter(envio -> envio.getTipo() == filtro);
+            }
+        } else if (tipo != null) {
+            envios = servicio.buscarEnviosPorTipo(leerTipo(tipo)).stream();
+        } else {
+            envios = servicio.flujoEnvios();
+        }
+        String limite = parametros.get("limite");
+        if (limite != null) {
+            try {
+                envios = envios.limit(Long.parseLong(limite));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Límite inválido: " + limite);
+            }
+        }
+        
+        intercambio.getResponseHeaders().set("Content-Type", TIPO_JSON);
+        intercambio.sendResponseHeaders(200, 0);
+        try (Writer salida = new OutputStreamWriter(intercambio.getResponseBody(), StandardCharsets.UTF_8)) {
+            StringBuilder bloque = new StringBuilder(8192);
+            bloque.append('[');
+            boolean primero = true;
+            Iterator<Envio> iterador = envios.iterator();
+            while (iterador.hasNext()) {
+                if (!primero) {
+                    bloque.append(',');
+                }
+                primero = false;
+                escribirEnvio(bloque, iterador.next());
+                if (bloque.length() >= 8000) {
+                    salida.append(bloque);
+                    bloque.setLength(0);
+                }
+            }
+            bloque.append(']');
+            salida.append(bloque);
+        }
+    }
+    
+    private static FabricaEnvios.TipoEnvio leerTipo(String tipo) {
+        try {
+            return FabricaEnvios.TipoEnvio.valueOf(tipo.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Tipo de envío inválido: " + tipo);
+        }
+    }
+    
+    private static String requerido(Map<String, String> campos, String nombre) {
+        String valor = campos.get(nombre);
+        if (valor == null) {
+            throw new IllegalArgumentException("Falta el campo " + nombre);
+        }
+        return valor;
+    }
+    
+    /**
+     * Lee un número finito mayor que cero (1e999 se lee como Infinity, que no es JSON
+     * válido en la respuesta y volvería NaN los totales del servicio)
+     */
+    private static double leerPositivo(Map<String, String> campos, String nombre) {
+        String valor = requerido(campos, nombre);
+        double numero;
+        try {
+            numero = Double.parseDouble(valor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("El campo " + nombre + " debe ser numérico");
+        }
+        if (!(numero > 0) || Double.isInfinite(numero)) {
+            throw new IllegalArgumentException("El campo " + nombre + " debe ser un número finito mayor que cero");
+        }
+        return numero;
+    }
+    
+    /**
+     * Lee el cuerpo completo de la petición (se consume siempre para mantener la conexión)
+     */
+    private static String leerCuerpo(HttpExchange intercambio) throws IOException {
+        ByteArrayOutputStream cuerpo = new ByteArrayOutputStream(256);
+        byte[] buffer = new byte[4096];
+        try (InputStream entrada = intercambio.getRequestBody()) {
+            int leidos;
+            while ((leidos = entrada.read(buffer)) != -1) {
+                if (cuerpo.size() + leidos > TAMANO_MAXIMO_CUERPO) {
+                    throw new IllegalArgumentException("El cuerpo de la petición es demasiado grande");
+                }
+                cuerpo.write(buffer, 0, leidos);
+            }
+        }
+        return cuerpo.toString(StandardCharsets.UTF_8);
+    }
+    
+    private static Map<String, String> leerParametros(String consulta) {
+        Map<String, String> parametros = new HashMap<>();
+        if (consulta == null || consulta.isEmpty()) {
+            return parametros;
+        }
+        for (String par : consulta.split("&")) {
+            int igual = par.indexOf('=');
+            String nombre = igual < 0 ? par : par.substring(0, igual);
+            String valor = igual < 0 ? "" : par.substring(igual + 1);
+            parametros.put(URLDecoder.decode(nombre, StandardCharsets.UTF_8),
+                    URLDecoder.decode(valor, StandardCharsets.UTF_8));
+        }
+        return parametros;
+    }
+    
+    /**
+     * Escribe un envío como objeto JSON
+     */
+    static StringBuilder escribirEnvio(StringBuilder json, Envio envio) {
+        json.append("{\"codigo\":");
+        escribirTexto(json, envio.getCodigoEnvio());
+        json.append(",\"cliente\":");
+        escribirTexto(json, envio.getCliente());
+        json.append(",\"tipo\":\"").append(envio.getTipo().name())
+            .append("\",\"peso\":").append(envio.getPesoKg())
+            .append(",\"distancia\":").append(envio.getDistanciaKm())
+            .append(",\"tarifa\":").append(envio.getCosto())
+            .append('}');
+        return json;
+    }
+    
+    private static void escribirTexto(StringBuilder json, String texto) {
+        json.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+    
+    private void atenderMetricas(HttpExchange intercambio) throws IOException {
+        try {
+            if (!intercambio.getRequestMethod().equals("GET")) {
+                intercambio.getResponseHeaders().set("Allow", "GET");
+                responderError(intercambio, 405, "Método no permitido");
+                return;
+            }
+            MetricasServicio metricas = ((ServicioLogisticaInstrumentado) servicio).getMetricas();
+            responder(intercambio, 200, TIPO_TEXTO, metricas.volcarTexto());
+        } finally {
+            intercambio.close();
+        }
+    }
+    
+    private static void responderError(HttpExchange intercambio, int estado, String mensaje) throws IOException {
+        StringBuilder json = new StringBuilder(64).append("{\"error\":");
+        escribirTexto(json, mensaje == null ? "Petición inválida" : mensaje);
+        responder(intercambio, estado, json.append('}'));
+    }
+    
+    /**
+     * Responde con longitud fija, lo que permite reutilizar la conexión
+     */
+    private static void responder(HttpExchange intercambio, int estado, CharSequence json) throws IOException {
+        responder(intercambio, estado, TIPO_JSON, json);
+    }
+    
+    private static void responder(HttpExchange intercambio, int estado, String tipo, CharSequence contenido)
+            throws IOException {
+        byte[] bytes = contenido.toString().getBytes(StandardCharsets.UTF_8);
+        Headers cabeceras = intercambio.getResponseHeaders();
+        cabeceras.set("Content-Type", tipo);
+        intercambio.sendResponseHeaders(estado, bytes.length);
+        try (OutputStream salida = intercambio.getResponseBody()) {
+            salida.write(bytes);
+        }
+    }
+    
+    /**
+     * Lector de objetos JSON planos (valores de texto, número, booleano o null)
+     * Los números y booleanos se devuelven como su texto
+     */
+    static final class LectorJson {
+        private final String texto;
+        private int posicion;
+        
+        private LectorJson(String texto) {
+            this.texto = texto;
+        }
+        
+        static Map<String, String> leerObjeto(String texto) {
+            LectorJson lector = new LectorJson(texto);
+            Map<String, String> campos = lector.objeto();
+            lector.saltarEspacios();
+            if (lector.posicion != texto.length()) {
+                throw lector.error("contenido después del objeto");
+            }
+            return campos;
+        }
+        
+        private Map<String, String> objeto() {
+            Map<String, String> campos = new HashMap<>();
+            esperar('{');
+            saltarEspacios();
+            if (mirar() == '}') {
+                posicion++;
+                return campos;
+            }
+            while (true) {
+                saltarEspacios();
+                String nombre = cadena();
+                saltarEspacios();
+                esperar(':');
+                saltarEspacios();
+                campos.put(nombre, valor());
+                saltarEspacios();
+                char c = siguiente();
+                if (c == '}') {
+                    return campos;
+                }
+                if (c != ',') {
+                    throw error("se esperaba ',' o '}'");
+                }
+            }
+        }
+        
+        private String valor() {
+            char c = mirar();
+            if (c == '"') {
+                return cadena();
+            }
+            int inicio = posicion;
+            while (posicion < texto.length() && "-+.eE0123456789truefalsn".indexOf(texto.charAt(posicion)) >= 0) {
+                posicion++;
+            }
+            if (inicio == posicion) {
+                throw error("valor inválido");
+            }
+            String valor = texto.substring(inicio, posicion);
+            return valor.equals("null") ? null : valor;
+        }
+        
+        private String cadena() {
+            esperar('"');
+            StringBuilder resultado = new StringBuilder();
+            while (true) {
+                char c = siguiente();
+                if (c == '"') {
+                    return resultado.toString();
+                }
+                if (c != '\\') {
+                    resultado.append(c);
+                    continue;
+                }
+                char escape = siguiente();
+                switch (escape) {
+                    case 'n':
+                        resultado.append('\n');
+                        break;
+                    case 'r':
+                        resultado.append('\r');
+                        break;
+                    case 't':
+                        resultado.append('\t');
+                        break;
+                    case 'b':
+                        resultado.append('\b');
+                        break;
+                    case 'f':
+                        resultado.append('\f');
+                        break;
+                    case 'u':
+                        if (posicion + 4 > texto.length()) {
+                            throw error("escape incompleto");
+                        }
+                        try {
+                            resultado.append((char) Integer.parseInt(texto.substring(posicion, posicion + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("escape inválido");
+                        }
+                        posicion += 4;
+                        break;
+                    default:
+                        resultado.append(escape);
+                }
+            }
+        }
+        
+        private void saltarEspacios() {
+            while (posicion < texto.length() && Character.isWhitespace(texto.charAt(posicion))) {
+                posicion++;
+            }
+        }
+        
+        private void esperar(char esperado) {
+            if (siguiente() != esperado) {
+                throw error("se esperaba '" + esperado + "'");
+            }
+        }
+        
+        private char mirar() {
+            if (posicion >= texto.length()) {
+                throw error("fin inesperado");
+            }
+            return texto.charAt(posicion);
+        }
+        
+        private char siguiente() {
+            char c = mirar();
+            posicion++;
+            return c;
+        }
+        
+        private IllegalArgumentException error(String detalle) {
+            return new IllegalArgumentException("JSON inválido en la posición " + posicion + ": " + detalle);
+        }
+    }
+}
+
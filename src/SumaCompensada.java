@@ -0,0 +1,58 @@
+/**
+ * Acumulador de sumas con compensación de Kahan-Babuška (Neumaier)
+ * Mantiene el error de redondeo acumulado aparte, de modo que un total que
+ * recibe millones de sumas y restas no se desvía del recálculo completo
+ * Principio S (Single Responsibility): Solo acumula valores con precisión
+ */
+public final class SumaCompensada {
+    private double suma;
+    private double compensacion;
+    
+    /**
+     * Suma un valor al acumulado
+     * @param valor Valor a sumar
+     */
+    public void sumar(double valor) {
+        double t = suma + valor;
+        if (Math.abs(suma) >= Math.abs(valor)) {
+            compensacion += (suma - t) + valor;
+        } else {
+            compensacion += (valor - t) + suma;
+        }
+        suma = t;
+    }
+    
+    /**
+     * Resta un valor del acumulado
+     * @param valor Valor a restar
+     */
+    public void restar(double valor) {
+        sumar(-valor);
+    }
+    
+    /**
+     * Incorpora otro acumulado a este
+     * @param otra Suma compensada a combinar
+     */
+    public void combinar(SumaCompensada otra) {
+        sumar(otra.suma);
+        sumar(otra.compensacion);
+    }
+    
+    /**
+     * Reinicia el acumulado a cero
+     */
+    public void reiniciar() {
+        suma = 0.0;
+        compensacion = 0.0;
+    }
+    
+    /**
+     * Obtiene el valor acumulado
+     * @return Suma con la compensación aplicada
+     */
+    public double valor() {
+        return suma + compensacion;
+    }
+}
+
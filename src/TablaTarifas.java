@@ -0,0 +1,245 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tabla de tarifas por tipo de envío (tarifa base por km y recargo por kg)
+ * Cada tabla es inmutable. La tabla vigente se publica en una AtomicReference: calcular
+ * una tarifa solo lee esa referencia (una lectura volátil), sin bloqueos, y una recarga
+ * reemplaza la tabla completa de una vez, así que ningún cálculo mezcla precios de dos
+ * tablas. Cada publicación incrementa la versión; quien guarda valores derivados de las
+ * tarifas (agregados, índices por costo) compara la versión para saber si debe recalcular.
+ *
+ * El archivo de tarifas es un .properties con dos claves por tipo:
+ * terrestre.km=1500, terrestre.kg=2000, aereo.km=..., aereo.kg=..., maritimo.km=..., maritimo.kg=...
+ * Principio S (Single Responsibility): Solo guarda y publica los precios
+ * Principio O (Open/Closed): Los precios cambian sin modificar las clases de envío
+ */
+public final class TablaTarifas {
+    /** Tarifas de fábrica del sistema */
+    public static final TablaTarifas POR_DEFECTO = new TablaTarifas(
+            new double[] {1500.0, 5000.0, 800.0},
+            new double[] {2000.0, 4000.0, 1000.0},
+            0L);
+    
+    private static final FabricaEnvios.TipoEnvio[] TIPOS = FabricaEnvios.TipoEnvio.values();
+    private static final AtomicReference<TablaTarifas> VIGENTE = new AtomicReference<>(POR_DEFECTO);
+    
+    // Indexados por el ordinal del tipo; KernelTarifas los lee directamente
+    final double[] tarifasPorKm;
+    final double[] recargosPorKg;
+    private final long version;
+    
+    private TablaTarifas(double[] tarifasPorKm, double[] recargosPorKg, long version) {
+        this.tarifasPorKm = tarifasPorKm;
+        this.recargosPorKg = recargosPorKg;
+        this.version = version;
+    }
+    
+    /**
+     * Obtiene la tabla vigente (sin bloqueos)
+     * @return Tabla de tarifas vigente
+     */
+    public static TablaTarifas actual() {
+        return VIGENTE.get();
+    }
+    
+    /**
+     * Publica una tabla como vigente, con una versión mayor que la anterior
+     * Si los precios no cambian se conserva la tabla vigente (y su versión)
+     * @param tabla Tabla a publicar
+     * @return Tabla vigente después de publicar
+     */
+    public static TablaTarifas publicar(TablaTarifas tabla) {
+        if (tabla == null) {
+            throw new IllegalArgumentException("La tabla de tarifas no puede ser nula");
+        }
+        return VIGENTE.updateAndGet(anterior -> anterior.mismosPrecios(tabla) ? anterior
+                : new TablaTarifas(tabla.tarifasPorKm, tabla.recargosPorKg, anterior.version + 1));
+    }
+    
+    /**
+     * Lee un archivo de tarifas y lo publica como tabla vigente
+     * Si el archivo no es válido se lanza la excepción y la tabla vigente no cambia
+     * @param archivo Archivo .properties de tarifas
+     * @return Tabla publicada
+     * @throws IOException si no se puede leer el archivo
+     */
+    public static TablaTarifas recargar(Path archivo) throws IOException {
+        return publicar(cargar(archivo));
+    }
+    
+    /**
+     * Lee un archivo de tarifas sin publicarlo
+     * @param archivo Archivo .properties de tarifas
+     * @return Tabla leída
+     * @throws IOException si no se puede leer el archivo
+     * @throws IllegalArgumentException si falta una clave o un valor no es válido
+     */
+    public static TablaTarifas cargar(Path archivo) throws IOException {
+        Properties propiedades = new Properties();
+        try (Reader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            propiedades.load(lector);
+        }
+        double[] porKm = new double[TIPOS.length];
+        double[] porKg = new double[TIPOS.length];
+        for (FabricaEnvios.TipoEnvio tipo : TIPOS) {
+            String prefijo = tipo.name().toLowerCase(Locale.ROOT);
+            porKm[tipo.ordinal()] = leerPrecio(propiedades, prefijo + ".km");
+            porKg[tipo.ordinal()] = leerPrecio(propiedades, prefijo + ".kg");
+        }
+        return new TablaTarifas(porKm, porKg, 0L);
+    }
+    
+    /**
+     * Vigila un archivo de tarifas y lo recarga cada vez que cambia
+     * Un archivo inválido se informa por la salida de error y se conserva la tabla vigente
+     * @param archivo Archivo .properties de tarifas
+     * @return Objeto que detiene la vigilancia al cerrarse
+     * @throws IOException si no se puede vigilar el directorio del archivo
+     */
+    public static Closeable vigilar(Path archivo) throws IOException {
+        Path absoluto = archivo.toAbsolutePath();
+        Path directorio = absoluto.getParent();
+        WatchService vigilante = directorio.getFileSystem().newWatchService();
+        directorio.register(vigilante, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread hilo = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey clave = vigilante.take();
+                    boolean cambio = false;
+                    for (WatchEvent<?> evento : clave.pollEvents()) {
+                        if (absoluto.getFileName().equals(evento.context())) {
+                            cambio = true;
+                        }
+                    }
+                    clave.reset();
+                    if (cambio) {
+                        try {
+                            recargar(absoluto);
+                        } catch (IOException | IllegalArgumentException e) {
+                            System.err.println("No se recargaron las tarifas de " + absoluto + ": " + e.getMessage());
+                        }
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // Vigilancia terminada
+            }
+        }, "tabla-tarifas");
+        hilo.setDaemon(true);
+        hilo.start();
+        return vigilante;
+    }
+    
+    /**
+     * Crea una copia de la tabla con otros precios para un tipo (sin publicarla)
+     * @param tipo Tipo de envío
+     * @param tarifaPorKm Tarifa base por kilómetro
+     * @param recargoPorKg Recargo por kilogramo
+     * @return Tabla con los precios del tipo reemplazados
+     */
+    public TablaTarifas conPrecios(FabricaEnvios.TipoEnvio tipo, double tarifaPorKm, double recargoPorKg) {
+        if (tipo == null) {
+            throw new IllegalArgumentException("El tipo de envío no puede ser nulo");
+        }
+        validarPrecio(tarifaPorKm, "tarifa por km");
+        validarPrecio(recargoPorKg, "recargo por kg");
+        double[] porKm = tarifasPorKm.clone();
+        double[] porKg = recargosPorKg.clone();
+        porKm[tipo.ordinal()] = tarifaPorKm;
+        porKg[tipo.ordinal()] = recargoPorKg;
+        return new TablaTarifas(porKm, porKg, version);
+    }
+    
+    /**
+     * Calcula la tarifa de un envío con esta tabla
+     * @param tipo Tipo de envío
+     * @param pesoKg Peso en kilogramos
+     * @param distanciaKm Distancia en kilómetros
+     * @return Tarifa total calculada
+     */
+    public double calcular(FabricaEnvios.TipoEnvio tipo, double pesoKg, double distanciaKm) {
+        int i = tipo.ordinal();
+        return (tarifasPorKm[i] * distanciaKm) + (recargosPorKg[i] * pesoKg);
+    }
+    
+    /**
+     * Obtiene la tarifa base por kilómetro de un tipo
+     * @param tipo Tipo de envío
+     * @return Tarifa por km
+     */
+    public double getTarifaPorKm(FabricaEnvios.TipoEnvio tipo) {
+        return tarifasPorKm[tipo.ordinal()];
+    }
+    
+    /**
+     * Obtiene el recargo por kilogramo de un tipo
+     * @param tipo Tipo de envío
+     * @return Recargo por kg
+     */
+    public double getRecargoPorKg(FabricaEnvios.TipoEnvio tipo) {
+        return recargosPorKg[tipo.ordinal()];
+    }
+    
+    /**
+     * Obtiene la versión de la tabla (0 para una tabla que nunca se publicó)
+     * @return Versión de publicación
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Indica si dos tablas tienen los mismos precios (sin importar la versión)
+     * @param otra Tabla a comparar
+     * @return true si todos los precios coinciden
+     */
+    public boolean mismosPrecios(TablaTarifas otra) {
+        return Arrays.equals(tarifasPorKm, otra.tarifasPorKm) && Arrays.equals(recargosPorKg, otra.recargosPorKg);
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder("Tarifas v").append(version).append(':');
+        for (FabricaEnvios.TipoEnvio tipo : TIPOS) {
+            texto.append(' ').append(tipo.getNombre())
+                 .append(" $").append(getTarifaPorKm(tipo)).append("/km")
+                 .append(" + $").append(getRecargoPorKg(tipo)).append("/kg");
+        }
+        return texto.toString();
+    }
+    
+    private static double leerPrecio(Properties propiedades, String clave) {
+        String valor = propiedades.getProperty(clave);
+        if (valor == null) {
+            throw new IllegalArgumentException("Falta la tarifa " + clave);
+        }
+        double precio;
+        try {
+            precio = Double.parseDouble(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Tarifa inválida en " + clave + ": " + valor);
+        }
+        validarPrecio(precio, clave);
+        return precio;
+    }
+    
+    private static void validarPrecio(double precio, String nombre) {
+        if (!Double.isFinite(precio) || precio < 0) {
+            throw new IllegalArgumentException("El valor de " + nombre + " debe ser un número no negativo: " + precio);
+        }
+    }
+}
+
@@ -1,15 +1,13 @@
 /**
  * Clase que representa un envío terrestre
- * Tarifa base: $1500 por km
- * Recargo: $2000 por kg
+ * Tarifa base por defecto: $1500 por km
+ * Recargo por defecto: $2000 por kg
+ * (los precios vigentes se leen de TablaTarifas)
  * Principio S (Single Responsibility): Solo maneja lógica de envío terrestre
  * Principio O (Open/Closed): Extiende sin modificar la clase base
  * Principio L (Liskov Substitution): Sustituible por Envio
  */
 public class Terrestre extends Envio {
-    private static final double TARIFA_BASE_POR_KM = 1500.0;
-    private static final double RECARGO_POR_KG = 2000.0;
-    
     /**
      * Constructor de Envio Terrestre
      * @param cliente Nombre del remitente
@@ -23,12 +21,27 @@ public class Terrestre extends Envio {
     
     @Override
     public double calcularTarifa() {
-        return (TARIFA_BASE_POR_KM * distanciaKm) + (RECARGO_POR_KG * pesoKg);
+        return calcularTarifa(pesoKg, distanciaKm);
+    }
+    
+    /**
+     * Calcula la tarifa de un envío terrestre a partir de sus valores primitivos
+     * @param pesoKg Peso en kilogramos
+     * @param distanciaKm Distancia en kilómetros
+     * @return Tarifa total calculada
+     */
+    public static double calcularTarifa(double pesoKg, double distanciaKm) {
+        return TablaTarifas.actual().calcular(FabricaEnvios.TipoEnvio.TERRESTRE, pesoKg, distanciaKm);
     }
     
     @Override
     public String getTipoEnvio() {
         return "Terrestre";
     }
+    
+    @Override
+    public FabricaEnvios.TipoEnvio getTipo() {
+        return FabricaEnvios.TipoEnvio.TERRESTRE;
+    }
 }
 
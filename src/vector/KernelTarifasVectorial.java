@@ -0,0 +1,93 @@
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Núcleo SIMD de KernelTarifas con el Vector API (jdk.incubator.vector)
+ * Cada paso lee 8 ordinales de tipo, los amplía a un vector de double y elige los
+ * coeficientes de cada carril con máscaras (hay un coeficiente por tipo, sin accesos
+ * indexados). La tarifa se evalúa como (base * distancia) + (recargo * peso) con una
+ * multiplicación y una suma redondeadas por separado, igual que el bucle escalar, así que
+ * cada tarifa es idéntica bit a bit. Las sumas llevan la compensación de Neumaier por
+ * carril y vuelcan los carriles en el acumulado al final.
+ *
+ * Está en src/vector, fuera de la compilación por defecto (javac src/*.java), porque
+ * necesita el módulo en incubación: se compila aparte con
+ * javac --add-modules jdk.incubator.vector -cp bin -d bin src/vector/*.java (o con el perfil
+ * vector del módulo de benchmarks). Solo se usa si la JVM arrancó con
+ * --add-modules jdk.incubator.vector y -Dtarifas.vectorial no es false; KernelTarifas lo
+ * carga por nombre.
+ * Principio L (Liskov Substitution): Sustituible por los bucles escalares de KernelTarifas
+ */
+final class KernelTarifasVectorial implements KernelTarifas.Nucleo {
+    private static final VectorSpecies<Double> DOBLES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_64;
+    private static final int CARRILES = DOBLES.length();
+    
+    KernelTarifasVectorial() {
+        if (CARRILES > BYTES.length()) {
+            // 8 ordinales por lectura no alcanzan para vectores de más de 8 carriles
+            throw new UnsupportedOperationException("Vectores de " + CARRILES + " carriles no soportados");
+        }
+    }
+    
+    @Override
+    public void calcularTarifas(double[] base, double[] recargo, byte[] tipos, double[] pesos, double[] distancias,
+                                double[] tarifas, int desde, int hasta) {
+        int i = desde;
+        for (; i + BYTES.length() <= hasta; i += CARRILES) {
+            DoubleVector tipo = tipos(tipos, i);
+            tarifa(base, recargo, tipo, pesos, distancias, i).intoArray(tarifas, i);
+        }
+        KernelTarifas.calcularTarifasEscalar(base, recargo, tipos, pesos, distancias, tarifas, i, hasta);
+    }
+    
+    @Override
+    public void acumularTarifas(double[] base, double[] recargo, byte[] tipos, double[] pesos, double[] distancias,
+                                int desde, int hasta, int filtro, SumaCompensada total) {
+        DoubleVector suma = DoubleVector.zero(DOBLES);
+        DoubleVector compensacion = DoubleVector.zero(DOBLES);
+        int i = desde;
+        for (; i + BYTES.length() <= hasta; i += CARRILES) {
+            DoubleVector tipo = tipos(tipos, i);
+            DoubleVector x = tarifa(base, recargo, tipo, pesos, distancias, i);
+            if (filtro >= 0) {
+                x = x.blend(0.0, tipo.compare(VectorOperators.NE, filtro));
+            }
+            DoubleVector t = suma.add(x);
+            VectorMask<Double> sumaMayor = suma.abs().compare(VectorOperators.GE, x.abs());
+            DoubleVector error = x.sub(t).add(suma).blend(suma.sub(t).add(x), sumaMayor);
+            compensacion = compensacion.add(error);
+            suma = t;
+        }
+        for (int carril = 0; carril < CARRILES; carril++) {
+            total.sumar(suma.lane(carril));
+        }
+        total.sumar(compensacion.reduceLanes(VectorOperators.ADD));
+        KernelTarifas.acumularTarifasEscalar(base, recargo, tipos, pesos, distancias, i, hasta, filtro, total);
+    }
+    
+    private static DoubleVector tarifa(double[] base, double[] recargo, DoubleVector tipo,
+                                       double[] pesos, double[] distancias, int i) {
+        DoubleVector b = DoubleVector.broadcast(DOBLES, base[0]);
+        DoubleVector r = DoubleVector.broadcast(DOBLES, recargo[0]);
+        for (int t = 1; t < base.length; t++) {
+            VectorMask<Double> esTipo = tipo.compare(VectorOperators.EQ, t);
+            b = b.blend(base[t], esTipo);
+            r = r.blend(recargo[t], esTipo);
+        }
+        DoubleVector distancia = DoubleVector.fromArray(DOBLES, distancias, i);
+        DoubleVector peso = DoubleVector.fromArray(DOBLES, pesos, i);
+        return b.mul(distancia).add(r.mul(peso));
+    }
+    
+    /**
+     * Ordinales de tipo de las posiciones [i, i + CARRILES) como double (lee 8 bytes)
+     */
+    private static DoubleVector tipos(byte[] tipos, int i) {
+        return (DoubleVector) ByteVector.fromArray(BYTES, tipos, i).convertShape(VectorOperators.B2D, DOBLES, 0);
+    }
+}
+